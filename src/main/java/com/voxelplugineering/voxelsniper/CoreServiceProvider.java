@@ -31,7 +31,9 @@ import com.voxelplugineering.voxelsniper.commands.BrushCommand;
 import com.voxelplugineering.voxelsniper.commands.HelpCommand;
 import com.voxelplugineering.voxelsniper.commands.MaskMaterialCommand;
 import com.voxelplugineering.voxelsniper.commands.MaterialCommand;
+import com.voxelplugineering.voxelsniper.commands.MemoryCommand;
 import com.voxelplugineering.voxelsniper.commands.ParameterCommand;
+import com.voxelplugineering.voxelsniper.commands.PendingCommand;
 import com.voxelplugineering.voxelsniper.commands.RedoCommand;
 import com.voxelplugineering.voxelsniper.commands.ResetCommand;
 import com.voxelplugineering.voxelsniper.commands.UndoCommand;
@@ -42,10 +44,13 @@ import com.voxelplugineering.voxelsniper.event.handler.CommonEventHandler;
 import com.voxelplugineering.voxelsniper.service.BrushManagerService;
 import com.voxelplugineering.voxelsniper.service.Builder;
 import com.voxelplugineering.voxelsniper.service.InitHook;
+import com.voxelplugineering.voxelsniper.service.MemoryGovernorService;
 import com.voxelplugineering.voxelsniper.service.OfflineUndoHandlerService;
+import com.voxelplugineering.voxelsniper.service.PendingWorkIndexService;
 import com.voxelplugineering.voxelsniper.service.PostInit;
 import com.voxelplugineering.voxelsniper.service.PreStop;
 import com.voxelplugineering.voxelsniper.service.ServicePriorities;
+import com.voxelplugineering.voxelsniper.service.UndoBudgetService;
 import com.voxelplugineering.voxelsniper.service.alias.AnnotationScanner;
 import com.voxelplugineering.voxelsniper.service.alias.CommonAliasHandler;
 import com.voxelplugineering.voxelsniper.service.alias.GlobalAliasHandler;
@@ -63,7 +68,6 @@ import com.voxelplugineering.voxelsniper.service.permission.PermissionProxy;
 import com.voxelplugineering.voxelsniper.service.permission.TrivialPermissionProxy;
 import com.voxelplugineering.voxelsniper.service.platform.PlatformProxy;
 import com.voxelplugineering.voxelsniper.service.platform.TrivialPlatformProxy;
-import com.voxelplugineering.voxelsniper.service.registry.PlayerRegistry;
 import com.voxelplugineering.voxelsniper.service.scheduler.Scheduler;
 import com.voxelplugineering.voxelsniper.service.text.TextFormatParser;
 import com.voxelplugineering.voxelsniper.util.AnnotationHelper;
@@ -71,7 +75,10 @@ import com.voxelplugineering.voxelsniper.util.Context;
 import com.voxelplugineering.voxelsniper.util.DataTranslator;
 import com.voxelplugineering.voxelsniper.util.defaults.DefaultAliasBuilder;
 import com.voxelplugineering.voxelsniper.world.queue.ChangeQueueTask;
+import com.voxelplugineering.voxelsniper.world.queue.MemoryGovernor;
 import com.voxelplugineering.voxelsniper.world.queue.OfflineUndoHandler;
+import com.voxelplugineering.voxelsniper.world.queue.PendingWorkIndex;
+import com.voxelplugineering.voxelsniper.world.queue.UndoBudget;
 
 import java.io.File;
 import java.io.IOException;
@@ -186,6 +193,8 @@ public class CoreServiceProvider
         cmd.registerCommand(new UndoCommand(context));
         cmd.registerCommand(new RedoCommand(context));
         cmd.registerCommand(new ParameterCommand(context));
+        cmd.registerCommand(new PendingCommand(context));
+        cmd.registerCommand(new MemoryCommand(context));
     }
 
     @Builder(target = OfflineUndoHandler.class,
@@ -195,6 +204,27 @@ public class CoreServiceProvider
         return new OfflineUndoHandlerService(context);
     }
 
+    @Builder(target = MemoryGovernor.class,
+            priority = ServicePriorities.MEMORY_GOVERNOR_PRIORITY)
+    public final MemoryGovernor getMemoryGovernor(Context context)
+    {
+        return new MemoryGovernorService(context);
+    }
+
+    @Builder(target = PendingWorkIndex.class,
+            priority = ServicePriorities.PENDING_WORK_INDEX_PRIORITY)
+    public final PendingWorkIndex getPendingWorkIndex(Context context)
+    {
+        return new PendingWorkIndexService(context);
+    }
+
+    @Builder(target = UndoBudget.class,
+            priority = ServicePriorities.UNDO_BUDGET_PRIORITY)
+    public final UndoBudget getUndoBudget(Context context)
+    {
+        return new UndoBudgetService(context);
+    }
+
     @Builder(target = PlatformProxy.class,
             priority = ServicePriorities.PLATFORM_PROXY_PRIORITY)
     public final PlatformProxy getTrivialPlatform(Context context)
@@ -219,8 +249,6 @@ public class CoreServiceProvider
 
         context.getRequired(AnnotationScanner.class).scanClassPath((URLClassLoader) Gunsmith.getClassLoader());
 
-        PlayerRegistry<?> players = context.getRequired(PlayerRegistry.class);
-
         Configuration conf = context.getRequired(Configuration.class);
         PlatformProxy platform = context.getRequired(PlatformProxy.class);
         try
@@ -234,7 +262,7 @@ public class CoreServiceProvider
         Optional<Scheduler> sched = context.get(Scheduler.class);
         if (sched.isPresent())
         {
-            sched.get().startSynchronousTask(new ChangeQueueTask(players), BaseConfiguration.changeInterval);
+            sched.get().startSynchronousTask(new ChangeQueueTask(context.getRequired(PendingWorkIndex.class)), BaseConfiguration.changeInterval);
         }
 
         Optional<GlobalAliasHandler> aliases = context.get(GlobalAliasHandler.class);
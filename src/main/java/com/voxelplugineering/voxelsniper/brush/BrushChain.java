@@ -26,14 +26,18 @@ package com.voxelplugineering.voxelsniper.brush;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.voxelplugineering.voxelsniper.GunsmithLogger;
+import com.voxelplugineering.voxelsniper.config.BaseConfiguration;
 import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
 import com.voxelplugineering.voxelsniper.entity.Player;
 import com.voxelplugineering.voxelsniper.service.command.MessageReceiver;
 import com.voxelplugineering.voxelsniper.util.Nameable;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Queues;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
 import java.util.Queue;
 
 /**
@@ -87,7 +91,8 @@ public class BrushChain implements Nameable
     }
 
     /**
-     * Executes this brush chain.
+     * Executes this brush chain. If enabled, consecutive {@link FusibleMask} stages are evaluated
+     * together in a single pass over the shape.
      * 
      * @param player The player
      * @param brushVariables The execution variables
@@ -113,30 +118,70 @@ public class BrushChain implements Nameable
             }
             this.continuePoint = null;
         }
-        brushVariables.setContext(BrushContext.of(next));
-        ExecutionResult ex = next.getBrush().run(player, brushVariables);
-        if (!ex.shouldContinue())
+        while (next != null)
         {
-            if (ex instanceof ExecutionResult.Delay)
+            BrushWrapper after = null;
+            ExecutionResult ex;
+            if (BaseConfiguration.fuseMaskStages && isFusible(next))
             {
-                this.continuePoint = ((ExecutionResult.Delay) ex).getContinuePoint();
+                List<BrushWrapper> stage = Lists.newArrayList(next);
+                while (it.hasNext())
+                {
+                    after = it.next();
+                    if (!isFusible(after))
+                    {
+                        break;
+                    }
+                    stage.add(after);
+                    after = null;
+                }
+                ex = stage.size() == 1 ? run(player, brushVariables, next) : runFused(player, brushVariables, stage);
+            } else
+            {
+                ex = run(player, brushVariables, next);
+                after = it.hasNext() ? it.next() : null;
             }
-            return;
-        }
-        while (it.hasNext())
-        {
-            next = it.next();
-            brushVariables.setContext(BrushContext.of(next));
-            ex = next.getBrush().run(player, brushVariables);
             if (!ex.shouldContinue())
             {
                 if (ex instanceof ExecutionResult.Delay)
                 {
                     this.continuePoint = ((ExecutionResult.Delay) ex).getContinuePoint();
                 }
-                break;
+                return;
+            }
+            next = after;
+        }
+    }
+
+    private static ExecutionResult run(Player player, BrushVars brushVariables, BrushWrapper brush)
+    {
+        brushVariables.setContext(BrushContext.of(brush));
+        return brush.getBrush().run(player, brushVariables);
+    }
+
+    private static boolean isFusible(BrushWrapper brush)
+    {
+        return brush.getType() == BrushPartType.MASK && brush.getBrush() instanceof FusibleMask;
+    }
+
+    /**
+     * Prepares each of the given masks within its own context and then applies all of them in a
+     * single {@link MaskPass}.
+     */
+    private static ExecutionResult runFused(Player player, BrushVars brushVariables, List<BrushWrapper> stage)
+    {
+        List<FusibleMask.Filter> filters = Lists.newArrayListWithCapacity(stage.size());
+        for (BrushWrapper brush : stage)
+        {
+            brushVariables.setContext(BrushContext.of(brush));
+            Optional<FusibleMask.Filter> filter = ((FusibleMask) brush.getBrush()).prepare(player, brushVariables);
+            if (!filter.isPresent())
+            {
+                return ExecutionResult.abortExecution();
             }
+            filters.add(filter.get());
         }
+        return MaskPass.apply(player, brushVariables, stage.get(0).getName(), filters);
     }
 
     /**
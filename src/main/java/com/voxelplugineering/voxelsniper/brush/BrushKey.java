@@ -0,0 +1,180 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.brush;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.Maps;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A typed key for a variable within the {@link BrushVars}. Paths which are declared by the code,
+ * the constants of {@link BrushKeys}, the paths of typed keys and the parameters of registered
+ * brushes, are interned to a small integer slot so that lookups within each {@link BrushContext}
+ * are a single array access. Any other path, such as one entered by a player, is stored by name
+ * as slots are never reclaimed. Typed keys should be stored in constants so that the interning is
+ * only done once.
+ * 
+ * @param <T> The type of the value
+ */
+public final class BrushKey<T>
+{
+
+    private static final Map<String, Integer> SLOTS = Maps.newConcurrentMap();
+    private static final AtomicInteger NEXT_SLOT = new AtomicInteger();
+
+    static
+    {
+        for (Field field : BrushKeys.class.getFields())
+        {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class)
+            {
+                try
+                {
+                    declare((String) field.get(null));
+                } catch (IllegalAccessException e)
+                {
+                    throw new IllegalStateException("Failed to read brush key " + field.getName(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a new typed key for the given path.
+     * 
+     * @param path The path, generally one of the constants in {@link BrushKeys}
+     * @param type The value type
+     * @param <T> The value type
+     * @return The new key
+     */
+    public static <T> BrushKey<T> of(String path, Class<T> type)
+    {
+        return new BrushKey<T>(path, type);
+    }
+
+    /**
+     * Gets the slot index of the given path.
+     * 
+     * @param path The path
+     * @return The slot index, or -1 if the path has not been declared
+     */
+    static int slot(String path)
+    {
+        checkNotNull(path, "Path cannot be null.");
+        Integer slot = SLOTS.get(path);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Declares the given path, assigning a new slot if the path has not been declared before. Only
+     * paths which are known to the code should be declared.
+     * 
+     * @param path The path
+     * @return The slot index
+     */
+    static int declare(String path)
+    {
+        checkNotNull(path, "Path cannot be null.");
+        Integer slot = SLOTS.get(path);
+        if (slot != null)
+        {
+            return slot;
+        }
+        checkArgument(!path.isEmpty(), "Path cannot be empty.");
+        synchronized (SLOTS)
+        {
+            slot = SLOTS.get(path);
+            if (slot == null)
+            {
+                slot = NEXT_SLOT.getAndIncrement();
+                SLOTS.put(path, slot);
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Gets the number of slots which have been assigned so far.
+     * 
+     * @return The slot count
+     */
+    static int getSlotCount()
+    {
+        return NEXT_SLOT.get();
+    }
+
+    private final String path;
+    private final Class<T> type;
+    private final int slot;
+
+    private BrushKey(String path, Class<T> type)
+    {
+        this.path = path;
+        this.type = checkNotNull(type, "Type cannot be null.");
+        this.slot = declare(path);
+    }
+
+    /**
+     * Gets the path of this key.
+     * 
+     * @return The path
+     */
+    public String getPath()
+    {
+        return this.path;
+    }
+
+    /**
+     * Gets the type of the value of this key.
+     * 
+     * @return The type
+     */
+    public Class<T> getType()
+    {
+        return this.type;
+    }
+
+    /**
+     * Gets the slot index of this key.
+     * 
+     * @return The slot
+     */
+    int getSlot()
+    {
+        return this.slot;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.path;
+    }
+
+}
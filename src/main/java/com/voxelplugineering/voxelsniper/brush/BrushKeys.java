@@ -71,6 +71,7 @@ public final class BrushKeys
     public static final String RADIUS_Y = "ry";
     public static final String RADIUS_Z = "rz";
     public static final String RANDOM_CHANCE = "rand";
+    public static final String RANDOM_SEED = "randseed";
     public static final String RECURSIONS = "recursions";
     public static final String ROLL = "roll";
     public static final String SEED_PERCENT = "seed";
@@ -94,4 +94,28 @@ public interface BrushManager
      */
     Collection<BrushWrapper> getBrushes();
 
+    /**
+     * Resolves each part of the given expanded brush string against this manager. Implementations
+     * may return a cached {@link CompiledBrushChain} as long as it is discarded once the brushes
+     * visible to this manager change.
+     * 
+     * @param fullBrush The expanded brush string
+     * @return The compiled brush chain
+     */
+    default CompiledBrushChain compile(String fullBrush)
+    {
+        return CompiledBrushChain.compile(this, CompiledBrushChain.normalize(fullBrush), getVersion());
+    }
+
+    /**
+     * Gets a version number for the brushes visible to this manager, which changes whenever a brush
+     * is loaded into this manager or any of its parents.
+     * 
+     * @return The version
+     */
+    default long getVersion()
+    {
+        return 0;
+    }
+
 }
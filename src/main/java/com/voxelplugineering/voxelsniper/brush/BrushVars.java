@@ -27,32 +27,42 @@ import com.voxelplugineering.voxelsniper.util.DataTranslator;
 
 import com.google.common.collect.Maps;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
 
 /**
  * A holder for variables pertaining to a single player. Variables are divided into several
- * {@link BrushContext}s.
+ * {@link BrushContext}s, each of which is stored as an array indexed by the slot of the
+ * {@link BrushKey} of the variable. Variables whose path has not been declared are kept in a map
+ * within each context instead.
  * 
  * <p>TODO: add lock to prevent multiple uses of the variables concurrently.</p>
  */
 public class BrushVars
 {
 
-    private final Map<String, Object> global;
-    private final Map<String, Object> runtime;
-    private final Map<String, Object> flags;
-    private final Map<String, Map<String, Object>> brushes;
+    /**
+     * A marker for a variable which has been explicitly set to null, which still hides the
+     * variable in lower contexts.
+     */
+    private static final Object NULL = new Object();
+
+    private final Layer global;
+    private final Layer runtime;
+    private final Layer flags;
+    private final Map<String, Layer> brushes;
     private BrushContext context;
+    private Layer brush;
 
     /**
      * Creates a new {@link BrushVars}.
      */
     public BrushVars()
     {
-        this.global = Maps.newHashMap();
-        this.runtime = Maps.newHashMap();
-        this.flags = Maps.newHashMap();
+        this.global = new Layer();
+        this.runtime = new Layer();
+        this.flags = new Layer();
         this.brushes = Maps.newHashMap();
         this.context = BrushContext.GLOBAL;
     }
@@ -75,6 +85,11 @@ public class BrushVars
     public void setContext(BrushContext context)
     {
         this.context = context;
+        this.brush = null;
+        if (context instanceof BrushContext.Brush)
+        {
+            this.brush = this.brushes.get(((BrushContext.Brush) context).getBrush().getName());
+        }
     }
 
     /**
@@ -99,6 +114,7 @@ public class BrushVars
     public void clear()
     {
         this.brushes.clear();
+        this.brush = null;
         this.global.clear();
         this.runtime.clear();
         this.flags.clear();
@@ -109,7 +125,8 @@ public class BrushVars
      * exist, or it is of a different type then {@link Optional#empty()} is returned.
      * 
      * <p>If the variable type does not match the given type an attempt is made to call
-     * {@link DataTranslator#attempt} to convert the variable to the requested type.</p>
+     * {@link DataTranslator#attempt} to convert the variable to the requested type. The result of
+     * the conversion is kept until the variable is next set.</p>
      * 
      * <p>The contexts are checked in the order of brushes, then runtime, then global.</p>
      * 
@@ -120,43 +137,29 @@ public class BrushVars
      */
     public <T> Optional<T> get(String path, Class<T> type)
     {
-        Map<String, Object> data = null;
-        if (this.context instanceof BrushContext.Brush)
-        {
-            String name = ((BrushContext.Brush) this.context).getBrush().getName();
-            if (this.brushes.containsKey(name) && this.brushes.get(name).containsKey(path))
-            {
-                data = this.brushes.get(name);
-            }
-        }
+        return get(BrushKey.slot(path), path, type);
+    }
+
+    /**
+     * Gets a variable from the {@link BrushVars} for the given key. See {@link #get(String, Class)}.
+     * 
+     * @param key The key to retrieve
+     * @param <T> The expected type
+     * @return The value, if found
+     */
+    public <T> Optional<T> get(BrushKey<T> key)
+    {
+        return get(key.getSlot(), key.getPath(), key.getType());
+    }
+
+    private <T> Optional<T> get(int slot, String path, Class<T> type)
+    {
+        Layer data = find(slot, path);
         if (data == null)
         {
-            if (this.runtime.containsKey(path))
-            {
-                data = this.runtime;
-            } else if (this.global.containsKey(path))
-            {
-                data = this.global;
-            } else if (this.flags.containsKey(path))
-            {
-                data = this.flags;
-            } else
-            {
-                return Optional.empty();
-            }
-        }
-        Object o = data.get(path);
-        if (o != null)
-        {
-            try
-            {
-                return Optional.of(type.cast(o));
-            } catch (Exception e)
-            {
-                return DataTranslator.attempt(o, type);
-            }
+            return Optional.empty();
         }
-        return Optional.empty();
+        return data.get(slot, path, type);
     }
 
     /**
@@ -168,27 +171,39 @@ public class BrushVars
      */
     public boolean has(String path)
     {
-        if (this.context instanceof BrushContext.Brush)
+        return find(BrushKey.slot(path), path) != null;
+    }
+
+    /**
+     * Gets whether the given key exists within the {@link BrushVars}. See {@link #has(String)}.
+     * 
+     * @param key The key to check
+     * @return If the key was found
+     */
+    public boolean has(BrushKey<?> key)
+    {
+        return find(key.getSlot(), key.getPath()) != null;
+    }
+
+    private Layer find(int slot, String path)
+    {
+        if (this.brush != null && this.brush.has(slot, path))
         {
-            String name = ((BrushContext.Brush) this.context).getBrush().getName();
-            if (this.brushes.containsKey(name) && this.brushes.get(name).containsKey(path))
-            {
-                return true;
-            }
+            return this.brush;
         }
-        if (this.runtime.containsKey(path))
+        if (this.runtime.has(slot, path))
         {
-            return true;
+            return this.runtime;
         }
-        if (this.global.containsKey(path))
+        if (this.global.has(slot, path))
         {
-            return true;
+            return this.global;
         }
-        if (this.flags.containsKey(path))
+        if (this.flags.has(slot, path))
         {
-            return true;
+            return this.flags;
         }
-        return false;
+        return null;
     }
 
     /**
@@ -199,69 +214,197 @@ public class BrushVars
      * @param value The value
      */
     public void set(BrushContext context, String path, Object value)
+    {
+        getLayer(context, true).set(BrushKey.slot(path), path, value);
+    }
+
+    /**
+     * Sets the given value to the variable storage of the given context.
+     * 
+     * @param context The context
+     * @param key The key
+     * @param value The value
+     * @param <T> The value type
+     */
+    public <T> void set(BrushContext context, BrushKey<T> key, T value)
+    {
+        getLayer(context, true).set(key.getSlot(), key.getPath(), value);
+    }
+
+    /**
+     * Removes the given path from the context.
+     * 
+     * @param context The context
+     * @param path The path to remove
+     * @return If a value was removed
+     */
+    public boolean remove(BrushContext context, String path)
+    {
+        Layer data = getLayer(context, false);
+        return data != null && data.remove(BrushKey.slot(path), path);
+    }
+
+    private Layer getLayer(BrushContext context, boolean create)
     {
         if (context instanceof BrushContext.Brush)
         {
             String name = ((BrushContext.Brush) context).getBrush().getName();
-            if (this.brushes.containsKey(name))
+            Layer data = this.brushes.get(name);
+            if (data == null && create)
             {
-                this.brushes.get(name).put(path, value);
-                return;
+                data = new Layer();
+                this.brushes.put(name, data);
+                if (this.context instanceof BrushContext.Brush
+                        && name.equals(((BrushContext.Brush) this.context).getBrush().getName()))
+                {
+                    this.brush = data;
+                }
             }
-            Map<String, Object> data = Maps.newHashMap();
-            data.put(path, value);
-            this.brushes.put(name, data);
-            return;
+            return data;
         }
         if (context == BrushContext.RUNTIME)
         {
-            this.runtime.put(path, value);
-            return;
+            return this.runtime;
         }
         if (context == BrushContext.GLOBAL)
         {
-            this.global.put(path, value);
-            return;
+            return this.global;
         }
         if (context == BrushContext.FLAGS)
         {
-            this.flags.put(path, value);
-            return;
+            return this.flags;
         }
         throw new UnsupportedOperationException("Unknown context " + context.toString());
     }
 
     /**
-     * Removes the given path from the context.
-     * 
-     * @param context The context
-     * @param path The path to remove
-     * @return If a value was removed
+     * The variables of a single context, indexed by slot. The last translated value of each slot is
+     * kept alongside it so that repeated reads of a variable which was set as a string (such as a
+     * brush parameter) only pass through the {@link DataTranslator} once. Variables without a slot
+     * are kept by path in a map which is only created when first needed.
      */
-    public boolean remove(BrushContext context, String path)
+    private static class Layer
     {
-        if (context instanceof BrushContext.Brush)
+
+        private Object[] values = new Object[BrushKey.getSlotCount()];
+        private Object[] translated = new Object[this.values.length];
+        private int size = 0;
+        private Map<String, Object> named;
+        private Map<String, Object> namedTranslated;
+
+        boolean has(int slot, String path)
         {
-            String name = ((BrushContext.Brush) this.context).getBrush().getName();
-            if (this.brushes.containsKey(name))
+            if (slot >= 0 && slot < this.values.length && this.values[slot] != null)
             {
-                return this.brushes.get(name).remove(path) != null;
+                return true;
             }
-            return false;
+            // a path may have been stored by name before it was declared
+            return this.named != null && this.named.containsKey(path);
         }
-        if (context == BrushContext.RUNTIME)
+
+        void set(int slot, String path, Object value)
         {
-            return this.runtime.remove(path) != null;
+            Object stored = value == null ? NULL : value;
+            if (slot < 0)
+            {
+                if (this.named == null)
+                {
+                    this.named = Maps.newHashMap();
+                    this.namedTranslated = Maps.newHashMap();
+                }
+                this.named.put(path, stored);
+                this.namedTranslated.remove(path);
+                return;
+            }
+            if (this.named != null && this.named.remove(path) != null)
+            {
+                this.namedTranslated.remove(path);
+            }
+            if (slot >= this.values.length)
+            {
+                int length = Math.max(slot + 1, BrushKey.getSlotCount());
+                this.values = Arrays.copyOf(this.values, length);
+                this.translated = Arrays.copyOf(this.translated, length);
+            }
+            if (this.values[slot] == null)
+            {
+                this.size++;
+            }
+            this.values[slot] = stored;
+            this.translated[slot] = null;
         }
-        if (context == BrushContext.GLOBAL)
+
+        boolean remove(int slot, String path)
         {
-            return this.global.remove(path) != null;
+            if (slot >= 0 && slot < this.values.length && this.values[slot] != null)
+            {
+                boolean removed = this.values[slot] != NULL;
+                this.values[slot] = null;
+                this.translated[slot] = null;
+                this.size--;
+                return removed;
+            }
+            if (this.named == null || !this.named.containsKey(path))
+            {
+                return false;
+            }
+            this.namedTranslated.remove(path);
+            return this.named.remove(path) != NULL;
         }
-        if (context == BrushContext.FLAGS)
+
+        <T> Optional<T> get(int slot, String path, Class<T> type)
         {
-            return this.flags.remove(path) != null;
+            if (slot >= 0 && slot < this.values.length && this.values[slot] != null)
+            {
+                Optional<T> result = translate(this.values[slot], this.translated[slot], type);
+                if (result.isPresent() && !type.isInstance(this.values[slot]))
+                {
+                    this.translated[slot] = result.get();
+                }
+                return result;
+            }
+            Object o = this.named.get(path);
+            Optional<T> result = translate(o, this.namedTranslated.get(path), type);
+            if (result.isPresent() && !type.isInstance(o))
+            {
+                this.namedTranslated.put(path, result.get());
+            }
+            return result;
         }
-        throw new UnsupportedOperationException("Unknown context " + context.toString());
+
+        @SuppressWarnings("unchecked")
+        private static <T> Optional<T> translate(Object o, Object t, Class<T> type)
+        {
+            if (o == NULL)
+            {
+                return Optional.empty();
+            }
+            if (type.isInstance(o))
+            {
+                return Optional.of((T) o);
+            }
+            if (type.isInstance(t))
+            {
+                return Optional.of((T) t);
+            }
+            return DataTranslator.attempt(o, type);
+        }
+
+        void clear()
+        {
+            if (this.size != 0)
+            {
+                Arrays.fill(this.values, null);
+                Arrays.fill(this.translated, null);
+                this.size = 0;
+            }
+            if (this.named != null)
+            {
+                this.named.clear();
+                this.namedTranslated.clear();
+            }
+        }
+
     }
 
 }
@@ -57,6 +57,10 @@ public class BrushWrapper implements Nameable
         this.help = info.help();
         this.type = info.type();
         this.params = info.params();
+        for (BrushParam param : this.params)
+        {
+            BrushKey.declare(param.name());
+        }
         this.permission = info.permission();
         this.brush.init(context);
     }
@@ -26,23 +26,37 @@ package com.voxelplugineering.voxelsniper.brush;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.voxelplugineering.voxelsniper.config.BaseConfiguration;
 import com.voxelplugineering.voxelsniper.util.Context;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
 
 import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * A standard brush manager.
+ * A standard brush manager. Compiled brush chains are cached in a small LRU, a manager which has no
+ * brushes of its own (such as a player manager which only inherits from the global manager) defers
+ * to the cache of its parent so that common chains are shared between players.
+ * 
+ * <p> Versions are stamps drawn from a single counter shared by every manager, so a change to any
+ * manager in a chain of parents (including swapping a parent) yields a version which has never
+ * been seen before. </p>
  */
 public class CommonBrushManager implements BrushManager
 {
 
+    private static final AtomicLong STAMPS = new AtomicLong();
+
     private final Context context;
     private BrushManager parent = null;
     private final Map<String, BrushWrapper> brushes;
+    private final Cache<String, CompiledBrushChain> compiled;
+    private volatile long version = 0;
 
     /**
      * Creates a new CommonBrushManager.
@@ -62,6 +76,7 @@ public class CommonBrushManager implements BrushManager
         this.context = context;
         this.parent = parent;
         this.brushes = Maps.newHashMap();
+        this.compiled = CacheBuilder.newBuilder().maximumSize(BaseConfiguration.brushChainCacheSize).build();
     }
 
     @Override
@@ -71,6 +86,7 @@ public class CommonBrushManager implements BrushManager
         checkArgument(!identifier.isEmpty(), "Name cannot be empty");
         checkNotNull(graph, "Brush class cannot be null!");
         this.brushes.put(identifier, new BrushWrapper(graph, this.context));
+        this.version = STAMPS.incrementAndGet();
     }
 
     @Override
@@ -94,6 +110,7 @@ public class CommonBrushManager implements BrushManager
     public void setParent(BrushManager parent)
     {
         this.parent = parent;
+        this.version = STAMPS.incrementAndGet();
     }
 
     @Override
@@ -108,4 +125,29 @@ public class CommonBrushManager implements BrushManager
         return this.brushes.values();
     }
 
+    @Override
+    public CompiledBrushChain compile(String fullBrush)
+    {
+        checkNotNull(fullBrush, "Brush cannot be null!");
+        String key = CompiledBrushChain.normalize(fullBrush);
+        if (this.brushes.isEmpty() && this.parent != null)
+        {
+            return this.parent.compile(key);
+        }
+        long current = getVersion();
+        CompiledBrushChain chain = this.compiled.getIfPresent(key);
+        if (chain == null || chain.getVersion() != current)
+        {
+            chain = CompiledBrushChain.compile(this, key, current);
+            this.compiled.put(key, chain);
+        }
+        return chain;
+    }
+
+    @Override
+    public long getVersion()
+    {
+        return this.parent == null ? this.version : Math.max(this.version, this.parent.getVersion());
+    }
+
 }
@@ -0,0 +1,138 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.brush;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable template of a brush chain with each part already resolved against a
+ * {@link BrushManager}. Templates are cached by the brush managers and may be shared between
+ * players, a fresh {@link BrushChain} must be created from the resolved brushes for each player.
+ */
+public final class CompiledBrushChain
+{
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Normalizes the given brush string by trimming it and collapsing all whitespace to single
+     * spaces.
+     * 
+     * @param fullBrush The brush string
+     * @return The normalized brush string
+     */
+    public static String normalize(String fullBrush)
+    {
+        checkNotNull(fullBrush);
+        return WHITESPACE.matcher(fullBrush.trim()).replaceAll(" ");
+    }
+
+    /**
+     * Resolves each part of the given normalized brush string against the given manager.
+     * 
+     * @param manager The brush manager
+     * @param fullBrush The normalized brush string
+     * @param version The version of the manager at the time of resolution
+     * @return The compiled brush chain
+     */
+    static CompiledBrushChain compile(BrushManager manager, String fullBrush, long version)
+    {
+        String[] parts = fullBrush.isEmpty() ? new String[0] : fullBrush.split(" ");
+        BrushWrapper[] brushes = new BrushWrapper[parts.length];
+        for (int i = 0; i < parts.length; i++)
+        {
+            brushes[i] = manager.getBrush(parts[i]).orElse(null);
+        }
+        return new CompiledBrushChain(fullBrush, parts, brushes, version);
+    }
+
+    private final String name;
+    private final String[] parts;
+    private final BrushWrapper[] brushes;
+    private final long version;
+
+    private CompiledBrushChain(String name, String[] parts, BrushWrapper[] brushes, long version)
+    {
+        this.name = name;
+        this.parts = parts;
+        this.brushes = brushes;
+        this.version = version;
+    }
+
+    /**
+     * Gets the normalized brush string this chain was compiled from.
+     * 
+     * @return The name
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Gets the number of parts within this chain.
+     * 
+     * @return The size
+     */
+    public int size()
+    {
+        return this.parts.length;
+    }
+
+    /**
+     * Gets the name of the part at the given index.
+     * 
+     * @param index The index
+     * @return The part name
+     */
+    public String getPart(int index)
+    {
+        return this.parts[index];
+    }
+
+    /**
+     * Gets the brush resolved for the part at the given index, if it was found.
+     * 
+     * @param index The index
+     * @return The brush, if found
+     */
+    public Optional<BrushWrapper> getBrush(int index)
+    {
+        return Optional.ofNullable(this.brushes[index]);
+    }
+
+    /**
+     * Gets the version of the brush manager this chain was compiled against.
+     * 
+     * @return The version
+     */
+    public long getVersion()
+    {
+        return this.version;
+    }
+
+}
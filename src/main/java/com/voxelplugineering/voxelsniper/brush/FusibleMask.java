@@ -0,0 +1,73 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.brush;
+
+import com.voxelplugineering.voxelsniper.entity.Player;
+import com.voxelplugineering.voxelsniper.world.material.MaterialState;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * A {@link BrushPartType#MASK} brush which tests each point of the shape independently of every
+ * other point. Consecutive fusible masks in a {@link BrushChain} are evaluated together in a single
+ * pass over the shape by the {@link MaskPass}.
+ */
+public interface FusibleMask
+{
+
+    /**
+     * Prepares this mask for a single execution, reading any parameters from the given variables.
+     * The variables will be set to the context of this brush. If the mask cannot be applied then
+     * the player should be notified and {@link Optional#empty()} returned, which aborts the chain.
+     * 
+     * @param player The player executing the brush
+     * @param args The player's brush variables
+     * @return The filter to apply, if the mask can be applied
+     */
+    Optional<Filter> prepare(Player player, BrushVars args);
+
+    /**
+     * A test of a single point of the shape.
+     */
+    @FunctionalInterface
+    interface Filter
+    {
+
+        /**
+         * Tests whether the given point should remain set in the shape.
+         * 
+         * @param x The world x position
+         * @param y The world y position
+         * @param z The world z position
+         * @param material A supplier of the material at the position, the world is only read the
+         *            first time it is called for each point and the result is shared between all
+         *            fused masks. May supply null if the position could not be read.
+         * @return Whether the point should remain set
+         */
+        boolean test(int x, int y, int z, Supplier<MaterialState> material);
+
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.brush;
+
+import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
+import com.voxelplugineering.voxelsniper.entity.Player;
+import com.voxelplugineering.voxelsniper.shape.ComplexShape;
+import com.voxelplugineering.voxelsniper.shape.OctreeShape;
+import com.voxelplugineering.voxelsniper.shape.Shape;
+import com.voxelplugineering.voxelsniper.shape.WordMask;
+import com.voxelplugineering.voxelsniper.util.brush.BrushVarsHelper;
+import com.voxelplugineering.voxelsniper.world.ChunkCursor;
+import com.voxelplugineering.voxelsniper.world.Location;
+import com.voxelplugineering.voxelsniper.world.material.MaterialState;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Applies one or more {@link FusibleMask.Filter}s to the current shape in a single pass. The shape
+ * is only copied once, and each world position is only read once no matter how many of the filters
+ * test the material.
+ */
+public final class MaskPass
+{
+
+    /**
+     * Applies the given filters, in order, to each set point of the current shape. A point is unset
+     * as soon as any filter rejects it and later filters are not tested against it.
+     * 
+     * @param player The player
+     * @param args The brush variables
+     * @param name The name of the brush to report if the shape is missing
+     * @param filters The filters
+     * @return The execution result
+     */
+    public static ExecutionResult apply(Player player, BrushVars args, String name, List<FusibleMask.Filter> filters)
+    {
+        Optional<Shape> s = getShape(player, args, name);
+        if (!s.isPresent())
+        {
+            return ExecutionResult.abortExecution();
+        }
+        Shape shape = s.get();
+        Location loc = BrushVarsHelper.getTargetBlock(args).get().getLocation();
+        FusibleMask.Filter[] tests = filters.toArray(new FusibleMask.Filter[filters.size()]);
+        Sample sample = new Sample(new ChunkCursor(player.getWorld()));
+        int ox = loc.getFlooredX() - shape.getOrigin().getX();
+        int oy = loc.getFlooredY() - shape.getOrigin().getY();
+        int oz = loc.getFlooredZ() - shape.getOrigin().getZ();
+        // octree shapes are visited a chunk column at a time, which keeps the chunk cursor warm
+        shape.forEachSet((x, y, z) -> {
+            sample.moveTo(x + ox, y + oy, z + oz);
+            for (FusibleMask.Filter test : tests)
+            {
+                if (!test.test(x + ox, y + oy, z + oz, sample))
+                {
+                    shape.unset(x, y, z, false);
+                    break;
+                }
+            }
+        });
+        args.set(BrushContext.RUNTIME, BrushKeys.SHAPE, shape);
+        return ExecutionResult.continueExecution();
+    }
+
+    /**
+     * Applies a mask which does not depend on the world to the current shape. Dense shapes are
+     * masked 64 points at a time with the given word mask, any other shape falls back to testing
+     * each set point with the filter. Both must agree for every point.
+     * 
+     * @param player The player
+     * @param args The brush variables
+     * @param name The name of the brush to report if the shape is missing
+     * @param filter The filter, the material is never supplied
+     * @param words The word mask, in world coordinates
+     * @return The execution result
+     */
+    public static ExecutionResult apply(Player player, BrushVars args, String name, FusibleMask.Filter filter, WordMask words)
+    {
+        Optional<Shape> s = getShape(player, args, name);
+        if (!s.isPresent())
+        {
+            return ExecutionResult.abortExecution();
+        }
+        if (!(s.get() instanceof ComplexShape))
+        {
+            return apply(player, args, name, Collections.singletonList(filter));
+        }
+        ComplexShape shape = (ComplexShape) s.get();
+        Location loc = BrushVarsHelper.getTargetBlock(args).get().getLocation();
+        int ox = loc.getFlooredX() - shape.getOrigin().getX();
+        int oy = loc.getFlooredY() - shape.getOrigin().getY();
+        int oz = loc.getFlooredZ() - shape.getOrigin().getZ();
+        shape.retainWords((x, y, z) -> words.get(x + ox, y + oy, z + oz));
+        args.set(BrushContext.RUNTIME, BrushKeys.SHAPE, shape);
+        return ExecutionResult.continueExecution();
+    }
+
+    /**
+     * Gets the current shape in a form which can be unset in place, copying it to a
+     * {@link ComplexShape} if needed.
+     */
+    private static Optional<Shape> getShape(Player player, BrushVars args, String name)
+    {
+        Optional<Shape> s = args.get(BrushKeys.SHAPE, Shape.class);
+        if (!s.isPresent())
+        {
+            player.sendMessage(VoxelSniperConfiguration.missingShape, name);
+            return Optional.empty();
+        }
+        if (s.get() instanceof ComplexShape || s.get() instanceof OctreeShape)
+        {
+            return s;
+        }
+        return Optional.of(new ComplexShape(s.get()));
+    }
+
+    /**
+     * A lazily read material at a single world position.
+     */
+    private static final class Sample implements Supplier<MaterialState>
+    {
+
+        private final ChunkCursor cursor;
+        private int x;
+        private int y;
+        private int z;
+        private boolean read;
+        private MaterialState material;
+
+        Sample(ChunkCursor cursor)
+        {
+            this.cursor = cursor;
+        }
+
+        void moveTo(int x, int y, int z)
+        {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.read = false;
+            this.material = null;
+        }
+
+        @Override
+        public MaterialState get()
+        {
+            if (!this.read)
+            {
+                this.material = this.cursor.getMaterial(this.x, this.y, this.z).orElse(null);
+                this.read = true;
+            }
+            return this.material;
+        }
+
+    }
+
+    private MaskPass()
+    {
+
+    }
+
+}
@@ -35,15 +35,11 @@ import com.voxelplugineering.voxelsniper.entity.Player;
 import com.voxelplugineering.voxelsniper.shape.Shape;
 import com.voxelplugineering.voxelsniper.util.brush.BrushVarsHelper;
 import com.voxelplugineering.voxelsniper.world.Block;
-import com.voxelplugineering.voxelsniper.world.Chunk;
 import com.voxelplugineering.voxelsniper.world.Location;
 import com.voxelplugineering.voxelsniper.world.World;
 import com.voxelplugineering.voxelsniper.world.biome.Biome;
 
-import com.google.common.collect.Sets;
-
 import java.util.Optional;
-import java.util.Set;
 
 /**
  * An effect brush which sets your shape area to your specified biome.
@@ -76,33 +72,8 @@ public class BiomeBrush extends Brush
             player.sendMessage(VoxelSniperConfiguration.missingParam, BrushKeys.BIOME, "biome");
             return ExecutionResult.abortExecution();
         }
-        Set<Chunk> toUpdate = Sets.newHashSet();
-        for (int x = 0; x < shape.getWidth(); x++)
-        {
-            int x0 = loc.getFlooredX() + x - shape.getOrigin().getX();
-            for (int z = 0; z < shape.getLength(); z++)
-            {
-                int z0 = loc.getFlooredZ() + z - shape.getOrigin().getZ();
-                for (int y = 0; y < shape.getHeight(); y++)
-                {
-                    int y0 = loc.getFlooredY() + y - shape.getOrigin().getY();
-                    if (shape.get(x, y, z, false))
-                    {
-                        world.setBiome(b.get(), x0, y0, z0);
-                        Optional<Chunk> chunk = world.getChunk(x0 / 16, y0 / 16, z0 / 16);
-                        if (chunk.isPresent())
-                        {
-                            toUpdate.add(chunk.get());
-                        }
-                        break;
-                    }
-                }
-            }
-        }
-        for (Chunk chunk : toUpdate)
-        {
-            chunk.refreshChunk();
-        }
+        world.setBiomeRegion(b.get(), shape, loc.getFlooredX() - shape.getOrigin().getX(), loc.getFlooredY() - shape.getOrigin().getY(),
+                loc.getFlooredZ() - shape.getOrigin().getZ());
         return ExecutionResult.continueExecution();
     }
 
@@ -99,7 +99,13 @@ public class CleanSnowBrush extends Brush
             for (int z = 0; z < ms.getLength(); z++)
             {
                 int z0 = loc.getFlooredZ() + z - ms.getOrigin().getZ();
-                for (int y = ms.getHeight() - 1; y > 0; y--)
+                int top = s.get().getHighestSet(x, z);
+                if (top <= 0)
+                {
+                    continue;
+                }
+                int bottom = Math.max(s.get().getLowestSet(x, z), 1);
+                for (int y = top; y >= bottom; y--)
                 {
                     int y0 = loc.getFlooredY() + y - ms.getOrigin().getY();
                     if (!ms.get(x, y, z, false))
@@ -24,21 +24,17 @@
 package com.voxelplugineering.voxelsniper.brush.mask;
 
 import com.voxelplugineering.voxelsniper.brush.Brush;
-import com.voxelplugineering.voxelsniper.brush.BrushContext;
 import com.voxelplugineering.voxelsniper.brush.BrushInfo;
 import com.voxelplugineering.voxelsniper.brush.BrushKeys;
 import com.voxelplugineering.voxelsniper.brush.BrushParam;
 import com.voxelplugineering.voxelsniper.brush.BrushPartType;
 import com.voxelplugineering.voxelsniper.brush.BrushVars;
 import com.voxelplugineering.voxelsniper.brush.ExecutionResult;
-import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
+import com.voxelplugineering.voxelsniper.brush.FusibleMask;
+import com.voxelplugineering.voxelsniper.brush.MaskPass;
 import com.voxelplugineering.voxelsniper.entity.Player;
-import com.voxelplugineering.voxelsniper.shape.ComplexShape;
-import com.voxelplugineering.voxelsniper.shape.Shape;
-import com.voxelplugineering.voxelsniper.util.brush.BrushVarsHelper;
+import com.voxelplugineering.voxelsniper.shape.WordMask;
 import com.voxelplugineering.voxelsniper.util.math.Maths;
-import com.voxelplugineering.voxelsniper.world.Block;
-import com.voxelplugineering.voxelsniper.world.Location;
 
 import java.util.Optional;
 
@@ -61,60 +57,100 @@ import java.util.Optional;
                 @BrushParam(name = BrushKeys.OFFSET_Z,
                         desc = "The Z offset of the time edge from zero (number)") },
         permission = "voxelsniper.brush.checker")
-public class CheckerMaskBrush extends Brush
+public class CheckerMaskBrush extends Brush implements FusibleMask
 {
 
     @Override
     public ExecutionResult run(Player player, BrushVars args)
     {
-        Optional<Shape> s = args.get(BrushKeys.SHAPE, Shape.class);
-        if (!s.isPresent())
-        {
-            player.sendMessage(VoxelSniperConfiguration.missingShape, "checker");
-            return ExecutionResult.abortExecution();
-        }
+        Checker checker = createChecker(args);
+        return MaskPass.apply(player, args, "checker", (x, y, z, material) -> checker.test(x, y, z), checker);
+    }
+
+    @Override
+    public Optional<Filter> prepare(Player player, BrushVars args)
+    {
+        Checker checker = createChecker(args);
+        return Optional.of((x, y, z, material) -> checker.test(x, y, z));
+    }
+
+    private static Checker createChecker(BrushVars args)
+    {
         int xoffset = args.get(BrushKeys.OFFSET_X, Integer.class).orElse(0);
         int yoffset = args.get(BrushKeys.OFFSET_Y, Integer.class).orElse(0);
         int zoffset = args.get(BrushKeys.OFFSET_Z, Integer.class).orElse(0);
         int width = args.get(BrushKeys.WIDTH, Integer.class).orElse(1);
         int height = args.get(BrushKeys.HEIGHT, Integer.class).orElse(1);
         int length = args.get(BrushKeys.LENGTH, Integer.class).orElse(1);
-        width = Maths.clamp(width, 1, Integer.MAX_VALUE);
-        height = Maths.clamp(height, 1, Integer.MAX_VALUE);
-        length = Maths.clamp(length, 1, Integer.MAX_VALUE);
-        Optional<Block> l = BrushVarsHelper.getTargetBlock(args);
-        Location loc = l.get().getLocation();
-        ComplexShape shape;
-        if (s.get() instanceof ComplexShape)
+        return new Checker(xoffset, yoffset, zoffset, Maths.clamp(width, 1, Integer.MAX_VALUE), Maths.clamp(height, 1, Integer.MAX_VALUE),
+                Maths.clamp(length, 1, Integer.MAX_VALUE));
+    }
+
+    /**
+     * The checker pattern. Every column of the shape shares the same vertical pattern, so the word
+     * for each row of 64 points is computed once and reused by every column which is not cleared
+     * entirely by its x and z position.
+     */
+    private static final class Checker implements WordMask
+    {
+
+        private static final int ROWS = 16;
+
+        private final int xoffset;
+        private final int yoffset;
+        private final int zoffset;
+        private final int w;
+        private final int h;
+        private final int l;
+        private final int[] rows = new int[ROWS];
+        private final long[] words = new long[ROWS];
+        private final boolean[] cached = new boolean[ROWS];
+
+        Checker(int xoffset, int yoffset, int zoffset, int w, int h, int l)
+        {
+            this.xoffset = xoffset;
+            this.yoffset = yoffset;
+            this.zoffset = zoffset;
+            this.w = w;
+            this.h = h;
+            this.l = l;
+        }
+
+        private static boolean even(int value, int offset, int size)
         {
-            shape = (ComplexShape) s.get();
-        } else
+            return (value + offset) / size % 2 == 0;
+        }
+
+        boolean test(int x, int y, int z)
         {
-            shape = new ComplexShape(s.get());
+            return even(x, this.xoffset, this.w) && even(y, this.yoffset, this.h) && even(z, this.zoffset, this.l);
         }
-        for (int x = 0; x < shape.getWidth(); x++)
+
+        @Override
+        public long get(int x, int y, int z)
         {
-            int x0 = (loc.getFlooredX() + x - shape.getOrigin().getX() + xoffset) / width;
-            for (int y = 0; y < shape.getHeight(); y++)
+            if (!even(x, this.xoffset, this.w) || !even(z, this.zoffset, this.l))
+            {
+                return 0L;
+            }
+            int slot = (y >> 6) & (ROWS - 1);
+            if (!this.cached[slot] || this.rows[slot] != y)
             {
-                int y0 = (loc.getFlooredY() + y - shape.getOrigin().getY() + yoffset) / height;
-                for (int z = 0; z < shape.getLength(); z++)
+                long word = 0;
+                for (int i = 0; i < 64; i++)
                 {
-                    int z0 = (loc.getFlooredZ() + z - shape.getOrigin().getZ() + zoffset) / length;
-                    if (!shape.get(x, y, z, false))
-                    {
-                        continue;
-                    }
-                    if (x0 % 2 != 0 || y0 % 2 != 0 || z0 % 2 != 0)
+                    if (even(y + i, this.yoffset, this.h))
                     {
-                        shape.unset(x, y, z, false);
+                        word |= 1L << i;
                     }
                 }
+                this.rows[slot] = y;
+                this.words[slot] = word;
+                this.cached[slot] = true;
             }
+            return this.words[slot];
         }
 
-        args.set(BrushContext.RUNTIME, BrushKeys.SHAPE, shape);
-        return ExecutionResult.continueExecution();
     }
 
 }
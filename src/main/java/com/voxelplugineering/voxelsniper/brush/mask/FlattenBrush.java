@@ -56,24 +56,7 @@ public class FlattenBrush extends Brush
             player.sendMessage(VoxelSniperConfiguration.missingShape, "flatten");
             return ExecutionResult.abortExecution();
         }
-        Shape base = s.get();
-        ComplexShape shape = new ComplexShape(base.getWidth(), 1, base.getLength(), base.getOrigin().getX(), 0, base.getOrigin().getZ());
-
-        for (int x = 0; x < base.getWidth(); x++)
-        {
-            for (int z = 0; z < base.getLength(); z++)
-            {
-                for (int y = 0; y < base.getHeight(); y++)
-                {
-                    if (base.get(x, y, z, false))
-                    {
-                        shape.set(x, 0, z, false);
-                        break;
-                    }
-                }
-            }
-        }
-
+        ComplexShape shape = ComplexShape.projectColumns(s.get());
         args.set(BrushContext.RUNTIME, BrushKeys.SHAPE, shape);
         return ExecutionResult.continueExecution();
     }
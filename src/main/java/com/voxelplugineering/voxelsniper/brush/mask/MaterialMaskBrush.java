@@ -24,21 +24,18 @@
 package com.voxelplugineering.voxelsniper.brush.mask;
 
 import com.voxelplugineering.voxelsniper.brush.Brush;
-import com.voxelplugineering.voxelsniper.brush.BrushContext;
 import com.voxelplugineering.voxelsniper.brush.BrushInfo;
 import com.voxelplugineering.voxelsniper.brush.BrushKeys;
 import com.voxelplugineering.voxelsniper.brush.BrushPartType;
 import com.voxelplugineering.voxelsniper.brush.BrushVars;
 import com.voxelplugineering.voxelsniper.brush.ExecutionResult;
+import com.voxelplugineering.voxelsniper.brush.FusibleMask;
+import com.voxelplugineering.voxelsniper.brush.MaskPass;
 import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
 import com.voxelplugineering.voxelsniper.entity.Player;
-import com.voxelplugineering.voxelsniper.shape.ComplexShape;
-import com.voxelplugineering.voxelsniper.shape.Shape;
-import com.voxelplugineering.voxelsniper.util.brush.BrushVarsHelper;
-import com.voxelplugineering.voxelsniper.world.Block;
-import com.voxelplugineering.voxelsniper.world.Location;
 import com.voxelplugineering.voxelsniper.world.material.MaterialState;
 
+import java.util.Collections;
 import java.util.Optional;
 
 /**
@@ -49,68 +46,39 @@ import java.util.Optional;
         type = BrushPartType.MASK,
         help = "Removes all points in your shape that do not match your mask material",
         permission = "voxelsniper.brush.materialmask")
-public class MaterialMaskBrush extends Brush
+public class MaterialMaskBrush extends Brush implements FusibleMask
 {
 
     @Override
     public ExecutionResult run(Player player, BrushVars args)
     {
-        Optional<Shape> s = args.get(BrushKeys.SHAPE, Shape.class);
-        if (!s.isPresent())
+        Optional<Filter> filter = prepare(player, args);
+        if (!filter.isPresent())
         {
-            player.sendMessage(VoxelSniperConfiguration.missingShape, "materialmask");
             return ExecutionResult.abortExecution();
         }
+        return MaskPass.apply(player, args, "materialmask", Collections.singletonList(filter.get()));
+    }
+
+    @Override
+    public Optional<Filter> prepare(Player player, BrushVars args)
+    {
         Optional<MaterialState> m = args.get(BrushKeys.MASK_MATERIAL, MaterialState.class);
         if (!m.isPresent())
         {
             player.sendMessage(VoxelSniperConfiguration.missingAltMaterial);
-            return ExecutionResult.abortExecution();
+            return Optional.empty();
         }
+        final MaterialState mask = m.get();
         boolean wildcard = args.get(BrushKeys.MASK_MATERIAL_WILDCARD, boolean.class).orElse(false);
-        Optional<Block> l = BrushVarsHelper.getTargetBlock(args);
-        Location loc = l.get().getLocation();
-        ComplexShape shape;
-        if (s.get() instanceof ComplexShape)
+        if (wildcard)
         {
-            shape = (ComplexShape) s.get();
-        } else
-        {
-            shape = new ComplexShape(s.get());
+            return Optional.of((x, y, z, material) -> {
+                MaterialState state = material.get();
+                return state != null && mask.getType().equals(state.getType());
+            });
         }
-
-        for (int x = 0; x < shape.getWidth(); x++)
-        {
-            int x0 = loc.getFlooredX() + x - shape.getOrigin().getX();
-            for (int y = 0; y < shape.getHeight(); y++)
-            {
-                int y0 = loc.getFlooredY() + y - shape.getOrigin().getY();
-                for (int z = 0; z < shape.getLength(); z++)
-                {
-                    int z0 = loc.getFlooredZ() + z - shape.getOrigin().getZ();
-                    if (!shape.get(x, y, z, false))
-                    {
-                        continue;
-                    }
-                    if (wildcard)
-                    {
-                        if (!m.get().getType().equals(player.getWorld().getBlock(x0, y0, z0).get().getMaterial().getType()))
-                        {
-                            shape.unset(x, y, z, false);
-                        }
-                    } else
-                    {
-                        if (!m.get().equals(player.getWorld().getBlock(x0, y0, z0).get().getMaterial()))
-                        {
-                            shape.unset(x, y, z, false);
-                        }
-                    }
-                }
-            }
-        }
-
-        args.set(BrushContext.RUNTIME, BrushKeys.SHAPE, shape);
-        return ExecutionResult.continueExecution();
+        return Optional.of((x, y, z, material) -> mask.equals(material.get()));
     }
 
 }
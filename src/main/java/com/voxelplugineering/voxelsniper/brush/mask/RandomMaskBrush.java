@@ -24,20 +24,20 @@
 package com.voxelplugineering.voxelsniper.brush.mask;
 
 import com.voxelplugineering.voxelsniper.brush.Brush;
-import com.voxelplugineering.voxelsniper.brush.BrushContext;
 import com.voxelplugineering.voxelsniper.brush.BrushInfo;
 import com.voxelplugineering.voxelsniper.brush.BrushKeys;
 import com.voxelplugineering.voxelsniper.brush.BrushParam;
 import com.voxelplugineering.voxelsniper.brush.BrushPartType;
 import com.voxelplugineering.voxelsniper.brush.BrushVars;
 import com.voxelplugineering.voxelsniper.brush.ExecutionResult;
+import com.voxelplugineering.voxelsniper.brush.FusibleMask;
+import com.voxelplugineering.voxelsniper.brush.MaskPass;
 import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
 import com.voxelplugineering.voxelsniper.entity.Player;
-import com.voxelplugineering.voxelsniper.shape.ComplexShape;
-import com.voxelplugineering.voxelsniper.shape.Shape;
+import com.voxelplugineering.voxelsniper.util.math.Maths;
 
 import java.util.Optional;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * A brush which randomly removes locations from the current shape based on a parameterized chance.
@@ -46,54 +46,94 @@ import java.util.Random;
         type = BrushPartType.MASK,
         help = "Randomly removes points from your shape based on a parameterized chance",
         params = { @BrushParam(name = BrushKeys.RANDOM_CHANCE,
-                desc = "The change for points to stay (floating-point number)") },
+                desc = "The change for points to stay (floating-point number)"),
+                @BrushParam(name = BrushKeys.RANDOM_SEED,
+                        desc = "A seed which makes the mask reproducible (number)") },
         permission = "voxelsniper.brush.random")
-public class RandomMaskBrush extends Brush
+public class RandomMaskBrush extends Brush implements FusibleMask
 {
 
     @Override
     public ExecutionResult run(Player player, BrushVars args)
     {
-        Optional<Shape> s = args.get(BrushKeys.SHAPE, Shape.class);
-        if (!s.isPresent())
-        {
-            player.sendMessage(VoxelSniperConfiguration.missingShape, "random");
-            return ExecutionResult.abortExecution();
-        }
+        RandomBits bits = createBits(args);
+        return MaskPass.apply(player, args, "random", (x, y, z, material) -> bits.nextBit(), (x, y, z) -> bits.nextWord());
+    }
+
+    @Override
+    public Optional<Filter> prepare(Player player, BrushVars args)
+    {
+        RandomBits bits = createBits(args);
+        return Optional.of((x, y, z, material) -> bits.nextBit());
+    }
+
+    private static RandomBits createBits(BrushVars args)
+    {
         Optional<Double> ochance = args.get(BrushKeys.RANDOM_CHANCE, Double.class);
         double chance = VoxelSniperConfiguration.randomDefaultChance;
         if (ochance.isPresent())
         {
             chance = ochance.get();
         }
-        ComplexShape shape;
-        if (s.get() instanceof ComplexShape)
+        Optional<Integer> seed = args.get(BrushKeys.RANDOM_SEED, Integer.class);
+        return new RandomBits(seed.isPresent() ? new SplittableRandom(seed.get()) : new SplittableRandom(), chance);
+    }
+
+    /**
+     * A source of random words in which each bit is set with a fixed chance. The chance is rounded
+     * to {@link #PRECISION} bits and each word is built from one random word per bit of the chance,
+     * rather than one random number per point.
+     */
+    private static final class RandomBits
+    {
+
+        private static final int PRECISION = 16;
+
+        private final SplittableRandom rand;
+        private final int chance;
+        private long word;
+        private int remaining;
+
+        RandomBits(SplittableRandom rand, double chance)
         {
-            shape = (ComplexShape) s.get();
-        } else
+            this.rand = rand;
+            this.chance = (int) Math.round(Maths.clamp(chance, 0, 1) * (1 << PRECISION));
+        }
+
+        long nextWord()
         {
-            shape = new ComplexShape(s.get());
+            if (this.chance >= 1 << PRECISION)
+            {
+                return -1L;
+            }
+            if (this.chance == 0)
+            {
+                return 0L;
+            }
+            // working up from the lowest bit of the chance, or-ing in a random word moves the
+            // chance of each bit halfway to one and and-ing one moves it halfway to zero
+            long next = 0;
+            for (int i = Integer.numberOfTrailingZeros(this.chance); i < PRECISION; i++)
+            {
+                long r = this.rand.nextLong();
+                next = ((this.chance >>> i) & 1) != 0 ? next | r : next & r;
+            }
+            return next;
         }
-        Random rand = new Random();
-        for (int x = 0; x < shape.getWidth(); x++)
+
+        boolean nextBit()
         {
-            for (int y = 0; y < shape.getHeight(); y++)
+            if (this.remaining == 0)
             {
-                for (int z = 0; z < shape.getLength(); z++)
-                {
-                    if (shape.get(x, y, z, false))
-                    {
-                        if (rand.nextDouble() > chance)
-                        {
-                            shape.unset(x, y, z, false);
-                        }
-                    }
-                }
+                this.word = nextWord();
+                this.remaining = 64;
             }
+            this.remaining--;
+            boolean bit = (this.word & 1) != 0;
+            this.word >>>= 1;
+            return bit;
         }
 
-        args.set(BrushContext.RUNTIME, BrushKeys.SHAPE, shape);
-        return ExecutionResult.continueExecution();
     }
 
 }
@@ -37,11 +37,14 @@ import com.voxelplugineering.voxelsniper.shape.ComplexShape;
 import com.voxelplugineering.voxelsniper.shape.Shape;
 import com.voxelplugineering.voxelsniper.util.math.Maths;
 
+import java.util.Arrays;
 import java.util.Optional;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
- * A mask brush which performs a seeded growth algorithm within the current shape.
+ * A mask brush which performs a seeded growth algorithm within the current shape. Growth keeps an
+ * explicit frontier of the unset voxels next to the splatter, so each recursion only visits the
+ * voxels it may grow into.
  */
 @BrushInfo(name = "splatter",
         type = BrushPartType.MASK,
@@ -51,7 +54,9 @@ import java.util.Random;
                 @BrushParam(name = BrushKeys.GROW_PERCENT,
                         desc = "The growth percent (floating-point number)"),
                 @BrushParam(name = BrushKeys.RECURSIONS,
-                        desc = "The number of growth passes (number)") },
+                        desc = "The number of growth passes (number)"),
+                @BrushParam(name = BrushKeys.RANDOM_SEED,
+                        desc = "A seed which makes the splatter reproducible (number)") },
         permission = "voxelsniper.brush.splatter")
 public class SplatterMaskBrush extends Brush
 {
@@ -74,89 +79,177 @@ public class SplatterMaskBrush extends Brush
         int recursions = args.get(BrushKeys.RECURSIONS, Integer.class).orElse(VoxelSniperConfiguration.splatterDefaultRecursions);
         recursions = Maths.clamp(recursions, 1, VoxelSniperConfiguration.splatterMaxRecursions);
         Shape base = s.get();
-        ComplexShape shape = new ComplexShape(base);
+        ComplexShape shape = new ComplexShape(base.getWidth(), base.getHeight(), base.getLength(), base.getOrigin());
+        Optional<Integer> randomSeed = args.get(BrushKeys.RANDOM_SEED, Integer.class);
+        SplittableRandom rand = randomSeed.isPresent() ? new SplittableRandom(randomSeed.get()) : new SplittableRandom();
 
-        Random rand = new Random();
+        Frontier frontier = new Frontier(base, shape);
+        final double seedChance = seed;
+        base.forEachSet((x, y, z) -> {
+            if (rand.nextDouble() < seedChance)
+            {
+                shape.set(x, y, z, false);
+                frontier.seeds.add(x, y, z);
+            }
+        });
+        // only once every seed is placed can their unset neighbours be known
+        frontier.expand(frontier.seeds);
 
-        for (int x = 0; x < shape.getWidth(); x++)
+        for (int r = 0; r < recursions && frontier.size() > 0; r++)
         {
-            for (int y = 0; y < shape.getHeight(); y++)
+            double grow = growth - ((growth / recursions) * r);
+            Frontier.Voxels grown = frontier.grow(rand, grow);
+            frontier.expand(grown);
+        }
+
+        args.set(BrushContext.RUNTIME, BrushKeys.SHAPE, shape);
+        return ExecutionResult.continueExecution();
+    }
+
+    /**
+     * The unset voxels of the base shape which neighbour at least one set voxel, these are the only
+     * voxels which may be grown into by the next recursion.
+     */
+    private static final class Frontier
+    {
+
+        private final Shape base;
+        private final ComplexShape shape;
+        private final long[] queued;
+        private final Voxels seeds;
+        private Voxels candidates;
+
+        Frontier(Shape base, ComplexShape shape)
+        {
+            this.base = base;
+            this.shape = shape;
+            this.queued = new long[(int) (((long) base.getWidth() * base.getHeight() * base.getLength() + 63) >>> 6)];
+            this.seeds = new Voxels(base);
+            this.candidates = new Voxels(base);
+        }
+
+        int size()
+        {
+            return this.candidates.size;
+        }
+
+        /**
+         * Sets each candidate with the given chance, the candidates which were set are removed from
+         * the frontier and returned. Every decision is made against the shape as it was before this
+         * recursion.
+         */
+        Voxels grow(SplittableRandom rand, double chance)
+        {
+            Voxels grown = new Voxels(this.base);
+            Voxels remaining = new Voxels(this.base);
+            for (int i = 0; i < this.candidates.size; i++)
             {
-                for (int z = 0; z < shape.getLength(); z++)
+                int key = this.candidates.keys[i];
+                if (rand.nextDouble() < chance)
                 {
-                    if (base.get(x, y, z, false))
-                    {
-                        if (rand.nextDouble() < seed)
-                        {
-                            shape.set(x, y, z, false);
-                        } else
-                        {
-                            shape.unset(x, y, z, false);
-                        }
-                    }
+                    grown.add(key);
+                } else
+                {
+                    remaining.add(key);
                 }
             }
+            for (int i = 0; i < grown.size; i++)
+            {
+                int key = grown.keys[i];
+                this.shape.set(grown.x(key), grown.y(key), grown.z(key), false);
+            }
+            this.candidates = remaining;
+            return grown;
         }
 
-        int growths = 0;
-        ComplexShape splat = new ComplexShape(shape);
+        /**
+         * Adds the unset neighbours of the given newly set voxels to the frontier.
+         */
+        void expand(Voxels set)
+        {
+            for (int i = 0; i < set.size; i++)
+            {
+                int key = set.keys[i];
+                int x = set.x(key);
+                int y = set.y(key);
+                int z = set.z(key);
+                offer(x - 1, y, z);
+                offer(x + 1, y, z);
+                offer(x, y - 1, z);
+                offer(x, y + 1, z);
+                offer(x, y, z - 1);
+                offer(x, y, z + 1);
+            }
+        }
 
-        for (int r = 0; r < recursions; r++)
+        private void offer(int x, int y, int z)
         {
-            double grow = growth - ((growth / recursions) * r);
-            splat.fillFrom(shape);
-            for (int x = 0; x < shape.getWidth(); x++)
+            if (x < 0 || y < 0 || z < 0 || x >= this.base.getWidth() || y >= this.base.getHeight() || z >= this.base.getLength())
+            {
+                return;
+            }
+            int key = this.candidates.key(x, y, z);
+            if ((this.queued[key >>> 6] & (1L << key)) != 0 || !this.base.get(x, y, z, false) || this.shape.get(x, y, z, false))
             {
-                for (int y = 0; y < shape.getHeight(); y++)
+                return;
+            }
+            this.queued[key >>> 6] |= 1L << key;
+            this.candidates.add(key);
+        }
+
+        /**
+         * A growable list of packed voxel positions.
+         */
+        private static final class Voxels
+        {
+
+            private final int height;
+            private final int length;
+            private int[] keys = new int[64];
+            private int size = 0;
+
+            Voxels(Shape shape)
+            {
+                this.height = shape.getHeight();
+                this.length = shape.getLength();
+            }
+
+            int key(int x, int y, int z)
+            {
+                return (x * this.height + y) * this.length + z;
+            }
+
+            int x(int key)
+            {
+                return key / this.length / this.height;
+            }
+
+            int y(int key)
+            {
+                return (key / this.length) % this.height;
+            }
+
+            int z(int key)
+            {
+                return key % this.length;
+            }
+
+            void add(int x, int y, int z)
+            {
+                add(key(x, y, z));
+            }
+
+            void add(int key)
+            {
+                if (this.size == this.keys.length)
                 {
-                    for (int z = 0; z < shape.getLength(); z++)
-                    {
-                        if (!base.get(x, y, z, false))
-                        {
-                            continue;
-                        }
-
-                        growths = 0;
-                        if (!shape.get(x, y, z, false))
-                        {
-                            if (x != 0 && shape.get(x - 1, y, z, false))
-                            {
-                                growths++;
-                            }
-                            if (y != 0 && shape.get(x, y - 1, z, false))
-                            {
-                                growths++;
-                            }
-                            if (z != 0 && shape.get(x, y, z - 1, false))
-                            {
-                                growths++;
-                            }
-                            if (x != shape.getWidth() - 1 && shape.get(x + 1, y, z, false))
-                            {
-                                growths++;
-                            }
-                            if (y != shape.getHeight() - 1 && shape.get(x, y + 1, z, false))
-                            {
-                                growths++;
-                            }
-                            if (z != shape.getLength() - 1 && shape.get(x, y, z + 1, false))
-                            {
-                                growths++;
-                            }
-
-                            if (growths >= 1 && rand.nextDouble() < grow)
-                            {
-                                splat.set(x, y, z, false);
-                            }
-                        }
-                    }
+                    this.keys = Arrays.copyOf(this.keys, this.size * 2);
                 }
+                this.keys[this.size++] = key;
             }
-            shape.fillFrom(splat);
+
         }
 
-        args.set(BrushContext.RUNTIME, BrushKeys.SHAPE, shape);
-        return ExecutionResult.continueExecution();
     }
 
 }
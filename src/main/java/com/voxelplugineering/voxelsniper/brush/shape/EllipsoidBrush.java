@@ -33,6 +33,7 @@ import com.voxelplugineering.voxelsniper.brush.BrushVars;
 import com.voxelplugineering.voxelsniper.brush.ExecutionResult;
 import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
 import com.voxelplugineering.voxelsniper.entity.Player;
+import com.voxelplugineering.voxelsniper.shape.OctreeShape;
 import com.voxelplugineering.voxelsniper.shape.Shape;
 import com.voxelplugineering.voxelsniper.shape.csg.EllipsoidShape;
 import com.voxelplugineering.voxelsniper.util.math.Vector3i;
@@ -74,7 +75,7 @@ public class EllipsoidBrush extends Brush
         double rx = args.get(BrushKeys.RADIUS_X, Double.class).get();
         double ry = args.get(BrushKeys.RADIUS_Y, Double.class).get();
         double rz = args.get(BrushKeys.RADIUS_Z, Double.class).get();
-        Shape s = new EllipsoidShape(rx, ry, rz, new Vector3i(rx, ry, rz));
+        Shape s = OctreeShape.create(new EllipsoidShape(rx, ry, rz, new Vector3i(rx, ry, rz)));
         args.set(BrushContext.RUNTIME, BrushKeys.SHAPE, s);
         return ExecutionResult.continueExecution();
     }
@@ -36,7 +36,8 @@ import com.voxelplugineering.voxelsniper.brush.ExecutionResult;
 import com.voxelplugineering.voxelsniper.config.BaseConfiguration;
 import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
 import com.voxelplugineering.voxelsniper.entity.Player;
-import com.voxelplugineering.voxelsniper.shape.ComplexShape;
+import com.voxelplugineering.voxelsniper.shape.Shape;
+import com.voxelplugineering.voxelsniper.shape.SparseShape;
 import com.voxelplugineering.voxelsniper.util.RayTrace;
 import com.voxelplugineering.voxelsniper.util.math.Vector3d;
 import com.voxelplugineering.voxelsniper.util.math.Vector3i;
@@ -121,10 +122,14 @@ public class LineBrush extends Brush
         }
         final Vector3i min = new Vector3i(Math.min(a.getFlooredX(), b.getFlooredX()), Math.min(a.getFlooredY(), b.getFlooredY()),
                 Math.min(a.getFlooredZ(), b.getFlooredZ()));
-        final ComplexShape s = new ComplexShape(w, h, l, new Vector3i(ox, oy, oz));
+        // a line sets roughly as many points as the sum of its extents
+        final Shape s = SparseShape.create(w, h, l, new Vector3i(ox, oy, oz), (long) w + h + l);
+        s.set(a.getFlooredX() - min.getX(), a.getFlooredY() - min.getY(), a.getFlooredZ() - min.getZ(), false);
+        // trace between the centers of the two end blocks
         Vector3d dir = b.toVector().sub(a.toVector());
         RayTrace ray = new RayTrace(a, dir, dir.length(), BaseConfiguration.minimumWorldDepth, BaseConfiguration.maximumWorldHeight,
-                BaseConfiguration.rayTraceStep, new Vector3d(0, 0, 0));
+                BaseConfiguration.rayTraceStep, new Vector3d(0.5, 0.5, 0.5));
+        ray.setExact(true);
         ray.getTraversalBlocks().clear();
         ray.trace(new Function<Block, Boolean>()
         {
@@ -30,6 +30,7 @@ import com.voxelplugineering.voxelsniper.brush.BrushContext;
 import com.voxelplugineering.voxelsniper.brush.BrushKeys;
 import com.voxelplugineering.voxelsniper.brush.BrushPartType;
 import com.voxelplugineering.voxelsniper.brush.BrushWrapper;
+import com.voxelplugineering.voxelsniper.brush.CompiledBrushChain;
 import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
 import com.voxelplugineering.voxelsniper.entity.Player;
 import com.voxelplugineering.voxelsniper.service.command.CommandSender;
@@ -97,10 +98,12 @@ public class BrushCommand extends Command
         {
             String fullBrush = StringUtilities.getSection(args, 0, args.length - 1);
             fullBrush = sniper.getAliasHandler().getRegistry("brush").get().expand(fullBrush);
-            BrushChain brush = new BrushChain(fullBrush);
-            for (String b : fullBrush.split(" "))
+            CompiledBrushChain compiled = sniper.getBrushManager().compile(fullBrush);
+            BrushChain brush = new BrushChain(compiled.getName());
+            for (int i = 0; i < compiled.size(); i++)
             {
-                Optional<BrushWrapper> br = sniper.getBrushManager().getBrush(b);
+                String b = compiled.getPart(i);
+                Optional<BrushWrapper> br = compiled.getBrush(i);
                 if (br.isPresent())
                 {
                     if (!getPerms().hasPermission(sniper, br.get().getPermission()))
@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.commands;
+
+import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
+import com.voxelplugineering.voxelsniper.service.command.CommandSender;
+import com.voxelplugineering.voxelsniper.util.Context;
+import com.voxelplugineering.voxelsniper.world.queue.MemoryGovernor;
+import com.voxelplugineering.voxelsniper.world.queue.MemoryGovernor.Category;
+import com.voxelplugineering.voxelsniper.world.queue.UndoBudget;
+
+/**
+ * A command for displaying the memory held by pending changes and undo history.
+ */
+public class MemoryCommand extends Command
+{
+
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    private final MemoryGovernor governor;
+    private final UndoBudget undo;
+
+    /**
+     * Creates a new Command instance.
+     * 
+     * @param context The context
+     */
+    public MemoryCommand(Context context)
+    {
+        super("memory", "Displays the memory held by pending changes and undo history. Usage: /memory", context);
+        setAliases("mem");
+        setPermissions("voxelsniper.command.memory");
+        this.governor = context.getRequired(MemoryGovernor.class);
+        this.undo = context.getRequired(UndoBudget.class);
+    }
+
+    @Override
+    public boolean execute(CommandSender sender, String[] args)
+    {
+        sender.sendMessage(VoxelSniperConfiguration.memoryHeader, this.governor.getPressure().name().toLowerCase(),
+                this.governor.getTotalUsage() / MEGABYTE, this.governor.getSoftLimit() / MEGABYTE, this.governor.getHardLimit() / MEGABYTE);
+        for (Category category : Category.values())
+        {
+            sender.sendMessage(VoxelSniperConfiguration.memoryEntry, category.name().toLowerCase(), this.governor.getUsage(category) / MEGABYTE);
+        }
+        sender.sendMessage(VoxelSniperConfiguration.memoryUndoBudget, this.undo.getRetainedBytes() / MEGABYTE, this.undo.getMaxBytes() / MEGABYTE);
+        return true;
+    }
+
+}
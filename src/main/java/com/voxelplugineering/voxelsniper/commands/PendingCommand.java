@@ -0,0 +1,186 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.commands;
+
+import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
+import com.voxelplugineering.voxelsniper.entity.Player;
+import com.voxelplugineering.voxelsniper.service.command.CommandSender;
+import com.voxelplugineering.voxelsniper.service.registry.PlayerRegistry;
+import com.voxelplugineering.voxelsniper.util.Context;
+import com.voxelplugineering.voxelsniper.world.queue.PendingChange;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A command for listing and managing the pending changes of a player.
+ */
+public class PendingCommand extends Command
+{
+
+    private static final String OTHER_PERMISSION = "voxelsniper.command.pending.other";
+
+    private final PlayerRegistry<?> players;
+
+    /**
+     * Creates a new Command instance.
+     * 
+     * @param context The context
+     */
+    public PendingCommand(Context context)
+    {
+        super("pending", "Lists and manages pending changes. Usage: /pending [player] [list|cancel|pause|resume|top] [n|all]",
+                context);
+        setAliases("pe");
+        setPermissions("voxelsniper.command.pending");
+        this.players = context.getRequired(PlayerRegistry.class);
+    }
+
+    @Override
+    public boolean execute(CommandSender sender, String[] args)
+    {
+        int i = 0;
+        Player target = null;
+        if (args.length > i && !isAction(args[i]))
+        {
+            if (sender.isPlayer() && !getPerms().hasPermission((Player) sender, OTHER_PERMISSION))
+            {
+                sender.sendMessage(this.getHelpMsg());
+                return true;
+            }
+            Optional<Player> player = this.players.getPlayer(args[i++]);
+            if (!player.isPresent())
+            {
+                sender.sendMessage(VoxelSniperConfiguration.playerNotFound);
+                return true;
+            }
+            target = player.get();
+        } else if (sender.isPlayer())
+        {
+            target = (Player) sender;
+        } else
+        {
+            sender.sendMessage(this.getHelpMsg());
+            return true;
+        }
+        String action = args.length > i ? args[i++].toLowerCase() : "list";
+        String index = args.length > i ? args[i] : null;
+        List<PendingChange> pending = target.getPendingChanges();
+        if ("list".equals(action))
+        {
+            list(sender, target, pending);
+            return true;
+        }
+        if (index == null || "all".equalsIgnoreCase(index))
+        {
+            if ("cancel".equals(action))
+            {
+                int count = 0;
+                for (PendingChange change : pending)
+                {
+                    if (target.cancelPending(change))
+                    {
+                        count++;
+                    }
+                }
+                sender.sendMessage(VoxelSniperConfiguration.pendingCancelled, count);
+            } else if ("pause".equals(action))
+            {
+                target.setPendingPaused(true);
+                sender.sendMessage(VoxelSniperConfiguration.pendingPaused, "all pending changes");
+            } else if ("resume".equals(action))
+            {
+                target.setPendingPaused(false);
+                for (PendingChange change : pending)
+                {
+                    change.resume();
+                }
+                sender.sendMessage(VoxelSniperConfiguration.pendingResumed, "all pending changes");
+            } else
+            {
+                sender.sendMessage(this.getHelpMsg());
+            }
+            return true;
+        }
+        int n;
+        try
+        {
+            n = Integer.parseInt(index);
+        } catch (NumberFormatException e)
+        {
+            n = 0;
+        }
+        if (n < 1 || n > pending.size())
+        {
+            sender.sendMessage(VoxelSniperConfiguration.pendingInvalidIndex, index);
+            return true;
+        }
+        PendingChange change = pending.get(n - 1);
+        if ("cancel".equals(action))
+        {
+            sender.sendMessage(VoxelSniperConfiguration.pendingCancelled, target.cancelPending(change) ? 1 : 0);
+        } else if ("pause".equals(action))
+        {
+            change.pause();
+            sender.sendMessage(VoxelSniperConfiguration.pendingPaused, "pending change " + n);
+        } else if ("resume".equals(action))
+        {
+            change.resume();
+            sender.sendMessage(VoxelSniperConfiguration.pendingResumed, "pending change " + n);
+        } else if ("top".equals(action))
+        {
+            target.prioritisePending(change);
+            sender.sendMessage(VoxelSniperConfiguration.pendingMoved, n);
+        }
+        return true;
+    }
+
+    private static boolean isAction(String arg)
+    {
+        switch (arg.toLowerCase())
+        {
+        case "list":
+        case "cancel":
+        case "pause":
+        case "resume":
+        case "top":
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static void list(CommandSender sender, Player target, List<PendingChange> pending)
+    {
+        String paused = target.isPendingPaused() ? VoxelSniperConfiguration.pendingPausedSuffix : "";
+        sender.sendMessage(VoxelSniperConfiguration.pendingHeader, target.getName(), pending.size(), paused);
+        int n = 1;
+        for (PendingChange change : pending)
+        {
+            sender.sendMessage(VoxelSniperConfiguration.pendingEntry, n++, change.getChange().getClass().getSimpleName(),
+                    change.getChange().getEstimatedSize(), change.isPaused() ? VoxelSniperConfiguration.pendingPausedSuffix : "");
+        }
+    }
+
+}
@@ -35,8 +35,11 @@ import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
 import com.voxelplugineering.voxelsniper.entity.Player;
 import com.voxelplugineering.voxelsniper.service.command.CommandSender;
 import com.voxelplugineering.voxelsniper.service.config.Configuration;
+import com.voxelplugineering.voxelsniper.service.eventbus.AsyncEventBus;
+import com.voxelplugineering.voxelsniper.service.eventbus.EventBus;
 import com.voxelplugineering.voxelsniper.service.platform.PlatformProxy;
 import com.voxelplugineering.voxelsniper.util.Context;
+import com.voxelplugineering.voxelsniper.util.concurrent.InstrumentedThreadPoolExecutor;
 
 import com.google.common.collect.Maps;
 
@@ -46,6 +49,7 @@ import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Standard brush command to select a brush and provide the necessary arguments to said brush.
@@ -232,6 +236,35 @@ public class VSCommand extends Command
             }
 
         });
+        this.subcommands.put("threads", new SubCommand(context, this.platform)
+        {
+
+            @Override
+            boolean execute(CommandSender sender, String[] args)
+            {
+                EventBus bus = getContext().getRequired(EventBus.class);
+                Optional<InstrumentedThreadPoolExecutor> pool = Optional.empty();
+                if (bus instanceof AsyncEventBus)
+                {
+                    pool = ((AsyncEventBus) bus).getThreadPool();
+                }
+                if (pool.isPresent())
+                {
+                    sender.sendMessage(pool.get().getStatus());
+                } else
+                {
+                    sender.sendMessage("The event bus is not using an instrumented thread pool.");
+                }
+                return true;
+            }
+
+            @Override
+            String getHelp()
+            {
+                return "  /vs threads - displays the state of the event bus thread pool";
+            }
+
+        });
     }
 
     /**
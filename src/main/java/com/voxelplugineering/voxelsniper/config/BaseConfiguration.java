@@ -43,16 +43,52 @@ public class BaseConfiguration
     public static int maximumWorldHeight = 255;
     @ConfigValue(hidden = true)
     public static double rayTraceStep = 0.2;
+    @ConfigValue(hidden = true)
+    public static boolean rayTraceExact = true;
 
     public static String defaultBiomeName = "plains";
     public static String defaultMaterialName = "air";
 
     @ConfigValue(hidden = true)
     public static String eventBusThreadPrefix = "VoxelSniperEventBus-";
+    @ConfigValue(hidden = true)
+    public static int eventBusMaxThreads = 16;
+    @ConfigValue(hidden = true)
+    public static int eventBusQueueSize = 1024;
+    @ConfigValue(hidden = true)
+    public static int eventBusKeepAlive = 60000;
+    @ConfigValue(hidden = true)
+    public static String eventBusRejectionPolicy = "callerruns";
+    @ConfigValue(hidden = true)
+    public static boolean eventBusVirtualThreads = false;
 
     @ConfigValue(hidden = true)
     public static int aliasInterval = 30000;
     @ConfigValue(hidden = true)
+    public static int brushChainCacheSize = 64;
+    @ConfigValue(hidden = true)
+    public static boolean fuseMaskStages = true;
+    @ConfigValue(hidden = true)
     public static int changeInterval = 100;
+    @ConfigValue(hidden = true)
+    public static boolean coalescePendingEdits = true;
+    @ConfigValue(hidden = true)
+    public static int coalesceMaxVolume = 2000000;
+    @ConfigValue(hidden = true)
+    public static int maxUndoSnapshotBytes = 2250000;
+    @ConfigValue(hidden = true)
+    public static int shapeScanRatio = 8;
+    @ConfigValue(hidden = true)
+    public static double sparseShapeFillRatio = 0.01;
+    @ConfigValue(hidden = true)
+    public static int sparseShapeMinVolume = 4096;
+    @ConfigValue(hidden = true)
+    public static int octreeShapeMinVolume = 2097152;
+    @ConfigValue(hidden = true)
+    public static boolean compressWorldSnapshots = true;
+    @ConfigValue(hidden = true)
+    public static int offHeapThresholdBytes = 4 * 1024 * 1024;
+    @ConfigValue(hidden = true)
+    public static int offHeapPoolMegabytes = 64;
 
 }
@@ -43,6 +43,11 @@ public class VoxelSniperConfiguration
     public static String playerDataDirectory = "players/";
     public static boolean useUUIDsForDataDirectories = true;
     public static boolean generateDefaultAliases = true;
+    public static int maxPendingVolume = 10000000;
+    public static int undoHistoryMaxMegabytes = 64;
+    public static int undoGlobalMaxMegabytes = 1024;
+    public static int memorySoftLimitMegabytes = 0;
+    public static int memoryHardLimitMegabytes = 0;
 
     // Default brush settings
     @ConfigValue(section = "defaults")
@@ -106,6 +111,28 @@ public class VoxelSniperConfiguration
     public static String undoMessage = TextFormat.GREEN + "%d changes undone.";
     @ConfigValue(section = "messages.command.redo")
     public static String redoMessage = TextFormat.GREEN + "%d changes re-applied.";
+    @ConfigValue(section = "messages.command.pending")
+    public static String pendingHeader = TextFormat.GREEN + "%s has %d pending changes%s";
+    @ConfigValue(section = "messages.command.pending")
+    public static String pendingEntry = TextFormat.GOLD + "%d. " + TextFormat.AQUA + "%s of %d blocks%s";
+    @ConfigValue(section = "messages.command.pending")
+    public static String pendingPausedSuffix = TextFormat.RED + " (paused)";
+    @ConfigValue(section = "messages.command.pending")
+    public static String pendingCancelled = TextFormat.GREEN + "Cancelled %d pending changes.";
+    @ConfigValue(section = "messages.command.pending")
+    public static String pendingPaused = TextFormat.GREEN + "Paused %s.";
+    @ConfigValue(section = "messages.command.pending")
+    public static String pendingResumed = TextFormat.GREEN + "Resumed %s.";
+    @ConfigValue(section = "messages.command.pending")
+    public static String pendingMoved = TextFormat.GREEN + "Moved pending change %d to the front of the queue.";
+    @ConfigValue(section = "messages.command.pending")
+    public static String pendingInvalidIndex = TextFormat.RED + "There is no pending change %s.";
+    @ConfigValue(section = "messages.command.memory")
+    public static String memoryHeader = TextFormat.GREEN + "Memory pressure is %s: %d MB held, soft limit %d MB, hard limit %d MB";
+    @ConfigValue(section = "messages.command.memory")
+    public static String memoryEntry = TextFormat.GOLD + "  %s: " + TextFormat.AQUA + "%d MB";
+    @ConfigValue(section = "messages.command.memory")
+    public static String memoryUndoBudget = TextFormat.GOLD + "  undo budget: " + TextFormat.AQUA + "%d of %d MB";
     @ConfigValue(section = "messages.command.vs")
     public static String vsInternal = TextFormat.RED + "Cannot set internal value manually.";
     @ConfigValue(section = "messages.command.vs")
@@ -139,6 +166,15 @@ public class VoxelSniperConfiguration
     @ConfigValue(section = "messages.brush")
     public static String brushPermissionMessage = TextFormat.DARK_RED + "You do not have permission for the %s brush";
 
+    @ConfigValue(section = "messages.brush")
+    public static String snipeCoalesced = TextFormat.YELLOW
+            + "Your last snipe is still being processed, only your latest snipe will be performed next.";
+    @ConfigValue(section = "messages.brush")
+    public static String snipePendingLimit = TextFormat.RED
+            + "You have %d blocks of changes waiting to be applied, please wait before sniping again.";
+    @ConfigValue(section = "messages.brush")
+    public static String snipeMemoryLimit = TextFormat.RED + "The server is low on memory for edits, please wait before sniping again.";
+
     @ConfigValue(section = "messages.brush")
     public static String missingEntity = TextFormat.RED + "You must declare a type of entity!";
 
@@ -33,6 +33,7 @@ import com.voxelplugineering.voxelsniper.brush.BrushManager;
 import com.voxelplugineering.voxelsniper.brush.BrushVars;
 import com.voxelplugineering.voxelsniper.brush.BrushWrapper;
 import com.voxelplugineering.voxelsniper.brush.CommonBrushManager;
+import com.voxelplugineering.voxelsniper.brush.CompiledBrushChain;
 import com.voxelplugineering.voxelsniper.brush.GlobalBrushManager;
 import com.voxelplugineering.voxelsniper.config.BaseConfiguration;
 import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
@@ -48,12 +49,16 @@ import com.voxelplugineering.voxelsniper.world.Block;
 import com.voxelplugineering.voxelsniper.world.material.Material;
 import com.voxelplugineering.voxelsniper.world.queue.ChangeQueue;
 import com.voxelplugineering.voxelsniper.world.queue.CommonUndoQueue;
+import com.voxelplugineering.voxelsniper.world.queue.MemoryGovernor;
+import com.voxelplugineering.voxelsniper.world.queue.PendingChange;
+import com.voxelplugineering.voxelsniper.world.queue.PendingQueue;
+import com.voxelplugineering.voxelsniper.world.queue.PendingWorkIndex;
+import com.voxelplugineering.voxelsniper.world.queue.UndoBudget;
 import com.voxelplugineering.voxelsniper.world.queue.UndoQueue;
 
 import java.io.File;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Optional;
-import java.util.Queue;
 
 /**
  * An abstract player.
@@ -67,7 +72,8 @@ public abstract class AbstractPlayer<T> extends AbstractEntity<T> implements Pla
     private BrushManager personalBrushManager;
     private BrushChain currentBrush;
     private BrushVars brushVariables;
-    private Queue<ChangeQueue> pending;
+    private final PendingQueue pending;
+    private final PendingWorkIndex activeWork;
     private AliasHandler personalAliasHandler;
     private UndoQueue history;
     private boolean processing = false;
@@ -84,9 +90,10 @@ public abstract class AbstractPlayer<T> extends AbstractEntity<T> implements Pla
         super(player);
         this.personalBrushManager = new CommonBrushManager(context, parentBrushManager);
         this.brushVariables = new BrushVars();
-        this.pending = new LinkedList<ChangeQueue>();
+        this.activeWork = context.getRequired(PendingWorkIndex.class);
+        this.pending = new PendingQueue(context.getRequired(MemoryGovernor.class));
         this.personalAliasHandler = new CommonAliasHandler(this, context.getRequired(GlobalAliasHandler.class));
-        this.history = new CommonUndoQueue(this);
+        this.history = new CommonUndoQueue(this, context.getRequired(UndoBudget.class));
     }
 
     /**
@@ -100,9 +107,10 @@ public abstract class AbstractPlayer<T> extends AbstractEntity<T> implements Pla
         super(player);
         this.personalBrushManager = new CommonBrushManager(context, context.getRequired(GlobalBrushManager.class));
         this.brushVariables = new BrushVars();
-        this.pending = new LinkedList<ChangeQueue>();
+        this.activeWork = context.getRequired(PendingWorkIndex.class);
+        this.pending = new PendingQueue(context.getRequired(MemoryGovernor.class));
         this.personalAliasHandler = new CommonAliasHandler(this, context.getRequired(GlobalAliasHandler.class));
-        this.history = new CommonUndoQueue(this);
+        this.history = new CommonUndoQueue(this, context.getRequired(UndoBudget.class));
     }
 
     /**
@@ -198,10 +206,12 @@ public abstract class AbstractPlayer<T> extends AbstractEntity<T> implements Pla
         }
         String fullBrush = VoxelSniperConfiguration.defaultBrush;
         fullBrush = getAliasHandler().getRegistry("brush").get().expand(fullBrush);
-        BrushChain brush = new BrushChain(fullBrush);
-        for (String b : fullBrush.split(" "))
+        CompiledBrushChain compiled = getBrushManager().compile(fullBrush);
+        BrushChain brush = new BrushChain(compiled.getName());
+        for (int i = 0; i < compiled.size(); i++)
         {
-            Optional<BrushWrapper> br = getBrushManager().getBrush(b);
+            String b = compiled.getPart(i);
+            Optional<BrushWrapper> br = compiled.getBrush(i);
             if (br.isPresent())
             {
                 if (perms != null && !perms.hasPermission(this, br.get().getPermission()))
@@ -250,7 +260,7 @@ public abstract class AbstractPlayer<T> extends AbstractEntity<T> implements Pla
     @Override
     public boolean hasPendingChanges()
     {
-        return this.pending.size() != 0;
+        return !this.pending.isEmpty();
     }
 
     @Override
@@ -260,26 +270,94 @@ public abstract class AbstractPlayer<T> extends AbstractEntity<T> implements Pla
     }
 
     @Override
-    public Optional<ChangeQueue> getNextPendingChange()
+    public long getPendingVolume()
     {
-        return Optional.ofNullable(this.pending.peek());
+        return this.pending.getVolume();
     }
 
     @Override
-    public void addPending(ChangeQueue queue)
+    public Optional<PendingChange> getNextPendingChange()
+    {
+        return this.pending.peek();
+    }
+
+    @Override
+    public PendingChange addPending(ChangeQueue queue)
     {
         checkNotNull(queue, "ChangeQueue cannot be null");
         queue.reset();
-        this.pending.add(queue);
+        PendingChange handle = this.pending.offer(queue);
+        this.activeWork.markActive(this);
+        return handle;
+    }
+
+    @Override
+    public void clearNextPending(PendingChange change, boolean force)
+    {
+        checkNotNull(change, "PendingChange cannot be null");
+        if (change.getChange().isFinished() || force)
+        {
+            this.pending.complete(change);
+            // the change is no longer counted as pending, its history entry now holds it instead
+            this.history.updateHistory(change.getChange());
+            if (this.pending.isEmpty())
+            {
+                this.activeWork.markIdle(this);
+            }
+        }
+    }
+
+    @Override
+    public List<PendingChange> getPendingChanges()
+    {
+        return this.pending.snapshot();
+    }
+
+    @Override
+    public Optional<PendingChange> getLastPendingChange()
+    {
+        return this.pending.peekLast();
     }
 
     @Override
-    public void clearNextPending(boolean force)
+    public boolean cancelPending(PendingChange change)
     {
-        if (!this.pending.isEmpty() && (this.pending.peek().isFinished() || force))
+        checkNotNull(change, "Change cannot be null");
+        if (!change.cancel())
+        {
+            return false;
+        }
+        Optional<ChangeQueue> rollback = change.getChange().createRollback();
+        if (rollback.isPresent())
+        {
+            // queue the rollback before dropping the history entry which also holds it
+            PendingChange queued = addPending(rollback.get());
+            this.history.removeHistory(change.getChange());
+            prioritisePending(queued);
+        } else
         {
-            this.pending.remove();
+            // an unstarted change never touched the world so its undo entry is simply dropped
+            this.history.removeHistory(change.getChange());
         }
+        return true;
+    }
+
+    @Override
+    public void prioritisePending(PendingChange change)
+    {
+        this.pending.moveToFront(change);
+    }
+
+    @Override
+    public boolean isPendingPaused()
+    {
+        return this.pending.isPaused();
+    }
+
+    @Override
+    public void setPendingPaused(boolean paused)
+    {
+        this.pending.setPaused(paused);
     }
 
     @Override
@@ -303,6 +381,7 @@ public abstract class AbstractPlayer<T> extends AbstractEntity<T> implements Pla
         Vector3d eyeOffs = new Vector3d(0, BaseConfiguration.playerEyeHeight, 0);
         double range = VoxelSniperConfiguration.rayTraceRange;
         RayTrace ray = new RayTrace(getLocation(), getYaw(), getPitch(), range, minY, maxY, step, eyeOffs);
+        ray.setExact(BaseConfiguration.rayTraceExact);
         ray.trace();
         return Optional.ofNullable(ray.getTargetBlock());
     }
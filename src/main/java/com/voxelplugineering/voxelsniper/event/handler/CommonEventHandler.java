@@ -25,7 +25,6 @@ package com.voxelplugineering.voxelsniper.event.handler;
 
 import com.voxelplugineering.voxelsniper.GunsmithLogger;
 import com.voxelplugineering.voxelsniper.brush.BrushContext;
-import com.voxelplugineering.voxelsniper.brush.BrushKeys;
 import com.voxelplugineering.voxelsniper.brush.BrushVars;
 import com.voxelplugineering.voxelsniper.config.BaseConfiguration;
 import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
@@ -40,13 +39,18 @@ import com.voxelplugineering.voxelsniper.service.registry.PlayerRegistry;
 import com.voxelplugineering.voxelsniper.service.text.TextFormat;
 import com.voxelplugineering.voxelsniper.util.Context;
 import com.voxelplugineering.voxelsniper.util.RayTrace;
+import com.voxelplugineering.voxelsniper.util.brush.BrushVarsHelper;
 import com.voxelplugineering.voxelsniper.util.math.Vector3d;
 import com.voxelplugineering.voxelsniper.world.Location;
+import com.voxelplugineering.voxelsniper.world.queue.MemoryGovernor;
 import com.voxelplugineering.voxelsniper.world.queue.OfflineUndoHandler;
+import com.voxelplugineering.voxelsniper.world.queue.PendingWorkIndex;
 
+import com.google.common.collect.MapMaker;
 import com.google.common.eventbus.DeadEvent;
 
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * An event handler for the default behavior for events.
@@ -56,7 +60,10 @@ public class CommonEventHandler
 
     private final PlayerRegistry<?> players;
     private final OfflineUndoHandler undo;
+    private final PendingWorkIndex activeWork;
+    private final MemoryGovernor memory;
     private final PermissionProxy perms;
+    private final Map<Player, SnipeSlot> slots;
 
 //    private final String playerFolderName = this.conf.get("playerDataDirectory", String.class).or("players/");
 //    private final String aliasFile = this.conf.get("aliasesFileName", String.class).or("aliases.json");
@@ -70,7 +77,10 @@ public class CommonEventHandler
     {
         this.players = context.getRequired(PlayerRegistry.class);
         this.undo = context.getRequired(OfflineUndoHandler.class);
+        this.activeWork = context.getRequired(PendingWorkIndex.class);
+        this.memory = context.getRequired(MemoryGovernor.class);
         this.perms = context.getRequired(PermissionProxy.class);
+        this.slots = new MapMaker().weakKeys().makeMap();
     }
 
     /**
@@ -109,6 +119,8 @@ public class CommonEventHandler
             GunsmithLogger.getLogger().error(e, "Error saving player aliases");
         }
 
+        this.slots.remove(player);
+        this.activeWork.remove(player);
         this.undo.register(player.getName(), player.getUndoHistory());
         this.players.invalidate(player.getName());
     }
@@ -117,6 +129,16 @@ public class CommonEventHandler
      * Processes the given {@link com.voxelplugineering.voxelsniper.event.SnipeEvent} and performs
      * all necessary checks of the event. This event handler is supports asynchronous callback.
      * 
+     * <p>Only one snipe per player is computed at a time. Snipes received while another is still
+     * being computed are coalesced so that only the most recent is performed once the current snipe
+     * completes, and snipes are refused while the player's pending changes exceed
+     * {@link VoxelSniperConfiguration#maxPendingVolume} or while the {@link MemoryGovernor} reports
+     * hard memory pressure.</p>
+     * 
+     * <p>The pending volume cap is a soft threshold. The volume a snipe will produce is not known
+     * until its brush has run, so a snipe admitted just under the cap may carry the player's pending
+     * volume above it. Further snipes are then refused until enough of that volume is applied.</p>
+     * 
      * @param event The snipe event to perform
      */
     @EventHandler
@@ -127,6 +149,36 @@ public class CommonEventHandler
         {
             return;
         }
+        SnipeSlot slot = this.slots.computeIfAbsent(sniper, (p) -> new SnipeSlot());
+        if (!slot.admit(event))
+        {
+            return;
+        }
+        SnipeEvent next = event;
+        while (next != null)
+        {
+            snipe(next);
+            next = slot.next();
+        }
+    }
+
+    private void snipe(SnipeEvent event)
+    {
+        Player sniper = event.getSniper();
+        // a soft threshold, the size of this snipe is unknown until its brush has run
+        long volume = sniper.getPendingVolume();
+        if (volume > VoxelSniperConfiguration.maxPendingVolume)
+        {
+            sniper.sendMessage(VoxelSniperConfiguration.snipePendingLimit, volume);
+            sniper.setProcessing(false);
+            return;
+        }
+        if (this.memory.getPressure() == MemoryGovernor.Pressure.HARD)
+        {
+            sniper.sendMessage(VoxelSniperConfiguration.snipeMemoryLimit);
+            sniper.setProcessing(false);
+            return;
+        }
         boolean attemptedNullAction = false;
         try
         {
@@ -139,11 +191,12 @@ public class CommonEventHandler
             double step = BaseConfiguration.rayTraceStep;
             Vector3d eyeOffs = new Vector3d(0, BaseConfiguration.playerEyeHeight, 0);
             double range = VoxelSniperConfiguration.rayTraceRange;
-            if (sniper.getBrushVars().has(BrushKeys.RANGE))
+            if (sniper.getBrushVars().has(BrushVarsHelper.RANGE))
             {
-                range = sniper.getBrushVars().get(BrushKeys.RANGE, Double.class).get();
+                range = sniper.getBrushVars().get(BrushVarsHelper.RANGE).get();
             }
             RayTrace ray = new RayTrace(location, yaw, pitch, range, minY, maxY, step, eyeOffs);
+            ray.setExact(BaseConfiguration.rayTraceExact);
             ray.trace();
 
             if (ray.getTargetBlock() == null)
@@ -152,15 +205,15 @@ public class CommonEventHandler
             }
             BrushVars vars = sniper.getBrushVars();
             vars.clearRuntime();
-            vars.set(BrushContext.RUNTIME, BrushKeys.ORIGIN, location);
-            vars.set(BrushContext.RUNTIME, BrushKeys.PLAYER_YAW, yaw);
-            vars.set(BrushContext.RUNTIME, BrushKeys.PLAYER_PITCH, pitch);
-            vars.set(BrushContext.RUNTIME, BrushKeys.TARGET_BLOCK, ray.getTargetBlock());
-            vars.set(BrushContext.RUNTIME, BrushKeys.TARGET_FACE, ray.getTargetFace());
-            vars.set(BrushContext.RUNTIME, BrushKeys.LAST_BLOCK, ray.getLastBlock());
-            vars.set(BrushContext.RUNTIME, BrushKeys.LAST_FACE, ray.getLastFace());
-            vars.set(BrushContext.RUNTIME, BrushKeys.ACTION, event.getAction());
-            vars.set(BrushContext.RUNTIME, BrushKeys.LENGTH, ray.getLength());
+            vars.set(BrushContext.RUNTIME, BrushVarsHelper.ORIGIN, location);
+            vars.set(BrushContext.RUNTIME, BrushVarsHelper.PLAYER_YAW, yaw);
+            vars.set(BrushContext.RUNTIME, BrushVarsHelper.PLAYER_PITCH, pitch);
+            vars.set(BrushContext.RUNTIME, BrushVarsHelper.TARGET_BLOCK, ray.getTargetBlock());
+            vars.set(BrushContext.RUNTIME, BrushVarsHelper.TARGET_FACE, ray.getTargetFace());
+            vars.set(BrushContext.RUNTIME, BrushVarsHelper.LAST_BLOCK, ray.getLastBlock());
+            vars.set(BrushContext.RUNTIME, BrushVarsHelper.LAST_FACE, ray.getLastFace());
+            vars.set(BrushContext.RUNTIME, BrushVarsHelper.ACTION, event.getAction());
+            vars.set(BrushContext.RUNTIME, BrushVarsHelper.LENGTH, ray.getLength());
 //            Gunsmith.getLogger().info("Snipe at " + ray.getTargetBlock().getLocation().toString());
             sniper.getCurrentBrush().run(sniper, vars);
             sniper.setProcessing(false);
@@ -185,4 +238,55 @@ public class CommonEventHandler
         Object event = deadEvent.getEvent();
         GunsmithLogger.getLogger().warn("An unhandled " + event.getClass().getName() + " event was posted to the event bus!");
     }
+
+    /**
+     * Tracks the snipe currently being computed for a player and the latest snipe received while it
+     * was being computed.
+     */
+    private static class SnipeSlot
+    {
+
+        private boolean running;
+        private SnipeEvent waiting;
+
+        /**
+         * Attempts to begin computing the given snipe. If a snipe is already being computed the
+         * given snipe replaces any snipe already waiting and will be returned by {@link #next()}.
+         * 
+         * @param event The snipe
+         * @return Whether the caller should compute the snipe now
+         */
+        synchronized boolean admit(SnipeEvent event)
+        {
+            if (!this.running)
+            {
+                this.running = true;
+                return true;
+            }
+            if (this.waiting == null)
+            {
+                event.getSniper().sendMessage(VoxelSniperConfiguration.snipeCoalesced);
+            }
+            this.waiting = event;
+            return false;
+        }
+
+        /**
+         * Gets the snipe which should be computed next, or releases this slot if no snipe is
+         * waiting.
+         * 
+         * @return The next snipe, or null
+         */
+        synchronized SnipeEvent next()
+        {
+            SnipeEvent next = this.waiting;
+            this.waiting = null;
+            if (next == null)
+            {
+                this.running = false;
+            }
+            return next;
+        }
+
+    }
 }
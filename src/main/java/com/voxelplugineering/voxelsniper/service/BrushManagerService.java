@@ -29,6 +29,7 @@ import com.voxelplugineering.voxelsniper.brush.BrushInfo;
 import com.voxelplugineering.voxelsniper.brush.BrushInstance;
 import com.voxelplugineering.voxelsniper.brush.BrushManager;
 import com.voxelplugineering.voxelsniper.brush.BrushWrapper;
+import com.voxelplugineering.voxelsniper.brush.CompiledBrushChain;
 import com.voxelplugineering.voxelsniper.brush.GlobalBrushManager;
 import com.voxelplugineering.voxelsniper.util.Context;
 
@@ -100,6 +101,19 @@ public class BrushManagerService extends AbstractService implements GlobalBrushM
         return this.wrapped.getBrushes();
     }
 
+    @Override
+    public CompiledBrushChain compile(String fullBrush)
+    {
+        check("compile");
+        return this.wrapped.compile(fullBrush);
+    }
+
+    @Override
+    public long getVersion()
+    {
+        return this.wrapped.getVersion();
+    }
+
     @Override
     public void consume(Class<?> cls)
     {
@@ -0,0 +1,171 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.service;
+
+import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
+import com.voxelplugineering.voxelsniper.util.Context;
+import com.voxelplugineering.voxelsniper.world.queue.MemoryGovernor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * A standard {@link MemoryGovernor}. When the configured watermarks are zero they are derived from
+ * the maximum heap size of the runtime.
+ */
+public class MemoryGovernorService extends AbstractService implements MemoryGovernor
+{
+
+    private AtomicLong[] usage;
+    private AtomicLong total;
+    private AtomicReference<Pressure> pressure;
+    private List<Consumer<Pressure>> listeners;
+    private long softLimit;
+    private long hardLimit;
+
+    /**
+     * Creates a new {@link MemoryGovernorService}.
+     * 
+     * @param context The context
+     */
+    public MemoryGovernorService(Context context)
+    {
+        super(context);
+    }
+
+    @Override
+    protected void _init()
+    {
+        this.usage = new AtomicLong[Category.values().length];
+        for (int i = 0; i < this.usage.length; i++)
+        {
+            this.usage[i] = new AtomicLong();
+        }
+        this.total = new AtomicLong();
+        this.pressure = new AtomicReference<Pressure>(Pressure.NORMAL);
+        this.listeners = new CopyOnWriteArrayList<Consumer<Pressure>>();
+        long heap = Runtime.getRuntime().maxMemory();
+        this.softLimit = VoxelSniperConfiguration.memorySoftLimitMegabytes > 0 ? VoxelSniperConfiguration.memorySoftLimitMegabytes * 1024L * 1024L
+                : heap / 4;
+        this.hardLimit = VoxelSniperConfiguration.memoryHardLimitMegabytes > 0 ? VoxelSniperConfiguration.memoryHardLimitMegabytes * 1024L * 1024L
+                : heap / 2;
+    }
+
+    @Override
+    protected void _shutdown()
+    {
+        this.usage = null;
+        this.listeners = null;
+    }
+
+    @Override
+    public void allocate(Category category, long bytes)
+    {
+        check("allocate");
+        this.usage[category.ordinal()].addAndGet(bytes);
+        this.total.addAndGet(bytes);
+        update();
+    }
+
+    @Override
+    public void release(Category category, long bytes)
+    {
+        check("release");
+        this.usage[category.ordinal()].addAndGet(-bytes);
+        this.total.addAndGet(-bytes);
+        update();
+    }
+
+    /**
+     * Brings the pressure level in line with the current total. The total is read again after every
+     * successful swap, so a thread which computed its level from a total that has since moved on
+     * cannot leave that stale level in place.
+     */
+    private void update()
+    {
+        while (true)
+        {
+            Pressure previous = this.pressure.get();
+            long current = this.total.get();
+            Pressure next = current > this.hardLimit ? Pressure.HARD : current > this.softLimit ? Pressure.SOFT : Pressure.NORMAL;
+            if (next == previous)
+            {
+                return;
+            }
+            if (this.pressure.compareAndSet(previous, next) && next.compareTo(previous) > 0)
+            {
+                for (Consumer<Pressure> listener : this.listeners)
+                {
+                    listener.accept(next);
+                }
+            }
+        }
+    }
+
+    @Override
+    public long getUsage(Category category)
+    {
+        check("getUsage");
+        return this.usage[category.ordinal()].get();
+    }
+
+    @Override
+    public long getTotalUsage()
+    {
+        check("getTotalUsage");
+        return this.total.get();
+    }
+
+    @Override
+    public long getSoftLimit()
+    {
+        check("getSoftLimit");
+        return this.softLimit;
+    }
+
+    @Override
+    public long getHardLimit()
+    {
+        check("getHardLimit");
+        return this.hardLimit;
+    }
+
+    @Override
+    public Pressure getPressure()
+    {
+        check("getPressure");
+        return this.pressure.get();
+    }
+
+    @Override
+    public void addPressureListener(Consumer<Pressure> listener)
+    {
+        check("addPressureListener");
+        this.listeners.add(listener);
+    }
+
+}
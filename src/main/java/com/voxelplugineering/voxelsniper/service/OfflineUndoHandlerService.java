@@ -24,24 +24,29 @@
 package com.voxelplugineering.voxelsniper.service;
 
 import com.voxelplugineering.voxelsniper.util.Context;
+import com.voxelplugineering.voxelsniper.world.queue.MemoryGovernor;
+import com.voxelplugineering.voxelsniper.world.queue.MemoryGovernor.Pressure;
 import com.voxelplugineering.voxelsniper.world.queue.OfflineUndoHandler;
 import com.voxelplugineering.voxelsniper.world.queue.UndoQueue;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
 
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 /**
  * A standard offline undo handler which caches player {@link UndoQueue}s for a period of 60 minutes
- * before discarding.
+ * before discarding. All cached histories are discarded as soon as the {@link MemoryGovernor}
+ * reports memory pressure, as they belong to players who are no longer online.
  */
 public class OfflineUndoHandlerService extends AbstractService implements OfflineUndoHandler
 {
 
     private static final int CACHE_EXPIRY_TIME = 60;
 
+    private final MemoryGovernor governor;
     private Cache<String, UndoQueue> cache;
 
     /**
@@ -52,12 +57,24 @@ public class OfflineUndoHandlerService extends AbstractService implements Offlin
     public OfflineUndoHandlerService(Context context)
     {
         super(context);
+        this.governor = context.getRequired(MemoryGovernor.class, this);
     }
 
     @Override
     protected void _init()
     {
-        this.cache = CacheBuilder.newBuilder().expireAfterAccess(CACHE_EXPIRY_TIME, TimeUnit.MINUTES).build();
+        this.cache = CacheBuilder.newBuilder().expireAfterAccess(CACHE_EXPIRY_TIME, TimeUnit.MINUTES)
+                .removalListener((RemovalNotification<String, UndoQueue> n) -> n.getValue().clearHistory()).build();
+        this.governor.addPressureListener(this::shed);
+    }
+
+    private void shed(Pressure pressure)
+    {
+        Cache<String, UndoQueue> current = this.cache;
+        if (current != null)
+        {
+            current.invalidateAll();
+        }
     }
 
     @Override
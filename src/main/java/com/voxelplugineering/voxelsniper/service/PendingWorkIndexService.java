@@ -0,0 +1,105 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.service;
+
+import com.voxelplugineering.voxelsniper.util.Context;
+import com.voxelplugineering.voxelsniper.world.queue.ChangeQueueOwner;
+import com.voxelplugineering.voxelsniper.world.queue.PendingWorkIndex;
+
+import com.google.common.collect.MapMaker;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A standard {@link PendingWorkIndex} backed by a concurrent set with weak references to the owners.
+ */
+public class PendingWorkIndexService extends AbstractService implements PendingWorkIndex
+{
+
+    private Set<ChangeQueueOwner> active;
+
+    /**
+     * Creates a new {@link PendingWorkIndexService}.
+     * 
+     * @param context The context
+     */
+    public PendingWorkIndexService(Context context)
+    {
+        super(context);
+    }
+
+    @Override
+    protected void _init()
+    {
+        this.active = Collections.newSetFromMap(new MapMaker().weakKeys().<ChangeQueueOwner, Boolean> makeMap());
+    }
+
+    @Override
+    protected void _shutdown()
+    {
+        this.active = null;
+    }
+
+    @Override
+    public void markActive(ChangeQueueOwner owner)
+    {
+        check("markActive");
+        this.active.add(owner);
+    }
+
+    @Override
+    public void markIdle(ChangeQueueOwner owner)
+    {
+        check("markIdle");
+        this.active.remove(owner);
+        // a change may have been queued between the owner's check and the removal
+        if (owner.hasPendingChanges())
+        {
+            this.active.add(owner);
+        }
+    }
+
+    @Override
+    public void remove(ChangeQueueOwner owner)
+    {
+        check("remove");
+        this.active.remove(owner);
+    }
+
+    @Override
+    public Iterable<ChangeQueueOwner> getActiveOwners()
+    {
+        check("getActiveOwners");
+        return this.active;
+    }
+
+    @Override
+    public int getActiveCount()
+    {
+        check("getActiveCount");
+        return this.active.size();
+    }
+
+}
@@ -52,6 +52,12 @@ public final class ServicePriorities
     public static final int PERMISSION_PROXY_PRIORITY = 7000;
     /** GlobalBrushManager service builder priority. */
     public static final int GLOBAL_BRUSH_MANAGER_PRIORITY = 8000;
+    /** MemoryGovernor service builder priority. */
+    public static final int MEMORY_GOVERNOR_PRIORITY = 8400;
+    /** PendingWorkIndex service builder priority. */
+    public static final int PENDING_WORK_INDEX_PRIORITY = 8500;
+    /** UndoBudget service builder priority. */
+    public static final int UNDO_BUDGET_PRIORITY = 8600;
     /** Player registry service builder priority. */
     public static final int PLAYER_REGISTRY_PRIORITY = 9000;
     /** CommandHandler service builder priority. */
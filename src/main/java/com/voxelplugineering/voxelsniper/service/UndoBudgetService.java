@@ -0,0 +1,227 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.service;
+
+import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
+import com.voxelplugineering.voxelsniper.util.Context;
+import com.voxelplugineering.voxelsniper.world.queue.MemoryGovernor;
+import com.voxelplugineering.voxelsniper.world.queue.MemoryGovernor.Category;
+import com.voxelplugineering.voxelsniper.world.queue.MemoryGovernor.Pressure;
+import com.voxelplugineering.voxelsniper.world.queue.UndoBudget;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A standard {@link UndoBudget} which evicts the least recently retained entries first.
+ */
+public class UndoBudgetService extends AbstractService implements UndoBudget
+{
+
+    private final MemoryGovernor governor;
+    private Map<Object, Retained> retained;
+    private long total;
+    private volatile long maxBytes;
+
+    /**
+     * Creates a new {@link UndoBudgetService}.
+     * 
+     * @param context The context
+     */
+    public UndoBudgetService(Context context)
+    {
+        super(context);
+        this.governor = context.getRequired(MemoryGovernor.class, this);
+    }
+
+    @Override
+    protected void _init()
+    {
+        this.retained = Maps.newLinkedHashMap();
+        this.total = 0;
+        this.maxBytes = VoxelSniperConfiguration.undoGlobalMaxMegabytes * 1024L * 1024L;
+        this.governor.addPressureListener(this::shed);
+    }
+
+    @Override
+    protected void _shutdown()
+    {
+        this.retained = null;
+    }
+
+    @Override
+    public void retain(Object entry, long bytes, Runnable eviction)
+    {
+        check("retain");
+        List<Runnable> evicted = Lists.newArrayList();
+        long delta = bytes;
+        synchronized (this.retained)
+        {
+            Retained previous = this.retained.remove(entry);
+            if (previous != null)
+            {
+                this.total -= previous.bytes;
+                delta -= previous.bytes;
+            }
+            this.retained.put(entry, new Retained(bytes, eviction));
+            this.total += bytes;
+            delta -= evict(this.total - this.maxBytes, entry, evicted);
+        }
+        report(delta);
+        // called without holding the lock as the callbacks lock the histories
+        for (Runnable r : evicted)
+        {
+            r.run();
+        }
+    }
+
+    /**
+     * Evicts the oldest entries until at least the given number of bytes have been freed, stopping
+     * at the given entry.
+     */
+    private long evict(long excess, Object stop, List<Runnable> evicted)
+    {
+        long freed = 0;
+        Iterator<Map.Entry<Object, Retained>> it = this.retained.entrySet().iterator();
+        while (freed < excess && it.hasNext())
+        {
+            Map.Entry<Object, Retained> eldest = it.next();
+            if (eldest.getKey() == stop)
+            {
+                break;
+            }
+            it.remove();
+            freed += eldest.getValue().bytes;
+            evicted.add(eldest.getValue().eviction);
+        }
+        this.total -= freed;
+        return freed;
+    }
+
+    /**
+     * Evicts the oldest entries once the governor reports hard pressure, until the total usage is
+     * back below the soft watermark.
+     */
+    private void shed(Pressure pressure)
+    {
+        if (pressure != Pressure.HARD || this.retained == null)
+        {
+            return;
+        }
+        List<Runnable> evicted = Lists.newArrayList();
+        long freed;
+        synchronized (this.retained)
+        {
+            freed = evict(this.governor.getTotalUsage() - this.governor.getSoftLimit(), null, evicted);
+        }
+        report(-freed);
+        for (Runnable r : evicted)
+        {
+            r.run();
+        }
+    }
+
+    private void report(long delta)
+    {
+        if (delta > 0)
+        {
+            this.governor.allocate(Category.UNDO, delta);
+        } else if (delta < 0)
+        {
+            this.governor.release(Category.UNDO, -delta);
+        }
+    }
+
+    @Override
+    public void release(Object entry)
+    {
+        check("release");
+        Retained previous;
+        synchronized (this.retained)
+        {
+            previous = this.retained.remove(entry);
+            if (previous != null)
+            {
+                this.total -= previous.bytes;
+            }
+        }
+        if (previous != null)
+        {
+            report(-previous.bytes);
+        }
+    }
+
+    @Override
+    public boolean isAccepting()
+    {
+        check("isAccepting");
+        return this.governor.getPressure() == Pressure.NORMAL;
+    }
+
+    @Override
+    public long getRetainedBytes()
+    {
+        check("getRetainedBytes");
+        synchronized (this.retained)
+        {
+            return this.total;
+        }
+    }
+
+    @Override
+    public long getMaxBytes()
+    {
+        check("getMaxBytes");
+        return this.maxBytes;
+    }
+
+    @Override
+    public void setMaxBytes(long bytes)
+    {
+        check("setMaxBytes");
+        this.maxBytes = bytes;
+    }
+
+    /**
+     * The size and eviction callback of a retained entry.
+     */
+    private static final class Retained
+    {
+
+        final long bytes;
+        final Runnable eviction;
+
+        Retained(long bytes, Runnable eviction)
+        {
+            this.bytes = bytes;
+            this.eviction = eviction;
+        }
+
+    }
+
+}
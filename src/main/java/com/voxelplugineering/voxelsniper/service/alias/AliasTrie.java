@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.service.alias;
+
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A token trie of alias keys, each key being split into its space separated words. Walking the
+ * trie from a position in a tokenized brush string finds every alias which starts at that
+ * position in a single pass, without building the candidate sections as strings.
+ */
+class AliasTrie
+{
+
+    private final Node root = new Node();
+    private final long version;
+
+    /**
+     * Creates a new empty {@link AliasTrie}.
+     * 
+     * @param version The version of the registry chain this trie was built from
+     */
+    AliasTrie(long version)
+    {
+        this.version = version;
+    }
+
+    /**
+     * Gets the version of the registry chain which this trie was built from.
+     * 
+     * @return The version
+     */
+    long getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * Inserts the given alias into the trie, replacing any value previously stored for the same
+     * alias.
+     * 
+     * @param alias The alias
+     * @param value The value
+     */
+    void insert(String alias, String value)
+    {
+        Node node = this.root;
+        String[] tokens = alias.split(" ");
+        for (String token : tokens)
+        {
+            Node next = node.children.get(token);
+            if (next == null)
+            {
+                next = new Node();
+                node.children.put(token, next);
+            }
+            node = next;
+        }
+        node.alias = alias;
+        node.value = value.split(" ");
+        node.length = tokens.length;
+    }
+
+    /**
+     * Finds the shortest alias starting at the given index of the tokens which is not contained
+     * within the set of excluded aliases. The walk stops at the first token containing an argument
+     * brace as arguments are never expanded.
+     * 
+     * @param tokens The tokens, already lowercased if aliases are case insensitive
+     * @param start The starting index
+     * @param excluded The aliases which may not be matched
+     * @return The matching node, or null if no alias matched
+     */
+    Node match(List<String> tokens, int start, Set<String> excluded)
+    {
+        Node node = this.root;
+        for (int i = start; i < tokens.size(); i++)
+        {
+            String token = tokens.get(i);
+            if (token.indexOf('{') != -1 || token.indexOf('}') != -1)
+            {
+                return null;
+            }
+            node = node.children.get(token);
+            if (node == null)
+            {
+                return null;
+            }
+            if (node.alias != null && !excluded.contains(node.alias))
+            {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A single node within the trie.
+     */
+    static class Node
+    {
+
+        private final Map<String, Node> children = Maps.newHashMap();
+        private String alias;
+        private String[] value;
+        private int length;
+
+        /**
+         * Gets the full alias terminating at this node.
+         * 
+         * @return The alias
+         */
+        String getAlias()
+        {
+            return this.alias;
+        }
+
+        /**
+         * Gets the tokens of the value of the alias terminating at this node.
+         * 
+         * @return The value tokens
+         */
+        String[] getValue()
+        {
+            return this.value;
+        }
+
+        /**
+         * Gets the number of tokens in the alias terminating at this node.
+         * 
+         * @return The alias length
+         */
+        int getLength()
+        {
+            return this.length;
+        }
+
+    }
+
+}
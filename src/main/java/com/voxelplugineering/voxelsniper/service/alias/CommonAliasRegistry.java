@@ -27,11 +27,11 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
-import com.voxelplugineering.voxelsniper.util.StringUtilities;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -46,14 +46,22 @@ import java.util.regex.Pattern;
 /**
  * A registry for aliases.
  * 
- * <p> TODO: clean up {@link #expand(String)} </p>
+ * <p> Expansion is backed by an {@link AliasTrie} containing the aliases of this registry merged
+ * with those of its parents. The trie is rebuilt lazily whenever an alias is registered or removed
+ * anywhere in the registry chain. </p>
  */
 public class CommonAliasRegistry implements AliasRegistry
 {
 
+    private static final Pattern BRUSH_PATTERN = Pattern.compile("([\\S&&[^\\{]]+)[\\s]*(?:((?:\\{[^\\}]*\\}[\\s]*)+))?");
+    private static final Pattern ARGUMENT_PATTERN = Pattern.compile("(\\{[^\\}]*\\})[\\s]*");
+    private static final Pattern ARGUMENT_JOIN_PATTERN = Pattern.compile("\\}[\\s]*\\{");
+
     private Map<String, String> aliases;
     private AliasRegistry parent;
     private final String registryName;
+    private volatile long version = 0;
+    private volatile AliasTrie trie = null;
 
     /**
      * Creates a new {@link AliasRegistry} with no parent.
@@ -111,12 +119,14 @@ public class CommonAliasRegistry implements AliasRegistry
             alias = alias.toLowerCase();
         }
         this.aliases.put(alias, value);
+        this.version++;
     }
 
     @Override
     public void clear()
     {
         this.aliases.clear();
+        this.version++;
     }
 
     @Override
@@ -159,17 +169,19 @@ public class CommonAliasRegistry implements AliasRegistry
         {
             return "";
         }
-        Pattern pattern = Pattern.compile("([\\S&&[^\\{]]+)[\\s]*(?:((?:\\{[^\\}]*\\}[\\s]*)+))?");
-        String finalBrush = "";
-        Matcher match = pattern.matcher(prep(string));
+        List<String> tokens = Lists.newArrayList();
+        Matcher match = BRUSH_PATTERN.matcher(prep(string));
         while (match.find())
         {
-            finalBrush += match.group(1) + " " + (match.group(2) == null ? "" : normalize(match.group(2)) + " ");
+            tokens.add(match.group(1));
+            if (match.group(2) != null)
+            {
+                tokens.add(normalize(match.group(2)));
+            }
         }
-        return expand_(finalBrush);
+        return expand(tokens);
     }
 
-    // TODO cleanup these methods
     private static boolean validate(String fullBrush)
     {
         int co = 0;
@@ -197,8 +209,7 @@ public class CommonAliasRegistry implements AliasRegistry
 
     private static String normalize(String s)
     {
-        Pattern p = Pattern.compile("(\\{[^\\}]*\\})[\\s]*");
-        Matcher match = p.matcher(s);
+        Matcher match = ARGUMENT_PATTERN.matcher(s);
         String f = "";
         while (match.find())
         {
@@ -212,50 +223,103 @@ public class CommonAliasRegistry implements AliasRegistry
             }
             f += m + " ";
         }
-        f = f.replaceAll("\\}[\\s]*\\{", ",");
+        f = ARGUMENT_JOIN_PATTERN.matcher(f).replaceAll(",");
         f = f.trim();
         return f;
     }
 
-    private String expand_(String string)
+    /**
+     * Expands the given tokens in place. At each position the shortest alias starting there is
+     * replaced by its value, an alias may not be reapplied at the same position to prevent infinite
+     * expansion of aliases which contain themselves.
+     */
+    private String expand(List<String> tokens)
     {
-        String[] split = string.split(" ");
+        AliasTrie trie = getTrie();
+        List<String> keys = tokens;
+        if (!VoxelSniperConfiguration.caseSensitiveAliases)
+        {
+            keys = Lists.newArrayListWithCapacity(tokens.size());
+            for (String token : tokens)
+            {
+                keys.add(token.toLowerCase());
+            }
+        }
+        Set<String> alreadyUsedAliases = new HashSet<String>();
         int i = 0;
-        List<String> alreadyUsedAliases = new ArrayList<String>();
-        while (i < split.length)
+        while (i < tokens.size())
         {
-            boolean found = false;
-            outer: for (int j = i; j < split.length; j++)
+            AliasTrie.Node node = trie.match(keys, i, alreadyUsedAliases);
+            if (node == null)
             {
-                String section = StringUtilities.getSection(split, i, j);
-
-                if (!VoxelSniperConfiguration.caseSensitiveAliases)
-                {
-                    section = section.toLowerCase();
-                }
-                if (section.contains("{") || section.contains("}"))
-                {
-                    found = false;
-                    break outer;
-                }
-                for (String alias : this.getKeys(true))
+                i++;
+                alreadyUsedAliases.clear();
+                continue;
+            }
+            alreadyUsedAliases.add(node.getAlias());
+            List<String> value = Arrays.asList(node.getValue());
+            replace(tokens, i, node.getLength(), value);
+            if (keys != tokens)
+            {
+                List<String> lower = Lists.newArrayListWithCapacity(value.size());
+                for (String token : value)
                 {
-                    if (alias.equals(section) && !alreadyUsedAliases.contains(alias))
-                    {
-                        alreadyUsedAliases.add(alias);
-                        found = true;
-                        split = StringUtilities.replaceSection(split, this.getAlias(alias).get().split(" "), i, j);
-                        break outer;
-                    }
+                    lower.add(token.toLowerCase());
                 }
+                replace(keys, i, node.getLength(), lower);
+            }
+        }
+        return String.join(" ", tokens);
+    }
+
+    private static void replace(List<String> tokens, int start, int length, List<String> insert)
+    {
+        List<String> section = tokens.subList(start, start + length);
+        section.clear();
+        section.addAll(insert);
+    }
+
+    /**
+     * Gets the alias trie for this registry, rebuilding it if any registry in the chain has been
+     * modified since it was last built.
+     */
+    private AliasTrie getTrie()
+    {
+        long current = getChainVersion();
+        AliasTrie cached = this.trie;
+        if (cached != null && cached.getVersion() == current)
+        {
+            return cached;
+        }
+        List<AliasRegistry> chain = Lists.newArrayList();
+        for (AliasRegistry r = this; r != null; r = r.getParent())
+        {
+            chain.add(r);
+        }
+        cached = new AliasTrie(current);
+        // inserted from the root down so that child registries override their parents
+        for (AliasRegistry r : Lists.reverse(chain))
+        {
+            for (Entry<String, String> e : r.getEntries())
+            {
+                cached.insert(e.getKey(), e.getValue());
             }
-            if (!found)
+        }
+        this.trie = cached;
+        return cached;
+    }
+
+    private long getChainVersion()
+    {
+        long v = 0;
+        for (AliasRegistry r = this; r != null; r = r.getParent())
+        {
+            if (r instanceof CommonAliasRegistry)
             {
-                i++;
-                alreadyUsedAliases.clear();
+                v += ((CommonAliasRegistry) r).version;
             }
         }
-        return StringUtilities.getSection(split, 0, split.length - 1);
+        return v;
     }
 
     private static String prep(String s)
@@ -282,7 +346,12 @@ public class CommonAliasRegistry implements AliasRegistry
     @Override
     public boolean remove(String alias)
     {
-        return this.aliases.remove(alias) != null;
+        if (this.aliases.remove(alias) != null)
+        {
+            this.version++;
+            return true;
+        }
+        return false;
     }
 
 }
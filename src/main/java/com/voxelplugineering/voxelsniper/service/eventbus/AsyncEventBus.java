@@ -32,8 +32,11 @@ import com.voxelplugineering.voxelsniper.service.event.DeadEvent;
 import com.voxelplugineering.voxelsniper.service.event.Event;
 import com.voxelplugineering.voxelsniper.service.eventbus.EventThreadingPolicy.Policy;
 import com.voxelplugineering.voxelsniper.util.Context;
-import com.voxelplugineering.voxelsniper.util.FutureFutureCallable;
+import com.voxelplugineering.voxelsniper.util.concurrent.InstrumentedThreadPoolExecutor;
+import com.voxelplugineering.voxelsniper.util.concurrent.ThreadPools;
 
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 import com.google.common.util.concurrent.Futures;
@@ -44,12 +47,9 @@ import com.google.common.util.concurrent.MoreExecutors;
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
 
 /**
  * An {@link EventBus} implementation supporting all {@link Policy} types. Optionally takes an
@@ -61,6 +61,7 @@ public class AsyncEventBus extends AbstractService implements EventBus
 {
 
     private ListeningExecutorService executor;
+    private InstrumentedThreadPoolExecutor pool;
     private Map<Class<? extends Event>, SubscriberList> registry;
     private boolean built;
     private boolean explicitExecutor;
@@ -80,8 +81,9 @@ public class AsyncEventBus extends AbstractService implements EventBus
     }
 
     /**
-     * Creates a new {@link AsyncEventBus}. This defaults to using
-     * {@link Executors#newCachedThreadPool()} for event handler delegation.
+     * Creates a new {@link AsyncEventBus}. This defaults to using a bounded
+     * {@link InstrumentedThreadPoolExecutor} configured from the {@link BaseConfiguration} for event
+     * handler delegation.
      * 
      * @param context The context
      */
@@ -100,24 +102,25 @@ public class AsyncEventBus extends AbstractService implements EventBus
         this.registry = new MapMaker().concurrencyLevel(4).makeMap();
         if (!this.explicitExecutor)
         {
-            final String prefix = BaseConfiguration.eventBusThreadPrefix;
-            this.executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool(new ThreadFactory()
+            Optional<ExecutorService> virtual = Optional.empty();
+            if (BaseConfiguration.eventBusVirtualThreads)
             {
-
-                private final ThreadGroup group;
-                private int count;
-
-                {
-                    this.group = Thread.currentThread().getThreadGroup();
-                }
-
-                @Override
-                public Thread newThread(Runnable r)
+                virtual = ThreadPools.newVirtualThreadExecutor();
+                if (!virtual.isPresent())
                 {
-                    Thread thr = new Thread(this.group, r, prefix + this.count++);
-                    return thr;
+                    GunsmithLogger.getLogger().warn("Virtual threads are not supported by this runtime, using a bounded pool for the event bus.");
                 }
-            }));
+            }
+            if (virtual.isPresent())
+            {
+                this.pool = null;
+                this.executor = MoreExecutors.listeningDecorator(virtual.get());
+            } else
+            {
+                this.pool = ThreadPools.newBoundedPool(BaseConfiguration.eventBusThreadPrefix, BaseConfiguration.eventBusMaxThreads,
+                        BaseConfiguration.eventBusQueueSize, BaseConfiguration.eventBusKeepAlive, BaseConfiguration.eventBusRejectionPolicy);
+                this.executor = MoreExecutors.listeningDecorator(this.pool);
+            }
         }
         this.built = true;
     }
@@ -132,12 +135,25 @@ public class AsyncEventBus extends AbstractService implements EventBus
         this.registry = null;
         if (!this.explicitExecutor)
         {
+            this.executor.shutdown();
             this.executor = null;
+            this.pool = null;
         }
 
         this.built = false;
     }
 
+    /**
+     * Gets the instrumented thread pool backing this event bus. This is absent if the event bus was
+     * created with an explicit {@link ExecutorService} or is using virtual threads.
+     * 
+     * @return The thread pool, if available
+     */
+    public Optional<InstrumentedThreadPoolExecutor> getThreadPool()
+    {
+        return Optional.ofNullable(this.pool);
+    }
+
     @Override
     public void register(Object eventHandler)
     {
@@ -247,15 +263,7 @@ public class AsyncEventBus extends AbstractService implements EventBus
         }
         for (Subscriber s : subs)
         {
-            try
-            {
-                s.getMethod().invoke(s.getContainer(), event);
-            } catch (Exception e)
-            {
-                GunsmithLogger.getLogger().error(e,
-                        "Error executing event handler in " + s.getContainer().getClass().getName() + " " + s.getMethod().getName());
-                continue;
-            }
+            invokeSubscriber(event, s);
         }
         return Futures.immediateFuture(event);
     }
@@ -268,24 +276,14 @@ public class AsyncEventBus extends AbstractService implements EventBus
             post(new DeadEvent(event));
             return Futures.immediateFuture(event);
         }
+        // Each subscriber is chained onto the completion of the previous one so that handlers still
+        // run in priority order, but neither the posting thread nor a pool thread waits on them.
+        ListenableFuture<Event> tail = Futures.immediateFuture(event);
         for (Subscriber s : subs)
         {
-            try
-            {
-                this.executor.submit(new EventCallable(event, s)).get();
-            } catch (InterruptedException e)
-            {
-                GunsmithLogger.getLogger().error(e,
-                        "Error executing event handler in " + s.getContainer().getClass().getName() + " " + s.getMethod().getName());
-                continue;
-            } catch (ExecutionException e)
-            {
-                GunsmithLogger.getLogger().error(e,
-                        "Error executing event handler in " + s.getContainer().getClass().getName() + " " + s.getMethod().getName());
-                continue;
-            }
+            tail = Futures.transform(tail, new EventFunction(s), this.executor);
         }
-        return Futures.immediateFuture(event);
+        return tail;
     }
 
     private ListenableFuture<Event> postAsync(Event event)
@@ -296,12 +294,32 @@ public class AsyncEventBus extends AbstractService implements EventBus
             post(new DeadEvent(event));
             return Futures.immediateFuture(event);
         }
-        List<Future<Event>> futures = Lists.newArrayList();
+        List<ListenableFuture<Event>> futures = Lists.newArrayList();
         for (Subscriber s : subs)
         {
             futures.add(this.executor.submit(new EventCallable(event, s)));
         }
-        return this.executor.submit(new FutureFutureCallable(futures, event));
+        return Futures.transform(Futures.allAsList(futures), Functions.constant(event));
+    }
+
+    /**
+     * Invokes the given subscriber with the event, reporting any exception thrown by the handler
+     * rather than propagating it so that one failing subscriber does not prevent the remaining
+     * subscribers from receiving the event.
+     * 
+     * @param event The event
+     * @param sub The subscriber
+     */
+    static void invokeSubscriber(Event event, Subscriber sub)
+    {
+        try
+        {
+            sub.getMethod().invoke(sub.getContainer(), event);
+        } catch (Exception e)
+        {
+            GunsmithLogger.getLogger().error(e,
+                    "Error executing event handler in " + sub.getContainer().getClass().getName() + " " + sub.getMethod().getName());
+        }
     }
 
     /**
@@ -322,10 +340,33 @@ public class AsyncEventBus extends AbstractService implements EventBus
         @Override
         public Event call() throws Exception
         {
-            this.sub.getMethod().invoke(this.sub.getContainer(), this.event);
+            invokeSubscriber(this.event, this.sub);
             return this.event;
         }
 
     }
 
+    /**
+     * A {@link Function} for posting an event to a subscriber once the previous subscriber in the
+     * chain has completed.
+     */
+    private static class EventFunction implements Function<Event, Event>
+    {
+
+        private final Subscriber sub;
+
+        public EventFunction(Subscriber s)
+        {
+            this.sub = s;
+        }
+
+        @Override
+        public Event apply(Event event)
+        {
+            invokeSubscriber(event, this.sub);
+            return event;
+        }
+
+    }
+
 }
@@ -66,10 +66,10 @@ import com.google.common.util.concurrent.ListenableFuture;
  * 
  * <p> The ordering of handlers within an {@link EventPriority} level is undefined. </p>
  * 
- * <p> Posting events with a {@link Policy} of {@link Policy#SYNCHRONIZED} or
- * {@link Policy#ASYNCHRONOUS_SEQUENTIAL} will wait until all event subscribers have been executed
- * before returning. While posting an event with {@link Policy#ASYNCHRONOUS} will return immediately
- * without waiting. </p>
+ * <p> Posting events with a {@link Policy} of {@link Policy#SYNCHRONIZED} will wait until all event
+ * subscribers have been executed before returning. Posting an event with
+ * {@link Policy#ASYNCHRONOUS_SEQUENTIAL} or {@link Policy#ASYNCHRONOUS} will return immediately
+ * without waiting, the returned future completes once all subscribers have been executed. </p>
  */
 public interface EventBus extends Service
 {
@@ -90,7 +90,8 @@ public interface EventBus extends Service
 
     /**
      * Posts the given event to the event bus. Depending on the {@link Policy} of the event this
-     * method may return immediately or wait for all handlers to finish executing.
+     * method may return immediately or wait for all handlers to finish executing. In either case the
+     * returned future completes once all handlers have finished executing.
      * 
      * <p> If no handlers have been registered for this event, and it is not already a
      * {@link DeadEvent}, then it will be wrapped in a DeadEvent and reposted. </p>
@@ -0,0 +1,362 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.shape;
+
+import com.voxelplugineering.voxelsniper.config.BaseConfiguration;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A fixed size, zero initialized array of bytes backing the dense shapes. Arrays of at least
+ * {@link BaseConfiguration#offHeapThresholdBytes} bytes are stored off-heap in direct buffers so
+ * that very large shapes do not cause humongous allocations and long collector pauses.
+ * 
+ * <p>Released off-heap buffers are kept in a bounded pool and reused by later allocations of a
+ * similar size. Buffers which are never released are freed by the garbage collector as usual.</p>
+ */
+abstract class ByteStorage
+{
+
+    private static final TreeMap<Integer, ArrayDeque<ByteBuffer>> pool = new TreeMap<>();
+    private static long pooled = 0;
+
+    /**
+     * Allocates a new storage of the given size, off-heap if the size is over the threshold.
+     */
+    static ByteStorage allocate(int size)
+    {
+        if (BaseConfiguration.offHeapThresholdBytes > 0 && size >= BaseConfiguration.offHeapThresholdBytes)
+        {
+            return new Direct(size);
+        }
+        return new Heap(new byte[size]);
+    }
+
+    private static synchronized ByteBuffer take(int size)
+    {
+        // accept a pooled buffer up to a quarter larger than requested
+        Map.Entry<Integer, ArrayDeque<ByteBuffer>> entry = pool.ceilingEntry(size);
+        if (entry == null || entry.getKey() > size + size / 4)
+        {
+            return null;
+        }
+        ByteBuffer buffer = entry.getValue().poll();
+        if (entry.getValue().isEmpty())
+        {
+            pool.remove(entry.getKey());
+        }
+        pooled -= buffer.capacity();
+        return buffer;
+    }
+
+    private static synchronized void give(ByteBuffer buffer)
+    {
+        if (pooled + buffer.capacity() > BaseConfiguration.offHeapPoolMegabytes * 1024L * 1024L)
+        {
+            return;
+        }
+        pool.computeIfAbsent(buffer.capacity(), k -> new ArrayDeque<>()).add(buffer);
+        pooled += buffer.capacity();
+    }
+
+    /**
+     * Gets the number of bytes held by released off-heap buffers awaiting reuse.
+     */
+    static synchronized long getPooledBytes()
+    {
+        return pooled;
+    }
+
+    abstract byte get(int index);
+
+    abstract void set(int index, byte value);
+
+    /**
+     * Sets every byte from the first index, inclusive, to the second index, exclusive.
+     */
+    abstract void fill(int from, int to, byte value);
+
+    /**
+     * Reads up to eight bytes from the given index into a word, the byte at the index in the lowest
+     * byte of the word.
+     */
+    abstract long getWord(int index, int count);
+
+    /**
+     * Ands up to eight bytes from the given index with the bytes of the given word, the byte at
+     * the index with the lowest byte of the word.
+     */
+    abstract void retain(int index, int count, long word);
+
+    abstract int size();
+
+    abstract boolean isOffHeap();
+
+    /**
+     * Creates a copy of this storage, allocated by the same rules as a new storage.
+     */
+    ByteStorage copy()
+    {
+        ByteStorage copy = allocate(size());
+        for (int i = 0; i < size(); i++)
+        {
+            copy.set(i, get(i));
+        }
+        return copy;
+    }
+
+    /**
+     * Gets the contents as an array, which is the backing array for storage on the heap and a
+     * copy for storage off-heap.
+     */
+    abstract byte[] toArray();
+
+    /**
+     * Releases any off-heap memory held by this storage, it must not be used afterwards.
+     */
+    void release()
+    {
+    }
+
+    /**
+     * Storage backed by an array on the heap.
+     */
+    private static final class Heap extends ByteStorage
+    {
+
+        private final byte[] data;
+
+        Heap(byte[] data)
+        {
+            this.data = data;
+        }
+
+        @Override
+        byte get(int index)
+        {
+            return this.data[index];
+        }
+
+        @Override
+        void set(int index, byte value)
+        {
+            this.data[index] = value;
+        }
+
+        @Override
+        void fill(int from, int to, byte value)
+        {
+            Arrays.fill(this.data, from, to, value);
+        }
+
+        @Override
+        long getWord(int index, int count)
+        {
+            long word = 0;
+            for (int i = 0; i < count; i++)
+            {
+                word |= (this.data[index + i] & 0xFFL) << (i * 8);
+            }
+            return word;
+        }
+
+        @Override
+        void retain(int index, int count, long word)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                this.data[index + i] &= (byte) (word >>> (i * 8));
+            }
+        }
+
+        @Override
+        int size()
+        {
+            return this.data.length;
+        }
+
+        @Override
+        boolean isOffHeap()
+        {
+            return false;
+        }
+
+        @Override
+        ByteStorage copy()
+        {
+            return new Heap(this.data.clone());
+        }
+
+        @Override
+        byte[] toArray()
+        {
+            return this.data;
+        }
+
+    }
+
+    /**
+     * Storage backed by a direct buffer.
+     */
+    private static final class Direct extends ByteStorage
+    {
+
+        private final int size;
+        private ByteBuffer buffer;
+
+        Direct(int size)
+        {
+            this.size = size;
+            ByteBuffer pooled = take(size);
+            if (pooled == null)
+            {
+                this.buffer = ByteBuffer.allocateDirect(size);
+            } else
+            {
+                this.buffer = pooled;
+                fill(0, size, (byte) 0);
+            }
+        }
+
+        @Override
+        byte get(int index)
+        {
+            if (index >= this.size)
+            {
+                throw new ArrayIndexOutOfBoundsException(index);
+            }
+            return this.buffer.get(index);
+        }
+
+        @Override
+        void set(int index, byte value)
+        {
+            if (index >= this.size)
+            {
+                throw new ArrayIndexOutOfBoundsException(index);
+            }
+            this.buffer.put(index, value);
+        }
+
+        @Override
+        void fill(int from, int to, byte value)
+        {
+            long word = (value & 0xFFL) * 0x0101010101010101L;
+            int i = from;
+            for (; i + 8 <= to; i += 8)
+            {
+                this.buffer.putLong(i, word);
+            }
+            for (; i < to; i++)
+            {
+                this.buffer.put(i, value);
+            }
+        }
+
+        @Override
+        long getWord(int index, int count)
+        {
+            if (count == 8)
+            {
+                return Long.reverseBytes(this.buffer.getLong(index));
+            }
+            long word = 0;
+            for (int i = 0; i < count; i++)
+            {
+                word |= (this.buffer.get(index + i) & 0xFFL) << (i * 8);
+            }
+            return word;
+        }
+
+        @Override
+        void retain(int index, int count, long word)
+        {
+            if (count == 8)
+            {
+                // the buffer is big endian so the word is reversed to keep the lowest byte first
+                this.buffer.putLong(index, this.buffer.getLong(index) & Long.reverseBytes(word));
+                return;
+            }
+            for (int i = 0; i < count; i++)
+            {
+                this.buffer.put(index + i, (byte) (this.buffer.get(index + i) & (byte) (word >>> (i * 8))));
+            }
+        }
+
+        @Override
+        int size()
+        {
+            return this.size;
+        }
+
+        @Override
+        boolean isOffHeap()
+        {
+            return true;
+        }
+
+        @Override
+        ByteStorage copy()
+        {
+            ByteStorage copy = allocate(this.size);
+            if (!(copy instanceof Direct))
+            {
+                return super.copy();
+            }
+            ByteBuffer source = this.buffer.duplicate();
+            source.clear();
+            source.limit(this.size);
+            ByteBuffer target = ((Direct) copy).buffer.duplicate();
+            target.clear();
+            target.put(source);
+            return copy;
+        }
+
+        @Override
+        byte[] toArray()
+        {
+            byte[] data = new byte[this.size];
+            ByteBuffer view = this.buffer.duplicate();
+            view.clear();
+            view.get(data);
+            return data;
+        }
+
+        @Override
+        void release()
+        {
+            if (this.buffer != null)
+            {
+                give(this.buffer);
+                this.buffer = null;
+            }
+        }
+
+    }
+
+}
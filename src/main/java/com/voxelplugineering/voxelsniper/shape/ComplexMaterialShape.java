@@ -31,7 +31,6 @@ import com.voxelplugineering.voxelsniper.world.material.MaterialState;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 
-import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
 
@@ -44,8 +43,8 @@ public class ComplexMaterialShape implements MaterialShape
     private short nextId = 1;
     private BiMap<Short, MaterialState> materialDictionary;
     private BiMap<MaterialState, Short> inverseDictionary;
-    private byte[] materialsA;
-    private byte[] materialsB;
+    private ByteStorage materialsA;
+    private ByteStorage materialsB;
     private Shape shape;
     private MaterialState defaultMaterial;
 
@@ -68,7 +67,7 @@ public class ComplexMaterialShape implements MaterialShape
         }
         this.materialDictionary = HashBiMap.create();
         this.inverseDictionary = this.materialDictionary.inverse();
-        this.materialsA = new byte[shape.getWidth() * shape.getLength() * shape.getHeight()];
+        this.materialsA = ByteStorage.allocate(shape.getWidth() * shape.getLength() * shape.getHeight());
         this.materialDictionary.put((short) 0, defaultMaterial);
         this.flood(defaultMaterial);
         this.defaultMaterial = defaultMaterial;
@@ -117,10 +116,10 @@ public class ComplexMaterialShape implements MaterialShape
     private short get(int x, int y, int z)
     {
         int index = getIndex(x, y, z);
-        short ret = (short) (this.materialsA[index] & 0xFF);
+        short ret = (short) (this.materialsA.get(index) & 0xFF);
         if (this.nextId > 255)
         {
-            ret = (short) (ret | (this.materialsB[index] & 0xFF));
+            ret = (short) (ret | (this.materialsB.get(index) & 0xFF));
         }
         return ret;
     }
@@ -128,15 +127,15 @@ public class ComplexMaterialShape implements MaterialShape
     private void set(int x, int y, int z, short data)
     {
         int index = getIndex(x, y, z);
-        this.materialsA[index] = (byte) (data & 0xff);
+        this.materialsA.set(index, (byte) (data & 0xff));
         if (this.nextId > 255)
         {
             if (this.materialsB == null)
             {
-                this.materialsB = new byte[this.materialsA.length];
+                this.materialsB = ByteStorage.allocate(this.materialsA.size());
             }
 
-            this.materialsB[index] = (byte) ((data & 0xff00) >> 8);
+            this.materialsB.set(index, (byte) ((data & 0xff00) >> 8));
         }
     }
 
@@ -239,15 +238,15 @@ public class ComplexMaterialShape implements MaterialShape
         short id = this.getOrRegisterMaterial(material);
         int startIndex = getIndex(0, y, 0);
         int endIndex = getIndex(this.shape.getWidth() - 1, y + height - 1, this.shape.getLength() - 1) + 1;
-        Arrays.fill(this.materialsA, startIndex, endIndex, (byte) (id & 0xff));
+        this.materialsA.fill(startIndex, endIndex, (byte) (id & 0xff));
         if (this.nextId > 255)
         {
             if (this.materialsB == null)
             {
-                this.materialsB = new byte[this.materialsA.length];
+                this.materialsB = ByteStorage.allocate(this.materialsA.size());
             }
 
-            Arrays.fill(this.materialsB, startIndex, endIndex, (byte) ((id & 0xff00) >> 8));
+            this.materialsB.fill(startIndex, endIndex, (byte) ((id & 0xff00) >> 8));
         }
     }
 
@@ -363,6 +362,32 @@ public class ComplexMaterialShape implements MaterialShape
         this.shape.unset(x, y, z, relative);
     }
 
+    @Override
+    public void forEachSet(VoxelVisitor visitor)
+    {
+        this.shape.forEachSet(visitor);
+    }
+
+    @Override
+    public long getRetainedBytes()
+    {
+        return this.shape.getRetainedBytes() + this.materialsA.size() + (this.materialsB == null ? 0 : this.materialsB.size());
+    }
+
+    /**
+     * Releases the off-heap storage of the material data, if any. The wrapped shape is not
+     * released as it may be shared with other shapes.
+     */
+    @Override
+    public void release()
+    {
+        this.materialsA.release();
+        if (this.materialsB != null)
+        {
+            this.materialsB.release();
+        }
+    }
+
     @Override
     public MaterialState getDefaultMaterial()
     {
@@ -372,13 +397,13 @@ public class ComplexMaterialShape implements MaterialShape
     @Override
     public byte[] getLowerMaterialData()
     {
-        return this.materialsA;
+        return this.materialsA.toArray();
     }
 
     @Override
     public byte[] getUpperMaterialData()
     {
-        return this.materialsB;
+        return this.materialsB == null ? null : this.materialsB.toArray();
     }
 
     @Override
@@ -429,28 +454,28 @@ public class ComplexMaterialShape implements MaterialShape
         this.inverseDictionary.put(existing, other);
         if (this.materialsB != null)
         {
-            for (int i = 0; i < this.materialsA.length; i++)
+            for (int i = 0; i < this.materialsA.size(); i++)
             {
-                if (this.materialsA[i] == (other & 0xff) && this.materialsB[i] == (other & 0xff00 >> 8))
+                if (this.materialsA.get(i) == (other & 0xff) && this.materialsB.get(i) == (other & 0xff00 >> 8))
                 {
-                    this.materialsA[i] = 0;
-                    this.materialsB[i] = 0;
-                } else if (this.materialsA[i] == 0 && this.materialsB[i] == 0)
+                    this.materialsA.set(i, (byte) 0);
+                    this.materialsB.set(i, (byte) 0);
+                } else if (this.materialsA.get(i) == 0 && this.materialsB.get(i) == 0)
                 {
-                    this.materialsA[i] = (byte) (other & 0xff);
-                    this.materialsB[i] = (byte) (other & 0xff00 >> 8);
+                    this.materialsA.set(i, (byte) (other & 0xff));
+                    this.materialsB.set(i, (byte) (other & 0xff00 >> 8));
                 }
             }
         } else
         {
-            for (int i = 0; i < this.materialsA.length; i++)
+            for (int i = 0; i < this.materialsA.size(); i++)
             {
-                if (this.materialsA[i] == (other & 0xff))
+                if (this.materialsA.get(i) == (other & 0xff))
                 {
-                    this.materialsA[i] = 0;
-                } else if (this.materialsA[i] == 0)
+                    this.materialsA.set(i, (byte) 0);
+                } else if (this.materialsA.get(i) == 0)
                 {
-                    this.materialsA[i] = (byte) (other & 0xff);
+                    this.materialsA.set(i, (byte) (other & 0xff));
                 }
             }
         }
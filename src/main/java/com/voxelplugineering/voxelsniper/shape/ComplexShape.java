@@ -38,9 +38,9 @@ public class ComplexShape implements Shape
 {
 
     /**
-     * The shape. Dimensions are [x][z][y/8].
+     * The shape, one bit per point stored a column at a time. Indexed by [x][z][y/8].
      */
-    private byte[][][] shape;
+    private ByteStorage shape;
 
     private Vector3i origin;
     private int width;
@@ -71,7 +71,7 @@ public class ComplexShape implements Shape
      */
     public ComplexShape(int width, int height, int length, int ox, int oy, int oz)
     {
-        this.shape = new byte[width][length][height / 8 + 1];
+        this.shape = ByteStorage.allocate(width * length * (height / 8 + 1));
         this.width = width;
         this.height = height;
         this.length = length;
@@ -88,7 +88,7 @@ public class ComplexShape implements Shape
      */
     public ComplexShape(int width, int height, int length, Vector3i origin)
     {
-        this.shape = new byte[width][length][height / 8 + 1];
+        this.shape = ByteStorage.allocate(width * length * (height / 8 + 1));
         this.width = width;
         this.height = height;
         this.length = length;
@@ -102,7 +102,7 @@ public class ComplexShape implements Shape
      */
     public ComplexShape(Shape shape)
     {
-        this.shape = new byte[shape.getWidth()][shape.getLength()][shape.getHeight() / 8 + 1];
+        this.shape = ByteStorage.allocate(shape.getWidth() * shape.getLength() * (shape.getHeight() / 8 + 1));
         this.width = shape.getWidth();
         this.height = shape.getHeight();
         this.length = shape.getLength();
@@ -175,7 +175,8 @@ public class ComplexShape implements Shape
         {
             throw new ArrayIndexOutOfBoundsException("Tried to set point outside of the shape. (" + x + ", " + y + ", " + z + ")");
         }
-        this.shape[x][z][y / 8] = (byte) (this.shape[x][z][y / 8] | (byte) (1 << (y % 8)));
+        int i = index(x, y, z);
+        this.shape.set(i, (byte) (this.shape.get(i) | (byte) (1 << (y % 8))));
     }
 
     @Override
@@ -191,7 +192,8 @@ public class ComplexShape implements Shape
         {
             throw new ArrayIndexOutOfBoundsException("Tried to set point outside of the shape. (" + x + ", " + y + ", " + z + ")");
         }
-        this.shape[x][z][y / 8] = (byte) (this.shape[x][z][y / 8] & (byte) ~(1 << (y % 8)));
+        int i = index(x, y, z);
+        this.shape.set(i, (byte) (this.shape.get(i) & (byte) ~(1 << (y % 8))));
     }
 
     @Override
@@ -207,7 +209,12 @@ public class ComplexShape implements Shape
         {
             throw new ArrayIndexOutOfBoundsException("Tried to get point outside of the shape. (" + x + ", " + y + ", " + z + ")");
         }
-        return ((this.shape[x][z][y / 8] >> y % 8) & 1) == 1;
+        return ((this.shape.get(index(x, y, z)) >> y % 8) & 1) == 1;
+    }
+
+    private int index(int x, int y, int z)
+    {
+        return (x * this.length + z) * (this.height / 8 + 1) + y / 8;
     }
 
     /**
@@ -271,7 +278,7 @@ public class ComplexShape implements Shape
      */
     private void resize(int w, int h, int l, int ox, int oy, int oz)
     {
-        byte[][][] newShape = new byte[w][l][h / 8 + 1];
+        ByteStorage newShape = ByteStorage.allocate(w * l * (h / 8 + 1));
         for (int x = 0; x < w && x < this.width; x++)
         {
             int xx = x + ox - this.origin.getX();
@@ -283,13 +290,14 @@ public class ComplexShape implements Shape
                     int yy = y + oy - this.origin.getY();
                     if (xx < this.width && xx >= 0 && yy < this.height && yy >= 0 && zz < this.length && zz >= 0)
                     {
-                        newShape[x][z][y
-                                / 8] = (byte) (newShape[x][z][y / 8] | ((this.shape[xx][zz][yy / 8] & (1 << (yy % 8))) >> (yy % 8) << (y % 8)));
+                        int i = (x * l + z) * (h / 8 + 1) + y / 8;
+                        newShape.set(i, (byte) (newShape.get(i) | ((this.shape.get(index(xx, yy, zz)) & (1 << (yy % 8))) >> (yy % 8) << (y % 8))));
                     }
                 }
             }
         }
 
+        this.shape.release();
         this.shape = newShape;
         this.width = w;
         this.height = h;
@@ -345,15 +353,9 @@ public class ComplexShape implements Shape
     {
         checkNotNull(s, "Cannot operate with a null shape.");
         combineSizes(s);
-        for (int x = 0; x < this.width; x++)
+        for (int i = 0; i < this.shape.size(); i++)
         {
-            for (int z = 0; z < this.length; z++)
-            {
-                for (int y = 0; y < this.height / 8 + 1; y++)
-                {
-                    this.shape[x][z][y] = (byte) (this.shape[x][z][y] | s.shape[x][z][y]);
-                }
-            }
+            this.shape.set(i, (byte) (this.shape.get(i) | s.shape.get(i)));
         }
     }
 
@@ -367,15 +369,9 @@ public class ComplexShape implements Shape
     {
         checkNotNull(s, "Cannot operate with a null shape.");
         combineSizes(s);
-        for (int x = 0; x < this.width; x++)
+        for (int i = 0; i < this.shape.size(); i++)
         {
-            for (int z = 0; z < this.length; z++)
-            {
-                for (int y = 0; y < this.height / 8 + 1; y++)
-                {
-                    this.shape[x][z][y] = (byte) (this.shape[x][z][y] | ~s.shape[x][z][y]);
-                }
-            }
+            this.shape.set(i, (byte) (this.shape.get(i) | ~s.shape.get(i)));
         }
     }
 
@@ -389,15 +385,9 @@ public class ComplexShape implements Shape
     {
         checkNotNull(s, "Cannot operate with a null shape.");
         combineSizes(s);
-        for (int x = 0; x < this.width; x++)
+        for (int i = 0; i < this.shape.size(); i++)
         {
-            for (int z = 0; z < this.length; z++)
-            {
-                for (int y = 0; y < this.height / 8 + 1; y++)
-                {
-                    this.shape[x][z][y] = (byte) (this.shape[x][z][y] & s.shape[x][z][y]);
-                }
-            }
+            this.shape.set(i, (byte) (this.shape.get(i) & s.shape.get(i)));
         }
     }
 
@@ -411,15 +401,9 @@ public class ComplexShape implements Shape
     {
         checkNotNull(s, "Cannot operate with a null shape.");
         combineSizes(s);
-        for (int x = 0; x < this.width; x++)
+        for (int i = 0; i < this.shape.size(); i++)
         {
-            for (int z = 0; z < this.length; z++)
-            {
-                for (int y = 0; y < this.height / 8 + 1; y++)
-                {
-                    this.shape[x][z][y] = (byte) ((this.shape[x][z][y] & ~s.shape[x][z][y]) | (~this.shape[x][z][y] & s.shape[x][z][y]));
-                }
-            }
+            this.shape.set(i, (byte) ((this.shape.get(i) & ~s.shape.get(i)) | (~this.shape.get(i) & s.shape.get(i))));
         }
     }
 
@@ -428,15 +412,9 @@ public class ComplexShape implements Shape
      */
     public void invert()
     {
-        for (int x = 0; x < this.width; x++)
+        for (int i = 0; i < this.shape.size(); i++)
         {
-            for (int z = 0; z < this.length; z++)
-            {
-                for (int y = 0; y < this.height / 8 + 1; y++)
-                {
-                    this.shape[x][z][y] = (byte) (~this.shape[x][z][y]);
-                }
-            }
+            this.shape.set(i, (byte) (~this.shape.get(i)));
         }
     }
 
@@ -475,22 +453,94 @@ public class ComplexShape implements Shape
         {
             return;
         }
-        for (int x = 0; x < this.width; x++)
+        ComplexShape flat = projectColumns(this);
+        this.shape.release();
+        this.shape = flat.shape;
+        this.height = 1;
+        setOrigin(new Vector3i(this.origin.getX(), 0, this.origin.getZ()));
+    }
+
+    /**
+     * Creates a shape one point high with a point set wherever the column of the given shape below
+     * it has any point set. The origin of the projection is at y zero.
+     * 
+     * @param shape The shape to project
+     * @return The projection
+     */
+    public static ComplexShape projectColumns(Shape shape)
+    {
+        Vector3i o = shape.getOrigin();
+        ComplexShape flat = new ComplexShape(shape.getWidth(), 1, shape.getLength(), o.getX(), 0, o.getZ());
+        // one byte per column in a shape one point high
+        for (int x = 0; x < shape.getWidth(); x++)
         {
-            for (int z = 0; z < this.length; z++)
+            for (int z = 0; z < shape.getLength(); z++)
             {
-                for (int y = 0; y < this.height; y++)
+                if (shape.isColumnSet(x, z))
                 {
-                    if (get(x, y, z, false))
-                    {
-                        set(x, 0, z, false);
-                        break;
-                    }
+                    flat.shape.set(x * shape.getLength() + z, (byte) 1);
                 }
             }
         }
-        resize(this.width, 1, this.length, this.origin.getX(), this.origin.getY(), this.origin.getZ());
-        setOrigin(new Vector3i(this.origin.getX(), 0, this.origin.getZ()));
+        return flat;
+    }
+
+    @Override
+    public int getLowestSet(int x, int z)
+    {
+        int stride = this.height / 8 + 1;
+        int base = (x * this.length + z) * stride;
+        for (int y = 0; y < this.height; y += 64)
+        {
+            long word = columnWord(base, stride, y);
+            if (word != 0)
+            {
+                return y + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getHighestSet(int x, int z)
+    {
+        int stride = this.height / 8 + 1;
+        int base = (x * this.length + z) * stride;
+        for (int y = (this.height - 1) & ~63; y >= 0; y -= 64)
+        {
+            long word = columnWord(base, stride, y);
+            if (word != 0)
+            {
+                return y + 63 - Long.numberOfLeadingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean isColumnSet(int x, int z)
+    {
+        int stride = this.height / 8 + 1;
+        int base = (x * this.length + z) * stride;
+        for (int y = 0; y < this.height; y += 64)
+        {
+            if (columnWord(base, stride, y) != 0)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the 64 points of a column from the given y position, clearing any bits past the top of
+     * the shape which may have been set by an inversion.
+     */
+    private long columnWord(int base, int stride, int y)
+    {
+        long word = this.shape.getWord(base + y / 8, Math.min(8, stride - y / 8));
+        int above = this.height - y;
+        return above >= 64 ? word : word & ((1L << above) - 1);
     }
 
     /**
@@ -558,16 +608,10 @@ public class ComplexShape implements Shape
         checkArgument(shape.getLength() == getLength());
         if (shape instanceof ComplexShape)
         {
-            byte[][][] other = ((ComplexShape) shape).shape;
-            for (int x = 0; x < getWidth(); x++)
+            ByteStorage other = ((ComplexShape) shape).shape;
+            for (int i = 0; i < this.shape.size(); i++)
             {
-                for (int z = 0; z < getLength(); z++)
-                {
-                    for (int y = 0; y < shape.getHeight() / 8 + 1; y++)
-                    {
-                        this.shape[x][z][y] = other[x][z][y];
-                    }
-                }
+                this.shape.set(i, other.get(i));
             }
         } else
         {
@@ -589,4 +633,41 @@ public class ComplexShape implements Shape
             }
         }
     }
+
+    /**
+     * Intersects this shape with the given mask, 64 points of a column at a time. The stored bytes
+     * of each column are anded directly with the words of the mask.
+     * 
+     * @param mask The mask to retain
+     */
+    public void retainWords(WordMask mask)
+    {
+        checkNotNull(mask, "Cannot operate with a null mask.");
+        int stride = this.height / 8 + 1;
+        for (int x = 0; x < this.width; x++)
+        {
+            for (int z = 0; z < this.length; z++)
+            {
+                int base = (x * this.length + z) * stride;
+                for (int y = 0; y < this.height; y += 64)
+                {
+                    long word = mask.get(x, y, z);
+                    if (word != -1L)
+                    {
+                        this.shape.retain(base + y / 8, Math.min(8, stride - y / 8), word);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases the off-heap storage of this shape, if any. The shape must not be used afterwards.
+     */
+    @Override
+    public void release()
+    {
+        this.shape.release();
+    }
+
 }
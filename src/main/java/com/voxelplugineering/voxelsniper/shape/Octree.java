@@ -0,0 +1,690 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.shape;
+
+import java.util.Arrays;
+
+/**
+ * A sparse voxel octree from positions to short values, where -1 marks an unset position. Cubes
+ * of 16 positions on a side are stored as leaves holding a bitset, and a value array only once
+ * they hold more than one value. Any node whose positions all hold the same value is collapsed
+ * into a single uniform node, so solid and empty regions cost the same small amount of memory
+ * whatever their size.
+ * 
+ * <p>Leaves are aligned to multiples of 16 from the corner of the tree, which matches world
+ * chunks whenever the corner of the shape is itself chunk aligned.</p>
+ */
+final class Octree
+{
+
+    static final int LEAF_SIZE = 16;
+    private static final int LEAF_VOLUME = LEAF_SIZE * LEAF_SIZE * LEAF_SIZE;
+    private static final Uniform EMPTY = new Uniform((short) -1);
+    private static final Uniform ZERO = new Uniform((short) 0);
+
+    private final int width;
+    private final int height;
+    private final int length;
+    private final int size;
+    private Node root;
+
+    Octree(int width, int height, int length)
+    {
+        int size = LEAF_SIZE;
+        while (size < width || size < height || size < length)
+        {
+            size <<= 1;
+        }
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.size = size;
+        this.root = EMPTY;
+    }
+
+    private Octree(Octree other, Node root)
+    {
+        this.width = other.width;
+        this.height = other.height;
+        this.length = other.length;
+        this.size = other.size;
+        this.root = root;
+    }
+
+    private static Uniform uniform(short value)
+    {
+        if (value == -1)
+        {
+            return EMPTY;
+        } else if (value == 0)
+        {
+            return ZERO;
+        }
+        return new Uniform(value);
+    }
+
+    private static int octant(int x, int y, int z, int half)
+    {
+        return ((x & half) != 0 ? 1 : 0) | ((y & half) != 0 ? 2 : 0) | ((z & half) != 0 ? 4 : 0);
+    }
+
+    private static int index(int x, int y, int z)
+    {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    short get(int x, int y, int z)
+    {
+        Node node = this.root;
+        int half = this.size >> 1;
+        while (node instanceof Branch)
+        {
+            node = ((Branch) node).children[octant(x, y, z, half)];
+            half >>= 1;
+        }
+        if (node instanceof Uniform)
+        {
+            return ((Uniform) node).value;
+        }
+        return ((Leaf) node).get(index(x, y, z));
+    }
+
+    void set(int x, int y, int z, short value)
+    {
+        this.root = set(this.root, this.size, x, y, z, value);
+    }
+
+    private static Node set(Node node, int size, int x, int y, int z, short value)
+    {
+        if (node instanceof Uniform && ((Uniform) node).value == value)
+        {
+            return node;
+        }
+        if (size == LEAF_SIZE)
+        {
+            Leaf leaf = Leaf.of(node);
+            leaf.set(index(x, y, z), value);
+            return leaf.collapse();
+        }
+        Branch branch = Branch.of(node);
+        int half = size >> 1;
+        int i = octant(x, y, z, half);
+        branch.children[i] = set(branch.children[i], half, x, y, z, value);
+        return branch.collapse();
+    }
+
+    /**
+     * Sets every position within the given box, bounds exclusive, to the given value. Nodes which
+     * lie entirely within the box are replaced by a single uniform node.
+     */
+    void fill(int x0, int y0, int z0, int x1, int y1, int z1, short value)
+    {
+        this.root = fill(this.root, 0, 0, 0, this.size, Math.max(x0, 0), Math.max(y0, 0), Math.max(z0, 0), Math.min(x1, this.width),
+                Math.min(y1, this.height), Math.min(z1, this.length), value);
+    }
+
+    private static Node fill(Node node, int nx, int ny, int nz, int size, int x0, int y0, int z0, int x1, int y1, int z1, short value)
+    {
+        if (x1 <= nx || nx + size <= x0 || y1 <= ny || ny + size <= y0 || z1 <= nz || nz + size <= z0)
+        {
+            return node;
+        }
+        if (x0 <= nx && nx + size <= x1 && y0 <= ny && ny + size <= y1 && z0 <= nz && nz + size <= z1)
+        {
+            return uniform(value);
+        }
+        if (node instanceof Uniform && ((Uniform) node).value == value)
+        {
+            return node;
+        }
+        if (size == LEAF_SIZE)
+        {
+            Leaf leaf = Leaf.of(node);
+            for (int y = Math.max(y0, ny); y < Math.min(y1, ny + size); y++)
+            {
+                for (int z = Math.max(z0, nz); z < Math.min(z1, nz + size); z++)
+                {
+                    for (int x = Math.max(x0, nx); x < Math.min(x1, nx + size); x++)
+                    {
+                        leaf.set(index(x, y, z), value);
+                    }
+                }
+            }
+            return leaf.collapse();
+        }
+        Branch branch = Branch.of(node);
+        int half = size >> 1;
+        for (int i = 0; i < 8; i++)
+        {
+            int cx = nx + ((i & 1) != 0 ? half : 0);
+            int cy = ny + ((i & 2) != 0 ? half : 0);
+            int cz = nz + ((i & 4) != 0 ? half : 0);
+            branch.children[i] = fill(branch.children[i], cx, cy, cz, half, x0, y0, z0, x1, y1, z1, value);
+        }
+        return branch.collapse();
+    }
+
+    void clear()
+    {
+        this.root = EMPTY;
+    }
+
+    /**
+     * Replaces the value of every set position which currently holds the given value.
+     */
+    void replaceValues(short from, short to)
+    {
+        this.root = map(this.root, from, to, false);
+    }
+
+    /**
+     * Sets the value of every set position.
+     */
+    void fillValues(short value)
+    {
+        this.root = map(this.root, (short) -1, value, true);
+    }
+
+    private static Node map(Node node, short from, short to, boolean all)
+    {
+        if (node instanceof Uniform)
+        {
+            short value = ((Uniform) node).value;
+            return value != -1 && (all || value == from) ? uniform(to) : node;
+        } else if (node instanceof Leaf)
+        {
+            Leaf leaf = (Leaf) node;
+            if (leaf.values == null)
+            {
+                if (all || leaf.value == from)
+                {
+                    leaf.value = to;
+                }
+                return leaf.collapse();
+            }
+            if (all)
+            {
+                leaf.values = null;
+                leaf.value = to;
+                return leaf.collapse();
+            }
+            for (int i = 0; i < LEAF_VOLUME; i++)
+            {
+                if (leaf.values[i] == from)
+                {
+                    leaf.values[i] = to;
+                }
+            }
+            return leaf;
+        }
+        Branch branch = (Branch) node;
+        for (int i = 0; i < 8; i++)
+        {
+            branch.children[i] = map(branch.children[i], from, to, all);
+        }
+        return branch.collapse();
+    }
+
+    /**
+     * Combines two trees of the same size into a new tree. Neither tree is modified.
+     */
+    static Octree combine(Octree a, Octree b, Op op)
+    {
+        return new Octree(a, combine(a.root, b.root, a.size, op));
+    }
+
+    private static Node combine(Node a, Node b, int size, Op op)
+    {
+        if (a instanceof Uniform && b instanceof Uniform)
+        {
+            return uniform(op.apply(((Uniform) a).value, ((Uniform) b).value));
+        }
+        Node shortcut = op.shortcut(a, b);
+        if (shortcut != null)
+        {
+            return copy(shortcut);
+        }
+        if (size == LEAF_SIZE)
+        {
+            Leaf la = Leaf.of(a);
+            Leaf lb = Leaf.of(b);
+            Leaf out = new Leaf(EMPTY);
+            if (la.values == null && lb.values == null && (la.value == lb.value || la.count == 0 || lb.count == 0))
+            {
+                // a single value on both sides reduces the operation to the bitsets
+                for (int i = 0; i < out.bits.length; i++)
+                {
+                    out.bits[i] = op.apply(la.bits[i], lb.bits[i]);
+                    out.count += Long.bitCount(out.bits[i]);
+                }
+                out.value = la.count == 0 ? lb.value : la.value;
+            } else
+            {
+                for (int i = 0; i < LEAF_VOLUME; i++)
+                {
+                    out.set(i, op.apply(la.get(i), lb.get(i)));
+                }
+            }
+            return out.collapse();
+        }
+        Branch out = new Branch(EMPTY);
+        for (int i = 0; i < 8; i++)
+        {
+            Node ca = a instanceof Branch ? ((Branch) a).children[i] : a;
+            Node cb = b instanceof Branch ? ((Branch) b).children[i] : b;
+            out.children[i] = combine(ca, cb, size >> 1, op);
+        }
+        return out.collapse();
+    }
+
+    /**
+     * Visits every set position, grouped by 16x16 column of the tree and then ordered by y, z and
+     * x. The tree may be modified by the visitor, positions are visited as they were when their
+     * leaf was reached.
+     */
+    void forEachSet(VoxelVisitor visitor)
+    {
+        walk((node, x, y, z) -> {
+            if (node instanceof Leaf)
+            {
+                long[] bits = ((Leaf) node).bits;
+                for (int w = 0; w < bits.length; w++)
+                {
+                    long word = bits[w];
+                    while (word != 0)
+                    {
+                        int i = (w << 6) | Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                        visitor.visit(x + (i & 15), y + (i >>> 8), z + ((i >>> 4) & 15));
+                    }
+                }
+                return;
+            }
+            int maxX = Math.min(x + LEAF_SIZE, this.width);
+            int maxY = Math.min(y + LEAF_SIZE, this.height);
+            int maxZ = Math.min(z + LEAF_SIZE, this.length);
+            for (int py = y; py < maxY; py++)
+            {
+                for (int pz = z; pz < maxZ; pz++)
+                {
+                    for (int px = x; px < maxX; px++)
+                    {
+                        visitor.visit(px, py, pz);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Visits the minimum corner of every leaf sized cube which holds at least one set position,
+     * in the same order as {@link #forEachSet(VoxelVisitor)}.
+     */
+    void forEachLeaf(VoxelVisitor visitor)
+    {
+        walk((node, x, y, z) -> visitor.visit(x, y, z));
+    }
+
+    private void walk(CellVisitor visitor)
+    {
+        int cellsX = (this.width + LEAF_SIZE - 1) / LEAF_SIZE;
+        int cellsY = (this.height + LEAF_SIZE - 1) / LEAF_SIZE;
+        int cellsZ = (this.length + LEAF_SIZE - 1) / LEAF_SIZE;
+        for (int cx = 0; cx < cellsX; cx++)
+        {
+            for (int cz = 0; cz < cellsZ; cz++)
+            {
+                for (int cy = 0; cy < cellsY;)
+                {
+                    int x = cx * LEAF_SIZE;
+                    int y = cy * LEAF_SIZE;
+                    int z = cz * LEAF_SIZE;
+                    Node node = this.root;
+                    int size = this.size;
+                    while (node instanceof Branch)
+                    {
+                        size >>= 1;
+                        node = ((Branch) node).children[octant(x, y, z, size)];
+                    }
+                    if (node == EMPTY)
+                    {
+                        // skip the rest of this column within the empty node
+                        cy = ((y & ~(size - 1)) + size) / LEAF_SIZE;
+                        continue;
+                    }
+                    visitor.visit(node, x, y, z);
+                    cy++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of set positions.
+     */
+    long count()
+    {
+        return count(this.root, this.size);
+    }
+
+    private static long count(Node node, int size)
+    {
+        if (node instanceof Uniform)
+        {
+            return ((Uniform) node).value == -1 ? 0 : (long) size * size * size;
+        } else if (node instanceof Leaf)
+        {
+            return ((Leaf) node).count;
+        }
+        long count = 0;
+        for (Node child : ((Branch) node).children)
+        {
+            count += count(child, size >> 1);
+        }
+        return count;
+    }
+
+    long getRetainedBytes()
+    {
+        return getRetainedBytes(this.root) + 32;
+    }
+
+    private static long getRetainedBytes(Node node)
+    {
+        if (node instanceof Uniform)
+        {
+            return node == EMPTY || node == ZERO ? 0 : 16;
+        } else if (node instanceof Leaf)
+        {
+            return 40 + LEAF_VOLUME / 8 + (((Leaf) node).values == null ? 0 : LEAF_VOLUME * 2);
+        }
+        long bytes = 64;
+        for (Node child : ((Branch) node).children)
+        {
+            bytes += getRetainedBytes(child);
+        }
+        return bytes;
+    }
+
+    Octree copy()
+    {
+        return new Octree(this, copy(this.root));
+    }
+
+    private static Node copy(Node node)
+    {
+        if (node instanceof Uniform)
+        {
+            return node;
+        } else if (node instanceof Leaf)
+        {
+            Leaf leaf = (Leaf) node;
+            Leaf copy = new Leaf(EMPTY);
+            System.arraycopy(leaf.bits, 0, copy.bits, 0, leaf.bits.length);
+            copy.values = leaf.values == null ? null : leaf.values.clone();
+            copy.value = leaf.value;
+            copy.count = leaf.count;
+            return copy;
+        }
+        Branch copy = new Branch(EMPTY);
+        for (int i = 0; i < 8; i++)
+        {
+            copy.children[i] = copy(((Branch) node).children[i]);
+        }
+        return copy;
+    }
+
+    /**
+     * A boolean operation between two trees, the value of the first tree is kept wherever both
+     * are set except for a union where the second tree wins.
+     */
+    enum Op
+    {
+        UNION
+        {
+
+            @Override
+            short apply(short a, short b)
+            {
+                return b != -1 ? b : a;
+            }
+
+            @Override
+            long apply(long a, long b)
+            {
+                return a | b;
+            }
+
+            @Override
+            Node shortcut(Node a, Node b)
+            {
+                return b instanceof Uniform ? (b == EMPTY ? a : b) : a == EMPTY ? b : null;
+            }
+        },
+        INTERSECT
+        {
+
+            @Override
+            short apply(short a, short b)
+            {
+                return b != -1 ? a : -1;
+            }
+
+            @Override
+            long apply(long a, long b)
+            {
+                return a & b;
+            }
+
+            @Override
+            Node shortcut(Node a, Node b)
+            {
+                return a == EMPTY || b == EMPTY ? EMPTY : b instanceof Uniform ? a : null;
+            }
+        },
+        SUBTRACT
+        {
+
+            @Override
+            short apply(short a, short b)
+            {
+                return b != -1 ? -1 : a;
+            }
+
+            @Override
+            long apply(long a, long b)
+            {
+                return a & ~b;
+            }
+
+            @Override
+            Node shortcut(Node a, Node b)
+            {
+                return a == EMPTY ? EMPTY : b instanceof Uniform ? (b == EMPTY ? a : EMPTY) : null;
+            }
+        };
+
+        abstract short apply(short a, short b);
+
+        abstract long apply(long a, long b);
+
+        /**
+         * Gets the result of combining the two nodes if it is one of the nodes unchanged, or null.
+         */
+        abstract Node shortcut(Node a, Node b);
+
+    }
+
+    /**
+     * A visitor of the leaf sized cubes of a tree which are not empty.
+     */
+    private interface CellVisitor
+    {
+
+        void visit(Node node, int x, int y, int z);
+
+    }
+
+    /**
+     * A node of the tree.
+     */
+    private abstract static class Node
+    {
+    }
+
+    /**
+     * A node whose positions all hold the same value.
+     */
+    private static final class Uniform extends Node
+    {
+
+        final short value;
+
+        Uniform(short value)
+        {
+            this.value = value;
+        }
+
+    }
+
+    /**
+     * A node split into eight octants.
+     */
+    private static final class Branch extends Node
+    {
+
+        final Node[] children = new Node[8];
+
+        Branch(Uniform fill)
+        {
+            Arrays.fill(this.children, fill);
+        }
+
+        static Branch of(Node node)
+        {
+            return node instanceof Branch ? (Branch) node : new Branch((Uniform) node);
+        }
+
+        Node collapse()
+        {
+            if (!(this.children[0] instanceof Uniform))
+            {
+                return this;
+            }
+            short value = ((Uniform) this.children[0]).value;
+            for (int i = 1; i < 8; i++)
+            {
+                if (!(this.children[i] instanceof Uniform) || ((Uniform) this.children[i]).value != value)
+                {
+                    return this;
+                }
+            }
+            return this.children[0];
+        }
+
+    }
+
+    /**
+     * A cube of 16 positions on a side. Set positions share a single value until a second value is
+     * stored, at which point a full value array is allocated.
+     */
+    private static final class Leaf extends Node
+    {
+
+        final long[] bits = new long[LEAF_VOLUME / 64];
+        short[] values = null;
+        short value = -1;
+        int count = 0;
+
+        Leaf(Uniform fill)
+        {
+            if (fill.value != -1)
+            {
+                Arrays.fill(this.bits, -1L);
+                this.count = LEAF_VOLUME;
+                this.value = fill.value;
+            }
+        }
+
+        static Leaf of(Node node)
+        {
+            return node instanceof Leaf ? (Leaf) node : new Leaf((Uniform) node);
+        }
+
+        short get(int i)
+        {
+            if ((this.bits[i >>> 6] & (1L << i)) == 0)
+            {
+                return -1;
+            }
+            return this.values == null ? this.value : this.values[i];
+        }
+
+        void set(int i, short v)
+        {
+            long bit = 1L << i;
+            boolean present = (this.bits[i >>> 6] & bit) != 0;
+            if (v == -1)
+            {
+                if (present)
+                {
+                    this.bits[i >>> 6] &= ~bit;
+                    this.count--;
+                }
+                return;
+            }
+            if (!present)
+            {
+                this.bits[i >>> 6] |= bit;
+                this.count++;
+            }
+            if (this.values != null)
+            {
+                this.values[i] = v;
+            } else if (this.count == 1)
+            {
+                this.value = v;
+            } else if (v != this.value)
+            {
+                this.values = new short[LEAF_VOLUME];
+                Arrays.fill(this.values, this.value);
+                this.values[i] = v;
+            }
+        }
+
+        Node collapse()
+        {
+            if (this.count == 0)
+            {
+                return EMPTY;
+            } else if (this.count == LEAF_VOLUME && this.values == null)
+            {
+                return uniform(this.value);
+            }
+            return this;
+        }
+
+    }
+
+}
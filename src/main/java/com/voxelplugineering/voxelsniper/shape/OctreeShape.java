@@ -0,0 +1,323 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.shape;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.voxelplugineering.voxelsniper.config.BaseConfiguration;
+import com.voxelplugineering.voxelsniper.util.math.Vector3i;
+
+/**
+ * A shape backed by a sparse voxel octree. Regions which are entirely set or entirely unset are
+ * collapsed into single nodes, so the memory used by the shape grows with the complexity of its
+ * surface rather than with its volume. Best suited to very large selections made of a few solid
+ * regions.
+ * 
+ * <p>Set points are visited grouped by 16x16 column of the shape, which lines up with world
+ * chunks when the corner of the shape does.</p>
+ */
+public class OctreeShape implements Shape
+{
+
+    /**
+     * Gets the given shape in the form which a brush should store it in. A shape whose volume is
+     * at least {@link BaseConfiguration#octreeShapeMinVolume} is mirrored into an
+     * {@link OctreeShape}, so that the world snapshots and masks made from it are kept as
+     * octrees too. Smaller shapes are returned unchanged.
+     * 
+     * @param shape The shape
+     * @return The shape to use
+     */
+    public static Shape create(Shape shape)
+    {
+        checkNotNull(shape, "Shape cannot be null");
+        long volume = (long) shape.getWidth() * shape.getHeight() * shape.getLength();
+        if (shape instanceof OctreeShape || volume < BaseConfiguration.octreeShapeMinVolume)
+        {
+            return shape;
+        }
+        return new OctreeShape(shape);
+    }
+
+    private Octree tree;
+    private final int width;
+    private final int height;
+    private final int length;
+    private Vector3i origin;
+
+    /**
+     * Creates a new shape. The shape is initially all unset. The origin is set to (0, 0, 0).
+     * 
+     * @param width The width
+     * @param height The height
+     * @param length The length
+     */
+    public OctreeShape(int width, int height, int length)
+    {
+        this(width, height, length, Vector3i.ZERO);
+    }
+
+    /**
+     * Creates a new shape. The shape is initially all unset.
+     * 
+     * @param width The width
+     * @param height The height
+     * @param length The length
+     * @param origin The origin
+     */
+    public OctreeShape(int width, int height, int length, Vector3i origin)
+    {
+        this.tree = new Octree(width, height, length);
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.origin = checkNotNull(origin, "Origin cannot be null");
+    }
+
+    /**
+     * Creates a new {@link OctreeShape} initialized with the given shape.
+     * 
+     * @param shape The shape to mirror
+     */
+    public OctreeShape(Shape shape)
+    {
+        this(shape.getWidth(), shape.getHeight(), shape.getLength(), shape.getOrigin());
+        fillFrom(shape);
+    }
+
+    private OctreeShape(OctreeShape other, Octree tree)
+    {
+        this.tree = tree;
+        this.width = other.width;
+        this.height = other.height;
+        this.length = other.length;
+        this.origin = other.origin;
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    @Override
+    public int getLength()
+    {
+        return this.length;
+    }
+
+    @Override
+    public boolean isMutable()
+    {
+        return true;
+    }
+
+    /**
+     * Sets the origin of the shape.
+     * 
+     * @param origin The new origin
+     */
+    public void setOrigin(Vector3i origin)
+    {
+        this.origin = checkNotNull(origin, "Origin cannot be null");
+    }
+
+    @Override
+    public Vector3i getOrigin()
+    {
+        return this.origin;
+    }
+
+    Octree getTree()
+    {
+        return this.tree;
+    }
+
+    private void checkBounds(int x, int y, int z)
+    {
+        if (x >= this.width || x < 0 || y >= this.height || y < 0 || z >= this.length || z < 0)
+        {
+            throw new ArrayIndexOutOfBoundsException("Tried to access point outside of the shape. (" + x + ", " + y + ", " + z + ")");
+        }
+    }
+
+    @Override
+    public boolean get(int x, int y, int z, boolean relative)
+    {
+        if (relative)
+        {
+            x += this.origin.getX();
+            y += this.origin.getY();
+            z += this.origin.getZ();
+        }
+        checkBounds(x, y, z);
+        return this.tree.get(x, y, z) != -1;
+    }
+
+    @Override
+    public void set(int x, int y, int z, boolean relative)
+    {
+        if (relative)
+        {
+            x += this.origin.getX();
+            y += this.origin.getY();
+            z += this.origin.getZ();
+        }
+        checkBounds(x, y, z);
+        this.tree.set(x, y, z, (short) 0);
+    }
+
+    @Override
+    public void unset(int x, int y, int z, boolean relative)
+    {
+        if (relative)
+        {
+            x += this.origin.getX();
+            y += this.origin.getY();
+            z += this.origin.getZ();
+        }
+        checkBounds(x, y, z);
+        this.tree.set(x, y, z, (short) -1);
+    }
+
+    /**
+     * Sets every point within the given box, the bounds are inclusive and clipped to the shape.
+     * 
+     * @param minX The lower x bound
+     * @param minY The lower y bound
+     * @param minZ The lower z bound
+     * @param maxX The upper x bound
+     * @param maxY The upper y bound
+     * @param maxZ The upper z bound
+     */
+    public void fill(int minX, int minY, int minZ, int maxX, int maxY, int maxZ)
+    {
+        this.tree.fill(minX, minY, minZ, maxX + 1, maxY + 1, maxZ + 1, (short) 0);
+    }
+
+    /**
+     * Sets every point which is set in the given shape.
+     * 
+     * @param other The other shape, which must be the same size as this shape
+     */
+    public void union(OctreeShape other)
+    {
+        this.tree = Octree.combine(this.tree, checkSize(other).tree, Octree.Op.UNION);
+    }
+
+    /**
+     * Unsets every point which is not set in the given shape.
+     * 
+     * @param other The other shape, which must be the same size as this shape
+     */
+    public void intersect(OctreeShape other)
+    {
+        this.tree = Octree.combine(this.tree, checkSize(other).tree, Octree.Op.INTERSECT);
+    }
+
+    /**
+     * Unsets every point which is set in the given shape.
+     * 
+     * @param other The other shape, which must be the same size as this shape
+     */
+    public void subtract(OctreeShape other)
+    {
+        this.tree = Octree.combine(this.tree, checkSize(other).tree, Octree.Op.SUBTRACT);
+    }
+
+    private OctreeShape checkSize(OctreeShape other)
+    {
+        checkArgument(other.width == this.width && other.height == this.height && other.length == this.length,
+                "Boolean operations require shapes of the same size");
+        return other;
+    }
+
+    /**
+     * Gets the number of set points in this shape.
+     * 
+     * @return The number of set points
+     */
+    public long size()
+    {
+        return this.tree.count();
+    }
+
+    @Override
+    public void forEachSet(VoxelVisitor visitor)
+    {
+        this.tree.forEachSet(visitor);
+    }
+
+    /**
+     * Visits the minimum corner of every 16x16x16 cube of the shape which contains at least one
+     * set point, grouped by 16x16 column of the shape and then ordered by y.
+     * 
+     * @param visitor The visitor
+     */
+    public void forEachLeaf(VoxelVisitor visitor)
+    {
+        this.tree.forEachLeaf(visitor);
+    }
+
+    @Override
+    public long getRetainedBytes()
+    {
+        return this.tree.getRetainedBytes();
+    }
+
+    @Override
+    public OctreeShape clone()
+    {
+        return new OctreeShape(this, this.tree.copy());
+    }
+
+    @Override
+    public void fillFrom(Shape shape)
+    {
+        checkArgument(shape.getWidth() == getWidth());
+        checkArgument(shape.getHeight() == getHeight());
+        checkArgument(shape.getLength() == getLength());
+        if (shape instanceof OctreeShape)
+        {
+            this.tree = ((OctreeShape) shape).tree.copy();
+            return;
+        }
+        this.tree.clear();
+        shape.forEachSet((x, y, z) -> this.tree.set(x, y, z, (short) 0));
+    }
+
+    @Override
+    public String toString()
+    {
+        return "OctreeShape (" + getWidth() + "x" + getHeight() + "x" + getLength() + ") origin: " + this.origin;
+    }
+
+}
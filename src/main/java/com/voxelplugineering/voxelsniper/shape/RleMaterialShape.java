@@ -0,0 +1,672 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.shape;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.voxelplugineering.voxelsniper.util.math.Vector3i;
+import com.voxelplugineering.voxelsniper.world.material.MaterialState;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A {@link MaterialShape} which stores each vertical column of the shape as a list of runs of a
+ * single material. Terrain is dominated by long vertical runs of stone, air or water so this
+ * typically uses a small fraction of the memory of a {@link ComplexMaterialShape}, which makes it
+ * well suited to holding snapshots of the world.
+ * 
+ * <p>Each column keeps the start of its runs in order, so reads are a binary search within the
+ * column. Writes split and merge runs and are slower than writes to a dense shape, they are
+ * cheapest when each column is written from the bottom up. The raw material arrays are built from
+ * the runs each time they are requested.</p>
+ */
+public class RleMaterialShape implements MaterialShape
+{
+
+    private static final short UNSET = -1;
+    // an array header for each of the two arrays of a column, plus four bytes of count
+    private static final long COLUMN_BYTES = 36;
+    // four bytes of start and two bytes of material
+    private static final long RUN_BYTES = 6;
+
+    /**
+     * Gets whether a shape of the given height could ever be stored in less memory as runs than
+     * as dense material data. Even a column holding a single run costs more than a short column
+     * stored densely, so shapes this short should be snapshotted densely without trying.
+     * 
+     * @param height The height of the shape
+     * @return Whether run length encoding may be smaller
+     */
+    public static boolean canCompress(int height)
+    {
+        return COLUMN_BYTES + RUN_BYTES < getDenseColumnBytes(height, false);
+    }
+
+    private static long getDenseColumnBytes(int height, boolean extra)
+    {
+        // one bit of shape and one or two bytes of material for each point
+        return height / 8 + height * (extra ? 2L : 1L);
+    }
+
+    private final int width;
+    private final int height;
+    private final int length;
+    private final Vector3i origin;
+    private final int[][] starts;
+    private final short[][] values;
+    private final int[] counts;
+    private final BiMap<Short, MaterialState> materialDictionary;
+    private short nextId = 1;
+    private MaterialState defaultMaterial;
+
+    /**
+     * Creates a new {@link RleMaterialShape} with every set point of the given shape set to the
+     * default material.
+     * 
+     * @param shape The shape
+     * @param defaultMaterial The default material for the shape
+     */
+    public RleMaterialShape(Shape shape, MaterialState defaultMaterial)
+    {
+        this(shape.getWidth(), shape.getHeight(), shape.getLength(), shape.getOrigin(), defaultMaterial);
+        fillFrom(shape);
+    }
+
+    /**
+     * Creates a new {@link RleMaterialShape} with every point unset.
+     * 
+     * @param width The width
+     * @param height The height
+     * @param length The length
+     * @param origin The origin
+     * @param defaultMaterial The default material for the shape
+     */
+    public RleMaterialShape(int width, int height, int length, Vector3i origin, MaterialState defaultMaterial)
+    {
+        this.defaultMaterial = checkNotNull(defaultMaterial, "Default material cannot be null!");
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.origin = checkNotNull(origin, "Origin cannot be null");
+        this.starts = new int[width * length][];
+        this.values = new short[width * length][];
+        this.counts = new int[width * length];
+        this.materialDictionary = HashBiMap.create();
+        this.materialDictionary.put((short) 0, defaultMaterial);
+        clearColumns();
+    }
+
+    private RleMaterialShape(RleMaterialShape other)
+    {
+        this.width = other.width;
+        this.height = other.height;
+        this.length = other.length;
+        this.origin = other.origin;
+        this.starts = new int[other.starts.length][];
+        this.values = new short[other.values.length][];
+        for (int c = 0; c < other.counts.length; c++)
+        {
+            this.starts[c] = Arrays.copyOf(other.starts[c], other.counts[c]);
+            this.values[c] = Arrays.copyOf(other.values[c], other.counts[c]);
+        }
+        this.counts = other.counts.clone();
+        this.materialDictionary = HashBiMap.create(other.materialDictionary);
+        this.nextId = other.nextId;
+        this.defaultMaterial = other.defaultMaterial;
+    }
+
+    private void clearColumns()
+    {
+        for (int c = 0; c < this.counts.length; c++)
+        {
+            this.starts[c] = new int[] { 0 };
+            this.values[c] = new short[] { UNSET };
+            this.counts[c] = 1;
+        }
+    }
+
+    @Override
+    public Shape getShape()
+    {
+        return this;
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    @Override
+    public int getLength()
+    {
+        return this.length;
+    }
+
+    @Override
+    public boolean isMutable()
+    {
+        return true;
+    }
+
+    @Override
+    public Vector3i getOrigin()
+    {
+        return this.origin;
+    }
+
+    /**
+     * Gets the number of runs held by the column at the given position.
+     * 
+     * @param x The x position
+     * @param z The z position
+     * @return The number of runs
+     */
+    public int getRunCount(int x, int z)
+    {
+        return this.counts[x * this.length + z];
+    }
+
+    private int column(int x, int y, int z)
+    {
+        if (x >= this.width || x < 0 || y >= this.height || y < 0 || z >= this.length || z < 0)
+        {
+            throw new ArrayIndexOutOfBoundsException("Tried to access point outside of the shape. (" + x + ", " + y + ", " + z + ")");
+        }
+        return x * this.length + z;
+    }
+
+    /**
+     * Finds the index of the run within the column which covers the given height.
+     */
+    private int find(int c, int y)
+    {
+        int[] s = this.starts[c];
+        int low = 0;
+        int high = this.counts[c] - 1;
+        while (low < high)
+        {
+            int mid = (low + high + 1) >>> 1;
+            if (s[mid] <= y)
+            {
+                low = mid;
+            } else
+            {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private short read(int x, int y, int z)
+    {
+        int c = column(x, y, z);
+        return this.values[c][find(c, y)];
+    }
+
+    private void write(int x, int y, int z, short value)
+    {
+        int c = column(x, y, z);
+        int i = find(c, y);
+        if (this.values[c][i] == value)
+        {
+            return;
+        }
+        int end = i + 1 < this.counts[c] ? this.starts[c][i + 1] : this.height;
+        boolean prefix = this.starts[c][i] < y;
+        boolean suffix = y + 1 < end;
+        int n = i;
+        if (prefix && suffix)
+        {
+            insert(c, i + 1, 2);
+            this.starts[c][i + 1] = y;
+            this.values[c][i + 1] = value;
+            this.starts[c][i + 2] = y + 1;
+            this.values[c][i + 2] = this.values[c][i];
+            n = i + 1;
+        } else if (prefix)
+        {
+            insert(c, i + 1, 1);
+            this.starts[c][i + 1] = y;
+            this.values[c][i + 1] = value;
+            n = i + 1;
+        } else if (suffix)
+        {
+            insert(c, i, 1);
+            this.values[c][i] = value;
+            this.starts[c][i + 1] = y + 1;
+        } else
+        {
+            this.values[c][i] = value;
+        }
+        // merge the new run into any neighbour of the same material
+        if (n + 1 < this.counts[c] && this.values[c][n + 1] == value)
+        {
+            remove(c, n + 1);
+        }
+        if (n > 0 && this.values[c][n - 1] == value)
+        {
+            remove(c, n);
+        }
+    }
+
+    private void insert(int c, int at, int n)
+    {
+        int count = this.counts[c];
+        if (count + n > this.starts[c].length)
+        {
+            int capacity = Math.max(count + n, this.starts[c].length * 2);
+            this.starts[c] = Arrays.copyOf(this.starts[c], capacity);
+            this.values[c] = Arrays.copyOf(this.values[c], capacity);
+        }
+        System.arraycopy(this.starts[c], at, this.starts[c], at + n, count - at);
+        System.arraycopy(this.values[c], at, this.values[c], at + n, count - at);
+        this.counts[c] = count + n;
+    }
+
+    private void remove(int c, int at)
+    {
+        int count = this.counts[c];
+        System.arraycopy(this.starts[c], at + 1, this.starts[c], at, count - at - 1);
+        System.arraycopy(this.values[c], at + 1, this.values[c], at, count - at - 1);
+        this.counts[c] = count - 1;
+    }
+
+    /**
+     * Trims the run arrays of every column to their used length. Intended to be called once a
+     * shape has been fully written, such as after capturing a snapshot of the world.
+     */
+    public void trim()
+    {
+        for (int c = 0; c < this.counts.length; c++)
+        {
+            if (this.starts[c].length != this.counts[c])
+            {
+                this.starts[c] = Arrays.copyOf(this.starts[c], this.counts[c]);
+                this.values[c] = Arrays.copyOf(this.values[c], this.counts[c]);
+            }
+        }
+    }
+
+    @Override
+    public boolean get(int x, int y, int z, boolean relative)
+    {
+        if (relative)
+        {
+            x += this.origin.getX();
+            y += this.origin.getY();
+            z += this.origin.getZ();
+        }
+        return read(x, y, z) != UNSET;
+    }
+
+    @Override
+    public void set(int x, int y, int z, boolean relative)
+    {
+        if (relative)
+        {
+            x += this.origin.getX();
+            y += this.origin.getY();
+            z += this.origin.getZ();
+        }
+        if (read(x, y, z) == UNSET)
+        {
+            write(x, y, z, (short) 0);
+        }
+    }
+
+    @Override
+    public void unset(int x, int y, int z, boolean relative)
+    {
+        if (relative)
+        {
+            x += this.origin.getX();
+            y += this.origin.getY();
+            z += this.origin.getZ();
+        }
+        write(x, y, z, UNSET);
+    }
+
+    @Override
+    public Optional<MaterialState> getMaterial(int x, int y, int z, boolean relative)
+    {
+        if (relative)
+        {
+            x += this.origin.getX();
+            y += this.origin.getY();
+            z += this.origin.getZ();
+        }
+        short id = read(x, y, z);
+        if (id == UNSET)
+        {
+            return Optional.empty();
+        }
+        return Optional.of(this.materialDictionary.get(id));
+    }
+
+    @Override
+    public void setMaterial(int x, int y, int z, boolean relative, MaterialState material)
+    {
+        checkNotNull(material);
+        if (relative)
+        {
+            x += this.origin.getX();
+            y += this.origin.getY();
+            z += this.origin.getZ();
+        }
+        write(x, y, z, getOrRegisterMaterial(material));
+    }
+
+    private short getOrRegisterMaterial(MaterialState material)
+    {
+        Short id = this.materialDictionary.inverse().get(material);
+        if (id != null)
+        {
+            return id;
+        }
+        short next = this.nextId++;
+        this.materialDictionary.put(next, material);
+        return next;
+    }
+
+    @Override
+    public void flood(MaterialState material)
+    {
+        short id = getOrRegisterMaterial(material);
+        for (int c = 0; c < this.counts.length; c++)
+        {
+            // every set run now holds the same material, so adjacent set runs merge
+            int out = 0;
+            for (int i = 0; i < this.counts[c]; i++)
+            {
+                short value = this.values[c][i] == UNSET ? UNSET : id;
+                if (out > 0 && this.values[c][out - 1] == value)
+                {
+                    continue;
+                }
+                this.starts[c][out] = this.starts[c][i];
+                this.values[c][out] = value;
+                out++;
+            }
+            this.counts[c] = out;
+        }
+    }
+
+    @Override
+    public void reset()
+    {
+        flood(this.defaultMaterial);
+    }
+
+    @Override
+    public MaterialState getDefaultMaterial()
+    {
+        return this.defaultMaterial;
+    }
+
+    @Override
+    public void setDefaultMaterial(MaterialState material)
+    {
+        if (this.defaultMaterial.equals(material))
+        {
+            return;
+        }
+        // swap the ids of the old and new default so that id 0 is always the default material
+        MaterialState existing = this.defaultMaterial;
+        short other = getOrRegisterMaterial(material);
+        this.materialDictionary.remove(other);
+        this.materialDictionary.put((short) 0, material);
+        this.materialDictionary.put(other, existing);
+        for (int c = 0; c < this.counts.length; c++)
+        {
+            for (int i = 0; i < this.counts[c]; i++)
+            {
+                if (this.values[c][i] == 0)
+                {
+                    this.values[c][i] = other;
+                } else if (this.values[c][i] == other)
+                {
+                    this.values[c][i] = 0;
+                }
+            }
+        }
+        this.defaultMaterial = material;
+    }
+
+    @Override
+    public byte[] getLowerMaterialData()
+    {
+        return getMaterialData(0);
+    }
+
+    @Override
+    public byte[] getUpperMaterialData()
+    {
+        return hasExtraData() ? getMaterialData(8) : null;
+    }
+
+    /**
+     * Expands the runs into one byte of each material id, laid out as the arrays of a
+     * {@link ComplexMaterialShape} and using the ids of this shape's dictionary. Unset points are
+     * left at zero.
+     */
+    private byte[] getMaterialData(int shift)
+    {
+        byte[] data = new byte[this.width * this.height * this.length];
+        for (int x = 0; x < this.width; x++)
+        {
+            for (int z = 0; z < this.length; z++)
+            {
+                int c = x * this.length + z;
+                for (int i = 0; i < this.counts[c]; i++)
+                {
+                    if (this.values[c][i] == UNSET)
+                    {
+                        continue;
+                    }
+                    byte b = (byte) (this.values[c][i] >> shift);
+                    int end = i + 1 < this.counts[c] ? this.starts[c][i + 1] : this.height;
+                    for (int y = this.starts[c][i]; y < end; y++)
+                    {
+                        data[(y * this.length + z) * this.width + x] = b;
+                    }
+                }
+            }
+        }
+        return data;
+    }
+
+    @Override
+    public boolean hasExtraData()
+    {
+        return this.nextId > 256;
+    }
+
+    @Override
+    public Map<Short, MaterialState> getMaterialsDictionary()
+    {
+        return this.materialDictionary;
+    }
+
+    @Override
+    public int getMaxMaterialId()
+    {
+        return this.nextId - 1;
+    }
+
+    /**
+     * Visits every set point one column at a time, from the bottom of each column up.
+     * 
+     * @param visitor The visitor
+     */
+    @Override
+    public void forEachSet(VoxelVisitor visitor)
+    {
+        for (int x = 0; x < this.width; x++)
+        {
+            for (int z = 0; z < this.length; z++)
+            {
+                int c = x * this.length + z;
+                // copy the runs as the visitor may modify this column
+                int count = this.counts[c];
+                int[] s = Arrays.copyOf(this.starts[c], count);
+                short[] v = Arrays.copyOf(this.values[c], count);
+                for (int i = 0; i < count; i++)
+                {
+                    if (v[i] == UNSET)
+                    {
+                        continue;
+                    }
+                    int end = i + 1 < count ? s[i + 1] : this.height;
+                    for (int y = s[i]; y < end; y++)
+                    {
+                        visitor.visit(x, y, z);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public long getRetainedBytes()
+    {
+        long bytes = this.counts.length * COLUMN_BYTES;
+        for (int c = 0; c < this.counts.length; c++)
+        {
+            bytes += this.starts[c].length * RUN_BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the approximate number of bytes which a {@link ComplexMaterialShape} holding the same
+     * points and materials as this shape would retain.
+     * 
+     * @return The size of the equivalent dense shape
+     */
+    public long getDenseRetainedBytes()
+    {
+        return this.counts.length * getDenseColumnBytes(this.height, hasExtraData());
+    }
+
+    /**
+     * Copies this shape into a {@link ComplexMaterialShape}, for when the runs of this shape turn
+     * out to be more expensive than dense material data.
+     * 
+     * @return The dense copy
+     */
+    public ComplexMaterialShape toDense()
+    {
+        ComplexShape shape = new ComplexShape(this.width, this.height, this.length, this.origin);
+        ComplexMaterialShape dense = new ComplexMaterialShape(shape, this.defaultMaterial);
+        for (int x = 0; x < this.width; x++)
+        {
+            for (int z = 0; z < this.length; z++)
+            {
+                int c = x * this.length + z;
+                for (int i = 0; i < this.counts[c]; i++)
+                {
+                    if (this.values[c][i] == UNSET)
+                    {
+                        continue;
+                    }
+                    MaterialState material = this.materialDictionary.get(this.values[c][i]);
+                    int end = i + 1 < this.counts[c] ? this.starts[c][i + 1] : this.height;
+                    for (int y = this.starts[c][i]; y < end; y++)
+                    {
+                        dense.setMaterial(x, y, z, false, material);
+                    }
+                }
+            }
+        }
+        return dense;
+    }
+
+    @Override
+    public MaterialShape clone()
+    {
+        return new RleMaterialShape(this);
+    }
+
+    @Override
+    public void fillFrom(Shape shape)
+    {
+        checkArgument(shape.getWidth() == getWidth());
+        checkArgument(shape.getHeight() == getHeight());
+        checkArgument(shape.getLength() == getLength());
+        for (int x = 0; x < this.width; x++)
+        {
+            for (int z = 0; z < this.length; z++)
+            {
+                // build each column in a single pass from the bottom up
+                int c = x * this.length + z;
+                int count = 0;
+                short last = -2;
+                for (int y = 0; y < this.height; y++)
+                {
+                    short value = shape.get(x, y, z, false) ? 0 : UNSET;
+                    if (value == last)
+                    {
+                        continue;
+                    }
+                    if (count == this.starts[c].length)
+                    {
+                        this.starts[c] = Arrays.copyOf(this.starts[c], count * 2);
+                        this.values[c] = Arrays.copyOf(this.values[c], count * 2);
+                    }
+                    this.starts[c][count] = y;
+                    this.values[c][count] = value;
+                    count++;
+                    last = value;
+                }
+                if (count == 0)
+                {
+                    this.starts[c][0] = 0;
+                    this.values[c][0] = UNSET;
+                    count = 1;
+                }
+                this.counts[c] = count;
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RleMaterialShape (" + getWidth() + "x" + getHeight() + "x" + getLength() + ") origin: " + this.origin;
+    }
+
+}
@@ -116,4 +116,96 @@ public interface Shape
      */
     void fillFrom(Shape shape);
 
+    /**
+     * Visits every set point of this shape. Implementations which do not store their points densely
+     * visit only the set points, the default implementation tests every point of the volume.
+     * 
+     * @param visitor The visitor
+     */
+    default void forEachSet(VoxelVisitor visitor)
+    {
+        for (int x = 0; x < getWidth(); x++)
+        {
+            for (int y = 0; y < getHeight(); y++)
+            {
+                for (int z = 0; z < getLength(); z++)
+                {
+                    if (get(x, y, z, false))
+                    {
+                        visitor.visit(x, y, z);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the lowest set point of the given column, relative to the lower corner of the shape.
+     * 
+     * @param x The x position of the column
+     * @param z The z position of the column
+     * @return The y position of the lowest set point, or -1 if the column is empty
+     */
+    default int getLowestSet(int x, int z)
+    {
+        for (int y = 0; y < getHeight(); y++)
+        {
+            if (get(x, y, z, false))
+            {
+                return y;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the highest set point of the given column, relative to the lower corner of the shape.
+     * 
+     * @param x The x position of the column
+     * @param z The z position of the column
+     * @return The y position of the highest set point, or -1 if the column is empty
+     */
+    default int getHighestSet(int x, int z)
+    {
+        for (int y = getHeight() - 1; y >= 0; y--)
+        {
+            if (get(x, y, z, false))
+            {
+                return y;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets whether any point of the given column is set, relative to the lower corner of the shape.
+     * 
+     * @param x The x position of the column
+     * @param z The z position of the column
+     * @return Whether the column is occupied
+     */
+    default boolean isColumnSet(int x, int z)
+    {
+        return getLowestSet(x, z) != -1;
+    }
+
+    /**
+     * Gets an estimate of the memory retained by this shape, in bytes. The default implementation
+     * assumes one bit per point of the volume.
+     * 
+     * @return The retained size
+     */
+    default long getRetainedBytes()
+    {
+        return (long) getWidth() * getLength() * (getHeight() / 8 + 1);
+    }
+
+    /**
+     * Releases any off-heap storage held directly by this shape, after which the shape must not be
+     * used. Shapes stored on the heap do nothing and are left to the garbage collector.
+     */
+    default void release()
+    {
+    }
+
 }
@@ -116,6 +116,18 @@ public class SingleMaterialShape implements MaterialShape
         return this.shape;
     }
 
+    @Override
+    public void forEachSet(VoxelVisitor visitor)
+    {
+        this.shape.forEachSet(visitor);
+    }
+
+    @Override
+    public long getRetainedBytes()
+    {
+        return this.shape.getRetainedBytes();
+    }
+
     @Override
     public Optional<MaterialState> getMaterial(int x, int y, int z, boolean relative)
     {
@@ -0,0 +1,318 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.shape;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.voxelplugineering.voxelsniper.util.math.Vector3i;
+import com.voxelplugineering.voxelsniper.world.material.MaterialState;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A {@link MaterialShape} which stores only its set points and their materials in a hash table,
+ * the material counterpart of a {@link SparseShape}. The raw material arrays are built from the
+ * table each time they are requested.
+ */
+public class SparseMaterialShape implements MaterialShape
+{
+
+    private final SparseVoxelTable voxels;
+    private final int width;
+    private final int height;
+    private final int length;
+    private final Vector3i origin;
+    private final BiMap<Short, MaterialState> materialDictionary;
+    private short nextId = 1;
+    private MaterialState defaultMaterial;
+
+    /**
+     * Creates a new {@link SparseMaterialShape} with every set point of the given shape set to the
+     * default material.
+     * 
+     * @param shape The shape
+     * @param defaultMaterial The default material for the shape
+     */
+    public SparseMaterialShape(Shape shape, MaterialState defaultMaterial)
+    {
+        checkNotNull(shape);
+        this.defaultMaterial = checkNotNull(defaultMaterial, "Default material cannot be null!");
+        checkArgument(shape.getWidth() <= SparseShape.MAX_SIZE && shape.getHeight() <= SparseShape.MAX_SIZE
+                && shape.getLength() <= SparseShape.MAX_SIZE, "Sparse shapes may be at most %s on each side", SparseShape.MAX_SIZE);
+        this.width = shape.getWidth();
+        this.height = shape.getHeight();
+        this.length = shape.getLength();
+        this.origin = shape.getOrigin();
+        this.voxels = new SparseVoxelTable(shape instanceof SparseShape ? ((SparseShape) shape).size() : 16);
+        this.materialDictionary = HashBiMap.create();
+        this.materialDictionary.put((short) 0, defaultMaterial);
+        shape.forEachSet((x, y, z) -> this.voxels.put(SparseVoxelTable.key(x, y, z), (short) 0));
+    }
+
+    private SparseMaterialShape(SparseMaterialShape other)
+    {
+        this.voxels = other.voxels.copy();
+        this.width = other.width;
+        this.height = other.height;
+        this.length = other.length;
+        this.origin = other.origin;
+        this.materialDictionary = HashBiMap.create(other.materialDictionary);
+        this.nextId = other.nextId;
+        this.defaultMaterial = other.defaultMaterial;
+    }
+
+    @Override
+    public Shape getShape()
+    {
+        return this;
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    @Override
+    public int getLength()
+    {
+        return this.length;
+    }
+
+    @Override
+    public boolean isMutable()
+    {
+        return true;
+    }
+
+    @Override
+    public Vector3i getOrigin()
+    {
+        return this.origin;
+    }
+
+    private long key(int x, int y, int z, boolean relative)
+    {
+        if (relative)
+        {
+            x += this.origin.getX();
+            y += this.origin.getY();
+            z += this.origin.getZ();
+        }
+        if (x >= this.width || x < 0 || y >= this.height || y < 0 || z >= this.length || z < 0)
+        {
+            throw new ArrayIndexOutOfBoundsException("Tried to access point outside of the shape. (" + x + ", " + y + ", " + z + ")");
+        }
+        return SparseVoxelTable.key(x, y, z);
+    }
+
+    @Override
+    public boolean get(int x, int y, int z, boolean relative)
+    {
+        return this.voxels.contains(key(x, y, z, relative));
+    }
+
+    @Override
+    public void set(int x, int y, int z, boolean relative)
+    {
+        long key = key(x, y, z, relative);
+        if (!this.voxels.contains(key))
+        {
+            this.voxels.put(key, (short) 0);
+        }
+    }
+
+    @Override
+    public void unset(int x, int y, int z, boolean relative)
+    {
+        this.voxels.remove(key(x, y, z, relative));
+    }
+
+    @Override
+    public Optional<MaterialState> getMaterial(int x, int y, int z, boolean relative)
+    {
+        short id = this.voxels.get(key(x, y, z, relative));
+        if (id == -1)
+        {
+            return Optional.empty();
+        }
+        return Optional.of(this.materialDictionary.get(id));
+    }
+
+    @Override
+    public void setMaterial(int x, int y, int z, boolean relative, MaterialState material)
+    {
+        checkNotNull(material);
+        this.voxels.put(key(x, y, z, relative), getOrRegisterMaterial(material));
+    }
+
+    private short getOrRegisterMaterial(MaterialState material)
+    {
+        Short id = this.materialDictionary.inverse().get(material);
+        if (id != null)
+        {
+            return id;
+        }
+        short next = this.nextId++;
+        this.materialDictionary.put(next, material);
+        return next;
+    }
+
+    @Override
+    public void flood(MaterialState material)
+    {
+        this.voxels.fillValues(getOrRegisterMaterial(material));
+    }
+
+    @Override
+    public void reset()
+    {
+        flood(this.defaultMaterial);
+    }
+
+    @Override
+    public MaterialState getDefaultMaterial()
+    {
+        return this.defaultMaterial;
+    }
+
+    @Override
+    public void setDefaultMaterial(MaterialState material)
+    {
+        if (this.defaultMaterial.equals(material))
+        {
+            return;
+        }
+        // swap the ids of the old and new default so that id 0 is always the default material
+        MaterialState existing = this.defaultMaterial;
+        short other = getOrRegisterMaterial(material);
+        this.materialDictionary.remove(other);
+        this.materialDictionary.put((short) 0, material);
+        this.materialDictionary.put(other, existing);
+        this.voxels.replaceValues((short) 0, (short) -2);
+        this.voxels.replaceValues(other, (short) 0);
+        this.voxels.replaceValues((short) -2, other);
+        this.defaultMaterial = material;
+    }
+
+    @Override
+    public byte[] getLowerMaterialData()
+    {
+        return getMaterialData(0);
+    }
+
+    @Override
+    public byte[] getUpperMaterialData()
+    {
+        return hasExtraData() ? getMaterialData(8) : null;
+    }
+
+    /**
+     * Copies one byte of the material id of each set point into an array laid out as the arrays of
+     * a {@link ComplexMaterialShape}. Unset points are left at zero.
+     */
+    private byte[] getMaterialData(int shift)
+    {
+        byte[] data = new byte[this.width * this.height * this.length];
+        for (long key : this.voxels.sortedKeys())
+        {
+            int x = SparseVoxelTable.x(key);
+            int y = SparseVoxelTable.y(key);
+            int z = SparseVoxelTable.z(key);
+            data[(y * this.length + z) * this.width + x] = (byte) (this.voxels.get(key) >> shift);
+        }
+        return data;
+    }
+
+    @Override
+    public boolean hasExtraData()
+    {
+        return this.nextId > 256;
+    }
+
+    @Override
+    public Map<Short, MaterialState> getMaterialsDictionary()
+    {
+        return this.materialDictionary;
+    }
+
+    @Override
+    public int getMaxMaterialId()
+    {
+        return this.nextId - 1;
+    }
+
+    /**
+     * Gets the number of set points in this shape.
+     * 
+     * @return The number of set points
+     */
+    public int size()
+    {
+        return this.voxels.size();
+    }
+
+    @Override
+    public void forEachSet(VoxelVisitor visitor)
+    {
+        for (long key : this.voxels.sortedKeys())
+        {
+            visitor.visit(SparseVoxelTable.x(key), SparseVoxelTable.y(key), SparseVoxelTable.z(key));
+        }
+    }
+
+    @Override
+    public long getRetainedBytes()
+    {
+        return this.voxels.getRetainedBytes();
+    }
+
+    @Override
+    public MaterialShape clone()
+    {
+        return new SparseMaterialShape(this);
+    }
+
+    @Override
+    public void fillFrom(Shape shape)
+    {
+        checkArgument(shape.getWidth() == getWidth());
+        checkArgument(shape.getHeight() == getHeight());
+        checkArgument(shape.getLength() == getLength());
+        this.voxels.clear();
+        shape.forEachSet((x, y, z) -> this.voxels.put(SparseVoxelTable.key(x, y, z), (short) 0));
+    }
+
+}
@@ -0,0 +1,263 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.shape;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.voxelplugineering.voxelsniper.config.BaseConfiguration;
+import com.voxelplugineering.voxelsniper.util.math.Vector3i;
+
+/**
+ * A shape which stores only its set points in a hash table, for shapes such as lines and scattered
+ * points which set a tiny fraction of their bounding box. Memory is proportional to the number of
+ * set points rather than to the volume, and set points are visited grouped by 16x16 column.
+ */
+public class SparseShape implements Shape
+{
+
+    /**
+     * The maximum size of a sparse shape along any axis.
+     */
+    public static final int MAX_SIZE = 1 << 21;
+
+    /**
+     * Creates a new empty shape of the given size, which is sparse if the expected number of set
+     * points is a tiny fraction of the volume and a {@link ComplexShape} otherwise.
+     * 
+     * @param width The width
+     * @param height The height
+     * @param length The length
+     * @param origin The origin
+     * @param expected The expected number of set points
+     * @return The new shape
+     */
+    public static Shape create(int width, int height, int length, Vector3i origin, long expected)
+    {
+        long volume = (long) width * height * length;
+        if (volume >= BaseConfiguration.sparseShapeMinVolume && expected <= volume * BaseConfiguration.sparseShapeFillRatio)
+        {
+            return new SparseShape(width, height, length, origin);
+        }
+        return new ComplexShape(width, height, length, origin);
+    }
+
+    private final SparseVoxelTable voxels;
+    private final int width;
+    private final int height;
+    private final int length;
+    private Vector3i origin;
+
+    /**
+     * Creates a new shape. The shape is initially all unset. The origin is set to (0, 0, 0).
+     * 
+     * @param width The width
+     * @param height The height
+     * @param length The length
+     */
+    public SparseShape(int width, int height, int length)
+    {
+        this(width, height, length, Vector3i.ZERO);
+    }
+
+    /**
+     * Creates a new shape. The shape is initially all unset.
+     * 
+     * @param width The width
+     * @param height The height
+     * @param length The length
+     * @param origin The origin
+     */
+    public SparseShape(int width, int height, int length, Vector3i origin)
+    {
+        checkArgument(width <= MAX_SIZE && height <= MAX_SIZE && length <= MAX_SIZE, "Sparse shapes may be at most %s on each side", MAX_SIZE);
+        this.voxels = new SparseVoxelTable(16);
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.origin = checkNotNull(origin, "Origin cannot be null");
+    }
+
+    /**
+     * Creates a new {@link SparseShape} initialized with the given shape.
+     * 
+     * @param shape The shape to mirror
+     */
+    public SparseShape(Shape shape)
+    {
+        this(shape.getWidth(), shape.getHeight(), shape.getLength(), shape.getOrigin());
+        shape.forEachSet((x, y, z) -> set(x, y, z, false));
+    }
+
+    private SparseShape(SparseShape other)
+    {
+        this.voxels = other.voxels.copy();
+        this.width = other.width;
+        this.height = other.height;
+        this.length = other.length;
+        this.origin = other.origin;
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    @Override
+    public int getLength()
+    {
+        return this.length;
+    }
+
+    @Override
+    public boolean isMutable()
+    {
+        return true;
+    }
+
+    /**
+     * Sets the origin of this shape.
+     * 
+     * @param origin The new origin
+     */
+    public void setOrigin(Vector3i origin)
+    {
+        this.origin = checkNotNull(origin, "Origin cannot be null");
+    }
+
+    @Override
+    public Vector3i getOrigin()
+    {
+        return this.origin;
+    }
+
+    @Override
+    public boolean get(int x, int y, int z, boolean relative)
+    {
+        if (relative)
+        {
+            x += this.origin.getX();
+            y += this.origin.getY();
+            z += this.origin.getZ();
+        }
+        if (x >= this.width || x < 0 || y >= this.height || y < 0 || z >= this.length || z < 0)
+        {
+            throw new ArrayIndexOutOfBoundsException("Tried to get point outside of the shape. (" + x + ", " + y + ", " + z + ")");
+        }
+        return this.voxels.contains(SparseVoxelTable.key(x, y, z));
+    }
+
+    @Override
+    public void set(int x, int y, int z, boolean relative)
+    {
+        if (relative)
+        {
+            x += this.origin.getX();
+            y += this.origin.getY();
+            z += this.origin.getZ();
+        }
+        if (x >= this.width || x < 0 || y >= this.height || y < 0 || z >= this.length || z < 0)
+        {
+            throw new ArrayIndexOutOfBoundsException("Tried to set point outside of the shape. (" + x + ", " + y + ", " + z + ")");
+        }
+        this.voxels.put(SparseVoxelTable.key(x, y, z), (short) 0);
+    }
+
+    @Override
+    public void unset(int x, int y, int z, boolean relative)
+    {
+        if (relative)
+        {
+            x += this.origin.getX();
+            y += this.origin.getY();
+            z += this.origin.getZ();
+        }
+        if (x >= this.width || x < 0 || y >= this.height || y < 0 || z >= this.length || z < 0)
+        {
+            throw new ArrayIndexOutOfBoundsException("Tried to set point outside of the shape. (" + x + ", " + y + ", " + z + ")");
+        }
+        this.voxels.remove(SparseVoxelTable.key(x, y, z));
+    }
+
+    /**
+     * Gets the number of set points in this shape.
+     * 
+     * @return The number of set points
+     */
+    public int size()
+    {
+        return this.voxels.size();
+    }
+
+    /**
+     * Visits every set point, grouped by 16x16 column of the shape and then ordered by y, z and x.
+     * The shape may be modified by the visitor.
+     * 
+     * @param visitor The visitor
+     */
+    @Override
+    public void forEachSet(VoxelVisitor visitor)
+    {
+        for (long key : this.voxels.sortedKeys())
+        {
+            visitor.visit(SparseVoxelTable.x(key), SparseVoxelTable.y(key), SparseVoxelTable.z(key));
+        }
+    }
+
+    @Override
+    public long getRetainedBytes()
+    {
+        return this.voxels.getRetainedBytes();
+    }
+
+    @Override
+    public SparseShape clone()
+    {
+        return new SparseShape(this);
+    }
+
+    @Override
+    public void fillFrom(Shape shape)
+    {
+        checkArgument(shape.getWidth() == getWidth());
+        checkArgument(shape.getHeight() == getHeight());
+        checkArgument(shape.getLength() == getLength());
+        this.voxels.clear();
+        shape.forEachSet((x, y, z) -> set(x, y, z, false));
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SparseShape (" + getWidth() + "x" + getHeight() + "x" + getLength() + ") origin: " + this.origin + " points: " + size();
+    }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.shape;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash table from packed voxel positions to short values, used as the backing
+ * store of the sparse shapes.
+ * 
+ * <p>Positions are packed so that the natural ordering of the keys groups voxels by 16x16 column
+ * of the shape, then by y, z and x. Positions must be within 0 and 2^21 on every axis.</p>
+ */
+final class SparseVoxelTable
+{
+
+    private static final long EMPTY = -1;
+
+    private long[] keys;
+    private short[] values;
+    private int size = 0;
+
+    SparseVoxelTable(int expected)
+    {
+        int capacity = 16;
+        while (capacity < expected * 2)
+        {
+            capacity <<= 1;
+        }
+        this.keys = new long[capacity];
+        this.values = new short[capacity];
+        Arrays.fill(this.keys, EMPTY);
+    }
+
+    private SparseVoxelTable(SparseVoxelTable other)
+    {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.size = other.size;
+    }
+
+    static long key(int x, int y, int z)
+    {
+        return ((long) (x >> 4) << 46) | ((long) (z >> 4) << 29) | ((long) y << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    static int x(long key)
+    {
+        return (int) ((key >>> 46) << 4 | (key & 15));
+    }
+
+    static int y(long key)
+    {
+        return (int) ((key >>> 8) & 0x1FFFFF);
+    }
+
+    static int z(long key)
+    {
+        return (int) (((key >>> 29) & 0x1FFFF) << 4 | ((key >>> 4) & 15));
+    }
+
+    private int slot(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (this.keys.length - 1);
+    }
+
+    private int indexOf(long key)
+    {
+        int mask = this.keys.length - 1;
+        for (int i = slot(key);; i = (i + 1) & mask)
+        {
+            if (this.keys[i] == key)
+            {
+                return i;
+            }
+            if (this.keys[i] == EMPTY)
+            {
+                return -1;
+            }
+        }
+    }
+
+    boolean contains(long key)
+    {
+        return indexOf(key) != -1;
+    }
+
+    /**
+     * Gets the value stored for the given key, or -1 if the key is not present.
+     */
+    short get(long key)
+    {
+        int i = indexOf(key);
+        return i == -1 ? -1 : this.values[i];
+    }
+
+    void put(long key, short value)
+    {
+        if ((this.size + 1) * 2 > this.keys.length)
+        {
+            rehash(this.keys.length * 2);
+        }
+        int mask = this.keys.length - 1;
+        for (int i = slot(key);; i = (i + 1) & mask)
+        {
+            if (this.keys[i] == key)
+            {
+                this.values[i] = value;
+                return;
+            }
+            if (this.keys[i] == EMPTY)
+            {
+                this.keys[i] = key;
+                this.values[i] = value;
+                this.size++;
+                return;
+            }
+        }
+    }
+
+    boolean remove(long key)
+    {
+        int i = indexOf(key);
+        if (i == -1)
+        {
+            return false;
+        }
+        // shift back any following entries of the probe sequence so that no gap is left behind
+        int mask = this.keys.length - 1;
+        for (int j = (i + 1) & mask; this.keys[j] != EMPTY; j = (j + 1) & mask)
+        {
+            int k = slot(this.keys[j]);
+            if (i <= j ? (i >= k || k > j) : (i >= k && k > j))
+            {
+                this.keys[i] = this.keys[j];
+                this.values[i] = this.values[j];
+                i = j;
+            }
+        }
+        this.keys[i] = EMPTY;
+        this.size--;
+        return true;
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = this.keys;
+        short[] oldValues = this.values;
+        this.keys = new long[capacity];
+        this.values = new short[capacity];
+        Arrays.fill(this.keys, EMPTY);
+        this.size = 0;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != EMPTY)
+            {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Replaces every occurrence of one value with another.
+     */
+    void replaceValues(short from, short to)
+    {
+        for (int i = 0; i < this.keys.length; i++)
+        {
+            if (this.keys[i] != EMPTY && this.values[i] == from)
+            {
+                this.values[i] = to;
+            }
+        }
+    }
+
+    void fillValues(short value)
+    {
+        Arrays.fill(this.values, value);
+    }
+
+    void clear()
+    {
+        Arrays.fill(this.keys, EMPTY);
+        this.size = 0;
+    }
+
+    int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Gets all keys in ascending order, which groups the voxels by column.
+     */
+    long[] sortedKeys()
+    {
+        long[] sorted = new long[this.size];
+        int n = 0;
+        for (long key : this.keys)
+        {
+            if (key != EMPTY)
+            {
+                sorted[n++] = key;
+            }
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    long getRetainedBytes()
+    {
+        return this.keys.length * 10L + 32;
+    }
+
+    SparseVoxelTable copy()
+    {
+        return new SparseVoxelTable(this);
+    }
+
+}
@@ -28,9 +28,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.voxelplugineering.voxelsniper.GunsmithLogger;
 import com.voxelplugineering.voxelsniper.util.math.Vector3d;
 import com.voxelplugineering.voxelsniper.world.Block;
+import com.voxelplugineering.voxelsniper.world.ChunkCursor;
 import com.voxelplugineering.voxelsniper.world.Location;
 import com.voxelplugineering.voxelsniper.world.World;
 import com.voxelplugineering.voxelsniper.world.material.Material;
+import com.voxelplugineering.voxelsniper.world.material.MaterialState;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Lists;
@@ -107,6 +109,11 @@ public class RayTrace
     private int lastY;
     private int lastZ;
     private double step;
+    private boolean exact;
+    private ChunkCursor cursor;
+    private Material lastTested;
+    private boolean lastTraversable;
+    private boolean stopped;
 
     // TODO change these ctors to a builder
 
@@ -215,6 +222,30 @@ public class RayTrace
         this.range = range;
     }
 
+    /**
+     * Gets whether this ray visits exactly the voxels that it crosses rather than sampling the ray at
+     * fixed step increments.
+     * 
+     * @return Is exact
+     */
+    public boolean isExact()
+    {
+        return this.exact;
+    }
+
+    /**
+     * Sets whether this ray should visit exactly the voxels that it crosses. An exact trace walks the
+     * voxel grid one face crossing at a time (Amanatides and Woo's algorithm) and ignores the step
+     * increment, so no voxels are skipped at grazing angles and every reported face is a cardinal
+     * direction.
+     * 
+     * @param exact Is exact
+     */
+    public void setExact(boolean exact)
+    {
+        this.exact = exact;
+    }
+
     /**
      * Returns the blocks that will be traversed by this ray as if non-solid.
      * 
@@ -300,6 +331,9 @@ public class RayTrace
         this.lastX = (int) Math.floor(this.currentX);
         this.lastY = (int) Math.floor(this.currentY);
         this.lastZ = (int) Math.floor(this.currentZ);
+        this.cursor = new ChunkCursor(this.world);
+        this.lastTested = null;
+        this.stopped = false;
     }
 
     /**
@@ -316,13 +350,154 @@ public class RayTrace
     public void trace(Function<Block, Boolean> callback)
     {
         init();
-        checkOutOfWorld();
-        if (this.length <= this.range)
+        if (this.exact)
         {
-            step(callback);
+            traverse(callback);
+        } else
+        {
+            checkOutOfWorld();
+            if (this.length <= this.range)
+            {
+                step(callback);
+            }
+        }
+        this.lastBlock = this.cursor.getBlock(this.lastX, this.lastY, this.lastZ).orElse(null);
+        this.targetBlock = this.cursor.getBlock(this.targetX, this.targetY, this.targetZ).orElse(this.lastBlock);
+    }
+
+    /**
+     * Walks the voxels crossed by the ray in order until a non-traversable block is found or the ray
+     * leaves the range or the world.
+     */
+    private void traverse(Function<Block, Boolean> callback)
+    {
+        double ox = this.origin.getX();
+        double oy = this.origin.getY();
+        double oz = this.origin.getZ();
+        int dx = this.stepX > 0 ? 1 : this.stepX < 0 ? -1 : 0;
+        int dy = this.stepY > 0 ? 1 : this.stepY < 0 ? -1 : 0;
+        int dz = this.stepZ > 0 ? 1 : this.stepZ < 0 ? -1 : 0;
+        // the ray length needed to cross one whole voxel along each axis
+        double deltaX = dx == 0 ? Double.POSITIVE_INFINITY : 1 / Math.abs(this.stepX);
+        double deltaY = dy == 0 ? Double.POSITIVE_INFINITY : 1 / Math.abs(this.stepY);
+        double deltaZ = dz == 0 ? Double.POSITIVE_INFINITY : 1 / Math.abs(this.stepZ);
+        // the ray length at which the next voxel boundary along each axis is crossed
+        double nextX = dx == 0 ? Double.POSITIVE_INFINITY : (dx > 0 ? this.targetX + 1 - ox : ox - this.targetX) * deltaX;
+        double nextY = dy == 0 ? Double.POSITIVE_INFINITY : (dy > 0 ? this.targetY + 1 - oy : oy - this.targetY) * deltaY;
+        double nextZ = dz == 0 ? Double.POSITIVE_INFINITY : (dz > 0 ? this.targetZ + 1 - oz : oz - this.targetZ) * deltaZ;
+        boolean inWorld = this.targetY >= this.minWorldY && this.targetY <= this.maxWorldY;
+        while (true)
+        {
+            this.lastX = this.targetX;
+            this.lastY = this.targetY;
+            this.lastZ = this.targetZ;
+            this.lastDirection = this.targetDirection;
+            if (nextX <= nextY && nextX <= nextZ)
+            {
+                this.length = nextX;
+                this.targetX += dx;
+                nextX += deltaX;
+                this.targetDirection = dx > 0 ? Direction.EAST : Direction.WEST;
+            } else if (nextY <= nextZ)
+            {
+                this.length = nextY;
+                this.targetY += dy;
+                nextY += deltaY;
+                this.targetDirection = dy > 0 ? Direction.UP : Direction.DOWN;
+            } else
+            {
+                this.length = nextZ;
+                this.targetZ += dz;
+                nextZ += deltaZ;
+                this.targetDirection = dz > 0 ? Direction.SOUTH : Direction.NORTH;
+            }
+            boolean outOfWorld = this.targetY < this.minWorldY || this.targetY > this.maxWorldY;
+            if (this.length > this.range || (outOfWorld && inWorld))
+            {
+                // Abort - Out of bounds
+                revert();
+                this.length = this.range;
+                return;
+            }
+            if (outOfWorld)
+            {
+                // still approaching the world from outside of it
+                continue;
+            }
+            inWorld = true;
+            Optional<MaterialState> next = visit(callback);
+            if (!next.isPresent())
+            {
+                // Abort out of bounds, or something wrong with area of world
+                revert();
+                return;
+            }
+            if (!isTraversable(next.get()))
+            {
+                // Abort - found non-traversal block
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the material at the current target position and passes the block to the callback if
+     * one is given. A {@link Block} is only created if there is a callback to receive it. If the
+     * callback requests the trace to stop then {@link #isTraversable} refuses the returned material.
+     * 
+     * @param callback The callback, may be null
+     * @return The material at the target, or empty if the target is not available
+     */
+    private Optional<MaterialState> visit(Function<Block, Boolean> callback)
+    {
+        if (callback == null)
+        {
+            return this.cursor.getMaterial(this.targetX, this.targetY, this.targetZ);
         }
-        this.lastBlock = this.world.getBlock(this.lastX, this.lastY, this.lastZ).orElse(null);
-        this.targetBlock = this.world.getBlock(this.targetX, this.targetY, this.targetZ).orElse(this.lastBlock);
+        Optional<Block> block = this.cursor.getBlock(this.targetX, this.targetY, this.targetZ);
+        if (!block.isPresent())
+        {
+            return Optional.empty();
+        }
+        this.stopped = !callback.apply(block.get());
+        return Optional.of(block.get().getMaterial());
+    }
+
+    /**
+     * Gets whether the ray may pass through the given material. The result for the last tested
+     * material is cached as rays typically pass through long runs of the same material.
+     * 
+     * @param material The material
+     * @return Is traversable
+     */
+    private boolean isTraversable(MaterialState material)
+    {
+        if (this.stopped)
+        {
+            return false;
+        }
+        if (this.traversalBlocks.isEmpty())
+        {
+            return true;
+        }
+        Material type = material.getType();
+        if (type != this.lastTested)
+        {
+            this.lastTested = type;
+            this.lastTraversable = this.traversalBlocks.contains(type);
+        }
+        return this.lastTraversable;
+    }
+
+    /**
+     * Moves the target back to the last visited block.
+     */
+    private void revert()
+    {
+        this.targetX = this.lastX;
+        this.targetY = this.lastY;
+        this.targetZ = this.lastZ;
+        this.targetDirection = this.lastDirection;
     }
 
     /**
@@ -351,21 +526,14 @@ public class RayTrace
 
         this.targetDirection = dirFromDiff(this.targetX, this.targetY, this.targetZ, this.lastX, this.lastY, this.lastZ);
 
-        Optional<Block> next = this.world.getBlock(this.targetX, this.targetY, this.targetZ);
+        Optional<MaterialState> next = visit(callback);
         if (!next.isPresent())
         {
             // Abort out of bounds, or something wrong with area of world
-            this.targetX = this.lastX;
-            this.targetY = this.lastY;
-            this.targetZ = this.lastZ;
-            this.targetDirection = this.lastDirection;
-            return;
-        }
-        if (callback != null && !callback.apply(next.get()))
-        {
+            revert();
             return;
         }
-        if (!this.traversalBlocks.isEmpty() && !this.traversalBlocks.contains(next.get().getMaterial().getType()))
+        if (!isTraversable(next.get()))
         {
             // Abort - found non-traversal block
             return;
@@ -24,18 +24,34 @@
 package com.voxelplugineering.voxelsniper.util.brush;
 
 import com.voxelplugineering.voxelsniper.brush.BrushAction;
+import com.voxelplugineering.voxelsniper.brush.BrushKey;
 import com.voxelplugineering.voxelsniper.brush.BrushKeys;
 import com.voxelplugineering.voxelsniper.brush.BrushVars;
+import com.voxelplugineering.voxelsniper.util.Direction;
 import com.voxelplugineering.voxelsniper.world.Block;
+import com.voxelplugineering.voxelsniper.world.Location;
 
 import java.util.Optional;
 
 /**
  * A utility for getting common values from the {@link BrushVars}.
  */
+@SuppressWarnings("javadoc")
 public final class BrushVarsHelper
 {
 
+    // Typed keys for the runtime values which are set on every snipe
+    public static final BrushKey<Location> ORIGIN = BrushKey.of(BrushKeys.ORIGIN, Location.class);
+    public static final BrushKey<Double> PLAYER_YAW = BrushKey.of(BrushKeys.PLAYER_YAW, Double.class);
+    public static final BrushKey<Double> PLAYER_PITCH = BrushKey.of(BrushKeys.PLAYER_PITCH, Double.class);
+    public static final BrushKey<Block> TARGET_BLOCK = BrushKey.of(BrushKeys.TARGET_BLOCK, Block.class);
+    public static final BrushKey<Direction> TARGET_FACE = BrushKey.of(BrushKeys.TARGET_FACE, Direction.class);
+    public static final BrushKey<Block> LAST_BLOCK = BrushKey.of(BrushKeys.LAST_BLOCK, Block.class);
+    public static final BrushKey<Direction> LAST_FACE = BrushKey.of(BrushKeys.LAST_FACE, Direction.class);
+    public static final BrushKey<BrushAction> ACTION = BrushKey.of(BrushKeys.ACTION, BrushAction.class);
+    public static final BrushKey<Double> LENGTH = BrushKey.of(BrushKeys.LENGTH, Double.class);
+    public static final BrushKey<Double> RANGE = BrushKey.of(BrushKeys.RANGE, Double.class);
+
     /**
      * Gets the target block adjusting for whether the player used the primary or alternate action.
      * 
@@ -44,12 +60,12 @@ public final class BrushVarsHelper
      */
     public static Optional<Block> getTargetBlock(BrushVars args)
     {
-        BrushAction action = args.get(BrushKeys.ACTION, BrushAction.class).get();
+        BrushAction action = args.get(ACTION).get();
         if (action == BrushAction.PRIMARY)
         {
-            return args.get(BrushKeys.TARGET_BLOCK, Block.class);
+            return args.get(TARGET_BLOCK);
         }
-        return args.get(BrushKeys.LAST_BLOCK, Block.class);
+        return args.get(LAST_BLOCK);
     }
 
     private BrushVarsHelper()
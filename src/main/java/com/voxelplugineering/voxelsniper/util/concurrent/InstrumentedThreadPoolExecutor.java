@@ -0,0 +1,228 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.util.concurrent;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link ThreadPoolExecutor} which records metrics about the tasks it executes. The time each
+ * task spends waiting in the queue and the time it spends executing are tracked separately.
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor
+{
+
+    private final String name;
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalWait = new AtomicLong();
+    private final AtomicLong totalRun = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * Creates a new {@link InstrumentedThreadPoolExecutor}.
+     * 
+     * @param name The name of this pool, used for reporting
+     * @param core The core pool size
+     * @param max The maximum pool size
+     * @param keepAlive The time in milliseconds that idle threads above the core size are kept
+     * @param queue The work queue
+     * @param factory The thread factory
+     * @param handler The handler for tasks which cannot be accepted
+     */
+    public InstrumentedThreadPoolExecutor(String name, int core, int max, long keepAlive, BlockingQueue<Runnable> queue,
+            ThreadFactory factory, RejectedExecutionHandler handler)
+    {
+        super(core, max, keepAlive, TimeUnit.MILLISECONDS, queue, factory, handler);
+        this.name = name;
+        setRejectedExecutionHandler(new CountingRejectionHandler(handler));
+    }
+
+    @Override
+    public void execute(Runnable command)
+    {
+        // a task discarded and resubmitted by the rejection policy is already wrapped
+        super.execute(command instanceof TimedTask ? command : new TimedTask(command));
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r)
+    {
+        if (r instanceof TimedTask)
+        {
+            ((TimedTask) r).started = System.nanoTime();
+        }
+        super.beforeExecute(t, r);
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t)
+    {
+        super.afterExecute(r, t);
+        if (r instanceof TimedTask)
+        {
+            TimedTask task = (TimedTask) r;
+            long now = System.nanoTime();
+            this.totalWait.addAndGet(task.started - task.submitted);
+            this.totalRun.addAndGet(now - task.started);
+            long latency = now - task.submitted;
+            long max;
+            do
+            {
+                max = this.maxLatency.get();
+            } while (latency > max && !this.maxLatency.compareAndSet(max, latency));
+            this.executed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the name of this pool.
+     * 
+     * @return The name
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Gets the number of tasks currently waiting in the queue.
+     * 
+     * @return The queue length
+     */
+    public int getQueueLength()
+    {
+        return getQueue().size();
+    }
+
+    /**
+     * Gets the number of tasks which have been rejected by this pool.
+     * 
+     * @return The rejected task count
+     */
+    public long getRejectedCount()
+    {
+        return this.rejected.get();
+    }
+
+    /**
+     * Gets the average time in milliseconds that a task waited in the queue before starting.
+     * 
+     * @return The average queue wait
+     */
+    public double getAverageWait()
+    {
+        long count = this.executed.get();
+        return count == 0 ? 0 : this.totalWait.get() / (count * 1000000.0);
+    }
+
+    /**
+     * Gets the average time in milliseconds that a task spent executing.
+     * 
+     * @return The average execution time
+     */
+    public double getAverageRunTime()
+    {
+        long count = this.executed.get();
+        return count == 0 ? 0 : this.totalRun.get() / (count * 1000000.0);
+    }
+
+    /**
+     * Gets the maximum time in milliseconds between a task being submitted and completing.
+     * 
+     * @return The maximum latency
+     */
+    public double getMaxLatency()
+    {
+        return this.maxLatency.get() / 1000000.0;
+    }
+
+    /**
+     * Gets a human readable summary of the current state of this pool.
+     * 
+     * @return The summary
+     */
+    public String getStatus()
+    {
+        return String.format("%s: %d/%d threads active, %d queued, %d completed, %d rejected, wait %.2fms, run %.2fms, max %.2fms",
+                this.name, getActiveCount(), getPoolSize(), getQueueLength(), this.executed.get(), this.rejected.get(),
+                getAverageWait(), getAverageRunTime(), getMaxLatency());
+    }
+
+    /**
+     * A wrapper for a task recording the time at which it was submitted and started.
+     */
+    static class TimedTask implements Runnable
+    {
+
+        private final Runnable delegate;
+        private final long submitted;
+        private volatile long started;
+
+        TimedTask(Runnable delegate)
+        {
+            this.delegate = delegate;
+            this.submitted = System.nanoTime();
+        }
+
+        Runnable getDelegate()
+        {
+            return this.delegate;
+        }
+
+        @Override
+        public void run()
+        {
+            this.delegate.run();
+        }
+
+    }
+
+    /**
+     * A {@link RejectedExecutionHandler} which counts the rejected tasks before delegating.
+     */
+    private class CountingRejectionHandler implements RejectedExecutionHandler
+    {
+
+        private final RejectedExecutionHandler delegate;
+
+        CountingRejectionHandler(RejectedExecutionHandler delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor)
+        {
+            InstrumentedThreadPoolExecutor.this.rejected.incrementAndGet();
+            this.delegate.rejectedExecution(r, executor);
+        }
+
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.util.concurrent;
+
+import com.voxelplugineering.voxelsniper.GunsmithLogger;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A utility for creating the thread pools used for asynchronous work.
+ */
+public final class ThreadPools
+{
+
+    /**
+     * Creates a new bounded {@link InstrumentedThreadPoolExecutor}. A {@link ThreadPoolExecutor}
+     * only starts threads beyond its core size once its queue is full, so the pool is started with
+     * every thread as a core thread which times out when idle. New threads are started until the
+     * maximum is reached before any task is queued, and an idle pool holds no threads.
+     * 
+     * @param prefix The prefix for the names of the threads of the pool
+     * @param max The maximum pool size
+     * @param queueSize The maximum number of queued tasks, zero for direct hand-off and a negative
+     *            value for an unbounded queue
+     * @param keepAlive The time in milliseconds that idle threads are kept
+     * @param rejectionPolicy The name of the rejection policy, see {@link #getRejectionPolicy(String)}
+     * @return The new executor
+     */
+    public static InstrumentedThreadPoolExecutor newBoundedPool(String prefix, int max, int queueSize, long keepAlive,
+            String rejectionPolicy)
+    {
+        int maxThreads = Math.max(1, max);
+        BlockingQueue<Runnable> queue;
+        if (queueSize < 0)
+        {
+            queue = new LinkedBlockingQueue<Runnable>();
+        } else if (queueSize == 0)
+        {
+            queue = new SynchronousQueue<Runnable>();
+        } else
+        {
+            queue = new ArrayBlockingQueue<Runnable>(queueSize);
+        }
+        InstrumentedThreadPoolExecutor pool = new InstrumentedThreadPoolExecutor(prefix, maxThreads, maxThreads, Math.max(1, keepAlive),
+                queue, new PrefixThreadFactory(prefix), getRejectionPolicy(rejectionPolicy));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Creates a new executor which starts a new virtual thread for each task, if the current runtime
+     * supports virtual threads.
+     * 
+     * @return The new executor, if supported
+     */
+    public static Optional<ExecutorService> newVirtualThreadExecutor()
+    {
+        try
+        {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return Optional.of((ExecutorService) factory.invoke(null));
+        } catch (NoSuchMethodException e)
+        {
+            return Optional.empty();
+        } catch (ReflectiveOperationException e)
+        {
+            GunsmithLogger.getLogger().error(e, "Error creating virtual thread executor");
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Gets the {@link RejectedExecutionHandler} for the given policy name. Valid names are
+     * {@code callerruns}, {@code abort}, {@code discard} and {@code discardoldest}, any other value
+     * falls back to {@code callerruns} which runs the task on the submitting thread. The aborting
+     * and discarding policies cancel any task which is also a {@link Future}, so that nothing
+     * waiting on the result of a dropped task is left waiting forever. This matters for aborted
+     * tasks too, as a listener rejected by its executor is only logged by Guava and the future
+     * which it would have completed is otherwise never done.
+     * 
+     * @param name The policy name
+     * @return The handler
+     */
+    public static RejectedExecutionHandler getRejectionPolicy(String name)
+    {
+        if ("abort".equalsIgnoreCase(name))
+        {
+            return (r, executor) -> {
+                cancel(r);
+                throw new RejectedExecutionException("Task " + r + " rejected from " + executor);
+            };
+        } else if ("discard".equalsIgnoreCase(name))
+        {
+            return (r, executor) -> cancel(r);
+        } else if ("discardoldest".equalsIgnoreCase(name))
+        {
+            return (r, executor) -> {
+                if (executor.isShutdown())
+                {
+                    cancel(r);
+                    return;
+                }
+                Runnable oldest = executor.getQueue().poll();
+                if (oldest != null)
+                {
+                    cancel(oldest);
+                }
+                executor.execute(r);
+            };
+        }
+        return new ThreadPoolExecutor.CallerRunsPolicy();
+    }
+
+    private static void cancel(Runnable task)
+    {
+        Runnable r = task;
+        if (r instanceof InstrumentedThreadPoolExecutor.TimedTask)
+        {
+            r = ((InstrumentedThreadPoolExecutor.TimedTask) r).getDelegate();
+        }
+        if (r instanceof Future)
+        {
+            ((Future<?>) r).cancel(false);
+        }
+    }
+
+    /**
+     * A {@link ThreadFactory} naming threads with a prefix and an incrementing index.
+     */
+    private static class PrefixThreadFactory implements ThreadFactory
+    {
+
+        private final ThreadGroup group;
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        PrefixThreadFactory(String prefix)
+        {
+            this.group = Thread.currentThread().getThreadGroup();
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r)
+        {
+            Thread thr = new Thread(this.group, r, this.prefix + this.count.getAndIncrement());
+            thr.setDaemon(true);
+            return thr;
+        }
+
+    }
+
+    private ThreadPools()
+    {
+
+    }
+
+}
@@ -71,6 +71,18 @@ public abstract class AbstractChunk<T> extends WeakWrapper<T>implements Chunk
         return getBlock(vector.getX(), vector.getY(), vector.getZ());
     }
 
+    /**
+     * Gets the material at the given xyz coordinates directly from the underlying chunk, without
+     * creating a {@link Block}.
+     * 
+     * @param x The X position
+     * @param y The Y position
+     * @param z The Z position
+     * @return The material, if the position is within this chunk
+     */
+    @Override
+    public abstract Optional<MaterialState> getMaterial(int x, int y, int z);
+
     @Override
     public void setBlock(MaterialState material, Location location, boolean update)
     {
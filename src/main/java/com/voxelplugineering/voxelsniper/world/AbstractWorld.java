@@ -25,11 +25,17 @@ package com.voxelplugineering.voxelsniper.world;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.voxelplugineering.voxelsniper.config.BaseConfiguration;
 import com.voxelplugineering.voxelsniper.registry.WeakWrapper;
 import com.voxelplugineering.voxelsniper.service.registry.MaterialRegistry;
 import com.voxelplugineering.voxelsniper.shape.ComplexMaterialShape;
 import com.voxelplugineering.voxelsniper.shape.MaterialShape;
+import com.voxelplugineering.voxelsniper.shape.OctreeMaterialShape;
+import com.voxelplugineering.voxelsniper.shape.OctreeShape;
+import com.voxelplugineering.voxelsniper.shape.RleMaterialShape;
 import com.voxelplugineering.voxelsniper.shape.Shape;
+import com.voxelplugineering.voxelsniper.shape.SparseMaterialShape;
+import com.voxelplugineering.voxelsniper.shape.SparseShape;
 import com.voxelplugineering.voxelsniper.util.Context;
 import com.voxelplugineering.voxelsniper.util.math.Vector3i;
 import com.voxelplugineering.voxelsniper.world.biome.Biome;
@@ -76,6 +82,28 @@ public abstract class AbstractWorld<T> extends WeakWrapper<T>implements World
         return getBlock(vector.getX(), vector.getY(), vector.getZ());
     }
 
+    /**
+     * Reads the material from the chunk containing the given position so that no {@link Block} is
+     * created, falling back to the block only if that chunk is not loaded.
+     */
+    @Override
+    public Optional<MaterialState> getMaterial(int x, int y, int z)
+    {
+        Vector3i size = getChunkSize();
+        Optional<Chunk> chunk = getChunk(Math.floorDiv(x, Math.max(1, size.getX())), Math.floorDiv(y, Math.max(1, size.getY())),
+                Math.floorDiv(z, Math.max(1, size.getZ())));
+        if (chunk.isPresent())
+        {
+            return chunk.get().getMaterial(x, y, z);
+        }
+        Optional<Block> block = getBlock(x, y, z);
+        if (!block.isPresent())
+        {
+            return Optional.empty();
+        }
+        return Optional.of(block.get().getMaterial());
+    }
+
     @Override
     public void setBlock(MaterialState material, Location location, boolean update)
     {
@@ -142,32 +170,94 @@ public abstract class AbstractWorld<T> extends WeakWrapper<T>implements World
     }
 
     @Override
-    public MaterialShape getShapeFromWorld(Location origin, Shape shape)
+    public void setBiomeRegion(Biome biome, Shape columns, int x, int y, int z)
     {
-        checkNotNull(origin);
-        checkNotNull(shape);
-        MaterialShape mat = new ComplexMaterialShape(shape, this.mats.getAirMaterial().getDefaultState());
-        for (int x = 0; x < shape.getWidth(); x++)
+        checkNotNull(biome);
+        checkNotNull(columns);
+        if (columns.getWidth() == 0 || columns.getLength() == 0)
+        {
+            return;
+        }
+        Vector3i size = getChunkSize();
+        int sx = Math.max(1, size.getX());
+        int sz = Math.max(1, size.getZ());
+        int cy = Math.floorDiv(y, Math.max(1, size.getY()));
+        int maxX = x + columns.getWidth() - 1;
+        int maxZ = z + columns.getLength() - 1;
+        for (int cx = Math.floorDiv(x, sx); cx <= Math.floorDiv(maxX, sx); cx++)
         {
-            int ox = x + origin.getFlooredX() - shape.getOrigin().getX();
-            for (int y = 0; y < shape.getHeight(); y++)
+            int x0 = Math.max(x, cx * sx);
+            int x1 = Math.min(maxX, cx * sx + sx - 1);
+            for (int cz = Math.floorDiv(z, sz); cz <= Math.floorDiv(maxZ, sz); cz++)
             {
-                int oy = y + origin.getFlooredY() - shape.getOrigin().getY();
-                for (int z = 0; z < shape.getLength(); z++)
+                int z0 = Math.max(z, cz * sz);
+                int z1 = Math.min(maxZ, cz * sz + sz - 1);
+                boolean changed = false;
+                for (int bx = x0; bx <= x1; bx++)
                 {
-                    int oz = z + origin.getFlooredZ() - shape.getOrigin().getZ();
-                    if (shape.get(x, y, z, false))
+                    for (int bz = z0; bz <= z1; bz++)
                     {
-                        Optional<Block> block = getBlock(ox, oy, oz);
-                        if (!block.isPresent())
-                        {
-                            mat.unset(x, y, z, false);
-                        } else
+                        if (columns.isColumnSet(bx - x, bz - z))
                         {
-                            mat.setMaterial(x, y, z, false, block.get().getMaterial());
+                            setBiome(biome, bx, y, bz);
+                            changed = true;
                         }
                     }
                 }
+                if (changed)
+                {
+                    Optional<Chunk> chunk = getChunk(cx, cy, cz);
+                    if (chunk.isPresent())
+                    {
+                        chunk.get().refreshChunk();
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public MaterialShape getShapeFromWorld(Location origin, Shape shape)
+    {
+        checkNotNull(origin);
+        checkNotNull(shape);
+        MaterialState air = this.mats.getAirMaterial().getDefaultState();
+        MaterialShape mat;
+        if (shape instanceof SparseShape)
+        {
+            mat = new SparseMaterialShape(shape, air);
+        } else if (shape instanceof OctreeShape)
+        {
+            mat = new OctreeMaterialShape(shape, air);
+        } else if (BaseConfiguration.compressWorldSnapshots && RleMaterialShape.canCompress(shape.getHeight()))
+        {
+            mat = new RleMaterialShape(shape, air);
+        } else
+        {
+            mat = new ComplexMaterialShape(shape, air);
+        }
+        int ox = origin.getFlooredX() - shape.getOrigin().getX();
+        int oy = origin.getFlooredY() - shape.getOrigin().getY();
+        int oz = origin.getFlooredZ() - shape.getOrigin().getZ();
+        ChunkCursor cursor = new ChunkCursor(this);
+        shape.forEachSet((x, y, z) -> {
+            Optional<MaterialState> material = cursor.getMaterial(x + ox, y + oy, z + oz);
+            if (!material.isPresent())
+            {
+                mat.unset(x, y, z, false);
+            } else
+            {
+                mat.setMaterial(x, y, z, false, material.get());
+            }
+        });
+        if (mat instanceof RleMaterialShape)
+        {
+            RleMaterialShape rle = (RleMaterialShape) mat;
+            rle.trim();
+            // fall back to dense data where the terrain was too varied for its runs to pay off
+            if (rle.getRetainedBytes() >= rle.getDenseRetainedBytes())
+            {
+                return rle.toDense();
             }
         }
         return mat;
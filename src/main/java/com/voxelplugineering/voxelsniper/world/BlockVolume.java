@@ -61,6 +61,25 @@ public interface BlockVolume
      */
     Optional<Block> getBlock(Vector3i vector);
 
+    /**
+     * Gets the material of the block at the given xyz coordinates without creating a {@link Block}.
+     * Implementations should override this if the material can be read more cheaply than the block.
+     * 
+     * @param x The X position
+     * @param y The Y position
+     * @param z The Z position
+     * @return The material, if the position is within this volume
+     */
+    default Optional<MaterialState> getMaterial(int x, int y, int z)
+    {
+        Optional<Block> block = getBlock(x, y, z);
+        if (!block.isPresent())
+        {
+            return Optional.empty();
+        }
+        return Optional.of(block.get().getMaterial());
+    }
+
     /**
      * Sets the block at the given xyz coordinates to the given material.
      * 
@@ -0,0 +1,147 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.world;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.voxelplugineering.voxelsniper.util.math.Vector3i;
+import com.voxelplugineering.voxelsniper.world.material.MaterialState;
+
+import java.util.Optional;
+
+/**
+ * A cursor for reading many nearby positions from a {@link World}. The chunk containing the last
+ * read position is cached so that consecutive reads within the same chunk do not need to resolve
+ * the chunk again.
+ * 
+ * <p> This class is not safe for concurrent use. </p>
+ */
+public class ChunkCursor
+{
+
+    private final World world;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private Chunk chunk;
+    private int minX;
+    private int minY;
+    private int minZ;
+    private int maxX;
+    private int maxY;
+    private int maxZ;
+
+    /**
+     * Creates a new {@link ChunkCursor}.
+     * 
+     * @param world The world to read from
+     */
+    public ChunkCursor(World world)
+    {
+        this.world = checkNotNull(world, "World cannot be null");
+        Vector3i size = world.getChunkSize();
+        this.sizeX = Math.max(1, size.getX());
+        this.sizeY = Math.max(1, size.getY());
+        this.sizeZ = Math.max(1, size.getZ());
+    }
+
+    /**
+     * Gets the world this cursor reads from.
+     * 
+     * @return The world
+     */
+    public World getWorld()
+    {
+        return this.world;
+    }
+
+    /**
+     * Gets the chunk containing the given position.
+     * 
+     * @param x The X position
+     * @param y The Y position
+     * @param z The Z position
+     * @return The chunk, if loaded
+     */
+    public Optional<Chunk> getChunk(int x, int y, int z)
+    {
+        if (this.chunk != null && x >= this.minX && x < this.maxX && y >= this.minY && y < this.maxY && z >= this.minZ && z < this.maxZ)
+        {
+            return Optional.of(this.chunk);
+        }
+        Optional<Chunk> next = this.world.getChunk(Math.floorDiv(x, this.sizeX), Math.floorDiv(y, this.sizeY), Math.floorDiv(z, this.sizeZ));
+        if (!next.isPresent())
+        {
+            this.chunk = null;
+            return next;
+        }
+        this.chunk = next.get();
+        Vector3i min = this.chunk.getMinBound();
+        Vector3i size = this.chunk.getSize();
+        this.minX = min.getX();
+        this.minY = min.getY();
+        this.minZ = min.getZ();
+        this.maxX = this.minX + size.getX();
+        this.maxY = this.minY + size.getY();
+        this.maxZ = this.minZ + size.getZ();
+        return next;
+    }
+
+    /**
+     * Gets the material at the given position.
+     * 
+     * @param x The X position
+     * @param y The Y position
+     * @param z The Z position
+     * @return The material, if available
+     */
+    public Optional<MaterialState> getMaterial(int x, int y, int z)
+    {
+        Optional<Chunk> c = getChunk(x, y, z);
+        if (c.isPresent())
+        {
+            return c.get().getMaterial(x, y, z);
+        }
+        return this.world.getMaterial(x, y, z);
+    }
+
+    /**
+     * Gets the block at the given position.
+     * 
+     * @param x The X position
+     * @param y The Y position
+     * @param z The Z position
+     * @return The block, if available
+     */
+    public Optional<Block> getBlock(int x, int y, int z)
+    {
+        Optional<Chunk> c = getChunk(x, y, z);
+        if (c.isPresent())
+        {
+            return c.get().getBlock(x, y, z);
+        }
+        return this.world.getBlock(x, y, z);
+    }
+
+}
@@ -135,6 +135,18 @@ public interface World extends BlockVolume, Nameable
      */
     void setBiome(Biome biome, Vector3i vector);
 
+    /**
+     * Sets the biome of every occupied column of the given mask to the given biome. The columns are
+     * written a chunk at a time and each chunk which was changed is refreshed exactly once.
+     * 
+     * @param biome The new biome
+     * @param columns The mask, each column with any point set is changed
+     * @param x The X position of the lower corner of the mask
+     * @param y The Y position at which the biome is set
+     * @param z The Z position of the lower corner of the mask
+     */
+    void setBiomeRegion(Biome biome, Shape columns, int x, int y, int z);
+
     /**
      * Creates a new {@link MaterialShape} and populates it with the current contents of the world.
      * 
@@ -27,6 +27,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.voxelplugineering.voxelsniper.world.World;
 
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * An abstract change queue.
  */
@@ -41,6 +44,7 @@ public abstract class ChangeQueue
      * The world that this queue is changing.
      */
     protected World world;
+    private final AtomicInteger holders = new AtomicInteger();
 
     /**
      * Creates a new {@link ChangeQueue}.
@@ -74,6 +78,28 @@ public abstract class ChangeQueue
         return this.world;
     }
 
+    /**
+     * Gets an estimate of the number of voxels this queue may change. This is used to limit the
+     * amount of outstanding work a single owner may have queued.
+     * 
+     * @return The estimated size
+     */
+    public long getEstimatedSize()
+    {
+        return 1;
+    }
+
+    /**
+     * Gets an estimate of the number of bytes of memory retained by this queue, used to limit the
+     * size of the undo history.
+     * 
+     * @return The retained size
+     */
+    public long getRetainedBytes()
+    {
+        return 64;
+    }
+
     /**
      * Whether this queue has finished executing.
      * 
@@ -94,9 +120,49 @@ public abstract class ChangeQueue
      */
     public abstract int perform(int next);
 
+    /**
+     * Gets a change which reverts whatever part of this change has already been performed, used
+     * when this change is cancelled part way through.
+     * 
+     * @return The rollback change, if this change has been started and can be reverted
+     */
+    public Optional<ChangeQueue> createRollback()
+    {
+        return Optional.empty();
+    }
+
     /**
      * Resets the position of this queue's execution.
      */
     public abstract void reset();
 
+    /**
+     * Marks this queue as held by a pending queue or an undo history. Every call must be matched
+     * by a later call to {@link #release()}.
+     */
+    public void acquire()
+    {
+        this.holders.incrementAndGet();
+    }
+
+    /**
+     * Marks this queue as no longer held by one of its holders, once the last holder has released
+     * the queue it is {@link #dispose() disposed}.
+     */
+    public void release()
+    {
+        if (this.holders.decrementAndGet() == 0)
+        {
+            dispose();
+        }
+    }
+
+    /**
+     * Frees any off-heap storage held by this queue once it is neither pending nor part of any undo
+     * history. The queue must not be performed afterwards.
+     */
+    protected void dispose()
+    {
+    }
+
 }
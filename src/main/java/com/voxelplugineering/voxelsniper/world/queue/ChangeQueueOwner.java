@@ -25,6 +25,7 @@ package com.voxelplugineering.voxelsniper.world.queue;
 
 import com.voxelplugineering.voxelsniper.service.command.MessageReceiver;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -62,23 +63,83 @@ public interface ChangeQueueOwner extends MessageReceiver
     int getPendingChangeCount();
 
     /**
-     * Returns the next pending {@link ChangeQueue}.
+     * Gets the sum of the {@link ChangeQueue#getEstimatedSize() estimated sizes} of all pending
+     * changes awaiting to be handled.
      * 
-     * @return The next change queue
+     * @return The pending volume
      */
-    Optional<ChangeQueue> getNextPendingChange();
+    long getPendingVolume();
 
     /**
-     * Adds the given change queue to the pending changes queue.
+     * Returns the handle of the next pending {@link ChangeQueue}. The handle should be passed back
+     * to {@link #clearNextPending(PendingChange, boolean)} once the change has been performed, as
+     * the pending changes may be reordered in the meantime.
+     * 
+     * @return The handle of the next change queue
+     */
+    Optional<PendingChange> getNextPendingChange();
+
+    /**
+     * Adds the given change queue to the pending changes queue. This may be called from any thread.
      * 
      * @param blockChangeQueue The new {@link ChangeQueue}, cannot be null
+     * @return A handle which may be used to cancel the change
+     */
+    PendingChange addPending(ChangeQueue blockChangeQueue);
+
+    /**
+     * Removes the given pending change, previously returned by {@link #getNextPendingChange()}, if
+     * it has finished.
+     * 
+     * @param change The handle of the change
+     * @param force Whether to remove the change even if it has not finished
      */
-    void addPending(ChangeQueue blockChangeQueue);
+    void clearNextPending(PendingChange change, boolean force);
 
     /**
-     * Removes the next pending change if it has finished.
+     * Gets a snapshot of all pending changes in the order in which they will be performed.
+     * 
+     * @return The pending changes
+     */
+    List<PendingChange> getPendingChanges();
+
+    /**
+     * Gets the change which was most recently added to the pending changes, if it is still pending.
+     * 
+     * @return The last pending change
+     */
+    Optional<PendingChange> getLastPendingChange();
+
+    /**
+     * Cancels the given pending change. If the change had already been partially performed then a
+     * rollback of the change is queued ahead of all other pending changes and the change is removed
+     * from the undo history.
+     * 
+     * @param change The change to cancel
+     * @return Whether the change was cancelled
+     */
+    boolean cancelPending(PendingChange change);
+
+    /**
+     * Moves the given pending change ahead of all other pending changes.
+     * 
+     * @param change The change
+     */
+    void prioritisePending(PendingChange change);
+
+    /**
+     * Gets whether the processing of all pending changes is paused.
+     * 
+     * @return Is paused
+     */
+    boolean isPendingPaused();
+
+    /**
+     * Sets whether the processing of all pending changes is paused.
+     * 
+     * @param paused Is paused
      */
-    void clearNextPending(boolean force);
+    void setPendingPaused(boolean paused);
 
     /**
      * Gets the undo history manager.
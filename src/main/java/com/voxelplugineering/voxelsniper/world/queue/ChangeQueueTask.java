@@ -25,25 +25,26 @@ package com.voxelplugineering.voxelsniper.world.queue;
 
 import com.voxelplugineering.voxelsniper.GunsmithLogger;
 import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
-import com.voxelplugineering.voxelsniper.entity.Player;
-import com.voxelplugineering.voxelsniper.service.registry.PlayerRegistry;
 
 import java.util.Optional;
 
 /**
- * A task for executing pending change queues.
+ * A task for executing pending change queues. Only the owners within the {@link PendingWorkIndex}
+ * are visited so an idle tick does no work regardless of the number of online players.
  */
 public class ChangeQueueTask implements Runnable
 {
 
-    private final PlayerRegistry<?> players;
+    private final PendingWorkIndex index;
 
     /**
      * Creates a new {@link ChangeQueueTask}.
+     * 
+     * @param index The index of owners with pending changes
      */
-    public ChangeQueueTask(PlayerRegistry<?> players)
+    public ChangeQueueTask(PendingWorkIndex index)
     {
-        this.players = players;
+        this.index = index;
     }
 
     /**
@@ -53,54 +54,50 @@ public class ChangeQueueTask implements Runnable
     public void run()
     {
         // long start = System.currentTimeMillis();
-        int n = 0;
-        for (Player p : this.players.getPlayers())
-        {
-            if (p.hasPendingChanges())
-            {
-                n++;
-            }
-        }
+        int n = this.index.getActiveCount();
         if (n == 0)
         {
             return;
         }
         int remaining = VoxelSniperConfiguration.blockChangesPerSecond;
         remaining /= 10;
-        for (Player p : this.players.getPlayers())
+        for (ChangeQueueOwner p : this.index.getActiveOwners())
         {
             if (!p.hasPendingChanges())
             {
+                this.index.markIdle(p);
                 continue;
             }
-            int allocation = remaining / (n--);
+            int allocation = remaining / Math.max(n--, 1);
             // For the frankly hilarious case where there are more pending
             // change queues than blocks allocated per tick we simple set the
             // allocation to a minimum of 1 which will at least do something
             // slowly rather than nothing
-            if (allocation < 0)
+            if (allocation < 1)
             {
                 allocation = 1;
             }
             int actual = 0;
             while (p.hasPendingChanges() && actual < allocation)
             {
-                Optional<ChangeQueue> change = p.getNextPendingChange();
-                if (!change.isPresent())
+                Optional<PendingChange> next = p.getNextPendingChange();
+                if (!next.isPresent())
                 {
                     break;
                 }
+                // the handle is kept as the pending changes may be reordered while this one runs
+                ChangeQueue change = next.get().getChange();
                 try
                 {
-                    actual += change.get().perform(allocation);
+                    actual += change.perform(allocation - actual);
                 } catch (Exception e)
                 {
                     GunsmithLogger.getLogger().error(e, "Error while performing change operation!");
-                    p.clearNextPending(true);
+                    p.clearNextPending(next.get(), true);
                 }
-                if (change.get().isFinished())
+                if (change.isFinished())
                 {
-                    p.clearNextPending(false);
+                    p.clearNextPending(next.get(), false);
                 }
             }
             remaining -= actual;
@@ -25,16 +25,34 @@ package com.voxelplugineering.voxelsniper.world.queue;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
 /**
- * A standard {@link UndoQueue}.
+ * A standard {@link UndoQueue} backed by a ring buffer.
+ * 
+ * <p>The buffer is limited both by a number of entries and by the retained size of the changes it
+ * holds, once either is exceeded the oldest entries are dropped. If an {@link UndoBudget} is given
+ * every entry is also retained against it, and the budget may evict the oldest entries of this
+ * buffer in favour of newer entries of another owner.</p>
  */
 public class CommonUndoQueue implements UndoQueue
 {
 
     private final ChangeQueueOwner owner;
+    private final UndoBudget budget;
     private int capacity;
-    private Entry pointer = null;
-    private Entry first = null;
+    private Entry[] entries;
+    // the index of the oldest entry
+    private int start = 0;
+    private int count = 0;
+    // the number of entries which are currently applied, the next undo is the entry before this
+    private int cursor = 0;
+    private long bytes = 0;
+    private long maxBytes;
 
     /**
      * Creates a new {@link CommonUndoQueue} associated with the given {@link ChangeQueueOwner}.
@@ -43,69 +61,91 @@ public class CommonUndoQueue implements UndoQueue
      */
     public CommonUndoQueue(ChangeQueueOwner owner)
     {
-        this.owner = owner;
-        this.capacity = 30;
+        this(owner, null);
     }
 
-    private void init(ChangeQueue change, ChangeQueue reverse)
+    /**
+     * Creates a new {@link CommonUndoQueue} associated with the given {@link ChangeQueueOwner} whose
+     * entries are retained against the given budget.
+     * 
+     * @param owner The owner
+     * @param budget The shared budget, may be null
+     */
+    public CommonUndoQueue(ChangeQueueOwner owner, UndoBudget budget)
     {
-        this.first = this.pointer = new Entry(change, reverse);
+        this.owner = owner;
+        this.budget = budget;
+        this.capacity = 30;
+        this.entries = new Entry[this.capacity];
+        this.maxBytes = VoxelSniperConfiguration.undoHistoryMaxMegabytes * 1024L * 1024L;
     }
 
     @Override
     public void addHistory(ChangeQueue change, ChangeQueue reverse)
     {
         checkNotNull(change);
-        if (this.pointer == null)
+        Entry entry = new Entry(change, reverse);
+        List<Entry> dropped = Lists.newArrayList();
+        synchronized (this)
+        {
+            while (this.count > this.cursor)
+            {
+                dropped.add(removeAt(this.count - 1));
+            }
+            if (this.capacity == 0)
+            {
+                return;
+            }
+            if (this.count == this.capacity)
+            {
+                dropped.add(removeAt(0));
+            }
+            this.entries[index(this.count)] = entry;
+            entry.acquire();
+            this.count++;
+            this.cursor = this.count;
+            this.bytes += entry.bytes;
+            enforceCapacity(dropped);
+        }
+        release(dropped);
+        if (this.budget != null && !dropped.contains(entry))
         {
-            init(change, reverse);
-            return;
+            this.budget.retain(entry, entry.bytes, () -> evict(entry));
         }
-        Entry e = new Entry(change, reverse);
-        Entry l = this.pointer;
-        this.pointer = e;
-        this.pointer.last = l;
-        l.next = this.pointer;
-        enforceCapacity();
     }
 
     @Override
-    public int undo(int n)
+    public boolean isAcceptingHistory()
     {
-        int count = 0;
-        while (this.pointer != null && n > 0)
-        {
-            this.owner.addPending(this.pointer.undo);
-            this.pointer = this.pointer.last;
-            n--;
-            count++;
-        }
-        return count;
+        return this.budget == null || this.budget.isAccepting();
     }
 
     @Override
-    public int redo(int n)
+    public synchronized int undo(int n)
     {
-        int count = 0;
-        if (this.pointer == null && this.first != null)
+        int undone = 0;
+        while (this.cursor > 0 && n > 0)
         {
-            this.pointer = this.first;
-            this.owner.addPending(this.pointer.redo);
+            this.cursor--;
+            this.owner.addPending(get(this.cursor).undo);
             n--;
-            count++;
+            undone++;
         }
-        if (this.pointer == null)
-        {
-            return 0;
-        }
-        while (this.pointer.next != null && n > 0)
+        return undone;
+    }
+
+    @Override
+    public synchronized int redo(int n)
+    {
+        int redone = 0;
+        while (this.cursor < this.count && n > 0)
         {
-            this.pointer = this.pointer.next;
-            this.owner.addPending(this.pointer.redo);
+            this.owner.addPending(get(this.cursor).redo);
+            this.cursor++;
             n--;
-            count++;
+            redone++;
         }
-        return count;
+        return redone;
     }
 
     @Override
@@ -115,7 +155,7 @@ public class CommonUndoQueue implements UndoQueue
     }
 
     @Override
-    public int getMaxBufferSize()
+    public synchronized int getMaxBufferSize()
     {
         return this.capacity;
     }
@@ -123,68 +163,201 @@ public class CommonUndoQueue implements UndoQueue
     @Override
     public void setMaxBufferSize(int n)
     {
-        this.capacity = n;
-        enforceCapacity();
+        List<Entry> dropped = Lists.newArrayList();
+        synchronized (this)
+        {
+            this.capacity = Math.max(n, 0);
+            while (this.count > this.capacity)
+            {
+                dropped.add(removeAt(0));
+            }
+            Entry[] resized = new Entry[this.capacity];
+            for (int i = 0; i < this.count; i++)
+            {
+                resized[i] = get(i);
+            }
+            this.entries = resized;
+            this.start = 0;
+        }
+        release(dropped);
+    }
+
+    @Override
+    public synchronized long getMaxBytes()
+    {
+        return this.maxBytes;
     }
 
     @Override
-    public void clearHistory()
+    public void setMaxBytes(long bytes)
+    {
+        List<Entry> dropped = Lists.newArrayList();
+        synchronized (this)
+        {
+            this.maxBytes = bytes;
+            enforceCapacity(dropped);
+        }
+        release(dropped);
+    }
+
+    @Override
+    public synchronized long getRetainedBytes()
     {
-        this.first = this.pointer = null;
+        return this.bytes;
     }
 
     @Override
-    public void movePointer(int n)
+    public boolean removeHistory(ChangeQueue change)
     {
-        if (this.pointer == null && n > 0)
+        Entry removed = null;
+        synchronized (this)
         {
-            this.pointer = this.first;
-            n--;
+            int i = find(change);
+            if (i != -1)
+            {
+                removed = removeAt(i);
+            }
         }
-        if (this.pointer == null)
+        if (removed == null)
         {
-            return;
+            return false;
         }
-        while (n != 0)
+        release(Lists.newArrayList(removed));
+        return true;
+    }
+
+    @Override
+    public void updateHistory(ChangeQueue change)
+    {
+        Entry entry = null;
+        List<Entry> dropped = Lists.newArrayList();
+        synchronized (this)
         {
-            if (n < 0)
+            int i = find(change);
+            if (i == -1)
             {
-                this.pointer = this.pointer.last;
-                n++;
-            } else if (n > 0)
+                return;
+            }
+            entry = get(i);
+            long measured = entry.measure();
+            this.bytes += measured - entry.bytes;
+            entry.bytes = measured;
+            enforceCapacity(dropped);
+        }
+        release(dropped);
+        if (this.budget != null && !dropped.contains(entry))
+        {
+            final Entry retained = entry;
+            this.budget.retain(retained, retained.bytes, () -> evict(retained));
+        }
+    }
+
+    @Override
+    public void clearHistory()
+    {
+        List<Entry> dropped = Lists.newArrayList();
+        synchronized (this)
+        {
+            while (this.count > 0)
             {
-                this.pointer = this.pointer.next;
-                n--;
+                dropped.add(removeAt(this.count - 1));
             }
-            if (this.pointer == null)
+        }
+        release(dropped);
+    }
+
+    @Override
+    public synchronized void movePointer(int n)
+    {
+        this.cursor = Math.max(0, Math.min(this.count, this.cursor + n));
+    }
+
+    @Override
+    public synchronized int size()
+    {
+        return this.count;
+    }
+
+    /**
+     * Called by the budget once it has evicted the given entry, the entry is removed without being
+     * released from the budget again.
+     */
+    private synchronized void evict(Entry entry)
+    {
+        for (int i = 0; i < this.count; i++)
+        {
+            if (get(i) == entry)
             {
+                removeAt(i).release();
                 return;
             }
         }
     }
 
-    @Override
-    public int size()
+    private void release(List<Entry> dropped)
+    {
+        for (Entry e : dropped)
+        {
+            if (this.budget != null)
+            {
+                this.budget.release(e);
+            }
+            e.release();
+        }
+    }
+
+    private void enforceCapacity(List<Entry> dropped)
+    {
+        while (this.bytes > this.maxBytes && this.count > 0)
+        {
+            dropped.add(removeAt(0));
+        }
+    }
+
+    private int find(ChangeQueue change)
     {
-        int count = 0;
-        Entry c = this.first;
-        while (c != null)
+        for (int i = 0; i < this.count; i++)
         {
-            count++;
-            c = c.next;
+            if (get(i).redo == change)
+            {
+                return i;
+            }
         }
-        return count;
+        return -1;
     }
 
-    private void enforceCapacity()
+    private int index(int i)
     {
-        int size = size();
-        while (size > this.capacity && this.first != null)
+        return (this.start + i) % this.entries.length;
+    }
+
+    private Entry get(int i)
+    {
+        return this.entries[index(i)];
+    }
+
+    private Entry removeAt(int i)
+    {
+        Entry removed = get(i);
+        if (i == 0)
+        {
+            this.entries[this.start] = null;
+            this.start = (this.start + 1) % this.entries.length;
+        } else
+        {
+            for (int j = i; j < this.count - 1; j++)
+            {
+                this.entries[index(j)] = get(j + 1);
+            }
+            this.entries[index(this.count - 1)] = null;
+        }
+        this.count--;
+        if (i < this.cursor)
         {
-            this.first = this.first.next;
-            this.first.last = null;
-            size--;
+            this.cursor--;
         }
+        this.bytes -= removed.bytes;
+        return removed;
     }
 
 }
@@ -192,15 +365,43 @@ public class CommonUndoQueue implements UndoQueue
 class Entry
 {
 
-    Entry next = null;
-    Entry last = null;
     ChangeQueue undo;
     ChangeQueue redo;
+    long bytes;
 
     public Entry(ChangeQueue r, ChangeQueue u)
     {
         this.undo = u;
         this.redo = r;
+        this.bytes = measure();
+    }
+
+    void acquire()
+    {
+        this.redo.acquire();
+        if (this.undo != null)
+        {
+            this.undo.acquire();
+        }
+    }
+
+    void release()
+    {
+        this.redo.release();
+        if (this.undo != null)
+        {
+            this.undo.release();
+        }
+    }
+
+    /**
+     * Measures the memory held by this entry. The change itself is still accounted as pending until
+     * it has been performed, so only the snapshot is counted before then.
+     */
+    long measure()
+    {
+        long bytes = this.undo == null ? 0 : this.undo.getRetainedBytes();
+        return this.redo.isFinished() ? bytes + this.redo.getRetainedBytes() : bytes;
     }
 
 }
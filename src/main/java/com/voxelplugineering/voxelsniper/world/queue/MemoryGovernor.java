@@ -0,0 +1,135 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.world.queue;
+
+import com.voxelplugineering.voxelsniper.service.Service;
+
+import java.util.function.Consumer;
+
+/**
+ * Accounts for the memory held by pending changes and by undo history across all players. Each
+ * producer reports the memory it allocates and releases, and the governor derives a
+ * {@link Pressure} from the total and its soft and hard watermarks which consumers use to shed
+ * memory or to refuse new work.
+ */
+public interface MemoryGovernor extends Service
+{
+
+    /**
+     * Records memory allocated by a producer.
+     * 
+     * @param category The category of the producer
+     * @param bytes The number of bytes allocated
+     */
+    void allocate(Category category, long bytes);
+
+    /**
+     * Records memory released by a producer.
+     * 
+     * @param category The category of the producer
+     * @param bytes The number of bytes released
+     */
+    void release(Category category, long bytes);
+
+    /**
+     * Gets the memory currently held by the given category, in bytes.
+     * 
+     * @param category The category
+     * @return The usage
+     */
+    long getUsage(Category category);
+
+    /**
+     * Gets the memory currently held by all categories, in bytes.
+     * 
+     * @return The total usage
+     */
+    long getTotalUsage();
+
+    /**
+     * Gets the soft watermark, in bytes. Above it no new undo history is captured and the undo
+     * history of offline players is discarded.
+     * 
+     * @return The soft watermark
+     */
+    long getSoftLimit();
+
+    /**
+     * Gets the hard watermark, in bytes. Above it new edits are refused and existing undo history is
+     * evicted until the usage falls back below the soft watermark.
+     * 
+     * @return The hard watermark
+     */
+    long getHardLimit();
+
+    /**
+     * Gets the current memory pressure.
+     * 
+     * @return The pressure
+     */
+    Pressure getPressure();
+
+    /**
+     * Adds a listener which is called whenever the pressure rises. Listeners are called on the
+     * thread which reported the allocation and must not block.
+     * 
+     * @param listener The listener
+     */
+    void addPressureListener(Consumer<Pressure> listener);
+
+    /**
+     * The producers of memory which are accounted for.
+     */
+    enum Category
+    {
+        /**
+         * Changes which are waiting to be performed.
+         */
+        PENDING,
+        /**
+         * Undo history entries, including the world snapshots they hold.
+         */
+        UNDO;
+    }
+
+    /**
+     * The level of memory pressure.
+     */
+    enum Pressure
+    {
+        /**
+         * Below the soft watermark.
+         */
+        NORMAL,
+        /**
+         * Above the soft watermark.
+         */
+        SOFT,
+        /**
+         * Above the hard watermark.
+         */
+        HARD;
+    }
+
+}
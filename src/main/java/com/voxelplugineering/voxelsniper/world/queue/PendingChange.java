@@ -0,0 +1,248 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.world.queue;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A handle to a {@link ChangeQueue} within a {@link PendingQueue}. The handle may be used from any
+ * thread to cancel, pause or reprioritise the change before it has been fully performed.
+ */
+public final class PendingChange
+{
+
+    static final int PENDING = 0;
+    static final int DONE = 1;
+    static final int CANCELLED = 2;
+    static final int MERGING = 3;
+
+    private static final AtomicIntegerFieldUpdater<PendingChange> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(PendingChange.class, "state");
+
+    private final ChangeQueue change;
+    private final PendingQueue queue;
+    private volatile int state = PENDING;
+    private volatile boolean paused = false;
+    private volatile int priority = 0;
+    private volatile long size;
+    private volatile long bytes;
+    volatile PendingChange next;
+
+    PendingChange(ChangeQueue change, PendingQueue queue)
+    {
+        this.change = change;
+        this.queue = queue;
+        this.size = change == null ? 0 : change.getEstimatedSize();
+        this.bytes = change == null ? 0 : change.getRetainedBytes();
+    }
+
+    /**
+     * Gets the change queue referenced by this handle.
+     * 
+     * @return The change queue
+     */
+    public ChangeQueue getChange()
+    {
+        return this.change;
+    }
+
+    /**
+     * Gets whether the change is still waiting to be completed.
+     * 
+     * @return Is pending
+     */
+    public boolean isPending()
+    {
+        int current = this.state;
+        return current == PENDING || current == MERGING;
+    }
+
+    /**
+     * Gets whether the change was cancelled before it completed.
+     * 
+     * @return Is cancelled
+     */
+    public boolean isCancelled()
+    {
+        return this.state == CANCELLED;
+    }
+
+    /**
+     * Gets whether this change is paused. Paused changes are skipped over until they are resumed.
+     * 
+     * @return Is paused
+     */
+    public boolean isPaused()
+    {
+        return this.paused;
+    }
+
+    /**
+     * Pauses this change, other pending changes of the same owner will continue to be performed.
+     */
+    public void pause()
+    {
+        this.paused = true;
+        this.queue.adjusted();
+    }
+
+    /**
+     * Resumes this change if it was paused.
+     */
+    public void resume()
+    {
+        this.paused = false;
+    }
+
+    /**
+     * Gets the priority of this change. Changes with a higher priority are performed first, changes
+     * with equal priority are performed in the order they were queued.
+     * 
+     * @return The priority
+     */
+    public int getPriority()
+    {
+        return this.priority;
+    }
+
+    /**
+     * Sets the priority of this change.
+     * 
+     * @param priority The new priority
+     */
+    public void setPriority(int priority)
+    {
+        this.priority = priority;
+        this.queue.adjusted();
+    }
+
+    /**
+     * Cancels the change if it is still pending. Any part of the change which has already been
+     * performed is not reverted.
+     * 
+     * @return Whether the change was cancelled by this call
+     */
+    public boolean cancel()
+    {
+        if (this.queue != null && transition(CANCELLED))
+        {
+            this.queue.removed(this);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Claims the change so that a later change may be merged into it. The change cannot be
+     * cancelled or completed until {@link #endMerge()} is called.
+     * 
+     * @return Whether the change was still pending and has been claimed
+     */
+    boolean beginMerge()
+    {
+        return STATE.compareAndSet(this, PENDING, MERGING);
+    }
+
+    /**
+     * Releases a claim made by {@link #beginMerge()}.
+     */
+    void endMerge()
+    {
+        STATE.compareAndSet(this, MERGING, PENDING);
+    }
+
+    /**
+     * Moves the change from pending to the given state, waiting for any merge in progress to end.
+     */
+    private boolean transition(int target)
+    {
+        while (true)
+        {
+            int current = this.state;
+            if (current == MERGING)
+            {
+                Thread.yield();
+            } else if (current != PENDING)
+            {
+                return false;
+            } else if (STATE.compareAndSet(this, PENDING, target))
+            {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the estimated size of the change as it was last accounted for by the queue.
+     * 
+     * @return The accounted size
+     */
+    long getSize()
+    {
+        return this.size;
+    }
+
+    /**
+     * Gets the retained memory of the change as it was last accounted for by the queue.
+     * 
+     * @return The accounted memory, in bytes
+     */
+    long getBytes()
+    {
+        return this.bytes;
+    }
+
+    /**
+     * Updates the accounted size of the change after the change has been modified in place. Must
+     * be called while the change is claimed by {@link #beginMerge()}, otherwise a concurrent cancel
+     * or completion could release the new size before the difference is charged.
+     */
+    void resized()
+    {
+        long previousSize = this.size;
+        long previousBytes = this.bytes;
+        this.size = this.change.getEstimatedSize();
+        this.bytes = this.change.getRetainedBytes();
+        if (isPending())
+        {
+            this.queue.resized(this.size - previousSize, this.bytes - previousBytes);
+        }
+    }
+
+    /**
+     * Marks the change as completed.
+     * 
+     * @return Whether the change was still pending
+     */
+    boolean complete()
+    {
+        if (transition(DONE))
+        {
+            this.queue.removed(this);
+            return true;
+        }
+        return false;
+    }
+
+}
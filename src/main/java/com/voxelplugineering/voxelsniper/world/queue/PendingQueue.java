@@ -0,0 +1,312 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.world.queue;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.Lists;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free multi-producer single-consumer queue of pending {@link ChangeQueue}s.
+ * 
+ * <p>Any thread may {@link #offer} a change or cancel one through its {@link PendingChange} handle,
+ * but only the single consumer which performs the changes (the {@link ChangeQueueTask}) may call
+ * {@link #peek()} and {@link #complete}. Cancelled changes are left in place and skipped by the
+ * consumer when they reach the head of the queue, which makes cancellation O(1). Finished changes
+ * stuck behind a paused or reprioritised change are unlinked by the consumer as it passes them.</p>
+ * 
+ * <p>Changes are performed in the order they were offered unless one has been paused or given a
+ * priority, at which point the consumer selects the highest priority change which is not paused.
+ * The queue as a whole may also be paused.</p>
+ */
+public class PendingQueue
+{
+
+    private final MemoryGovernor governor;
+    private final AtomicReference<PendingChange> tail;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong volume = new AtomicLong();
+    // advanced only by the consumer, the head is always a stub whose successor is the first change
+    private volatile PendingChange head;
+    private volatile boolean paused = false;
+    private volatile boolean adjusted = false;
+
+    /**
+     * Creates a new empty {@link PendingQueue}.
+     */
+    public PendingQueue()
+    {
+        this(null);
+    }
+
+    /**
+     * Creates a new empty {@link PendingQueue} which reports the memory held by its changes to the
+     * given governor.
+     * 
+     * @param governor The memory governor, may be null
+     */
+    public PendingQueue(MemoryGovernor governor)
+    {
+        this.governor = governor;
+        this.head = new PendingChange(null, null);
+        this.tail = new AtomicReference<PendingChange>(this.head);
+    }
+
+    /**
+     * Appends the given change to the end of the queue.
+     * 
+     * @param change The change
+     * @return The handle of the change
+     */
+    public PendingChange offer(ChangeQueue change)
+    {
+        checkNotNull(change, "ChangeQueue cannot be null");
+        PendingChange node = new PendingChange(change, this);
+        change.acquire();
+        this.size.incrementAndGet();
+        this.volume.addAndGet(node.getSize());
+        if (this.governor != null)
+        {
+            this.governor.allocate(MemoryGovernor.Category.PENDING, node.getBytes());
+        }
+        PendingChange prev = this.tail.getAndSet(node);
+        prev.next = node;
+        return node;
+    }
+
+    /**
+     * Gets the next change which should be performed, skipping over any cancelled or paused
+     * changes. Must only be called by the consumer.
+     * 
+     * @return The next pending change, if any
+     */
+    public Optional<PendingChange> peek()
+    {
+        PendingChange next = this.head.next;
+        while (next != null && !next.isPending())
+        {
+            this.head = next;
+            next = next.next;
+        }
+        if (next == null)
+        {
+            this.adjusted = false;
+            return Optional.empty();
+        }
+        if (this.paused)
+        {
+            return Optional.empty();
+        }
+        if (!this.adjusted && !next.isPaused())
+        {
+            return Optional.of(next);
+        }
+        PendingChange best = null;
+        for (PendingChange prev = this.head; next != null; next = next.next)
+        {
+            if (!next.isPending())
+            {
+                // changes finished behind a paused or reprioritised change never reach the head, so
+                // they are unlinked here to let their changes be collected. The last node is kept as
+                // a producer may be linking onto it.
+                if (next.next != null)
+                {
+                    prev.next = next.next;
+                }
+                continue;
+            }
+            if (!next.isPaused() && (best == null || next.getPriority() > best.getPriority()))
+            {
+                best = next;
+            }
+            prev = next;
+        }
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * Gets the change which was most recently offered to this queue, if it is still pending. May be
+     * called from any thread.
+     * 
+     * @return The last pending change, if any
+     */
+    public Optional<PendingChange> peekLast()
+    {
+        PendingChange last = this.tail.get();
+        if (last.getChange() == null || !last.isPending())
+        {
+            return Optional.empty();
+        }
+        return Optional.of(last);
+    }
+
+    /**
+     * Gets a snapshot of all changes which are still pending, in the order in which they will be
+     * performed. May be called from any thread.
+     * 
+     * @return The pending changes
+     */
+    public List<PendingChange> snapshot()
+    {
+        List<PendingChange> changes = Lists.newArrayList();
+        for (PendingChange next = this.head.next; next != null; next = next.next)
+        {
+            if (next.isPending())
+            {
+                changes.add(next);
+            }
+        }
+        // stable, so changes of equal priority remain in queue order
+        changes.sort(Comparator.comparingInt(PendingChange::getPriority).reversed());
+        return changes;
+    }
+
+    /**
+     * Moves the given change ahead of all other pending changes by raising its priority.
+     * 
+     * @param change The change
+     */
+    public void moveToFront(PendingChange change)
+    {
+        int max = change.getPriority();
+        for (PendingChange next = this.head.next; next != null; next = next.next)
+        {
+            if (next != change && next.isPending() && next.getPriority() >= max)
+            {
+                max = next.getPriority() + 1;
+            }
+        }
+        change.setPriority(max);
+    }
+
+    /**
+     * Gets whether this queue is paused.
+     * 
+     * @return Is paused
+     */
+    public boolean isPaused()
+    {
+        return this.paused;
+    }
+
+    /**
+     * Sets whether this queue is paused. No changes are returned from {@link #peek()} while the queue
+     * is paused.
+     * 
+     * @param paused Is paused
+     */
+    public void setPaused(boolean paused)
+    {
+        this.paused = paused;
+    }
+
+    /**
+     * Marks the given change as completed and removes it from the queue. Must only be called by the
+     * consumer with a change returned from {@link #peek()}.
+     * 
+     * @param change The change
+     */
+    public void complete(PendingChange change)
+    {
+        change.complete();
+        if (this.head.next == change)
+        {
+            this.head = change;
+        }
+    }
+
+    /**
+     * Gets whether there are any changes which are still pending.
+     * 
+     * @return Is empty
+     */
+    public boolean isEmpty()
+    {
+        return this.size.get() == 0;
+    }
+
+    /**
+     * Gets the number of changes which are still pending.
+     * 
+     * @return The size
+     */
+    public int size()
+    {
+        return this.size.get();
+    }
+
+    /**
+     * Gets the sum of the {@link ChangeQueue#getEstimatedSize() estimated sizes} of all changes
+     * which are still pending.
+     * 
+     * @return The pending volume
+     */
+    public long getVolume()
+    {
+        return this.volume.get();
+    }
+
+    /**
+     * Called when a change is paused or reprioritised, after which the consumer can no longer take
+     * the first change in the queue without checking the others.
+     */
+    void adjusted()
+    {
+        this.adjusted = true;
+    }
+
+    /**
+     * Called exactly once for each change when it leaves the pending state.
+     */
+    void removed(PendingChange change)
+    {
+        this.size.decrementAndGet();
+        this.volume.addAndGet(-change.getSize());
+        if (this.governor != null)
+        {
+            this.governor.release(MemoryGovernor.Category.PENDING, change.getBytes());
+        }
+        change.getChange().release();
+    }
+
+    /**
+     * Called when the size of a pending change is modified after it was offered.
+     */
+    void resized(long delta, long bytes)
+    {
+        this.volume.addAndGet(delta);
+        if (this.governor != null && bytes != 0)
+        {
+            this.governor.allocate(MemoryGovernor.Category.PENDING, bytes);
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.world.queue;
+
+import com.voxelplugineering.voxelsniper.service.Service;
+
+/**
+ * An index of the {@link ChangeQueueOwner}s which currently have pending changes. Owners add
+ * themselves when a change is queued and remove themselves once their last change completes, so
+ * that the {@link ChangeQueueTask} only has to visit owners with work to do.
+ */
+public interface PendingWorkIndex extends Service
+{
+
+    /**
+     * Marks the given owner as having pending changes.
+     * 
+     * @param owner The owner
+     */
+    void markActive(ChangeQueueOwner owner);
+
+    /**
+     * Marks the given owner as idle. The owner is only dropped from the index if it has no pending
+     * changes at the time of the call.
+     * 
+     * @param owner The owner
+     */
+    void markIdle(ChangeQueueOwner owner);
+
+    /**
+     * Removes the given owner from the index regardless of whether it still has pending changes,
+     * for example when a player leaves.
+     * 
+     * @param owner The owner
+     */
+    void remove(ChangeQueueOwner owner);
+
+    /**
+     * Gets the owners which currently have pending changes. The returned view is weakly consistent
+     * and may be iterated while owners are being added or removed.
+     * 
+     * @return The active owners
+     */
+    Iterable<ChangeQueueOwner> getActiveOwners();
+
+    /**
+     * Gets the number of owners which currently have pending changes.
+     * 
+     * @return The number of active owners
+     */
+    int getActiveCount();
+
+}
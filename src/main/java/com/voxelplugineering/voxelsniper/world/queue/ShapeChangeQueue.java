@@ -24,28 +24,69 @@
 package com.voxelplugineering.voxelsniper.world.queue;
 
 import com.voxelplugineering.voxelsniper.brush.BrushKeys;
+import com.voxelplugineering.voxelsniper.config.BaseConfiguration;
 import com.voxelplugineering.voxelsniper.entity.Player;
+import com.voxelplugineering.voxelsniper.shape.ComplexMaterialShape;
+import com.voxelplugineering.voxelsniper.shape.ComplexShape;
 import com.voxelplugineering.voxelsniper.shape.MaterialShape;
-import com.voxelplugineering.voxelsniper.world.Block;
+import com.voxelplugineering.voxelsniper.shape.OctreeMaterialShape;
+import com.voxelplugineering.voxelsniper.shape.OctreeShape;
+import com.voxelplugineering.voxelsniper.shape.RleMaterialShape;
+import com.voxelplugineering.voxelsniper.shape.Shape;
+import com.voxelplugineering.voxelsniper.shape.SparseMaterialShape;
+import com.voxelplugineering.voxelsniper.shape.SparseShape;
+import com.voxelplugineering.voxelsniper.util.math.Vector3i;
+import com.voxelplugineering.voxelsniper.world.ChunkCursor;
 import com.voxelplugineering.voxelsniper.world.Location;
+import com.voxelplugineering.voxelsniper.world.World;
 import com.voxelplugineering.voxelsniper.world.material.MaterialState;
 
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A special change queue for setting all of a shape to a single material.
+ * 
+ * <p>When a shape change is flushed while the owner's most recently queued change is another shape
+ * change which overlaps it and has not yet started, the two are merged into a single composite
+ * change covering both regions. Where the shapes overlap the later change wins, and the merged
+ * change keeps the single undo entry of the earlier change.</p>
+ * 
+ * <p>Before being queued the change is compacted against the snapshot of the world taken for its
+ * undo entry, voxels which already hold their target material are dropped so that neither the
+ * change nor its undo touch them and only real writes are charged against the change budget. The
+ * snapshot does not reflect the owner's other pending changes, so a change which overlaps any of
+ * them is left uncompacted and relies on the scan when it is performed instead.</p>
+ * 
+ * <p>The change is performed in a single pass over the world: each voxel is read once while the
+ * shape is scanned from the top down, and the positions which need writing are recorded in two
+ * compact indices. Breakable blocks such as liquids are then written first from the top down,
+ * followed by everything else from the bottom up. Sparse shapes are scanned over their sorted set
+ * points only.</p>
+ * 
+ * <p>Once the change is neither pending nor held by an undo history its shape and compaction mask
+ * are released, which returns any off-heap storage they hold.</p>
  */
 public class ShapeChangeQueue extends ChangeQueue
 {
 
-    private final MaterialShape shape;
-    private final Location originOffset;
-    private final Location origin;
+    private volatile MaterialShape shape;
+    private volatile Location originOffset;
+    private volatile Location origin;
     private final boolean physics;
     private ExecutionState state;
     private long position = 0;
     private int ticks = 0;
     private boolean reported = false;
+    private ShapeChangeQueue reverse = null;
+    private volatile Shape writes = null;
+    private volatile SharedMask mask = null;
+    private volatile long changes = -1;
+    private long written = 0;
+    private VoxelIndex candidates;
+    private VoxelIndex breakable;
+    private VoxelIndex solid;
 
     /**
      * Creates a new {@link ShapeChangeQueue}.
@@ -71,12 +112,36 @@ public class ShapeChangeQueue extends ChangeQueue
     }
 
     @Override
-    public boolean isFinished()
+    public long getEstimatedSize()
     {
-        if (this.position == this.shape.getWidth() * this.shape.getHeight() * this.shape.getLength())
+        if (this.changes >= 0)
         {
-            this.state = ExecutionState.DONE;
+            return this.changes;
         }
+        return (long) this.shape.getWidth() * this.shape.getHeight() * this.shape.getLength();
+    }
+
+    @Override
+    public long getRetainedBytes()
+    {
+        Shape mask = this.writes;
+        return this.shape.getRetainedBytes() + (mask == null ? 0 : mask.getRetainedBytes()) + 64;
+    }
+
+    /**
+     * Gets the number of voxels which this change will actually write, or -1 if this change has
+     * not been compacted against a snapshot of the world.
+     * 
+     * @return The change count
+     */
+    public long getChangeCount()
+    {
+        return this.changes;
+    }
+
+    @Override
+    public boolean isFinished()
+    {
         return this.state == ExecutionState.DONE;
     }
 
@@ -84,117 +149,594 @@ public class ShapeChangeQueue extends ChangeQueue
     public void flush()
     {
         reset();
-        if (this.shape.getWidth() * this.shape.getHeight() * this.shape.getLength() > 2000000)
+        if (estimateSnapshotBytes(this.shape.getShape()) > BaseConfiguration.maxUndoSnapshotBytes)
         {
             getOwner().sendMessage("Shape too large, skipping undo storage.");
+        } else if (!this.owner.getUndoHistory().isAcceptingHistory())
+        {
+            getOwner().sendMessage("Memory is low, skipping undo storage.");
         } else
         {
-            this.owner.getUndoHistory().addHistory(this, new ShapeChangeQueue(getOwner(), this.origin,
-                    this.originOffset.getWorld().getShapeFromWorld(this.origin, this.shape.getShape())));
+            this.reverse = new ShapeChangeQueue(getOwner(), this.origin,
+                    this.originOffset.getWorld().getShapeFromWorld(this.origin, this.shape.getShape()));
+            if (BaseConfiguration.coalescePendingEdits && coalesce())
+            {
+                return;
+            }
+            if (!overlapsPending())
+            {
+                compact();
+                if (this.changes == 0)
+                {
+                    this.reverse.dispose();
+                    dispose();
+                    return;
+                }
+            }
+            this.owner.getUndoHistory().addHistory(this, this.reverse);
         }
         this.getOwner().addPending(this);
     }
 
-    @Override
-    public int perform(int next)
+    /**
+     * Estimates the memory which a snapshot of the world over the given shape will retain. This
+     * follows the kind of snapshot which {@link World#getShapeFromWorld} creates for each kind of
+     * shape, a dense snapshot is estimated at its uncompressed size.
+     */
+    private static long estimateSnapshotBytes(Shape shape)
     {
-        int count = 0;
-        if (this.state == ExecutionState.UNSTARTED)
+        if (shape instanceof SparseShape)
         {
-            this.position = this.shape.getHeight() - 1;
-            this.state = ExecutionState.BREAKABLE;
-            this.ticks = 0;
-            this.reported = false;
+            // a sparse snapshot uses the same table as the shape
+            return shape.getRetainedBytes();
+        } else if (shape instanceof OctreeShape)
+        {
+            // each leaf gains two bytes of material for every bit of the shape
+            return shape.getRetainedBytes() * 17;
         }
-        if (this.state == ExecutionState.BREAKABLE)
+        return (long) shape.getWidth() * shape.getHeight() * shape.getLength() + shape.getRetainedBytes();
+    }
+
+    /**
+     * Attempts to merge this change into the owner's most recently queued change. Changes which
+     * have been paused or reprioritised are left alone as merging would alter their order relative
+     * to the other pending changes.
+     * 
+     * @return Whether this change was merged
+     */
+    private boolean coalesce()
+    {
+        Optional<PendingChange> last = this.owner.getLastPendingChange();
+        if (!last.isPresent() || last.get().isPaused() || last.get().getPriority() != 0)
+        {
+            return false;
+        }
+        ChangeQueue change = last.get().getChange();
+        if (change == this || !(change instanceof ShapeChangeQueue))
+        {
+            return false;
+        }
+        // claiming the change stops it being cancelled while this change is merged into it
+        if (!last.get().beginMerge())
+        {
+            return false;
+        }
+        try
+        {
+            if (!((ShapeChangeQueue) change).absorb(this))
+            {
+                return false;
+            }
+            // resized while still claimed so the new size cannot race a cancel or completion
+            last.get().resized();
+        } finally
+        {
+            last.get().endMerge();
+        }
+        this.owner.getUndoHistory().updateHistory(change);
+        return true;
+    }
+
+    /**
+     * Merges the given later change into this change if this change has not yet started and the
+     * two changes overlap.
+     * 
+     * @param next The later change
+     * @return Whether the change was merged
+     */
+    private synchronized boolean absorb(ShapeChangeQueue next)
+    {
+        if (this.state != ExecutionState.UNSTARTED || this.reverse == null || next.reverse == null || this.world != next.world
+                || this.physics != next.physics)
+        {
+            return false;
+        }
+        if (!overlaps(next))
+        {
+            return false;
+        }
+        int ax = this.originOffset.getFlooredX();
+        int ay = this.originOffset.getFlooredY();
+        int az = this.originOffset.getFlooredZ();
+        int bx = next.originOffset.getFlooredX();
+        int by = next.originOffset.getFlooredY();
+        int bz = next.originOffset.getFlooredZ();
+        int minX = Math.min(ax, bx);
+        int minY = Math.min(ay, by);
+        int minZ = Math.min(az, bz);
+        int width = Math.max(ax + this.shape.getWidth(), bx + next.shape.getWidth()) - minX;
+        int height = Math.max(ay + this.shape.getHeight(), by + next.shape.getHeight()) - minY;
+        int length = Math.max(az + this.shape.getLength(), bz + next.shape.getLength()) - minZ;
+        if ((long) width * height * length > BaseConfiguration.coalesceMaxVolume)
+        {
+            return false;
+        }
+        Location corner = this.originOffset.add(minX - ax, minY - ay, minZ - az);
+        MaterialShape merged = new ComplexMaterialShape(new ComplexShape(width, height, length), this.shape.getDefaultMaterial());
+        overlay(merged, this.shape, ax - minX, ay - minY, az - minZ);
+        overlay(merged, next.shape, bx - minX, by - minY, bz - minZ);
+        // the earlier snapshot holds the original world state wherever the two changes overlap
+        MaterialShape mergedReverse;
+        if (this.reverse.shape instanceof RleMaterialShape)
         {
-            for (; this.position >= 0 && count < next; this.position--)
+            mergedReverse = new RleMaterialShape(width, height, length, Vector3i.ZERO, this.reverse.shape.getDefaultMaterial());
+        } else
+        {
+            mergedReverse = new ComplexMaterialShape(new ComplexShape(width, height, length), this.reverse.shape.getDefaultMaterial());
+        }
+        overlay(mergedReverse, next.reverse.shape, bx - minX, by - minY, bz - minZ);
+        overlay(mergedReverse, this.reverse.shape, ax - minX, ay - minY, az - minZ);
+        if (mergedReverse instanceof RleMaterialShape)
+        {
+            ((RleMaterialShape) mergedReverse).trim();
+        }
+        MaterialShape replaced = this.shape;
+        MaterialShape replacedReverse = this.reverse.shape;
+        this.reverse.replace(corner, mergedReverse);
+        replace(corner, merged);
+        if (overlapsPending())
+        {
+            uncompact();
+        } else
+        {
+            compact();
+        }
+        // the merged shapes hold copies of everything the original shapes held
+        replaced.release();
+        replacedReverse.release();
+        next.shape.release();
+        next.reverse.shape.release();
+        return true;
+    }
+
+    /**
+     * Gets whether the bounds of this change and the given change overlap.
+     */
+    private boolean overlaps(ShapeChangeQueue other)
+    {
+        int ax = this.originOffset.getFlooredX();
+        int ay = this.originOffset.getFlooredY();
+        int az = this.originOffset.getFlooredZ();
+        int bx = other.originOffset.getFlooredX();
+        int by = other.originOffset.getFlooredY();
+        int bz = other.originOffset.getFlooredZ();
+        return this.world == other.world && ax < bx + other.shape.getWidth() && bx < ax + this.shape.getWidth()
+                && ay < by + other.shape.getHeight() && by < ay + this.shape.getHeight() && az < bz + other.shape.getLength()
+                && bz < az + this.shape.getLength();
+    }
+
+    /**
+     * Gets whether any other pending change of the owner may write within the bounds of this
+     * change. The snapshot of the world does not reflect such a change yet, so it cannot show which
+     * writes of this change are redundant. Changes other than shape changes are assumed to overlap.
+     */
+    private boolean overlapsPending()
+    {
+        for (PendingChange pending : this.owner.getPendingChanges())
+        {
+            ChangeQueue change = pending.getChange();
+            if (change == null || change == this)
+            {
+                continue;
+            }
+            if (!(change instanceof ShapeChangeQueue) || overlaps((ShapeChangeQueue) change))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops any compaction of this change and its reverse so that both are performed over their
+     * whole shapes.
+     */
+    private void uncompact()
+    {
+        SharedMask previous = this.mask;
+        this.writes = null;
+        this.mask = null;
+        this.changes = -1;
+        this.reverse.writes = null;
+        this.reverse.mask = null;
+        this.reverse.changes = -1;
+        if (previous != null)
+        {
+            previous.shape.release();
+        }
+    }
+
+    /**
+     * Diffs the target materials against the snapshot held by the reverse change and records the
+     * voxels which differ, both this change and its reverse are then restricted to those voxels.
+     */
+    private void compact()
+    {
+        MaterialShape target = this.shape;
+        MaterialShape existing = this.reverse.shape;
+        Shape mask = createMask(target);
+        long[] count = new long[1];
+        target.forEachSet((x, y, z) -> {
+            Optional<MaterialState> material = target.getMaterial(x, y, z, false);
+            // an unset snapshot voxel has no block in the world and is skipped when performed
+            Optional<MaterialState> current = existing.getMaterial(x, y, z, false);
+            if (material.isPresent() && current.isPresent() && !current.get().equals(material.get()))
             {
-                int subcount = 0;
-                int oy = (int) this.position + this.originOffset.getFlooredY();
-                for (int x = 0; x < this.shape.getWidth(); x++)
+                mask.set(x, y, z, false);
+                count[0]++;
+            }
+        });
+        SharedMask previous = this.mask;
+        SharedMask shared = new SharedMask(mask);
+        this.writes = mask;
+        this.mask = shared;
+        this.changes = count[0];
+        this.reverse.writes = mask;
+        this.reverse.mask = shared;
+        this.reverse.changes = count[0];
+        if (previous != null)
+        {
+            // both this change and its reverse have moved on to the new mask
+            previous.shape.release();
+        }
+    }
+
+    /**
+     * Creates an empty mask of the same size as the given shape, backed by the same kind of
+     * storage so that a sparse shape keeps a sparse mask.
+     */
+    private static Shape createMask(MaterialShape target)
+    {
+        if (isSparse(target))
+        {
+            return new SparseShape(target.getWidth(), target.getHeight(), target.getLength());
+        } else if (target instanceof OctreeMaterialShape || target.getShape() instanceof OctreeShape)
+        {
+            return new OctreeShape(target.getWidth(), target.getHeight(), target.getLength());
+        }
+        return new ComplexShape(target.getWidth(), target.getHeight(), target.getLength());
+    }
+
+    /**
+     * Gets whether the points of the given shape are stored sparsely, either directly or by the
+     * shape which a material shape wraps.
+     */
+    private static boolean isSparse(MaterialShape shape)
+    {
+        return shape instanceof SparseMaterialShape || shape.getShape() instanceof SparseShape;
+    }
+
+    private void replace(Location corner, MaterialShape merged)
+    {
+        this.shape = merged;
+        this.origin = corner;
+        this.originOffset = corner;
+    }
+
+    private static void overlay(MaterialShape target, MaterialShape source, int dx, int dy, int dz)
+    {
+        for (int x = 0; x < source.getWidth(); x++)
+        {
+            for (int y = 0; y < source.getHeight(); y++)
+            {
+                for (int z = 0; z < source.getLength(); z++)
                 {
-                    int ox = x + this.originOffset.getFlooredX();
-                    for (int z = 0; z < this.shape.getLength(); z++)
+                    Optional<MaterialState> material = source.getMaterial(x, y, z, false);
+                    if (material.isPresent())
                     {
-                        int oz = z + this.originOffset.getFlooredZ();
-                        Optional<Block> block = this.world.getBlock(ox, oy, oz);
-                        if (!block.isPresent())
-                        {
-                            continue;
-                        }
-                        MaterialState existingMaterial = block.get().getMaterial();
-                        Optional<MaterialState> newMaterial = this.shape.getMaterial(x, (int) this.position, z, false);
-                        if (newMaterial.isPresent() && (existingMaterial.getType().isLiquid() || existingMaterial.getType().isReliantOnEnvironment()))
-                        {
-                            this.world.setBlock(newMaterial.get(), x + this.originOffset.getFlooredX(),
-                                    (int) this.position + this.originOffset.getFlooredY(), z + this.originOffset.getFlooredZ(), this.physics);
-                            subcount++;
-                        }
+                        target.setMaterial(x + dx, y + dy, z + dz, false, material.get());
                     }
                 }
-                count += Math.max(next / (100000 / (this.shape.getWidth() * this.shape.getLength())), subcount);
+            }
+        }
+    }
 
+    @Override
+    public int perform(int next)
+    {
+        int count = 0;
+        if (this.state == ExecutionState.UNSTARTED)
+        {
+            // synchronized against a later change being merged into this one
+            synchronized (this)
+            {
+                this.position = 0;
+                this.state = ExecutionState.SCAN;
             }
-            if (this.position < 0)
+            this.ticks = 0;
+            this.reported = false;
+            this.written = 0;
+            this.breakable = new VoxelIndex();
+            this.solid = new VoxelIndex();
+            this.candidates = null;
+            if (isSparse(this.shape))
+            {
+                // sparse shapes are scanned over their set points rather than their whole volume
+                VoxelIndex index = new VoxelIndex();
+                int w = this.shape.getWidth();
+                int l = this.shape.getLength();
+                (this.writes != null ? this.writes : this.shape).forEachSet((x, y, z) -> index.add(((long) y * l + z) * w + x));
+                index.sort();
+                this.candidates = index;
+            }
+        }
+        int width = this.shape.getWidth();
+        int height = this.shape.getHeight();
+        int length = this.shape.getLength();
+        if (this.state == ExecutionState.SCAN)
+        {
+            this.ticks++;
+            long total = this.candidates != null ? this.candidates.size() : (long) width * height * length;
+            count = this.candidates != null ? scanSparse(next, width, length) : scan(next, width, height, length);
+            if (this.position == total)
             {
                 this.ticks = 0;
                 this.position = 0;
-                this.state = ExecutionState.INCREMENTAL;
+                this.candidates = null;
+                this.state = ExecutionState.BREAKABLE;
             } else if (this.ticks > 10)
             {
                 this.ticks = 0;
-                this.owner.sendMessage(String.format("Operating on breakable blocks %d out of %d", this.shape.getHeight() - 1 - this.position,
-                        this.shape.getHeight() - 1));
-            }
-        } else if (this.state == ExecutionState.INCREMENTAL)
-        {
-            this.ticks++;
-            // Gunsmith.getLogger().info("Position at " + this.position);
-            for (; this.position < this.shape.getWidth() * this.shape.getHeight() * this.shape.getLength() && count < next; this.position++)
-            {
-                int z = (int) (this.position / (this.shape.getWidth() * this.shape.getHeight()));
-                int y = (int) ((this.position % (this.shape.getWidth() * this.shape.getHeight())) / this.shape.getWidth());
-                int x = (int) ((this.position % (this.shape.getWidth() * this.shape.getHeight())) % this.shape.getWidth());
-                Optional<Block> block = this.world.getBlock(x + this.originOffset.getFlooredX(), y + this.originOffset.getFlooredY(),
-                        z + this.originOffset.getFlooredZ());
-                if (!block.isPresent())
+                if (this.candidates != null)
                 {
-                    continue;
-                }
-                MaterialState existingMaterial = block.get().getMaterial();
-                Optional<MaterialState> newMaterial = this.shape.getMaterial(x, y, z, false);
-                if (newMaterial.isPresent() && !(existingMaterial.getType().isLiquid() || existingMaterial.getType().isReliantOnEnvironment()))
+                    this.owner.sendMessage(String.format("Scanned %d out of %d blocks", this.position, total));
+                } else
                 {
-                    count++;
-                    this.world.setBlock(newMaterial.get(), x + this.originOffset.getFlooredX(), y + this.originOffset.getFlooredY(),
-                            z + this.originOffset.getFlooredZ(), this.physics);
+                    this.owner.sendMessage(String.format("Scanned %d out of %d layers", this.position / (width * length), height));
                 }
             }
-            if (this.position == this.shape.getWidth() * this.shape.getHeight() * this.shape.getLength())
+        }
+        if (this.state == ExecutionState.BREAKABLE)
+        {
+            // breakable blocks are applied from the top down so that nothing is left unsupported
+            for (; this.position < this.breakable.size() && count < next; this.position++)
+            {
+                apply(this.breakable.get((int) this.position), width, length);
+                count++;
+            }
+            if (this.position == this.breakable.size())
+            {
+                this.position = 0;
+                this.state = ExecutionState.INCREMENTAL;
+            }
+        }
+        if (this.state == ExecutionState.INCREMENTAL)
+        {
+            this.ticks++;
+            // the scan ran from the top down, walk the index backwards to build from the bottom up
+            int last = this.solid.size() - 1;
+            for (; this.position <= last && count < next; this.position++)
+            {
+                apply(this.solid.get(last - (int) this.position), width, length);
+                count++;
+            }
+            if (this.position > last)
             {
                 if (this.reported)
                 {
-                    this.owner.sendMessage("Finished %d changes.", this.position);
+                    this.owner.sendMessage("Finished %d changes.", this.written);
                 }
+                this.breakable = null;
+                this.solid = null;
                 this.state = ExecutionState.DONE;
             } else if (this.ticks > 10)
             {
                 this.reported = true;
                 this.ticks = 0;
-                this.owner.sendMessage("Performed %d out of %d changes.", this.position,
-                        this.shape.getWidth() * this.shape.getHeight() * this.shape.getLength());
+                this.owner.sendMessage("Performed %d out of %d changes.", this.written, this.breakable.size() + this.solid.size());
             }
         }
         return count;
     }
 
+    /**
+     * Reads each voxel which may be changed exactly once, from the top layer down, and records the
+     * voxels which need to be written into either the breakable or the solid index. Every position
+     * visited is charged against the budget at a fraction of the cost of a write, whether or not it
+     * is read, so that a mostly empty volume is still spread over several ticks. The world is read
+     * through a single {@link ChunkCursor} for the whole pass.
+     */
+    private int scan(int next, int width, int height, int length)
+    {
+        Shape mask = this.writes;
+        int ratio = Math.max(BaseConfiguration.shapeScanRatio, 1);
+        int ox = this.originOffset.getFlooredX();
+        int oy = this.originOffset.getFlooredY();
+        int oz = this.originOffset.getFlooredZ();
+        long volume = (long) width * height * length;
+        int layer = width * length;
+        ChunkCursor cursor = new ChunkCursor(this.world);
+        int count = 0;
+        int visits = 0;
+        for (; this.position < volume && count < next; this.position++)
+        {
+            if (++visits == ratio)
+            {
+                visits = 0;
+                count++;
+            }
+            int y = height - 1 - (int) (this.position / layer);
+            int x = (int) (this.position % layer) / length;
+            int z = (int) (this.position % layer) % length;
+            if (mask != null ? !mask.get(x, y, z, false) : !this.shape.get(x, y, z, false))
+            {
+                continue;
+            }
+            classify(cursor, x, y, z, ((long) y * length + z) * width + x, ox, oy, oz);
+        }
+        return count;
+    }
+
+    /**
+     * Scans the sorted set points of a sparse shape from the highest key down, which visits the
+     * voxels in the same top down order as a full scan.
+     */
+    private int scanSparse(int next, int width, int length)
+    {
+        int ratio = Math.max(BaseConfiguration.shapeScanRatio, 1);
+        int ox = this.originOffset.getFlooredX();
+        int oy = this.originOffset.getFlooredY();
+        int oz = this.originOffset.getFlooredZ();
+        int last = this.candidates.size() - 1;
+        int count = 0;
+        int reads = 0;
+        ChunkCursor cursor = new ChunkCursor(this.world);
+        for (; this.position <= last && count < next; this.position++)
+        {
+            long key = this.candidates.get(last - (int) this.position);
+            if (++reads == ratio)
+            {
+                reads = 0;
+                count++;
+            }
+            classify(cursor, (int) (key % width), (int) (key / width / length), (int) ((key / width) % length), key, ox, oy, oz);
+        }
+        return count;
+    }
+
+    private void classify(ChunkCursor cursor, int x, int y, int z, long key, int ox, int oy, int oz)
+    {
+        Optional<MaterialState> existing = cursor.getMaterial(x + ox, y + oy, z + oz);
+        if (!existing.isPresent())
+        {
+            return;
+        }
+        MaterialState existingMaterial = existing.get();
+        Optional<MaterialState> newMaterial = this.shape.getMaterial(x, y, z, false);
+        if (!newMaterial.isPresent() || existingMaterial.equals(newMaterial.get()))
+        {
+            return;
+        }
+        if (existingMaterial.getType().isLiquid() || existingMaterial.getType().isReliantOnEnvironment())
+        {
+            this.breakable.add(key);
+        } else
+        {
+            this.solid.add(key);
+        }
+    }
+
+    private void apply(long key, int width, int length)
+    {
+        int x = (int) (key % width);
+        int z = (int) ((key / width) % length);
+        int y = (int) (key / width / length);
+        Optional<MaterialState> material = this.shape.getMaterial(x, y, z, false);
+        if (material.isPresent())
+        {
+            this.world.setBlock(material.get(), x + this.originOffset.getFlooredX(), y + this.originOffset.getFlooredY(),
+                    z + this.originOffset.getFlooredZ(), this.physics);
+            this.written++;
+        }
+    }
+
+    @Override
+    public Optional<ChangeQueue> createRollback()
+    {
+        if (this.state == ExecutionState.UNSTARTED || this.reverse == null)
+        {
+            return Optional.empty();
+        }
+        return Optional.of(this.reverse);
+    }
+
     @Override
     public void reset()
     {
         this.state = ExecutionState.UNSTARTED;
     }
 
+    @Override
+    protected void dispose()
+    {
+        this.shape.release();
+        SharedMask shared = this.mask;
+        if (shared != null)
+        {
+            this.mask = null;
+            shared.release();
+        }
+    }
+
+    /**
+     * A compaction mask shared by a change and its reverse, released once both are done with it.
+     */
+    private static final class SharedMask
+    {
+
+        final Shape shape;
+        private final AtomicInteger users = new AtomicInteger(2);
+
+        SharedMask(Shape shape)
+        {
+            this.shape = shape;
+        }
+
+        void release()
+        {
+            if (this.users.decrementAndGet() == 0)
+            {
+                this.shape.release();
+            }
+        }
+
+    }
+
+    /**
+     * A growable list of packed voxel positions.
+     */
+    private static final class VoxelIndex
+    {
+
+        private long[] keys = new long[64];
+        private int size = 0;
+
+        void add(long key)
+        {
+            if (this.size == this.keys.length)
+            {
+                this.keys = Arrays.copyOf(this.keys, this.size * 2);
+            }
+            this.keys[this.size++] = key;
+        }
+
+        long get(int index)
+        {
+            return this.keys[index];
+        }
+
+        void sort()
+        {
+            Arrays.sort(this.keys, 0, this.size);
+        }
+
+        int size()
+        {
+            return this.size;
+        }
+
+    }
+
 }
 
 /**
@@ -203,6 +745,7 @@ public class ShapeChangeQueue extends ChangeQueue
 enum ExecutionState
 {
     UNSTARTED,
+    SCAN,
     BREAKABLE,
     INCREMENTAL,
     DONE;
@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.world.queue;
+
+import com.voxelplugineering.voxelsniper.service.Service;
+
+/**
+ * A budget for the memory retained by the undo histories of all players. Entries are tracked in
+ * the order they were retained and once the budget is exceeded the oldest entries are evicted from
+ * whichever history holds them. Retained sizes are reported to the {@link MemoryGovernor}, which
+ * may also have the oldest entries evicted under memory pressure.
+ */
+public interface UndoBudget extends Service
+{
+
+    /**
+     * Retains the given history entry against the budget. If the budget is exceeded the eviction
+     * callbacks of the oldest entries are called, outside of any lock held by the budget, until the
+     * retained size is within the budget again.
+     * 
+     * @param entry The entry
+     * @param bytes The retained size of the entry, in bytes
+     * @param eviction The callback which removes the entry from its history
+     */
+    void retain(Object entry, long bytes, Runnable eviction);
+
+    /**
+     * Releases the given entry after it has been removed from its history by other means than an
+     * eviction by this budget.
+     * 
+     * @param entry The entry
+     */
+    void release(Object entry);
+
+    /**
+     * Gets whether new entries should currently be captured at all. Capturing stops while the
+     * {@link MemoryGovernor} reports memory pressure.
+     * 
+     * @return Whether new entries are accepted
+     */
+    boolean isAccepting();
+
+    /**
+     * Gets the total retained size of all entries, in bytes.
+     * 
+     * @return The retained size
+     */
+    long getRetainedBytes();
+
+    /**
+     * Gets the maximum total retained size, in bytes.
+     * 
+     * @return The maximum size
+     */
+    long getMaxBytes();
+
+    /**
+     * Sets the maximum total retained size, in bytes. Entries are evicted as needed the next time an
+     * entry is retained.
+     * 
+     * @param bytes The maximum size
+     */
+    void setMaxBytes(long bytes);
+
+}
@@ -75,6 +75,31 @@ public interface UndoQueue
      */
     void setMaxBufferSize(int n);
 
+    /**
+     * Removes the history entry for the given change, for example after the change was cancelled and
+     * rolled back before it completed.
+     * 
+     * @param change The change
+     * @return Whether an entry was removed
+     */
+    boolean removeHistory(ChangeQueue change);
+
+    /**
+     * Gets whether new history should currently be captured. Changes skip capturing their undo
+     * snapshot while this is false.
+     * 
+     * @return Whether new history is accepted
+     */
+    boolean isAcceptingHistory();
+
+    /**
+     * Measures the retained size of the history entry for the given change again, after the change
+     * was modified in place.
+     * 
+     * @param change The change
+     */
+    void updateHistory(ChangeQueue change);
+
     /**
      * Clears all history.
      */
@@ -94,4 +119,26 @@ public interface UndoQueue
      */
     int size();
 
+    /**
+     * Gets the total retained size of all changes in the buffer, in bytes.
+     * 
+     * @return The retained size
+     */
+    long getRetainedBytes();
+
+    /**
+     * Gets the maximum retained size of the buffer, in bytes. The oldest entries are dropped once the
+     * buffer grows beyond this size.
+     * 
+     * @return The maximum size
+     */
+    long getMaxBytes();
+
+    /**
+     * Sets the maximum retained size of the buffer, in bytes.
+     * 
+     * @param bytes The maximum size
+     */
+    void setMaxBytes(long bytes);
+
 }
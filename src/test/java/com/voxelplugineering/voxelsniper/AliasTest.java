@@ -164,6 +164,23 @@ public class AliasTest
         this.alias.clear();
     }
 
+    /**
+     * Tests that a child registry picks up aliases registered to its parent after it has already
+     * expanded a string.
+     */
+    @Test
+    public void testParentModified()
+    {
+        AliasRegistry child = new CommonAliasRegistry("test", this.alias);
+        child.register("abc", "absd");
+
+        assertEquals("test absd def", child.expand("test abc def"));
+        this.alias.register("def", "ghi");
+        assertEquals("test absd ghi", child.expand("test abc def"));
+        this.alias.remove("def");
+        assertEquals("test absd def", child.expand("test abc def"));
+    }
+
     /**
      * Tests that aliases found inside arguments are not expanded
      */
@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+
+import com.voxelplugineering.voxelsniper.shape.ComplexShape;
+import com.voxelplugineering.voxelsniper.util.math.Vector3i;
+import com.voxelplugineering.voxelsniper.world.AbstractWorld;
+import com.voxelplugineering.voxelsniper.world.Chunk;
+import com.voxelplugineering.voxelsniper.world.biome.Biome;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Optional;
+
+/**
+ * A set of tests for {@link AbstractWorld#setBiomeRegion}.
+ */
+@SuppressWarnings({ "checkstyle:javadocmethod", "javadoc" })
+public class BiomeRegionTest
+{
+
+    @Test
+    public void testNegativeChunks()
+    {
+        AbstractWorld<?> world = Mockito.mock(AbstractWorld.class, Mockito.CALLS_REAL_METHODS);
+        Chunk west = Mockito.mock(Chunk.class);
+        Chunk east = Mockito.mock(Chunk.class);
+        Chunk south = Mockito.mock(Chunk.class);
+        Biome biome = Mockito.mock(Biome.class);
+        Mockito.doReturn(new Vector3i(16, 256, 16)).when(world).getChunkSize();
+        Mockito.doNothing().when(world).setBiome(any(Biome.class), anyInt(), anyInt(), anyInt());
+        Mockito.doReturn(Optional.of(west)).when(world).getChunk(-1, 0, -1);
+        Mockito.doReturn(Optional.of(east)).when(world).getChunk(0, 0, -1);
+        Mockito.doReturn(Optional.of(south)).when(world).getChunk(-1, 0, 0);
+
+        // spans x -3 to 2 and z -2 to 1, only the columns with z below zero are set
+        ComplexShape columns = new ComplexShape(6, 1, 4);
+        for (int x = 0; x < 6; x++)
+        {
+            columns.set(x, 0, 0, false);
+            columns.set(x, 0, 1, false);
+        }
+        world.setBiomeRegion(biome, columns, -3, 64, -2);
+
+        Mockito.verify(world, Mockito.times(12)).setBiome(eq(biome), anyInt(), eq(64), anyInt());
+        Mockito.verify(world).setBiome(biome, -3, 64, -2);
+        Mockito.verify(world).setBiome(biome, 2, 64, -1);
+        Mockito.verify(west, Mockito.times(1)).refreshChunk();
+        Mockito.verify(east, Mockito.times(1)).refreshChunk();
+        Mockito.verify(world, Mockito.never()).getChunk(-1, 0, 0);
+        Mockito.verify(south, Mockito.never()).refreshChunk();
+    }
+
+}
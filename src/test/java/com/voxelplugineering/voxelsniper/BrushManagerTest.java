@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.voxelplugineering.voxelsniper.brush.BrushManager;
+import com.voxelplugineering.voxelsniper.brush.CommonBrushManager;
+import com.voxelplugineering.voxelsniper.brush.shape.DiscBrush;
+import com.voxelplugineering.voxelsniper.brush.shape.SetBrush;
+import com.voxelplugineering.voxelsniper.util.Context;
+import com.voxelplugineering.voxelsniper.util.ContextTestUtil;
+
+import org.junit.Test;
+
+/**
+ * A set of tests for the {@link CommonBrushManager}.
+ */
+@SuppressWarnings({ "checkstyle:javadocmethod", "javadoc" })
+public class BrushManagerTest
+{
+
+    @Test
+    public void testCompileAfterSetParent()
+    {
+        Context context = ContextTestUtil.create();
+        BrushManager first = new CommonBrushManager(context);
+        first.loadBrush("set", new SetBrush());
+        first.loadBrush("disc", new DiscBrush());
+        BrushManager second = new CommonBrushManager(context);
+        second.loadBrush("disc", new DiscBrush());
+        BrushManager child = new CommonBrushManager(context, first);
+        child.loadBrush("local", new DiscBrush());
+
+        assertTrue(child.compile("set").getBrush(0).isPresent());
+        long version = child.getVersion();
+        // the second parent has fewer loads than the first, which must not bring back an old version
+        child.setParent(second);
+        assertNotEquals(version, child.getVersion());
+        assertFalse(child.compile("set").getBrush(0).isPresent());
+
+        version = child.getVersion();
+        second.loadBrush("set", new SetBrush());
+        assertNotEquals(version, child.getVersion());
+        assertTrue(child.compile("set").getBrush(0).isPresent());
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.voxelplugineering.voxelsniper.brush.BrushContext;
+import com.voxelplugineering.voxelsniper.brush.BrushKey;
+import com.voxelplugineering.voxelsniper.brush.BrushVars;
+
+import org.junit.Test;
+
+/**
+ * A set of tests for the {@link BrushVars}.
+ */
+public class BrushVarsTest
+{
+
+    /**
+     * Tests that the runtime context hides the global context.
+     */
+    @Test
+    public void testContextOrder()
+    {
+        BrushVars vars = new BrushVars();
+        vars.set(BrushContext.GLOBAL, "testOrder", 1.0);
+        assertEquals(1.0, vars.get("testOrder", Double.class).get(), 0);
+        vars.set(BrushContext.RUNTIME, "testOrder", 2.0);
+        assertEquals(2.0, vars.get("testOrder", Double.class).get(), 0);
+        vars.clearRuntime();
+        assertEquals(1.0, vars.get("testOrder", Double.class).get(), 0);
+    }
+
+    /**
+     * Tests that a typed key shares its slot with the path it was created from.
+     */
+    @Test
+    public void testTypedKey()
+    {
+        BrushKey<Double> key = BrushKey.of("testTyped", Double.class);
+        BrushVars vars = new BrushVars();
+        assertFalse(vars.has(key));
+        vars.set(BrushContext.GLOBAL, "testTyped", 5.0);
+        assertTrue(vars.has(key));
+        assertEquals(5.0, vars.get(key).get(), 0);
+        vars.set(BrushContext.RUNTIME, key, 6.0);
+        assertEquals(6.0, vars.get("testTyped", Double.class).get(), 0);
+    }
+
+    /**
+     * Tests that a variable set to null hides the variable in lower contexts and can be removed.
+     */
+    @Test
+    public void testNullAndRemove()
+    {
+        BrushVars vars = new BrushVars();
+        vars.set(BrushContext.GLOBAL, "testNull", 1.0);
+        vars.set(BrushContext.RUNTIME, "testNull", null);
+        assertTrue(vars.has("testNull"));
+        assertFalse(vars.get("testNull", Double.class).isPresent());
+        assertFalse(vars.remove(BrushContext.RUNTIME, "testNull"));
+        assertTrue(vars.remove(BrushContext.GLOBAL, "testNull"));
+        assertFalse(vars.has("testNull"));
+    }
+
+    /**
+     * Tests that paths which were never declared are stored by name, and are still found once a
+     * typed key later declares them.
+     */
+    @Test
+    public void testUndeclaredPath()
+    {
+        BrushVars vars = new BrushVars();
+        vars.set(BrushContext.GLOBAL, "testUndeclared", 5);
+        vars.set(BrushContext.RUNTIME, "testUndeclaredHidden", null);
+        assertEquals(5, vars.get("testUndeclared", Integer.class).get().intValue());
+        assertTrue(vars.has("testUndeclaredHidden"));
+        assertFalse(vars.get("testUndeclaredHidden", String.class).isPresent());
+
+        BrushKey<Integer> key = BrushKey.of("testUndeclared", Integer.class);
+        assertEquals(5, vars.get(key).get().intValue());
+        vars.set(BrushContext.GLOBAL, key, 6);
+        assertEquals(6, vars.get("testUndeclared", Integer.class).get().intValue());
+        assertTrue(vars.remove(BrushContext.GLOBAL, "testUndeclared"));
+        assertFalse(vars.has(key));
+        vars.clearRuntime();
+        assertFalse(vars.has("testUndeclaredHidden"));
+    }
+
+    /**
+     * Tests that a null path is rejected.
+     */
+    @Test(expected = NullPointerException.class)
+    public void testNullPath()
+    {
+        new BrushVars().get((String) null, Double.class);
+    }
+
+}
@@ -25,8 +25,10 @@ package com.voxelplugineering.voxelsniper;
 
 import static org.junit.Assert.assertEquals;
 
+import com.voxelplugineering.voxelsniper.config.BaseConfiguration;
 import com.voxelplugineering.voxelsniper.shape.ComplexShape;
 import com.voxelplugineering.voxelsniper.shape.Shape;
+import com.voxelplugineering.voxelsniper.shape.WordMask;
 import com.voxelplugineering.voxelsniper.shape.csg.CuboidShape;
 import com.voxelplugineering.voxelsniper.shape.csg.EllipsoidShape;
 import com.voxelplugineering.voxelsniper.util.math.Vector3i;
@@ -422,6 +424,103 @@ public class ComplexShapeTest
         assertEquals(a.getZ(), b.getZ());
     }
 
+    @Test
+    public void testOffHeap()
+    {
+        int threshold = BaseConfiguration.offHeapThresholdBytes;
+        BaseConfiguration.offHeapThresholdBytes = 1;
+        try
+        {
+            ComplexShape shape = new ComplexShape(5, 20, 5);
+            shape.set(4, 19, 4, false);
+            shape.set(0, 9, 2, false);
+            ComplexShape copy = shape.clone();
+            assertShapesDeepEqual(shape, copy);
+            shape.invert();
+            assertEquals(false, shape.get(4, 19, 4, false));
+            assertEquals(true, shape.get(4, 18, 4, false));
+            shape.release();
+
+            // a released buffer is reused zeroed
+            ComplexShape reused = new ComplexShape(5, 20, 5);
+            assertEquals(false, reused.get(4, 18, 4, false));
+            assertEquals(true, copy.get(0, 9, 2, false));
+        } finally
+        {
+            BaseConfiguration.offHeapThresholdBytes = threshold;
+        }
+    }
+
+    @Test
+    public void testRetainWords()
+    {
+        int threshold = BaseConfiguration.offHeapThresholdBytes;
+        try
+        {
+            for (int t : new int[] { threshold, 1 })
+            {
+                BaseConfiguration.offHeapThresholdBytes = t;
+                ComplexShape shape = new ComplexShape(3, 150, 2);
+                shape.invert();
+                // keeps every third point of the x = 1 columns
+                WordMask mask = (x, y, z) -> {
+                    long word = 0;
+                    for (int i = 0; i < 64; i++)
+                    {
+                        if (x == 1 && (y + i) % 3 == 0)
+                        {
+                            word |= 1L << i;
+                        }
+                    }
+                    return word;
+                };
+                shape.retainWords(mask);
+                for (int x = 0; x < 3; x++)
+                {
+                    for (int y = 0; y < 150; y++)
+                    {
+                        for (int z = 0; z < 2; z++)
+                        {
+                            assertEquals(x == 1 && y % 3 == 0, shape.get(x, y, z, false));
+                        }
+                    }
+                }
+                shape.release();
+            }
+        } finally
+        {
+            BaseConfiguration.offHeapThresholdBytes = threshold;
+        }
+    }
+
+    @Test
+    public void testColumns()
+    {
+        ComplexShape shape = new ComplexShape(2, 150, 2);
+        shape.set(0, 3, 0, false);
+        shape.set(0, 70, 0, false);
+        shape.set(0, 149, 0, false);
+        shape.set(1, 64, 1, false);
+        assertEquals(3, shape.getLowestSet(0, 0));
+        assertEquals(149, shape.getHighestSet(0, 0));
+        assertEquals(64, shape.getLowestSet(1, 1));
+        assertEquals(64, shape.getHighestSet(1, 1));
+        assertEquals(-1, shape.getLowestSet(1, 0));
+        assertEquals(-1, shape.getHighestSet(1, 0));
+        assertEquals(false, shape.isColumnSet(0, 1));
+
+        // inverting also sets the unused bits past the top of each column
+        shape.invert();
+        assertEquals(148, shape.getHighestSet(0, 0));
+        assertEquals(149, shape.getHighestSet(1, 1));
+        assertEquals(0, shape.getLowestSet(0, 0));
+
+        ComplexShape flat = ComplexShape.projectColumns(new CuboidShape(2, 3, 2, new Vector3i(1, 1, 1)));
+        assertEquals(1, flat.getHeight());
+        assertEquals(true, flat.get(1, 0, 1, false));
+        assertEquals(0, flat.getOrigin().getY());
+    }
+
     private static void assertShapesEqual(Shape a, Shape b)
     {
         assertEquals(a.getWidth(), b.getWidth());
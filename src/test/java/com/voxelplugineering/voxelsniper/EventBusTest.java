@@ -24,6 +24,7 @@
 package com.voxelplugineering.voxelsniper;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 
 import com.voxelplugineering.voxelsniper.service.config.ConfigurationService;
@@ -37,8 +38,13 @@ import com.voxelplugineering.voxelsniper.service.eventbus.EventThreadingPolicy;
 import com.voxelplugineering.voxelsniper.service.eventbus.EventThreadingPolicy.Policy;
 import com.voxelplugineering.voxelsniper.util.ContextTestUtil;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 import org.junit.Test;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Tests for the {@link AsyncEventBus} implementation.
  */
@@ -46,65 +52,65 @@ public class EventBusTest
 {
 
     /**
-     * 
+     * @throws Exception If error
      */
     @Test
-    public void basicTest()
+    public void basicTest() throws Exception
     {
         EventBus bus = new AsyncEventBus(ContextTestUtil.create(new ConfigurationService(ContextTestUtil.create())));
         bus.start();
 
         TestHandler handler = new TestHandler();
         bus.register(handler);
-        bus.post(new TestEvent());
+        bus.post(new TestEvent()).get();
         assertEquals(true, handler.found);
         bus.unregister(handler);
     }
 
     /**
-     * 
+     * @throws Exception If error
      */
     @Test
-    public void priorityTest()
+    public void priorityTest() throws Exception
     {
         EventBus bus = new AsyncEventBus(ContextTestUtil.create(new ConfigurationService(ContextTestUtil.create())));
         bus.start();
 
         PriorityHandler handler = new PriorityHandler();
         bus.register(handler);
-        bus.post(new TestEvent());
+        bus.post(new TestEvent()).get();
         assertEquals("abcde", handler.order);
         bus.unregister(handler);
     }
 
     /**
-     * 
+     * @throws Exception If error
      */
     @Test
-    public void superEventhandling()
+    public void superEventhandling() throws Exception
     {
         EventBus bus = new AsyncEventBus(ContextTestUtil.create(new ConfigurationService(ContextTestUtil.create())));
         bus.start();
 
         SuperHandler handler = new SuperHandler();
         bus.register(handler);
-        bus.post(new SubEvent());
+        bus.post(new SubEvent()).get();
         assertEquals(3, handler.count);
         bus.unregister(handler);
     }
 
     /**
-     * 
+     * @throws Exception If error
      */
     @Test
-    public void superEventhandling2()
+    public void superEventhandling2() throws Exception
     {
         EventBus bus = new AsyncEventBus(ContextTestUtil.create(new ConfigurationService(ContextTestUtil.create())));
         bus.start();
 
         SuperHandler handler = new SuperHandler();
         bus.register(handler);
-        bus.post(new TestEvent());
+        bus.post(new TestEvent()).get();
         assertEquals(2, handler.count);
         bus.unregister(handler);
     }
@@ -152,21 +158,40 @@ public class EventBusTest
     }
 
     /**
-     * 
+     * @throws Exception If error
      */
     @Test
-    public void testAsync()
+    public void testAsync() throws Exception
     {
         EventBus bus = new AsyncEventBus(ContextTestUtil.create(new ConfigurationService(ContextTestUtil.create())));
         bus.start();
 
         AsyncHandler handler = new AsyncHandler();
         bus.register(handler);
-        bus.post(new AsyncEvent());
+        bus.post(new AsyncEvent()).get();
         assertNotEquals(Thread.currentThread(), handler.thread);
         bus.unregister(handler);
     }
 
+    /**
+     * @throws Exception If error
+     */
+    @Test
+    public void testAsyncSequentialDoesNotBlock() throws Exception
+    {
+        EventBus bus = new AsyncEventBus(ContextTestUtil.create(new ConfigurationService(ContextTestUtil.create())));
+        bus.start();
+
+        BlockingHandler handler = new BlockingHandler();
+        bus.register(handler);
+        ListenableFuture<Event> future = bus.post(new BlockingEvent());
+        assertFalse(future.isDone());
+        handler.latch.countDown();
+        future.get(1, TimeUnit.SECONDS);
+        assertEquals("ab", handler.order);
+        bus.unregister(handler);
+    }
+
     /**
      * 
      */
@@ -223,6 +248,36 @@ public class EventBusTest
         }
     }
 
+    /**
+     * 
+     */
+    public static class BlockingHandler
+    {
+
+        protected final CountDownLatch latch = new CountDownLatch(1);
+        protected String order = "";
+
+        /**
+         * @param event The event
+         * @throws InterruptedException If interrupted
+         */
+        @EventHandler(EventPriority.HIGH)
+        public void onTestEventa(BlockingEvent event) throws InterruptedException
+        {
+            this.latch.await();
+            this.order += "a";
+        }
+
+        /**
+         * @param event The event
+         */
+        @EventHandler(EventPriority.LOW)
+        public void onTestEventb(BlockingEvent event)
+        {
+            this.order += "b";
+        }
+    }
+
     /**
      * 
      */
@@ -347,6 +402,14 @@ public class EventBusTest
 
     }
 
+    /**
+     * 
+     */
+    public static class BlockingEvent extends Event
+    {
+
+    }
+
     /**
      * 
      */
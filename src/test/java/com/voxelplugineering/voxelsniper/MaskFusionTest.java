@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.voxelplugineering.voxelsniper.brush.BrushAction;
+import com.voxelplugineering.voxelsniper.brush.BrushChain;
+import com.voxelplugineering.voxelsniper.brush.BrushContext;
+import com.voxelplugineering.voxelsniper.brush.BrushKeys;
+import com.voxelplugineering.voxelsniper.brush.BrushVars;
+import com.voxelplugineering.voxelsniper.brush.BrushWrapper;
+import com.voxelplugineering.voxelsniper.brush.mask.CheckerMaskBrush;
+import com.voxelplugineering.voxelsniper.brush.mask.MaterialMaskBrush;
+import com.voxelplugineering.voxelsniper.config.BaseConfiguration;
+import com.voxelplugineering.voxelsniper.entity.Player;
+import com.voxelplugineering.voxelsniper.shape.ComplexShape;
+import com.voxelplugineering.voxelsniper.shape.OctreeShape;
+import com.voxelplugineering.voxelsniper.shape.Shape;
+import com.voxelplugineering.voxelsniper.shape.csg.EllipsoidShape;
+import com.voxelplugineering.voxelsniper.util.Context;
+import com.voxelplugineering.voxelsniper.util.ContextTestUtil;
+import com.voxelplugineering.voxelsniper.util.math.Vector3i;
+import com.voxelplugineering.voxelsniper.world.CommonBlock;
+import com.voxelplugineering.voxelsniper.world.CommonLocation;
+import com.voxelplugineering.voxelsniper.world.World;
+import com.voxelplugineering.voxelsniper.world.material.MaterialState;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * A set of tests for the fusion of consecutive mask stages of a {@link BrushChain}.
+ */
+@SuppressWarnings({ "checkstyle:javadocmethod", "javadoc" })
+public class MaskFusionTest
+{
+
+    private World world;
+    private Player player;
+    private MaterialState stone;
+    private Context context;
+
+    @Before
+    public void setup()
+    {
+        this.world = mock(World.class);
+        this.player = mock(Player.class);
+        this.stone = mock(MaterialState.class);
+        final MaterialState air = mock(MaterialState.class);
+        this.context = ContextTestUtil.create();
+        when(this.player.getWorld()).thenReturn(this.world);
+        when(this.world.getChunkSize()).thenReturn(new Vector3i(16, 256, 16));
+        when(this.world.getChunk(anyInt(), anyInt(), anyInt())).thenReturn(Optional.empty());
+        when(this.world.getMaterial(anyInt(), anyInt(), anyInt())).thenAnswer((invocation) -> {
+            Object[] args = invocation.getArguments();
+            int x = (Integer) args[0];
+            int y = (Integer) args[1];
+            int z = (Integer) args[2];
+            return Optional.of(Math.floorMod(x + 3 * y + 5 * z, 4) == 0 ? air : this.stone);
+        });
+    }
+
+    @Test
+    public void testFusedMatchesUnfused()
+    {
+        assertChainsAgree((base) -> new ComplexShape(base));
+    }
+
+    @Test
+    public void testFusedMatchesUnfusedOctree()
+    {
+        assertChainsAgree((base) -> new OctreeShape(base));
+    }
+
+    private void assertChainsAgree(Function<Shape, Shape> copy)
+    {
+        Shape base = new EllipsoidShape(6, 6, 6, new Vector3i(6, 6, 6));
+        Shape fused = run(copy.apply(base), true);
+        Shape unfused = run(copy.apply(base), false);
+        long set = 0;
+        long total = 0;
+        for (int x = 0; x < base.getWidth(); x++)
+        {
+            for (int y = 0; y < base.getHeight(); y++)
+            {
+                for (int z = 0; z < base.getLength(); z++)
+                {
+                    assertEquals(unfused.get(x, y, z, false), fused.get(x, y, z, false));
+                    set += fused.get(x, y, z, false) ? 1 : 0;
+                    total += base.get(x, y, z, false) ? 1 : 0;
+                }
+            }
+        }
+        // both masks must have removed some but not all of the shape
+        assertTrue(set > 0 && set < total / 2);
+    }
+
+    private Shape run(Shape shape, boolean fuse)
+    {
+        boolean fuseMaskStages = BaseConfiguration.fuseMaskStages;
+        BaseConfiguration.fuseMaskStages = fuse;
+        try
+        {
+            BrushVars vars = new BrushVars();
+            vars.set(BrushContext.GLOBAL, BrushKeys.ACTION, BrushAction.PRIMARY);
+            vars.set(BrushContext.GLOBAL, BrushKeys.TARGET_BLOCK, new CommonBlock(new CommonLocation(this.world, 10, 64, -5), this.stone));
+            vars.set(BrushContext.GLOBAL, BrushKeys.MASK_MATERIAL, this.stone);
+            vars.set(BrushContext.GLOBAL, BrushKeys.WIDTH, 2);
+            vars.set(BrushContext.GLOBAL, BrushKeys.HEIGHT, 3);
+            vars.set(BrushContext.GLOBAL, BrushKeys.OFFSET_X, 1);
+            vars.set(BrushContext.RUNTIME, BrushKeys.SHAPE, shape);
+            BrushChain chain = new BrushChain("test", new BrushWrapper(new MaterialMaskBrush(), this.context),
+                    new BrushWrapper(new CheckerMaskBrush(), this.context));
+            chain.run(this.player, vars);
+            return vars.get(BrushKeys.SHAPE, Shape.class).get();
+        } finally
+        {
+            BaseConfiguration.fuseMaskStages = fuseMaskStages;
+        }
+    }
+
+}
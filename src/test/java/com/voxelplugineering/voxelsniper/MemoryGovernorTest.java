@@ -0,0 +1,175 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper;
+
+import static org.junit.Assert.assertEquals;
+
+import com.voxelplugineering.voxelsniper.config.VoxelSniperConfiguration;
+import com.voxelplugineering.voxelsniper.service.MemoryGovernorService;
+import com.voxelplugineering.voxelsniper.service.UndoBudgetService;
+import com.voxelplugineering.voxelsniper.util.Context;
+import com.voxelplugineering.voxelsniper.util.ContextTestUtil;
+import com.voxelplugineering.voxelsniper.world.queue.MemoryGovernor.Category;
+import com.voxelplugineering.voxelsniper.world.queue.MemoryGovernor.Pressure;
+
+import com.google.common.collect.Lists;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A set of tests for the {@link MemoryGovernorService}.
+ */
+@SuppressWarnings({ "checkstyle:javadocmethod", "javadoc" })
+public class MemoryGovernorTest
+{
+
+    private static final long MB = 1024 * 1024;
+
+    private int softLimit;
+    private int hardLimit;
+    private Context context;
+    private MemoryGovernorService governor;
+
+    @Before
+    public void setup()
+    {
+        this.softLimit = VoxelSniperConfiguration.memorySoftLimitMegabytes;
+        this.hardLimit = VoxelSniperConfiguration.memoryHardLimitMegabytes;
+        VoxelSniperConfiguration.memorySoftLimitMegabytes = 1;
+        VoxelSniperConfiguration.memoryHardLimitMegabytes = 2;
+        this.context = ContextTestUtil.create();
+        this.governor = new MemoryGovernorService(this.context);
+        this.governor.start();
+        this.context.put(this.governor);
+    }
+
+    @After
+    public void teardown()
+    {
+        VoxelSniperConfiguration.memorySoftLimitMegabytes = this.softLimit;
+        VoxelSniperConfiguration.memoryHardLimitMegabytes = this.hardLimit;
+    }
+
+    @Test
+    public void testPressure()
+    {
+        assertEquals(MB, this.governor.getSoftLimit());
+        assertEquals(2 * MB, this.governor.getHardLimit());
+
+        this.governor.allocate(Category.PENDING, MB / 2);
+        assertEquals(Pressure.NORMAL, this.governor.getPressure());
+        this.governor.allocate(Category.UNDO, MB);
+        assertEquals(Pressure.SOFT, this.governor.getPressure());
+        this.governor.allocate(Category.PENDING, MB);
+        assertEquals(Pressure.HARD, this.governor.getPressure());
+        assertEquals(MB * 3 / 2, this.governor.getUsage(Category.PENDING));
+        assertEquals(MB, this.governor.getUsage(Category.UNDO));
+        assertEquals(MB * 5 / 2, this.governor.getTotalUsage());
+
+        this.governor.release(Category.PENDING, MB);
+        assertEquals(Pressure.SOFT, this.governor.getPressure());
+        this.governor.release(Category.UNDO, MB);
+        assertEquals(Pressure.NORMAL, this.governor.getPressure());
+        assertEquals(0, this.governor.getUsage(Category.UNDO));
+    }
+
+    @Test
+    public void testListeners()
+    {
+        List<Pressure> raised = Lists.newArrayList();
+        this.governor.addPressureListener(raised::add);
+        this.governor.allocate(Category.PENDING, MB * 3 / 2);
+        this.governor.allocate(Category.PENDING, MB);
+        // a fall in pressure is not reported
+        this.governor.release(Category.PENDING, MB * 5 / 2);
+        this.governor.allocate(Category.UNDO, 3 * MB);
+        assertEquals(Lists.newArrayList(Pressure.SOFT, Pressure.HARD, Pressure.HARD), raised);
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException
+    {
+        for (int round = 0; round < 10; round++)
+        {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = Lists.newArrayList();
+            for (int i = 0; i < 4; i++)
+            {
+                Thread thread = new Thread(() -> {
+                    try
+                    {
+                        start.await();
+                    } catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                    for (int j = 0; j < 1000; j++)
+                    {
+                        this.governor.allocate(Category.PENDING, 3 * MB);
+                        this.governor.release(Category.PENDING, 3 * MB);
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            start.countDown();
+            for (Thread thread : threads)
+            {
+                thread.join();
+            }
+            // every allocation was released so no stale level may be left behind
+            assertEquals(0, this.governor.getTotalUsage());
+            assertEquals(Pressure.NORMAL, this.governor.getPressure());
+        }
+    }
+
+    @Test
+    public void testShedding()
+    {
+        UndoBudgetService budget = new UndoBudgetService(this.context);
+        budget.start();
+        List<Integer> evicted = Lists.newArrayList();
+        for (int i = 0; i < 6; i++)
+        {
+            final int n = i;
+            budget.retain(n, MB / 4, () -> evicted.add(n));
+        }
+        assertEquals(MB * 3 / 2, this.governor.getUsage(Category.UNDO));
+        assertEquals(false, budget.isAccepting());
+
+        // crossing the hard watermark evicts the oldest entries until below the soft watermark
+        this.governor.allocate(Category.PENDING, MB * 6 / 10);
+        assertEquals(Lists.newArrayList(0, 1, 2, 3, 4), evicted);
+        assertEquals(MB / 4, budget.getRetainedBytes());
+        assertEquals(MB / 4, this.governor.getUsage(Category.UNDO));
+        assertEquals(Pressure.NORMAL, this.governor.getPressure());
+        assertEquals(true, budget.isAccepting());
+    }
+
+}
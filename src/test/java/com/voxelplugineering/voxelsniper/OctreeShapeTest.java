@@ -0,0 +1,208 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.voxelplugineering.voxelsniper.config.BaseConfiguration;
+import com.voxelplugineering.voxelsniper.shape.OctreeMaterialShape;
+import com.voxelplugineering.voxelsniper.shape.OctreeShape;
+import com.voxelplugineering.voxelsniper.shape.Shape;
+import com.voxelplugineering.voxelsniper.shape.csg.EllipsoidShape;
+import com.voxelplugineering.voxelsniper.util.MaterialShapeTestUtil;
+import com.voxelplugineering.voxelsniper.util.math.Vector3i;
+import com.voxelplugineering.voxelsniper.world.material.MaterialState;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of tests for the {@link OctreeShape}.
+ */
+@SuppressWarnings({ "checkstyle:javadocmethod", "javadoc" })
+public class OctreeShapeTest
+{
+
+    @Test
+    public void testBasic()
+    {
+        OctreeShape shape = new OctreeShape(40, 40, 40);
+        assertEquals(false, shape.get(33, 5, 17, false));
+
+        shape.set(33, 5, 17, false);
+        assertEquals(true, shape.get(33, 5, 17, false));
+        assertEquals(1, shape.size());
+
+        shape.unset(33, 5, 17, false);
+        assertEquals(false, shape.get(33, 5, 17, false));
+        assertEquals(0, shape.size());
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testBasicOOB()
+    {
+        OctreeShape shape = new OctreeShape(20, 20, 20);
+        shape.set(20, 0, 0, false);
+    }
+
+    @Test
+    public void testFillCollapses()
+    {
+        OctreeShape shape = new OctreeShape(256, 256, 256);
+        shape.fill(0, 0, 0, 255, 255, 255);
+        assertEquals(256L * 256 * 256, shape.size());
+        long full = shape.getRetainedBytes();
+        shape.unset(100, 100, 100, false);
+        assertEquals(256L * 256 * 256 - 1, shape.size());
+        shape.set(100, 100, 100, false);
+        assertEquals(full, shape.getRetainedBytes());
+    }
+
+    @Test
+    public void testFillClipped()
+    {
+        OctreeShape shape = new OctreeShape(30, 30, 30);
+        shape.fill(-5, 10, 10, 40, 10, 12);
+        assertEquals(30 * 3, shape.size());
+        assertEquals(true, shape.get(29, 10, 11, false));
+        assertEquals(false, shape.get(0, 11, 11, false));
+    }
+
+    @Test
+    public void testBooleanOps()
+    {
+        OctreeShape a = new OctreeShape(64, 64, 64);
+        a.fill(0, 0, 0, 31, 63, 63);
+        OctreeShape b = new OctreeShape(64, 64, 64);
+        b.fill(16, 0, 0, 47, 63, 63);
+        b.set(60, 1, 1, false);
+
+        OctreeShape union = a.clone();
+        union.union(b);
+        assertEquals(48L * 64 * 64 + 1, union.size());
+
+        OctreeShape intersect = a.clone();
+        intersect.intersect(b);
+        assertEquals(16L * 64 * 64, intersect.size());
+        assertEquals(true, intersect.get(20, 3, 3, false));
+        assertEquals(false, intersect.get(60, 1, 1, false));
+
+        OctreeShape subtract = a.clone();
+        subtract.subtract(b);
+        assertEquals(16L * 64 * 64, subtract.size());
+        assertEquals(true, subtract.get(15, 3, 3, false));
+        assertEquals(false, subtract.get(16, 3, 3, false));
+
+        assertEquals(32L * 64 * 64, a.size());
+    }
+
+    @Test
+    public void testIterationOrder()
+    {
+        OctreeShape shape = new OctreeShape(40, 40, 40);
+        shape.set(20, 0, 0, false);
+        shape.set(1, 33, 0, false);
+        shape.set(0, 1, 2, false);
+        List<String> visited = new ArrayList<>();
+        shape.forEachSet((x, y, z) -> visited.add(x + "," + y + "," + z));
+        assertEquals("[0,1,2, 1,33,0, 20,0,0]", visited.toString());
+        List<String> leaves = new ArrayList<>();
+        shape.forEachLeaf((x, y, z) -> leaves.add(x + "," + y + "," + z));
+        assertEquals("[0,0,0, 0,32,0, 16,0,0]", leaves.toString());
+    }
+
+    @Test
+    public void testUnsetDuringIteration()
+    {
+        OctreeShape shape = new OctreeShape(32, 32, 32);
+        shape.fill(0, 0, 0, 31, 31, 31);
+        shape.forEachSet((x, y, z) -> {
+            if ((x + y + z) % 2 == 0)
+            {
+                shape.unset(x, y, z, false);
+            }
+        });
+        assertEquals(32L * 32 * 32 / 2, shape.size());
+    }
+
+    @Test
+    public void testCreate()
+    {
+        int threshold = BaseConfiguration.octreeShapeMinVolume;
+        BaseConfiguration.octreeShapeMinVolume = 1000;
+        try
+        {
+            Shape small = new EllipsoidShape(4, 4, 4, new Vector3i(4, 4, 4));
+            assertSame(small, OctreeShape.create(small));
+
+            Shape large = new EllipsoidShape(8, 8, 8, new Vector3i(8, 8, 8));
+            Shape octree = OctreeShape.create(large);
+            assertTrue(octree instanceof OctreeShape);
+            assertEquals(large.getOrigin(), octree.getOrigin());
+            for (int x = 0; x < large.getWidth(); x++)
+            {
+                for (int y = 0; y < large.getHeight(); y++)
+                {
+                    for (int z = 0; z < large.getLength(); z++)
+                    {
+                        assertEquals(large.get(x, y, z, false), octree.get(x, y, z, false));
+                    }
+                }
+            }
+            assertSame(octree, OctreeShape.create(octree));
+        } finally
+        {
+            BaseConfiguration.octreeShapeMinVolume = threshold;
+        }
+    }
+
+    @Test
+    public void testMaterialData()
+    {
+        Shape ball = new EllipsoidShape(6, 6, 6, new Vector3i(6, 6, 6));
+        OctreeMaterialShape shape = new OctreeMaterialShape(new OctreeShape(ball), mock(MaterialState.class));
+        MaterialState stone = mock(MaterialState.class);
+        shape.forEachSet((x, y, z) -> {
+            if (y < 5)
+            {
+                shape.setMaterial(x, y, z, false, stone);
+            }
+        });
+        MaterialShapeTestUtil.assertMaterialData(shape);
+
+        // more materials than fit in a single byte need the upper array too
+        for (int i = 0; i < 300; i++)
+        {
+            shape.setMaterial(i % 13, 6, i / 13 % 13, false, mock(MaterialState.class));
+        }
+        assertEquals(true, shape.hasExtraData());
+        MaterialShapeTestUtil.assertMaterialData(shape);
+    }
+
+}
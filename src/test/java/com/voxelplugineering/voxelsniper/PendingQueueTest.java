@@ -0,0 +1,255 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.voxelplugineering.voxelsniper.entity.Player;
+import com.voxelplugineering.voxelsniper.world.World;
+import com.voxelplugineering.voxelsniper.world.queue.ChangeQueue;
+import com.voxelplugineering.voxelsniper.world.queue.PendingChange;
+import com.voxelplugineering.voxelsniper.world.queue.PendingQueue;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A set of tests for the {@link PendingQueue}.
+ */
+public class PendingQueueTest
+{
+
+    private static ChangeQueue change(long size)
+    {
+        ChangeQueue change = Mockito.mock(ChangeQueue.class);
+        Mockito.when(change.getEstimatedSize()).thenReturn(size);
+        return change;
+    }
+
+    /**
+     * Tests that changes are returned in order and accounted for once completed.
+     */
+    @Test
+    public void testOrder()
+    {
+        PendingQueue queue = new PendingQueue();
+        ChangeQueue a = change(10);
+        ChangeQueue b = change(5);
+        queue.offer(a);
+        queue.offer(b);
+        assertEquals(2, queue.size());
+        assertEquals(15, queue.getVolume());
+        PendingChange first = queue.peek().get();
+        assertSame(a, first.getChange());
+        queue.complete(first);
+        assertSame(b, queue.peek().get().getChange());
+        queue.complete(queue.peek().get());
+        assertFalse(queue.peek().isPresent());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.getVolume());
+    }
+
+    /**
+     * Tests that cancelled changes are skipped and only accounted for once.
+     */
+    @Test
+    public void testCancel()
+    {
+        PendingQueue queue = new PendingQueue();
+        PendingChange a = queue.offer(change(10));
+        PendingChange b = queue.offer(change(5));
+        PendingChange c = queue.offer(change(1));
+        assertTrue(b.cancel());
+        assertFalse(b.cancel());
+        assertTrue(a.cancel());
+        assertEquals(1, queue.size());
+        assertEquals(1, queue.getVolume());
+        Optional<PendingChange> next = queue.peek();
+        assertSame(c, next.get());
+        queue.complete(c);
+        assertFalse(c.cancel());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.getVolume());
+    }
+
+    /**
+     * Tests that paused changes are skipped and that prioritised changes are performed first.
+     */
+    @Test
+    public void testPauseAndPriority()
+    {
+        PendingQueue queue = new PendingQueue();
+        PendingChange a = queue.offer(change(1));
+        PendingChange b = queue.offer(change(1));
+        PendingChange c = queue.offer(change(1));
+        a.pause();
+        assertSame(b, queue.peek().get());
+        queue.moveToFront(c);
+        assertSame(c, queue.peek().get());
+        assertEquals(Arrays.asList(c, a, b), queue.snapshot());
+        queue.setPaused(true);
+        assertFalse(queue.peek().isPresent());
+        queue.setPaused(false);
+        queue.complete(c);
+        queue.complete(b);
+        assertFalse(queue.peek().isPresent());
+        a.resume();
+        assertSame(a, queue.peek().get());
+    }
+
+    /**
+     * Tests that changes finished behind a paused change are unlinked so that they can be collected.
+     */
+    @Test
+    public void testUnlinkBehindPaused() throws InterruptedException
+    {
+        PendingQueue queue = new PendingQueue();
+        PendingChange a = queue.offer(change(1));
+        a.pause();
+        List<WeakReference<ChangeQueue>> finished = Lists.newArrayList();
+        for (int i = 0; i < 3; i++)
+        {
+            finished.add(offerAndFinish(queue, false));
+            finished.add(offerAndFinish(queue, true));
+        }
+        PendingChange c = queue.offer(change(1));
+        assertSame(c, queue.peek().get());
+        for (int i = 0; i < 20 && finished.stream().anyMatch((ref) -> ref.get() != null); i++)
+        {
+            System.gc();
+            Thread.sleep(10);
+        }
+        for (WeakReference<ChangeQueue> ref : finished)
+        {
+            assertEquals(null, ref.get());
+        }
+        assertEquals(Arrays.asList(a, c), queue.snapshot());
+    }
+
+    private static WeakReference<ChangeQueue> offerAndFinish(PendingQueue queue, boolean complete)
+    {
+        ChangeQueue change = new ChangeQueue(Mockito.mock(Player.class), Mockito.mock(World.class))
+        {
+
+            @Override
+            public boolean isFinished()
+            {
+                return false;
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+
+            @Override
+            public int perform(int next)
+            {
+                return next;
+            }
+
+            @Override
+            public void reset()
+            {
+            }
+
+        };
+        PendingChange handle = queue.offer(change);
+        if (complete)
+        {
+            assertSame(handle, queue.peek().get());
+            queue.complete(handle);
+        } else
+        {
+            handle.cancel();
+        }
+        return new WeakReference<ChangeQueue>(change);
+    }
+
+    /**
+     * Tests that only a still pending tail is returned as the last change.
+     */
+    @Test
+    public void testPeekLast()
+    {
+        PendingQueue queue = new PendingQueue();
+        assertFalse(queue.peekLast().isPresent());
+        PendingChange a = queue.offer(change(1));
+        assertSame(a, queue.peekLast().get());
+        PendingChange b = queue.offer(change(1));
+        assertSame(b, queue.peekLast().get());
+        b.cancel();
+        assertFalse(queue.peekLast().isPresent());
+    }
+
+    /**
+     * Tests that changes offered concurrently from several threads are all received.
+     */
+    @Test
+    public void testConcurrentProducers() throws InterruptedException
+    {
+        final PendingQueue queue = new PendingQueue();
+        final ChangeQueue change = change(1);
+        final int perThread = 10000;
+        Thread[] producers = new Thread[4];
+        for (int i = 0; i < producers.length; i++)
+        {
+            producers[i] = new Thread(() -> {
+                for (int j = 0; j < perThread; j++)
+                {
+                    queue.offer(change);
+                }
+            });
+            producers[i].start();
+        }
+        int received = 0;
+        while (received < producers.length * perThread)
+        {
+            Optional<PendingChange> next = queue.peek();
+            if (next.isPresent())
+            {
+                queue.complete(next.get());
+                received++;
+            }
+        }
+        for (Thread t : producers)
+        {
+            t.join();
+        }
+        assertFalse(queue.peek().isPresent());
+        assertEquals(0, queue.size());
+        assertEquals(0, queue.getVolume());
+    }
+
+}
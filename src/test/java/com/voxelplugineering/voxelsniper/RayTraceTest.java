@@ -0,0 +1,249 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.voxelplugineering.voxelsniper.entity.Entity;
+
+import com.voxelplugineering.voxelsniper.service.registry.MaterialRegistry;
+import com.voxelplugineering.voxelsniper.util.Direction;
+import com.voxelplugineering.voxelsniper.util.RayTrace;
+import com.voxelplugineering.voxelsniper.util.math.Vector3d;
+import com.voxelplugineering.voxelsniper.util.math.Vector3i;
+import com.voxelplugineering.voxelsniper.world.AbstractChunk;
+import com.voxelplugineering.voxelsniper.world.Block;
+import com.voxelplugineering.voxelsniper.world.Chunk;
+import com.voxelplugineering.voxelsniper.world.CommonBlock;
+import com.voxelplugineering.voxelsniper.world.CommonLocation;
+import com.voxelplugineering.voxelsniper.world.Location;
+import com.voxelplugineering.voxelsniper.world.World;
+import com.voxelplugineering.voxelsniper.world.material.Material;
+import com.voxelplugineering.voxelsniper.world.material.MaterialState;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A set of tests for the exact traversal mode of the {@link RayTrace}.
+ */
+@SuppressWarnings({ "checkstyle:javadocmethod", "javadoc" })
+public class RayTraceTest
+{
+
+    private World world;
+    private MaterialState airState;
+    private MaterialState stoneState;
+
+    @Before
+    public void setup()
+    {
+        this.world = mock(World.class);
+        Material air = mock(Material.class);
+        Material stone = mock(Material.class);
+        final MaterialState airState = this.airState = mock(MaterialState.class);
+        final MaterialState stoneState = this.stoneState = mock(MaterialState.class);
+        when(airState.getType()).thenReturn(air);
+        when(stoneState.getType()).thenReturn(stone);
+        MaterialRegistry<?> registry = mock(MaterialRegistry.class);
+        when(registry.getAirMaterial()).thenReturn(air);
+        Mockito.doReturn(registry).when(this.world).getMaterialRegistry();
+        when(this.world.getChunkSize()).thenReturn(new Vector3i(16, 256, 16));
+        when(this.world.getChunk(anyInt(), anyInt(), anyInt())).thenReturn(Optional.empty());
+        // a floor at y=60 and a wall at x=20
+        when(this.world.getMaterial(anyInt(), anyInt(), anyInt())).thenAnswer((invocation) -> {
+            Object[] args = invocation.getArguments();
+            return Optional.of(getState((Integer) args[0], (Integer) args[1], airState, stoneState));
+        });
+        when(this.world.getBlock(anyInt(), anyInt(), anyInt())).thenAnswer((invocation) -> {
+            Object[] args = invocation.getArguments();
+            int x = (Integer) args[0];
+            int y = (Integer) args[1];
+            int z = (Integer) args[2];
+            MaterialState state = getState(x, y, airState, stoneState);
+            return Optional.of(new CommonBlock(new CommonLocation(this.world, x, y, z), state));
+        });
+    }
+
+    private static MaterialState getState(int x, int y, MaterialState air, MaterialState stone)
+    {
+        return (y <= 60 || x == 20) ? stone : air;
+    }
+
+    @Test
+    public void testTargetFace()
+    {
+        RayTrace ray = new RayTrace(new CommonLocation(this.world, 0.5, 64, 0.5), -90, 0, 250, 0, 255, 0.2, new Vector3d(0, 1.62, 0));
+        ray.setExact(true);
+        ray.trace();
+        assertPosition(20, 65, 0, ray.getTargetBlock().getPosition());
+        assertPosition(19, 65, 0, ray.getLastBlock().getPosition());
+        assertEquals(Direction.EAST, ray.getTargetFace());
+        assertEquals(19.5, ray.getLength(), 0.0001);
+    }
+
+    @Test
+    public void testOutOfRange()
+    {
+        RayTrace ray = new RayTrace(new CommonLocation(this.world, 0.5, 64, 0.5), -90, 0, 10, 0, 255, 0.2, new Vector3d(0, 1.62, 0));
+        ray.setExact(true);
+        ray.trace();
+        // the target falls back to the furthest block within range
+        assertPosition(10, 65, 0, ray.getTargetBlock().getPosition());
+        assertEquals(10, ray.getLength(), 0.0001);
+    }
+
+    @Test
+    public void testTraversalIsContiguous()
+    {
+        final List<Vector3i> visited = Lists.newArrayList();
+        Vector3d dir = new Vector3d(5, 2, 3);
+        RayTrace ray = new RayTrace(new CommonLocation(this.world, 0, 70, 0), dir, dir.length(), 0, 255, 0.2, new Vector3d(0.5, 0.5, 0.5));
+        ray.setExact(true);
+        ray.getTraversalBlocks().clear();
+        ray.trace((Block block) -> {
+            visited.add(block.getPosition());
+            return true;
+        });
+        // the start block is not visited, every other block is exactly one face away from the last
+        assertEquals(10, visited.size());
+        Vector3i last = new Vector3i(0, 70, 0);
+        for (Vector3i next : visited)
+        {
+            int diff = Math.abs(next.getX() - last.getX()) + Math.abs(next.getY() - last.getY()) + Math.abs(next.getZ() - last.getZ());
+            assertEquals(1, diff);
+            last = next;
+        }
+        assertPosition(5, 72, 3, last);
+    }
+
+    @Test
+    public void testChunkCursor()
+    {
+        List<TestChunk> chunks = Lists.newArrayList();
+        when(this.world.getChunk(anyInt(), anyInt(), anyInt())).thenAnswer((invocation) -> {
+            Object[] args = invocation.getArguments();
+            TestChunk chunk = new TestChunk(this.world, new Vector3i((Integer) args[0] * 16, (Integer) args[1] * 256, (Integer) args[2] * 16));
+            chunks.add(chunk);
+            return Optional.of(chunk);
+        });
+        RayTrace ray = new RayTrace(new CommonLocation(this.world, 0.5, 64, 0.5), -90, 0, 250, 0, 255, 0.2, new Vector3d(0, 1.62, 0));
+        ray.setExact(true);
+        ray.trace();
+        assertPosition(20, 65, 0, ray.getTargetBlock().getPosition());
+        // the cursor resolves each chunk once and reads materials without creating blocks
+        verify(this.world, times(2)).getChunk(anyInt(), anyInt(), anyInt());
+        verify(this.world, never()).getMaterial(anyInt(), anyInt(), anyInt());
+        verify(this.world, never()).getBlock(anyInt(), anyInt(), anyInt());
+        assertEquals(2, chunks.size());
+        assertEquals(15, chunks.get(0).reads);
+        assertEquals(5, chunks.get(1).reads);
+    }
+
+    /**
+     * A chunk of the floor and wall of the test world which counts its material reads.
+     */
+    private class TestChunk extends AbstractChunk<Object>
+    {
+
+        private final Vector3i min;
+        int reads;
+
+        TestChunk(World world, Vector3i min)
+        {
+            super(new Object(), world);
+            this.min = min;
+        }
+
+        @Override
+        public Optional<MaterialState> getMaterial(int x, int y, int z)
+        {
+            this.reads++;
+            return Optional.of(getState(x, y, RayTraceTest.this.airState, RayTraceTest.this.stoneState));
+        }
+
+        @Override
+        public Optional<Block> getBlock(int x, int y, int z)
+        {
+            Location location = new CommonLocation(getWorld(), x, y, z);
+            return Optional.of(new CommonBlock(location, getState(x, y, RayTraceTest.this.airState, RayTraceTest.this.stoneState)));
+        }
+
+        @Override
+        public void setBlock(MaterialState material, int x, int y, int z, boolean update)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterable<Entity> getLoadedEntities()
+        {
+            return Lists.newArrayList();
+        }
+
+        @Override
+        public void refreshChunk()
+        {
+        }
+
+        @Override
+        public Vector3i getMinBound()
+        {
+            return this.min;
+        }
+
+        @Override
+        public Vector3i getMaxBound()
+        {
+            return this.min.add(new Vector3i(15, 255, 15));
+        }
+
+        @Override
+        public Vector3i getSize()
+        {
+            return new Vector3i(16, 256, 16);
+        }
+
+    }
+
+    private static void assertPosition(int x, int y, int z, Vector3i actual)
+    {
+        assertEquals(x, actual.getX());
+        assertEquals(y, actual.getY());
+        assertEquals(z, actual.getZ());
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import com.voxelplugineering.voxelsniper.shape.ComplexMaterialShape;
+import com.voxelplugineering.voxelsniper.shape.ComplexShape;
+import com.voxelplugineering.voxelsniper.shape.RleMaterialShape;
+import com.voxelplugineering.voxelsniper.util.MaterialShapeTestUtil;
+import com.voxelplugineering.voxelsniper.util.math.Vector3i;
+import com.voxelplugineering.voxelsniper.world.material.MaterialState;
+
+import org.junit.Test;
+
+import java.util.Optional;
+
+/**
+ * A set of tests for the {@link RleMaterialShape}.
+ */
+@SuppressWarnings({ "checkstyle:javadocmethod", "javadoc" })
+public class RleMaterialShapeTest
+{
+
+    private final MaterialState air = mock(MaterialState.class);
+    private final MaterialState stone = mock(MaterialState.class);
+    private final MaterialState water = mock(MaterialState.class);
+
+    @Test
+    public void testFromShape()
+    {
+        ComplexShape base = new ComplexShape(2, 8, 2);
+        for (int y = 2; y < 6; y++)
+        {
+            base.set(1, y, 1, false);
+        }
+        RleMaterialShape shape = new RleMaterialShape(base, this.air);
+        assertEquals(1, shape.getRunCount(0, 0));
+        assertEquals(3, shape.getRunCount(1, 1));
+        assertEquals(false, shape.get(1, 1, 1, false));
+        assertEquals(Optional.of(this.air), shape.getMaterial(1, 2, 1, false));
+        assertEquals(Optional.of(this.air), shape.getMaterial(1, 5, 1, false));
+        assertEquals(false, shape.get(1, 6, 1, false));
+    }
+
+    @Test
+    public void testSplitAndMerge()
+    {
+        RleMaterialShape shape = new RleMaterialShape(1, 16, 1, Vector3i.ZERO, this.air);
+        for (int y = 0; y < 16; y++)
+        {
+            shape.setMaterial(0, y, 0, false, this.stone);
+        }
+        assertEquals(1, shape.getRunCount(0, 0));
+
+        shape.setMaterial(0, 7, 0, false, this.water);
+        assertEquals(3, shape.getRunCount(0, 0));
+        assertEquals(Optional.of(this.stone), shape.getMaterial(0, 6, 0, false));
+        assertEquals(Optional.of(this.water), shape.getMaterial(0, 7, 0, false));
+        assertEquals(Optional.of(this.stone), shape.getMaterial(0, 8, 0, false));
+
+        shape.setMaterial(0, 7, 0, false, this.stone);
+        assertEquals(1, shape.getRunCount(0, 0));
+
+        shape.unset(0, 0, 0, false);
+        shape.unset(0, 15, 0, false);
+        assertEquals(3, shape.getRunCount(0, 0));
+        assertEquals(false, shape.get(0, 15, 0, false));
+        assertEquals(true, shape.get(0, 14, 0, false));
+    }
+
+    @Test
+    public void testFloodAndClone()
+    {
+        RleMaterialShape shape = new RleMaterialShape(1, 8, 1, Vector3i.ZERO, this.air);
+        shape.setMaterial(0, 1, 0, false, this.stone);
+        shape.setMaterial(0, 2, 0, false, this.water);
+        RleMaterialShape copy = (RleMaterialShape) shape.clone();
+        shape.flood(this.stone);
+        assertEquals(3, shape.getRunCount(0, 0));
+        assertEquals(Optional.of(this.stone), shape.getMaterial(0, 2, 0, false));
+        assertEquals(Optional.of(this.water), copy.getMaterial(0, 2, 0, false));
+    }
+
+    @Test
+    public void testDefaultMaterialSwap()
+    {
+        RleMaterialShape shape = new RleMaterialShape(1, 4, 1, Vector3i.ZERO, this.air);
+        shape.set(0, 0, 0, false);
+        shape.setMaterial(0, 1, 0, false, this.stone);
+        shape.setDefaultMaterial(this.stone);
+        assertEquals(Optional.of(this.air), shape.getMaterial(0, 0, 0, false));
+        assertEquals(Optional.of(this.stone), shape.getMaterial(0, 1, 0, false));
+    }
+
+    @Test
+    public void testDenseComparison()
+    {
+        assertEquals(false, RleMaterialShape.canCompress(16));
+        assertEquals(true, RleMaterialShape.canCompress(256));
+
+        // long runs of terrain are far smaller than dense data
+        RleMaterialShape layered = new RleMaterialShape(4, 256, 4, Vector3i.ZERO, this.air);
+        for (int x = 0; x < 4; x++)
+        {
+            for (int z = 0; z < 4; z++)
+            {
+                for (int y = 0; y < 256; y++)
+                {
+                    layered.setMaterial(x, y, z, false, y < 60 ? this.stone : y < 64 ? this.water : this.air);
+                }
+            }
+        }
+        layered.trim();
+        assertEquals(true, layered.getRetainedBytes() < layered.getDenseRetainedBytes());
+
+        // a material change at every point costs more as runs than densely
+        RleMaterialShape varied = new RleMaterialShape(4, 64, 4, Vector3i.ZERO, this.air);
+        for (int x = 0; x < 4; x++)
+        {
+            for (int z = 0; z < 4; z++)
+            {
+                for (int y = 0; y < 64; y++)
+                {
+                    varied.setMaterial(x, y, z, false, y % 2 == 0 ? this.stone : this.water);
+                }
+            }
+        }
+        varied.unset(2, 10, 3, false);
+        varied.trim();
+        assertEquals(true, varied.getRetainedBytes() > varied.getDenseRetainedBytes());
+
+        ComplexMaterialShape dense = varied.toDense();
+        for (int x = 0; x < 4; x++)
+        {
+            for (int z = 0; z < 4; z++)
+            {
+                for (int y = 0; y < 64; y++)
+                {
+                    assertEquals(varied.get(x, y, z, false), dense.get(x, y, z, false));
+                    assertEquals(varied.getMaterial(x, y, z, false), dense.getMaterial(x, y, z, false));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMaterialData()
+    {
+        RleMaterialShape shape = new RleMaterialShape(3, 10, 2, Vector3i.ZERO, this.air);
+        for (int x = 0; x < 3; x++)
+        {
+            for (int z = 0; z < 2; z++)
+            {
+                for (int y = 0; y < 10; y++)
+                {
+                    shape.setMaterial(x, y, z, false, y < 4 + x ? this.stone : y < 7 ? this.water : this.air);
+                }
+            }
+        }
+        shape.unset(1, 5, 1, false);
+        MaterialShapeTestUtil.assertMaterialData(shape);
+
+        // more materials than fit in a single byte need the upper array too
+        RleMaterialShape tall = new RleMaterialShape(1, 300, 2, Vector3i.ZERO, this.air);
+        for (int y = 0; y < 300; y++)
+        {
+            tall.setMaterial(0, y, 1, false, mock(MaterialState.class));
+        }
+        assertEquals(true, tall.hasExtraData());
+        MaterialShapeTestUtil.assertMaterialData(tall);
+    }
+
+}
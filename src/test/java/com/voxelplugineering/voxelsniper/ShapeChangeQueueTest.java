@@ -0,0 +1,240 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.voxelplugineering.voxelsniper.config.BaseConfiguration;
+import com.voxelplugineering.voxelsniper.shape.ComplexShape;
+import com.voxelplugineering.voxelsniper.shape.MaterialShape;
+import com.voxelplugineering.voxelsniper.shape.Shape;
+import com.voxelplugineering.voxelsniper.shape.SingleMaterialShape;
+import com.voxelplugineering.voxelsniper.shape.SparseShape;
+import com.voxelplugineering.voxelsniper.util.math.Vector3i;
+import com.voxelplugineering.voxelsniper.world.CommonLocation;
+import com.voxelplugineering.voxelsniper.world.Location;
+import com.voxelplugineering.voxelsniper.world.World;
+import com.voxelplugineering.voxelsniper.world.material.Material;
+import com.voxelplugineering.voxelsniper.world.material.MaterialState;
+import com.voxelplugineering.voxelsniper.world.queue.ChangeQueue;
+import com.voxelplugineering.voxelsniper.world.queue.ChangeQueueOwner;
+import com.voxelplugineering.voxelsniper.world.queue.PendingQueue;
+import com.voxelplugineering.voxelsniper.world.queue.ShapeChangeQueue;
+import com.voxelplugineering.voxelsniper.world.queue.UndoQueue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.util.Optional;
+
+/**
+ * A set of tests for the {@link ShapeChangeQueue}.
+ */
+@SuppressWarnings({ "checkstyle:javadocmethod", "javadoc" })
+public class ShapeChangeQueueTest
+{
+
+    private World world;
+    private ChangeQueueOwner owner;
+    private PendingQueue pending;
+    private MaterialState air;
+    private MaterialState stone;
+
+    @Before
+    public void setup()
+    {
+        this.air = state(false);
+        this.stone = state(false);
+        this.world = Mockito.mock(World.class);
+        // no chunks are loaded so reads through a chunk cursor fall back to the world
+        Mockito.when(this.world.getChunkSize()).thenReturn(new Vector3i(16, 256, 16));
+        Mockito.when(this.world.getChunk(Matchers.anyInt(), Matchers.anyInt(), Matchers.anyInt())).thenReturn(Optional.empty());
+        // the world is entirely air
+        Mockito.when(this.world.getShapeFromWorld(Matchers.any(Location.class), Matchers.any(Shape.class)))
+                .thenAnswer(inv -> new SingleMaterialShape(((Shape) inv.getArguments()[1]).clone(), this.air));
+        this.pending = new PendingQueue();
+        UndoQueue history = Mockito.mock(UndoQueue.class);
+        Mockito.when(history.isAcceptingHistory()).thenReturn(true);
+        this.owner = Mockito.mock(ChangeQueueOwner.class);
+        Mockito.when(this.owner.getUndoHistory()).thenReturn(history);
+        Mockito.when(this.owner.addPending(Matchers.any(ChangeQueue.class)))
+                .thenAnswer(inv -> this.pending.offer((ChangeQueue) inv.getArguments()[0]));
+        Mockito.when(this.owner.getPendingChanges()).thenAnswer(inv -> this.pending.snapshot());
+        Mockito.when(this.owner.getLastPendingChange()).thenAnswer(inv -> this.pending.peekLast());
+    }
+
+    private static MaterialState state(boolean liquid)
+    {
+        MaterialState state = Mockito.mock(MaterialState.class);
+        Material type = Mockito.mock(Material.class);
+        Mockito.when(type.isLiquid()).thenReturn(liquid);
+        Mockito.when(state.getType()).thenReturn(type);
+        return state;
+    }
+
+    private ShapeChangeQueue change(int x, int y, int z, int size, MaterialState material)
+    {
+        ComplexShape points = new ComplexShape(size, size, size);
+        points.invert();
+        MaterialShape shape = new SingleMaterialShape(points, material);
+        return new ShapeChangeQueue(this.owner, new CommonLocation(this.world, x, y, z), shape);
+    }
+
+    @Test
+    public void testInterleavedCompaction()
+    {
+        ShapeChangeQueue first = change(0, 0, 0, 2, this.stone);
+        first.flush();
+        assertEquals(8, first.getChangeCount());
+        ShapeChangeQueue elsewhere = change(10, 0, 0, 1, this.stone);
+        elsewhere.flush();
+        assertEquals(1, elsewhere.getChangeCount());
+
+        // setting the first region back to air looks like a no-op against the snapshot, but the
+        // first change is still pending so nothing may be dropped
+        ShapeChangeQueue revert = change(0, 0, 0, 2, this.air);
+        revert.flush();
+        assertEquals(3, this.pending.size());
+        assertEquals(-1, revert.getChangeCount());
+
+        // a real no-op away from any pending change is still dropped
+        ShapeChangeQueue noop = change(20, 0, 0, 1, this.air);
+        noop.flush();
+        assertEquals(3, this.pending.size());
+        assertEquals(0, noop.getChangeCount());
+    }
+
+    @Test
+    public void testCoalesceSkipsCancelled()
+    {
+        ShapeChangeQueue first = change(0, 0, 0, 2, this.stone);
+        first.flush();
+        change(1, 1, 1, 2, this.stone).flush();
+        // merged into the first change
+        assertEquals(1, this.pending.size());
+        assertEquals(15, first.getChangeCount());
+
+        assertTrue(this.pending.peekLast().get().cancel());
+        ShapeChangeQueue later = change(1, 1, 1, 2, this.stone);
+        later.flush();
+        assertEquals(1, this.pending.size());
+        assertSame(later, this.pending.peek().get().getChange());
+    }
+
+    private void stubColumn(MaterialState... column)
+    {
+        for (int y = 0; y < column.length; y++)
+        {
+            Mockito.when(this.world.getMaterial(0, y, 0)).thenReturn(Optional.of(column[y]));
+        }
+    }
+
+    @Test
+    public void testScanOrderAndBudget()
+    {
+        int ratio = BaseConfiguration.shapeScanRatio;
+        BaseConfiguration.shapeScanRatio = 1;
+        try
+        {
+            MaterialState water = state(true);
+            // water on top of two air blocks, and a fourth block already of the target material
+            stubColumn(this.air, this.air, water, this.stone);
+            ComplexShape points = new ComplexShape(1, 4, 1);
+            points.invert();
+            ShapeChangeQueue change = new ShapeChangeQueue(this.owner, new CommonLocation(this.world, 0, 0, 0),
+                    new SingleMaterialShape(points, this.stone));
+
+            // each position scanned costs one unit at a ratio of one
+            assertEquals(3, change.perform(3));
+            Mockito.verify(this.world, Mockito.never()).setBlock(Matchers.any(MaterialState.class), Matchers.anyInt(),
+                    Matchers.anyInt(), Matchers.anyInt(), Matchers.anyBoolean());
+            // the last position is scanned, then the water is replaced first
+            assertEquals(2, change.perform(2));
+            assertEquals(2, change.perform(10));
+            assertTrue(change.isFinished());
+
+            // breakable blocks from the top down, then everything else from the bottom up
+            InOrder order = Mockito.inOrder(this.world);
+            order.verify(this.world).setBlock(this.stone, 0, 2, 0, true);
+            order.verify(this.world).setBlock(this.stone, 0, 0, 0, true);
+            order.verify(this.world).setBlock(this.stone, 0, 1, 0, true);
+            Mockito.verify(this.world, Mockito.never()).setBlock(this.stone, 0, 3, 0, true);
+        } finally
+        {
+            BaseConfiguration.shapeScanRatio = ratio;
+        }
+    }
+
+    @Test
+    public void testScanRatio()
+    {
+        int ratio = BaseConfiguration.shapeScanRatio;
+        BaseConfiguration.shapeScanRatio = 4;
+        try
+        {
+            stubColumn(this.stone, this.stone, this.stone, this.stone, this.stone, this.stone, this.stone, this.stone);
+            ComplexShape points = new ComplexShape(1, 8, 1);
+            points.invert();
+            ShapeChangeQueue change = new ShapeChangeQueue(this.owner, new CommonLocation(this.world, 0, 0, 0),
+                    new SingleMaterialShape(points, this.stone));
+            // eight reads at four reads per unit, nothing needs writing
+            assertEquals(1, change.perform(1));
+            assertEquals(1, change.perform(1));
+            assertTrue(change.isFinished());
+        } finally
+        {
+            BaseConfiguration.shapeScanRatio = ratio;
+        }
+    }
+
+    @Test
+    public void testWrappedSparseScan()
+    {
+        int ratio = BaseConfiguration.shapeScanRatio;
+        BaseConfiguration.shapeScanRatio = 1;
+        try
+        {
+            stubColumn(this.air);
+            Mockito.when(this.world.getMaterial(0, 999, 0)).thenReturn(Optional.of(this.air));
+            SparseShape line = new SparseShape(1, 1000, 1);
+            line.set(0, 0, 0, false);
+            line.set(0, 999, 0, false);
+            ShapeChangeQueue change = new ShapeChangeQueue(this.owner, new CommonLocation(this.world, 0, 0, 0),
+                    new SingleMaterialShape(line, this.stone));
+            // only the two set points are scanned rather than the whole column
+            assertEquals(4, change.perform(10));
+            assertTrue(change.isFinished());
+            Mockito.verify(this.world, Mockito.times(2)).getMaterial(Matchers.anyInt(), Matchers.anyInt(), Matchers.anyInt());
+        } finally
+        {
+            BaseConfiguration.shapeScanRatio = ratio;
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import com.voxelplugineering.voxelsniper.shape.ComplexShape;
+import com.voxelplugineering.voxelsniper.shape.Shape;
+import com.voxelplugineering.voxelsniper.shape.SparseMaterialShape;
+import com.voxelplugineering.voxelsniper.shape.SparseShape;
+import com.voxelplugineering.voxelsniper.util.MaterialShapeTestUtil;
+import com.voxelplugineering.voxelsniper.util.math.Vector3i;
+import com.voxelplugineering.voxelsniper.world.material.MaterialState;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of tests for the {@link SparseShape}.
+ */
+@SuppressWarnings({ "checkstyle:javadocmethod", "javadoc" })
+public class SparseShapeTest
+{
+
+    @Test
+    public void testBasic()
+    {
+        SparseShape shape = new SparseShape(1, 1, 1);
+        assertEquals(false, shape.get(0, 0, 0, false));
+
+        shape.set(0, 0, 0, false);
+        assertEquals(true, shape.get(0, 0, 0, false));
+        assertEquals(1, shape.size());
+
+        shape.unset(0, 0, 0, false);
+        assertEquals(false, shape.get(0, 0, 0, false));
+        assertEquals(0, shape.size());
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testBasicOOB()
+    {
+        SparseShape shape = new SparseShape(1, 1, 1);
+        shape.set(1, 1, 1, false);
+    }
+
+    @Test
+    public void testRelative()
+    {
+        SparseShape shape = new SparseShape(3, 3, 3, new Vector3i(1, 1, 1));
+        shape.set(0, 0, 0, true);
+        assertEquals(true, shape.get(1, 1, 1, false));
+    }
+
+    @Test
+    public void testManyPoints()
+    {
+        SparseShape shape = new SparseShape(64, 64, 64);
+        for (int i = 0; i < 64; i++)
+        {
+            shape.set(i, i, i, false);
+            shape.set(63 - i, i, 0, false);
+        }
+        assertEquals(128, shape.size());
+        for (int i = 0; i < 64; i += 2)
+        {
+            shape.unset(i, i, i, false);
+        }
+        assertEquals(96, shape.size());
+        for (int i = 0; i < 64; i++)
+        {
+            assertEquals(i % 2 == 1, shape.get(i, i, i, false));
+            assertEquals(true, shape.get(63 - i, i, 0, false));
+        }
+    }
+
+    @Test
+    public void testIterationOrder()
+    {
+        SparseShape shape = new SparseShape(32, 4, 4);
+        shape.set(20, 0, 0, false);
+        shape.set(1, 3, 0, false);
+        shape.set(0, 1, 2, false);
+        List<String> visited = new ArrayList<>();
+        shape.forEachSet((x, y, z) -> visited.add(x + "," + y + "," + z));
+        assertEquals("[0,1,2, 1,3,0, 20,0,0]", visited.toString());
+    }
+
+    @Test
+    public void testClone()
+    {
+        SparseShape shape = new SparseShape(4, 4, 4);
+        shape.set(1, 2, 3, false);
+        SparseShape copy = shape.clone();
+        shape.unset(1, 2, 3, false);
+        assertEquals(true, copy.get(1, 2, 3, false));
+        assertEquals(false, shape.get(1, 2, 3, false));
+    }
+
+    @Test
+    public void testCreate()
+    {
+        Shape sparse = SparseShape.create(256, 256, 256, new Vector3i(0, 0, 0), 768);
+        assertEquals(true, sparse instanceof SparseShape);
+        Shape dense = SparseShape.create(8, 8, 8, new Vector3i(0, 0, 0), 24);
+        assertEquals(true, dense instanceof ComplexShape);
+    }
+
+    @Test
+    public void testMaterialData()
+    {
+        SparseShape points = new SparseShape(4, 300, 3);
+        for (int y = 0; y < 300; y += 7)
+        {
+            points.set(y % 4, y, y % 3, false);
+        }
+        SparseMaterialShape shape = new SparseMaterialShape(points, mock(MaterialState.class));
+        MaterialState stone = mock(MaterialState.class);
+        shape.setMaterial(0, 0, 0, false, stone);
+        shape.setMaterial(3, 7, 1, false, stone);
+        MaterialShapeTestUtil.assertMaterialData(shape);
+
+        // more materials than fit in a single byte need the upper array too
+        for (int y = 0; y < 300; y++)
+        {
+            shape.setMaterial(1, y, 2, false, mock(MaterialState.class));
+        }
+        assertEquals(true, shape.hasExtraData());
+        MaterialShapeTestUtil.assertMaterialData(shape);
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.voxelplugineering.voxelsniper.brush.BrushContext;
+import com.voxelplugineering.voxelsniper.brush.BrushKeys;
+import com.voxelplugineering.voxelsniper.brush.BrushVars;
+import com.voxelplugineering.voxelsniper.brush.mask.SplatterMaskBrush;
+import com.voxelplugineering.voxelsniper.entity.Player;
+import com.voxelplugineering.voxelsniper.shape.ComplexShape;
+import com.voxelplugineering.voxelsniper.shape.Shape;
+import com.voxelplugineering.voxelsniper.shape.csg.EllipsoidShape;
+import com.voxelplugineering.voxelsniper.util.math.Vector3i;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A set of tests for the {@link SplatterMaskBrush}.
+ */
+@SuppressWarnings({ "checkstyle:javadocmethod", "javadoc" })
+public class SplatterMaskTest
+{
+
+    private final Shape base = new EllipsoidShape(8, 8, 8, new Vector3i(8, 8, 8));
+
+    @Test
+    public void testSeeded()
+    {
+        Shape first = splatter(0.05, 0.5, 4, 1234);
+        Shape second = splatter(0.05, 0.5, 4, 1234);
+        Shape other = splatter(0.05, 0.5, 4, 4321);
+        boolean differs = false;
+        for (int x = 0; x < this.base.getWidth(); x++)
+        {
+            for (int y = 0; y < this.base.getHeight(); y++)
+            {
+                for (int z = 0; z < this.base.getLength(); z++)
+                {
+                    assertEquals(first.get(x, y, z, false), second.get(x, y, z, false));
+                    differs |= first.get(x, y, z, false) != other.get(x, y, z, false);
+                }
+            }
+        }
+        assertTrue(differs);
+    }
+
+    @Test
+    public void testGrowth()
+    {
+        // the seeds are drawn before any growth, so without growth the same seed gives only the seeds
+        Shape seeds = splatter(0.02, 0, 1, 99);
+        Shape grown = splatter(0.02, 0.6, 5, 99);
+        int seeded = 0;
+        int set = 0;
+        ComplexShape reached = new ComplexShape(grown.getWidth(), grown.getHeight(), grown.getLength());
+        Deque<Vector3i> open = new ArrayDeque<>();
+        for (int x = 0; x < this.base.getWidth(); x++)
+        {
+            for (int y = 0; y < this.base.getHeight(); y++)
+            {
+                for (int z = 0; z < this.base.getLength(); z++)
+                {
+                    if (grown.get(x, y, z, false))
+                    {
+                        assertTrue(this.base.get(x, y, z, false));
+                        set++;
+                    }
+                    if (seeds.get(x, y, z, false))
+                    {
+                        assertTrue(grown.get(x, y, z, false));
+                        reached.set(x, y, z, false);
+                        open.add(new Vector3i(x, y, z));
+                        seeded++;
+                    }
+                }
+            }
+        }
+        assertTrue(seeded > 0 && set > seeded);
+
+        // every grown voxel is connected to a seed through other grown voxels
+        int connected = seeded;
+        while (!open.isEmpty())
+        {
+            Vector3i next = open.poll();
+            for (int[] d : new int[][] { { 1, 0, 0 }, { -1, 0, 0 }, { 0, 1, 0 }, { 0, -1, 0 }, { 0, 0, 1 }, { 0, 0, -1 } })
+            {
+                int x = next.getX() + d[0];
+                int y = next.getY() + d[1];
+                int z = next.getZ() + d[2];
+                if (x < 0 || y < 0 || z < 0 || x >= grown.getWidth() || y >= grown.getHeight() || z >= grown.getLength())
+                {
+                    continue;
+                }
+                if (grown.get(x, y, z, false) && !reached.get(x, y, z, false))
+                {
+                    reached.set(x, y, z, false);
+                    open.add(new Vector3i(x, y, z));
+                    connected++;
+                }
+            }
+        }
+        assertEquals(set, connected);
+    }
+
+    private Shape splatter(double seed, double growth, int recursions, int randomSeed)
+    {
+        BrushVars vars = new BrushVars();
+        vars.set(BrushContext.GLOBAL, BrushKeys.SEED_PERCENT, seed);
+        vars.set(BrushContext.GLOBAL, BrushKeys.GROW_PERCENT, growth);
+        vars.set(BrushContext.GLOBAL, BrushKeys.RECURSIONS, recursions);
+        vars.set(BrushContext.GLOBAL, BrushKeys.RANDOM_SEED, randomSeed);
+        vars.set(BrushContext.RUNTIME, BrushKeys.SHAPE, this.base);
+        new SplatterMaskBrush().run(mock(Player.class), vars);
+        return vars.get(BrushKeys.SHAPE, Shape.class).get();
+    }
+
+}
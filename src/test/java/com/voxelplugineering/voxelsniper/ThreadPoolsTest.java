@@ -0,0 +1,193 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.voxelplugineering.voxelsniper.util.concurrent.InstrumentedThreadPoolExecutor;
+import com.voxelplugineering.voxelsniper.util.concurrent.ThreadPools;
+
+import com.google.common.base.Functions;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A set of tests for the pools created by {@link ThreadPools}.
+ */
+@SuppressWarnings({ "checkstyle:javadocmethod", "javadoc" })
+public class ThreadPoolsTest
+{
+
+    private static Runnable await(CountDownLatch latch)
+    {
+        return () -> {
+            try
+            {
+                latch.await();
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    @Test
+    public void testStartsThreadsBeforeQueueing() throws Exception
+    {
+        InstrumentedThreadPoolExecutor pool = ThreadPools.newBoundedPool("test-", 4, 16, 1000, "callerruns");
+        CountDownLatch latch = new CountDownLatch(1);
+        try
+        {
+            for (int i = 0; i < 4; i++)
+            {
+                pool.execute(await(latch));
+            }
+            assertEquals(4, pool.getPoolSize());
+            assertEquals(0, pool.getQueueLength());
+            pool.execute(await(latch));
+            assertEquals(1, pool.getQueueLength());
+        } finally
+        {
+            latch.countDown();
+            pool.shutdown();
+        }
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDiscardCancels() throws Exception
+    {
+        InstrumentedThreadPoolExecutor pool = ThreadPools.newBoundedPool("test-", 1, 1, 1000, "discard");
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(pool);
+        CountDownLatch latch = new CountDownLatch(1);
+        try
+        {
+            executor.submit(await(latch));
+            ListenableFuture<?> queued = executor.submit(() -> {
+            });
+            ListenableFuture<?> dropped = executor.submit(() -> {
+            });
+            assertTrue(dropped.isCancelled());
+            assertFalse(queued.isDone());
+            assertEquals(1, pool.getRejectedCount());
+        } finally
+        {
+            latch.countDown();
+            pool.shutdown();
+        }
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDiscardOldestCancels() throws Exception
+    {
+        InstrumentedThreadPoolExecutor pool = ThreadPools.newBoundedPool("test-", 1, 1, 1000, "discardoldest");
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(pool);
+        CountDownLatch latch = new CountDownLatch(1);
+        ListenableFuture<?> newest;
+        try
+        {
+            executor.submit(await(latch));
+            ListenableFuture<?> oldest = executor.submit(() -> {
+            });
+            newest = executor.submit(() -> {
+            });
+            assertTrue(oldest.isCancelled());
+            assertEquals(1, pool.getQueueLength());
+        } finally
+        {
+            latch.countDown();
+            pool.shutdown();
+        }
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(newest.isDone());
+        assertFalse(newest.isCancelled());
+    }
+
+    @Test
+    public void testAbortCompletesChainedFuture() throws Exception
+    {
+        InstrumentedThreadPoolExecutor pool = ThreadPools.newBoundedPool("test-", 1, 1, 1000, "abort");
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(pool);
+        CountDownLatch latch = new CountDownLatch(1);
+        try
+        {
+            executor.submit(await(latch));
+            executor.submit(() -> {
+            });
+            // a rejected stage must complete its future, either failed or cancelled, rather than
+            // being logged and dropped which leaves the future pending forever
+            ListenableFuture<Integer> chained = Futures.transform(Futures.immediateFuture(1), Functions.<Integer> identity(), pool);
+            assertTrue(chained.isDone());
+            assertEquals(1, pool.getRejectedCount());
+        } finally
+        {
+            latch.countDown();
+            pool.shutdown();
+        }
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testMetrics() throws Exception
+    {
+        InstrumentedThreadPoolExecutor pool = ThreadPools.newBoundedPool("test-", 2, 0, 1000, "abort");
+        CountDownLatch latch = new CountDownLatch(1);
+        try
+        {
+            pool.execute(await(latch));
+            pool.execute(await(latch));
+            try
+            {
+                pool.execute(() -> {
+                });
+            } catch (RejectedExecutionException expected)
+            {
+                // the hand-off queue holds nothing once both threads are busy
+            }
+            assertEquals(1, pool.getRejectedCount());
+            Thread.sleep(5);
+        } finally
+        {
+            latch.countDown();
+            pool.shutdown();
+        }
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(2, pool.getCompletedTaskCount());
+        assertTrue(pool.getAverageRunTime() > 0);
+        assertTrue(pool.getMaxLatency() >= pool.getAverageRunTime());
+        assertTrue(pool.getStatus().startsWith("test-: "));
+    }
+
+}
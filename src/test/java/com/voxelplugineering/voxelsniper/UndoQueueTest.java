@@ -222,4 +222,75 @@ public class UndoQueueTest
         Mockito.verify(owner, Mockito.times(0)).addPending(change);
     }
 
+    /**
+     * 
+     */
+    @Test
+    public void testRemoveHistory()
+    {
+        ChangeQueueOwner owner = Mockito.mock(ChangeQueueOwner.class);
+        ChangeQueue change = Mockito.mock(ChangeQueue.class);
+        ChangeQueue reverse = Mockito.mock(ChangeQueue.class);
+        ChangeQueue change2 = Mockito.mock(ChangeQueue.class);
+        ChangeQueue reverse2 = Mockito.mock(ChangeQueue.class);
+        UndoQueue queue = new CommonUndoQueue(owner);
+        queue.addHistory(change, reverse);
+        queue.addHistory(change2, reverse2);
+        assertEquals(true, queue.removeHistory(change2));
+        assertEquals(false, queue.removeHistory(change2));
+        assertEquals(1, queue.size());
+        assertEquals(1, queue.undo(2));
+        Mockito.verify(owner, Mockito.times(1)).addPending(reverse);
+        Mockito.verify(owner, Mockito.times(0)).addPending(reverse2);
+    }
+
+    /**
+     * 
+     */
+    @Test
+    public void testByteCapacity()
+    {
+        ChangeQueueOwner owner = Mockito.mock(ChangeQueueOwner.class);
+        UndoQueue queue = new CommonUndoQueue(owner);
+        queue.setMaxBytes(250);
+        ChangeQueue first = null;
+        for (int i = 0; i < 3; i++)
+        {
+            ChangeQueue change = Mockito.mock(ChangeQueue.class);
+            ChangeQueue reverse = Mockito.mock(ChangeQueue.class);
+            Mockito.when(change.isFinished()).thenReturn(true);
+            Mockito.when(change.getRetainedBytes()).thenReturn(50L);
+            Mockito.when(reverse.getRetainedBytes()).thenReturn(50L);
+            queue.addHistory(change, reverse);
+            if (first == null)
+            {
+                first = reverse;
+            }
+        }
+        assertEquals(2, queue.size());
+        assertEquals(200, queue.getRetainedBytes());
+        assertEquals(2, queue.undo(3));
+        Mockito.verify(owner, Mockito.times(0)).addPending(first);
+    }
+
+    /**
+     * 
+     */
+    @Test
+    public void testPendingBytes()
+    {
+        ChangeQueueOwner owner = Mockito.mock(ChangeQueueOwner.class);
+        UndoQueue queue = new CommonUndoQueue(owner);
+        ChangeQueue change = Mockito.mock(ChangeQueue.class);
+        ChangeQueue reverse = Mockito.mock(ChangeQueue.class);
+        Mockito.when(change.getRetainedBytes()).thenReturn(50L);
+        Mockito.when(reverse.getRetainedBytes()).thenReturn(20L);
+        queue.addHistory(change, reverse);
+        // the change is accounted as pending until it has been performed
+        assertEquals(20, queue.getRetainedBytes());
+        Mockito.when(change.isFinished()).thenReturn(true);
+        queue.updateHistory(change);
+        assertEquals(70, queue.getRetainedBytes());
+    }
+
 }
@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 The Voxel Plugineering Team
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.voxelplugineering.voxelsniper.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.voxelplugineering.voxelsniper.shape.MaterialShape;
+import com.voxelplugineering.voxelsniper.world.material.MaterialState;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A util for checking {@link MaterialShape}s.
+ */
+public class MaterialShapeTestUtil
+{
+
+    /**
+     * Asserts that the raw material arrays of the given shape are laid out as those of a
+     * {@link com.voxelplugineering.voxelsniper.shape.ComplexMaterialShape} and hold, for every
+     * set point, the id of that point's material in the shape's dictionary.
+     */
+    public static void assertMaterialData(MaterialShape shape)
+    {
+        byte[] lower = shape.getLowerMaterialData();
+        byte[] upper = shape.getUpperMaterialData();
+        if (!shape.hasExtraData())
+        {
+            assertNull(upper);
+        }
+        Map<Short, MaterialState> dictionary = shape.getMaterialsDictionary();
+        assertEquals(shape.getWidth() * shape.getHeight() * shape.getLength(), lower.length);
+        for (int x = 0; x < shape.getWidth(); x++)
+        {
+            for (int y = 0; y < shape.getHeight(); y++)
+            {
+                for (int z = 0; z < shape.getLength(); z++)
+                {
+                    if (!shape.get(x, y, z, false))
+                    {
+                        continue;
+                    }
+                    int index = (y * shape.getLength() + z) * shape.getWidth() + x;
+                    int id = lower[index] & 0xFF;
+                    if (upper != null)
+                    {
+                        id |= (upper[index] & 0xFF) << 8;
+                    }
+                    assertEquals(shape.getMaterial(x, y, z, false), Optional.ofNullable(dictionary.get((short) id)));
+                }
+            }
+        }
+    }
+
+}